@@ -0,0 +1,161 @@
+package project.bench;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import project.dao.BookmarkDAO;
+import project.dao.ConnectionPool;
+import project.dao.DBUtil;
+import project.dao.HistoryCursor;
+import project.dao.HistoryDAO;
+import project.model.HistoryEntry;
+
+/**
+ * Shared benchmark state: a seeded database of {@code rows} history entries
+ * and {@code rows / 10} bookmarks, plus DAOs wired the way the app wires them
+ * (through {@link DBUtil}'s pool).
+ *
+ * <p>Each dataset lives in its own schema ({@code qb_bench_<rows>}) and is
+ * seeded only if it is missing or incomplete. JMH runs every parameter value
+ * in a fresh JVM, so DBUtil's static configuration can point at a different
+ * schema for each one.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkDatabase {
+
+    /** Synthetic URLs: this many distinct pages, visited with a skewed distribution. */
+    private static final int DISTINCT_URL_DIVISOR = 10;
+    private static final int SEED_BATCH = 5_000;
+
+    @Param({"10000", "1000000", "10000000"})
+    public int rows;
+
+    public ConnectionPool pool;
+    public HistoryDAO historyDAO;
+    public BookmarkDAO bookmarkDAO;
+
+    /** Cursor pointing at the middle of the history, for deep keyset pages. */
+    public HistoryCursor middleCursor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        open(rows);
+        historyDAO = new HistoryDAO(pool);
+        bookmarkDAO = new BookmarkDAO(pool);
+
+        // The entry halfway down the history, found by id (ids follow visit order when seeded)
+        try (Connection c = pool.getConnection();
+             Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("SELECT id, url, visited_at FROM history "
+                     + "WHERE id >= (SELECT (MIN(id) + MAX(id)) DIV 2 FROM history) ORDER BY id LIMIT 1")) {
+            if (rs.next()) {
+                middleCursor = HistoryCursor.of(new HistoryEntry(rs.getInt(1), rs.getString(2),
+                        rs.getTimestamp(3).toLocalDateTime()));
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        DBUtil.shutdown();
+        EmbeddedDatabase.stop();
+    }
+
+    /**
+     * Points DBUtil at the dataset's schema, migrates it and seeds it if needed.
+     */
+    void open(int size) throws Exception {
+        System.setProperty("quantum.db.url", EmbeddedDatabase.jdbcUrl("qb_bench_" + size));
+        if (EmbeddedDatabase.isEmbedded()) {
+            System.setProperty("quantum.db.user", "root");
+            System.setProperty("quantum.db.password", "");
+        }
+        pool = DBUtil.getPool();
+        seed(pool, size);
+    }
+
+    /** Synthetic URL for page number n. */
+    static String url(int n) {
+        return "https://site" + (n % 997) + ".example.com/docs/section-" + (n / 997) + "/page-" + n + ".html";
+    }
+
+    private static void seed(ConnectionPool pool, int size) throws SQLException {
+        try (Connection c = pool.getConnection(); Statement st = c.createStatement()) {
+            st.execute("CREATE TABLE IF NOT EXISTS bench_seed (rows_seeded INT NOT NULL)");
+            try (ResultSet rs = st.executeQuery("SELECT rows_seeded FROM bench_seed")) {
+                if (rs.next() && rs.getInt(1) == size) {
+                    return;
+                }
+            }
+            System.out.println("# Seeding " + size + " history rows (one-time)...");
+            long started = System.nanoTime();
+            st.execute("DELETE FROM bench_seed");
+            st.execute("TRUNCATE TABLE history");
+            st.execute("TRUNCATE TABLE history_stats");
+            st.execute("TRUNCATE TABLE bookmarks");
+
+            Random random = new Random(42);
+            int distinct = Math.max(100, size / DISTINCT_URL_DIVISOR);
+            LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0);
+            long stepMillis = Math.max(1, 365L * 24 * 3600 * 1000 / size);
+
+            c.setAutoCommit(false);
+            try (PreparedStatement ps = c.prepareStatement("INSERT INTO history(url, visited_at) VALUES(?, ?)")) {
+                for (int i = 0; i < size; i++) {
+                    // Squaring a uniform value skews visits towards low page numbers
+                    double u = random.nextDouble();
+                    ps.setString(1, url((int) (u * u * distinct)));
+                    ps.setTimestamp(2, Timestamp.valueOf(start.plusNanos(i * stepMillis * 1_000_000L)));
+                    ps.addBatch();
+                    if ((i + 1) % SEED_BATCH == 0) {
+                        ps.executeBatch();
+                        c.commit();
+                    }
+                }
+                ps.executeBatch();
+            }
+            try (PreparedStatement ps = c.prepareStatement("INSERT INTO bookmarks(title, url) VALUES(?, ?)")) {
+                for (int i = 0; i < size / 10; i++) {
+                    ps.setString(1, "Bookmark " + i + " documentation section " + (i % 50));
+                    ps.setString(2, url(i));
+                    ps.addBatch();
+                    if ((i + 1) % SEED_BATCH == 0) {
+                        ps.executeBatch();
+                        c.commit();
+                    }
+                }
+                ps.executeBatch();
+            }
+            // Same aggregate as HistoryDAO's statistics rebuild (visit times read as UTC)
+            st.execute("INSERT INTO history_stats(url_hash, url, visit_count, last_visit, frecency) "
+                    + "SELECT url_hash, MIN(url), COUNT(*), MAX(visited_at), "
+                    + "LOG2(SUM(POW(2, (TIMESTAMPDIFF(SECOND, '1970-01-01', visited_at) - 1577836800) / 2592000))) "
+                    + "FROM history GROUP BY url_hash");
+            st.execute("INSERT INTO bench_seed VALUES (" + size + ")");
+            c.commit();
+            System.out.printf("# Seeded in %.1f s%n", (System.nanoTime() - started) / 1e9);
+        }
+    }
+
+    /** A batch of fresh visits for the write benchmarks. */
+    static List<HistoryEntry> visits(Random random, int count) {
+        HistoryEntry[] batch = new HistoryEntry[count];
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < count; i++) {
+            batch[i] = new HistoryEntry(url(random.nextInt(10_000)), now);
+        }
+        return List.of(batch);
+    }
+}
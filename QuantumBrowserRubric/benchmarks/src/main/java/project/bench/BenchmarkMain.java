@@ -0,0 +1,53 @@
+package project.bench;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of {@code benchmarks.jar}. Accepts the usual JMH command line
+ * ({@code -p rows=10000}, a benchmark regex, {@code -f}, ...) and, unless
+ * {@code -rf}/{@code -rff} are given, writes JSON results to
+ * {@code jmh-results/<git commit>.json} so runs can be compared across commits.
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {}
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cli = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(cli);
+        if (!cli.getResultFormat().hasValue() && !cli.getResult().hasValue()) {
+            File dir = new File("jmh-results");
+            dir.mkdirs();
+            File out = new File(dir, label() + ".json");
+            options.resultFormat(ResultFormatType.JSON).result(out.getPath());
+            System.out.println("# JSON results: " + out.getAbsolutePath());
+        }
+        new Runner(options.build()).run();
+    }
+
+    /** Short git commit of the working tree, or a timestamp outside a git checkout. */
+    private static String label() {
+        try {
+            Process git = new ProcessBuilder("git", "rev-parse", "--short", "HEAD")
+                    .redirectErrorStream(true).start();
+            try (BufferedReader r = new BufferedReader(new InputStreamReader(git.getInputStream()))) {
+                String line = r.readLine();
+                if (git.waitFor() == 0 && line != null && !line.isBlank()) {
+                    return line.trim();
+                }
+            }
+        } catch (Exception ignored) {
+            // fall through to timestamp
+        }
+        return LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+    }
+}
@@ -0,0 +1,79 @@
+package project.bench;
+
+import ch.vorburger.mariadb4j.DB;
+import ch.vorburger.mariadb4j.DBConfigurationBuilder;
+import java.io.File;
+
+/**
+ * Starts (once per JVM) an embedded MariaDB server, which speaks the MySQL
+ * protocol, so the benchmarks need nothing installed locally.
+ *
+ * <p>Its data directory survives between runs ({@code -Dquantum.bench.dataDir},
+ * default {@code target/bench-db}), so datasets are seeded only once.
+ * Setting {@code -Dquantum.bench.jdbcUrl=jdbc:mysql://host:port/} benchmarks
+ * an existing server instead.
+ */
+final class EmbeddedDatabase {
+
+    private static final String URL_OPTIONS =
+            "?createDatabaseIfNotExist=true&allowPublicKeyRetrieval=true&useSSL=false"
+            + "&serverTimezone=UTC&rewriteBatchedStatements=true";
+
+    private static DB db;
+    private static String serverUrl;
+
+    private EmbeddedDatabase() {}
+
+    /**
+     * Returns a JDBC URL for the given database, starting the embedded
+     * server on first use. The database is created when first connected to.
+     *
+     * @param database schema name
+     * @return JDBC URL including the options DBUtil uses
+     */
+    static synchronized String jdbcUrl(String database) throws Exception {
+        if (serverUrl == null) {
+            String external = System.getProperty("quantum.bench.jdbcUrl");
+            serverUrl = external != null ? external : start();
+        }
+        return serverUrl + database + URL_OPTIONS;
+    }
+
+    /**
+     * Stops the embedded server, if one was started. JMH forks may end
+     * without running shutdown hooks, so benchmarks call this on tear-down.
+     */
+    static synchronized void stop() {
+        if (db != null) {
+            try {
+                db.stop();
+            } catch (Exception ignored) {
+                // already gone
+            }
+            db = null;
+            serverUrl = null;
+        }
+    }
+
+    /** @return true if the embedded server is used (root without password) */
+    static boolean isEmbedded() {
+        return System.getProperty("quantum.bench.jdbcUrl") == null;
+    }
+
+    private static String start() throws Exception {
+        DBConfigurationBuilder config = DBConfigurationBuilder.newBuilder();
+        config.setPort(0); // any free port
+        config.setDataDir(new File(System.getProperty("quantum.bench.dataDir", "target/bench-db"))
+                .getAbsolutePath());
+        config.setDeletingTemporaryBaseAndDataDirsOnShutdown(false);
+        config.addArg("--innodb-buffer-pool-size=512M");
+        config.addArg("--innodb-flush-log-at-trx-commit=2");
+        if ("root".equals(System.getProperty("user.name"))) {
+            config.addArg("--user=root"); // mysqld refuses to run as root otherwise
+        }
+        db = DB.newEmbeddedDB(config.build());
+        db.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(EmbeddedDatabase::stop, "embedded-db-stop"));
+        return "jdbc:mysql://localhost:" + db.getConfiguration().getPort() + "/";
+    }
+}
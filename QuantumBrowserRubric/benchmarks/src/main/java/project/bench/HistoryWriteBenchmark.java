@@ -0,0 +1,63 @@
+package project.bench;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import project.model.Bookmark;
+import project.model.HistoryEntry;
+
+/**
+ * Write paths: one visit per transaction (what {@code HistoryDAO.save} does
+ * for a single navigation) versus the batched {@code saveAll} used by the
+ * history writer. Scores are per row, so they compare directly.
+ *
+ * <p>Rows written here stay in the dataset; they are a small fraction of it
+ * and do not change its shape.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class HistoryWriteBenchmark {
+
+    private static final int BATCH = 100;
+
+    private final Random random = new Random(7);
+    private List<HistoryEntry> batch;
+
+    @Setup(Level.Invocation)
+    public void nextBatch() {
+        batch = BenchmarkDatabase.visits(random, BATCH);
+    }
+
+    @Benchmark
+    public void historySaveSingle(BenchmarkDatabase db) {
+        db.historyDAO.save(batch.get(0));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void historySaveAllBatch100(BenchmarkDatabase db) {
+        db.historyDAO.saveAll(batch);
+    }
+
+    @Benchmark
+    public void bookmarkSave(BenchmarkDatabase db) {
+        HistoryEntry visit = batch.get(0);
+        db.bookmarkDAO.save(new Bookmark("Benchmark bookmark", visit.getUrl()));
+    }
+}
@@ -0,0 +1,197 @@
+package project.bench;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import project.dao.LogHistoryDAO;
+import project.model.HistoryEntry;
+import project.prefetch.PrefetchCache;
+import project.prefetch.PrefetchPredictor;
+import project.prefetch.Prefetcher;
+
+/**
+ * Checks the {@link Prefetcher} against a local HTTP server: a prefetched
+ * page is served from the {@link PrefetchCache} and counted as a hit, at most
+ * the configured number of requests run at once, a navigation cancels the
+ * rounds and requests of the previous page, and no fetch starts once the
+ * byte budget is used up.
+ *
+ * <p>Run it with {@code java -cp target/benchmarks.jar project.bench.PrefetchCheck};
+ * it prints one line per check and exits with an exception on the first failure.
+ */
+public final class PrefetchCheck {
+
+    /** Time the server takes to answer {@code /slow/} paths. */
+    private static final long SLOW_MILLIS = 300;
+
+    private final HttpServer server;
+    private final Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger maxActive = new AtomicInteger();
+
+    private PrefetchCheck() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    public static void main(String[] args) throws Exception {
+        PrefetchCheck check = new PrefetchCheck();
+        try {
+            check.servedFromCache();
+            check.concurrencyLimit();
+            check.navigationCancels();
+            check.budget();
+            System.out.println("All prefetch checks passed");
+        } finally {
+            check.server.stop(0);
+            ((ExecutorService) check.server.getExecutor()).shutdownNow();
+        }
+    }
+
+    /** A prefetched page is answered from the cache once, and hit rate and accuracy count it. */
+    private void servedFromCache() throws Exception {
+        PrefetchCache cache = new PrefetchCache(1024 * 1024, 60_000);
+        cache.install();
+        try (Prefetcher prefetcher = new Prefetcher(cache, null, 2, 0, 2, 0, 64 * 1024, 1024 * 1024)) {
+            String hit = url("/page/hit?bytes=500");
+            String unused = url("/page/unused?bytes=500");
+            check(prefetcher.prefetch(hit).get() && prefetcher.prefetch(unused).get(), "both pages prefetched");
+
+            prefetcher.navigationStarted(hit);
+            String body = load(hit);
+            check(body.length() == 500 && requests("/page/hit") == 1, "navigation answered without a request");
+            check(cache.getHits() == 1, "cache counts the hit");
+            check(prefetcher.getHitRate() == 1.0, "hit rate 1 after one navigation");
+            check(prefetcher.getAccuracy() == 0.5, "accuracy 0.5 with one of two documents used");
+
+            load(hit);
+            check(requests("/page/hit") == 2 && cache.getHits() == 1, "second load goes to the network");
+        } finally {
+            cache.uninstall();
+        }
+    }
+
+    /** Requests beyond the concurrency limit wait for a free fetcher. */
+    private void concurrencyLimit() throws Exception {
+        maxActive.set(0);
+        try (Prefetcher prefetcher = new Prefetcher(new PrefetchCache(), null, 2, 0, 2, 0, 64 * 1024, 1024 * 1024)) {
+            List<CompletableFuture<Boolean>> fetches = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                fetches.add(prefetcher.prefetch(url("/slow/parallel" + i)));
+            }
+            CompletableFuture.allOf(fetches.toArray(new CompletableFuture<?>[0])).get();
+            check(prefetcher.getFetched() == 6, "all six pages fetched");
+            check(maxActive.get() == 2, "at most two requests at a time (saw " + maxActive.get() + ")");
+        }
+    }
+
+    /** A navigation drops queued requests and the round scheduled after the previous page. */
+    private void navigationCancels() throws Exception {
+        Path dir = Files.createTempDirectory("prefetch-check");
+        String predicted = url("/page/predicted?bytes=200");
+        try (LogHistoryDAO history = LogHistoryDAO.open(dir.resolve("history"))) {
+            history.save(new HistoryEntry(predicted, LocalDateTime.now()));
+            PrefetchCache cache = new PrefetchCache();
+            try (Prefetcher prefetcher = new Prefetcher(cache, new PrefetchPredictor(history),
+                    1, 0, 1, 200, 64 * 1024, 1024 * 1024)) {
+                CompletableFuture<Boolean> running = prefetcher.prefetch(url("/slow/running"));
+                CompletableFuture<Boolean> queued = prefetcher.prefetch(url("/page/queued"));
+                Thread.sleep(SLOW_MILLIS / 3);
+                prefetcher.navigationStarted(url("/page/elsewhere"));
+                check(running.get() && !queued.get() && requests("/page/queued") == 0,
+                        "queued request of the previous page not sent");
+
+                prefetcher.pageLoaded(url("/page/current"));
+                prefetcher.navigationStarted(url("/page/next"));
+                Thread.sleep(600);
+                check(requests("/page/predicted") == 0, "round of the previous page cancelled");
+
+                prefetcher.pageLoaded(url("/page/current"));
+                Thread.sleep(600);
+                check(requests("/page/predicted") == 1 && cache.contains(URI.create(predicted)),
+                        "round runs once the browser stays idle");
+            }
+        }
+    }
+
+    /** Fetches start only while this hour's budget lasts; oversized documents are not kept. */
+    private void budget() throws Exception {
+        PrefetchCache cache = new PrefetchCache();
+        try (Prefetcher prefetcher = new Prefetcher(cache, null, 2, 0, 1, 0, 1500, 1000)) {
+            check(!prefetcher.prefetch(url("/page/big?bytes=2000")).get()
+                    && !cache.contains(URI.create(url("/page/big?bytes=2000"))), "document over the size limit dropped");
+            check(prefetcher.prefetch(url("/page/budget1?bytes=1000")).get(), "first page within budget");
+            check(!prefetcher.prefetch(url("/page/budget2?bytes=100")).get()
+                    && requests("/page/budget2") == 0, "no request once the budget is used up");
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        requests.computeIfAbsent(path, p -> new AtomicInteger()).incrementAndGet();
+        maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+        try {
+            if (path.startsWith("/slow/")) {
+                Thread.sleep(SLOW_MILLIS);
+            }
+            String query = exchange.getRequestURI().getQuery();
+            int size = query != null && query.startsWith("bytes=") ? Integer.parseInt(query.substring(6)) : 100;
+            byte[] body = "x".repeat(size).getBytes(StandardCharsets.US_ASCII);
+            exchange.getResponseHeaders().set("Content-Type", "text/html; charset=UTF-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            active.decrementAndGet();
+            exchange.close();
+        }
+    }
+
+    /** Loads a page the way the WebView does, through the JVM-wide response cache. */
+    private static String load(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) URI.create(url).toURL().openConnection();
+        connection.setUseCaches(true);
+        try (InputStream in = connection.getInputStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private String url(String pathAndQuery) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + pathAndQuery;
+    }
+
+    private int requests(String path) {
+        AtomicInteger n = requests.get(path);
+        return n == null ? 0 : n.get();
+    }
+
+    private static void check(boolean condition, String what) {
+        if (!condition) {
+            throw new IllegalStateException("Prefetch check failed: " + what);
+        }
+        System.out.println("ok   " + what);
+    }
+}
@@ -0,0 +1,65 @@
+package project.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import project.dao.Page;
+import project.model.Bookmark;
+import project.model.HistoryEntry;
+import project.model.TopSite;
+
+/**
+ * Read paths: full reads (bookmarks list, streamed history scan), keyset
+ * pages at the top and in the middle of the history, top sites and
+ * full-text search.
+ *
+ * <p>{@code HistoryDAO.findAll()} is deliberately absent: at 10M rows it
+ * needs gigabytes of heap, which is exactly why {@code stream()} exists.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class ReadBenchmark {
+
+    @Benchmark
+    public List<Bookmark> bookmarkFindAll(BenchmarkDatabase db) {
+        return db.bookmarkDAO.findAll();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long historyStreamAll(BenchmarkDatabase db) {
+        try (Stream<HistoryEntry> rows = db.historyDAO.stream()) {
+            return rows.count();
+        }
+    }
+
+    @Benchmark
+    public Page<HistoryEntry> historyFirstPage(BenchmarkDatabase db) {
+        return db.historyDAO.findPage(null, 50);
+    }
+
+    @Benchmark
+    public Page<HistoryEntry> historyMiddlePage(BenchmarkDatabase db) {
+        return db.historyDAO.findPage(db.middleCursor, 50);
+    }
+
+    @Benchmark
+    public List<TopSite> topSites(BenchmarkDatabase db) {
+        return db.historyDAO.topSites(8);
+    }
+
+    @Benchmark
+    public List<HistoryEntry> historySearch(BenchmarkDatabase db) {
+        return db.historyDAO.search("site42 section", 20);
+    }
+}
@@ -0,0 +1,180 @@
+package project.bench;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import project.servlets.BookmarkApiServlet;
+import project.servlets.HistoryApiServlet;
+import project.servlets.TopSitesServlet;
+
+/**
+ * Servlet rendering without a container: requests and responses are
+ * minimal stand-ins, and output goes to a writer that only counts
+ * characters. This covers query, row mapping, formatting and escaping, but
+ * not network or container overhead.
+ *
+ * <p>The JSP pages are not covered (they need a JSP compiler); the JSON
+ * endpoints exercise the same DAO calls and per-row formatting.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class ServletRenderBenchmark {
+
+    private HttpServlet historyApi;
+    private HttpServlet bookmarkApi;
+    private HttpServlet topSites;
+    private String historyEtag;
+
+    /** Counts written characters so the output cannot be optimized away. */
+    private static final class CountingWriter extends Writer {
+        long count;
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            count += len;
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            count += len;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkDatabase db) throws Exception {
+        ServletContext context = context();
+        historyApi = init(new HistoryApiServlet(), context);
+        bookmarkApi = init(new BookmarkApiServlet(), context);
+        topSites = init(new TopSitesServlet(), context);
+        historyEtag = (String) get(historyApi, "limit=50", null).get("ETag");
+    }
+
+    @Benchmark
+    public long historyJsonPage() throws Exception {
+        return (Long) get(historyApi, "limit=50", null).get("chars");
+    }
+
+    @Benchmark
+    public Object historyJsonNotModified() throws Exception {
+        return get(historyApi, "limit=50", historyEtag).get("status");
+    }
+
+    @Benchmark
+    public long bookmarksJson() throws Exception {
+        return (Long) get(bookmarkApi, null, null).get("chars");
+    }
+
+    @Benchmark
+    public long topSitesFragment() throws Exception {
+        return (Long) get(topSites, null, null).get("chars");
+    }
+
+    // -------------------------------------------------------------------
+    // Minimal servlet environment
+    // -------------------------------------------------------------------
+
+    /**
+     * Runs one GET and returns what the response recorded:
+     * "status", "chars" and any headers set.
+     */
+    private static Map<String, Object> get(HttpServlet servlet, String query, String ifNoneMatch) throws Exception {
+        Map<String, String> params = new HashMap<>();
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                String[] kv = pair.split("=", 2);
+                params.put(kv[0], kv.length > 1 ? kv[1] : "");
+            }
+        }
+        Map<String, Object> recorded = new HashMap<>();
+        recorded.put("status", 200);
+        CountingWriter sink = new CountingWriter();
+        PrintWriter writer = new PrintWriter(sink);
+
+        HttpServletRequest req = proxy(HttpServletRequest.class, (name, args) -> {
+            switch (name) {
+                case "getMethod": return "GET";
+                case "getQueryString": return query;
+                case "getParameter": return params.get((String) args[0]);
+                case "getHeader": return "If-None-Match".equalsIgnoreCase((String) args[0]) ? ifNoneMatch : null;
+                case "getProtocol": return "HTTP/1.1";
+                default: return null;
+            }
+        });
+        HttpServletResponse resp = proxy(HttpServletResponse.class, (name, args) -> {
+            switch (name) {
+                case "getWriter": return writer;
+                case "setStatus": recorded.put("status", args[0]); return null;
+                case "setHeader": recorded.put((String) args[0], args[1]); return null;
+                default: return null;
+            }
+        });
+
+        servlet.service(req, resp);
+        writer.flush();
+        recorded.put("chars", sink.count);
+        return recorded;
+    }
+
+    private static HttpServlet init(HttpServlet servlet, ServletContext context) throws Exception {
+        servlet.init(proxy(ServletConfig.class, (name, args) -> {
+            switch (name) {
+                case "getServletContext": return context;
+                case "getServletName": return servlet.getClass().getSimpleName();
+                default: return null;
+            }
+        }));
+        return servlet;
+    }
+
+    private static ServletContext context() {
+        Map<String, Object> attributes = new HashMap<>();
+        return proxy(ServletContext.class, (name, args) -> {
+            switch (name) {
+                case "getAttribute": return attributes.get((String) args[0]);
+                case "setAttribute": attributes.put((String) args[0], args[1]); return null;
+                case "removeAttribute": attributes.remove((String) args[0]); return null;
+                default: return null;
+            }
+        });
+    }
+
+    private interface Handler {
+        Object handle(String method, Object[] args) throws Exception;
+    }
+
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return type.cast(Proxy.newProxyInstance(ServletRenderBenchmark.class.getClassLoader(),
+                new Class<?>[]{type}, (p, m, a) -> handler.handle(m.getName(), a)));
+    }
+}
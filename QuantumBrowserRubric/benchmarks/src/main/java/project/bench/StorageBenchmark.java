@@ -0,0 +1,160 @@
+package project.bench;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import project.dao.DBUtil;
+import project.dao.HistoryDAO;
+import project.dao.HistoryStore;
+import project.dao.LogHistoryDAO;
+import project.dao.Page;
+import project.model.HistoryEntry;
+import project.model.TopSite;
+
+/**
+ * Storage backends side by side: the JDBC {@code HistoryDAO} on the benchmark
+ * database versus {@code LogHistoryDAO} on an embedded log holding the same
+ * visits. Covers startup (open the store and read the first page, what the
+ * browser does before it can show its history), batched inserts per row, and
+ * the reads the UI issues.
+ *
+ * <p>The log datasets live in {@code target/bench-log/<rows>} and are seeded
+ * once from the same synthetic visits as the database. The log takes inserts
+ * fast enough to grow its dataset many times over in one run, so the visits
+ * written by a trial (all newer than the seed) are deleted afterwards.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class StorageBenchmark {
+
+    private static final int BATCH = 100;
+    private static final int SEED_BATCH = 5_000;
+    private static final LocalDateTime SEED_START = LocalDateTime.of(2025, 1, 1, 0, 0);
+    /** The seed spans one year; everything after it was written by a benchmark. */
+    private static final LocalDateTime SEED_END = SEED_START.plusYears(1);
+
+    @Param({"mysql", "log"})
+    public String storage;
+
+    private int rows;
+    private Path logDirectory;
+    private HistoryStore history;
+    private final Random random = new Random(11);
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkDatabase db) throws IOException {
+        rows = db.rows;
+        if ("log".equals(storage)) {
+            logDirectory = Paths.get(System.getProperty("quantum.bench.logDir", "target/bench-log"),
+                    Integer.toString(rows));
+            history = seedLog(logDirectory, rows);
+        } else {
+            history = db.historyDAO;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (history instanceof LogHistoryDAO) {
+            history.deleteBetween(SEED_END, LocalDateTime.now().plusDays(1));
+            ((LogHistoryDAO) history).close();
+        }
+    }
+
+    /** Cold start: open the store (pool and migrations, or log replay) and read the newest page. */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 5)
+    public Page<HistoryEntry> startup() {
+        if (history instanceof LogHistoryDAO) {
+            ((LogHistoryDAO) history).close();
+            history = LogHistoryDAO.open(logDirectory);
+        } else {
+            DBUtil.shutdown();
+            history = new HistoryDAO(DBUtil.getPool());
+        }
+        return history.findPage(null, 50);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void saveAllBatch100() {
+        history.saveAll(BenchmarkDatabase.visits(random, BATCH));
+    }
+
+    @Benchmark
+    public Page<HistoryEntry> firstPage() {
+        return history.findPage(null, 50);
+    }
+
+    @Benchmark
+    public List<TopSite> topSites() {
+        return history.topSites(8);
+    }
+
+    @Benchmark
+    public List<HistoryEntry> search() {
+        return history.search("site42 section", 20);
+    }
+
+    /**
+     * Opens the log dataset, writing the same visits as the database seed
+     * (same URLs, distribution and timestamps) if it is missing or incomplete.
+     */
+    private static LogHistoryDAO seedLog(Path directory, int size) throws IOException {
+        Path marker = directory.resolve("seeded");
+        if (Files.exists(marker)
+                && Files.readString(marker, StandardCharsets.US_ASCII).trim().equals(Integer.toString(size))) {
+            return LogHistoryDAO.open(directory);
+        }
+        System.out.println("# Seeding " + size + " log rows (one-time)...");
+        long started = System.nanoTime();
+        LogHistoryDAO dao = LogHistoryDAO.open(directory);
+        dao.clearAll();
+
+        Random random = new Random(42);
+        int distinct = Math.max(100, size / 10);
+        long stepMillis = Math.max(1, 365L * 24 * 3600 * 1000 / size);
+        List<HistoryEntry> batch = new ArrayList<>(SEED_BATCH);
+        for (int i = 0; i < size; i++) {
+            double u = random.nextDouble();
+            batch.add(new HistoryEntry(BenchmarkDatabase.url((int) (u * u * distinct)),
+                    SEED_START.plusNanos(i * stepMillis * 1_000_000L)));
+            if (batch.size() == SEED_BATCH) {
+                dao.saveAll(batch);
+                batch.clear();
+            }
+        }
+        dao.saveAll(batch);
+        Files.writeString(marker, Integer.toString(size), StandardCharsets.US_ASCII);
+        System.out.printf("# Seeded in %.1f s%n", (System.nanoTime() - started) / 1e9);
+        return dao;
+    }
+}
@@ -0,0 +1,87 @@
+package project.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import project.bench.BenchmarkDatabase;
+
+/**
+ * ResultSet-to-entity mapping in isolation: the DAOs' row mappers run over
+ * a 1000-row result that the driver has already buffered, so no database
+ * round trip is included. Lives in {@code project.dao} to reach the
+ * package-private mappers. Uses the smallest dataset only.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class RowMappingBenchmark {
+
+    private static final int ROWS = 1000;
+
+    @Param({"10000"})
+    public int datasetRows;
+
+    private BenchmarkDatabase db;
+    private Connection connection;
+    private ResultSet history;
+    private ResultSet bookmarks;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        db = new BenchmarkDatabase();
+        db.rows = datasetRows;
+        db.setUp();
+        connection = db.pool.getConnection();
+        history = scrollable("SELECT id, url, visited_at FROM history ORDER BY id LIMIT " + ROWS);
+        bookmarks = scrollable("SELECT id, title, url FROM bookmarks ORDER BY id LIMIT " + ROWS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        connection.close();
+        db.tearDown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void mapHistoryEntry(Blackhole bh) throws Exception {
+        history.beforeFirst();
+        while (history.next()) {
+            bh.consume(HistoryDAO.mapRow(history));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void mapBookmark(Blackhole bh) throws Exception {
+        bookmarks.beforeFirst();
+        while (bookmarks.next()) {
+            bh.consume(BookmarkDAO.mapRow(bookmarks));
+        }
+    }
+
+    private ResultSet scrollable(String sql) throws Exception {
+        PreparedStatement ps = connection.prepareStatement(sql,
+                ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
+        return ps.executeQuery();
+    }
+}
@@ -1,78 +1,212 @@
 package project;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
 
+import javafx.animation.PauseTransition;
 import javafx.animation.TranslateTransition;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
+import javafx.concurrent.Worker;
 import javafx.collections.ObservableList;
+import javafx.css.PseudoClass;
 import javafx.fxml.FXML;
+import javafx.geometry.Rectangle2D;
+import javafx.geometry.Side;
 import javafx.scene.control.*;
 import javafx.scene.layout.StackPane;
 import javafx.scene.web.WebEngine;
 import javafx.scene.web.WebHistory;
-import javafx.scene.web.WebView;
+import javafx.stage.Screen;
 import javafx.util.Duration;
+import project.dao.AsyncDAO;
 import project.dao.BookmarkDAO;
+import project.dao.BookmarkStore;
+import project.dao.Change;
 import project.dao.DBUtil;
 import project.dao.HistoryDAO;
+import project.dao.HistoryRetention;
+import project.dao.HistoryStore;
+import project.dao.HistoryWriter;
+import project.dao.LogBookmarkDAO;
+import project.dao.LogHistoryDAO;
+import project.dao.LogStore;
+import project.dao.Page;
+import project.metrics.PageLoadMetrics;
 import project.model.Bookmark;
 import project.model.HistoryEntry;
+import project.model.TopSite;
+import project.prefetch.PrefetchCache;
+import project.prefetch.PrefetchPredictor;
+import project.prefetch.Prefetcher;
+import project.search.Suggestion;
+import project.search.UrlPrefixIndex;
+import project.snapshot.SnapshotStore;
+import project.ui.HistoryCell;
+import project.ui.HistoryPager;
+import project.ui.BrowserTab;
+import project.ui.ChangePoller;
+import project.ui.PageLoadTimer;
+import project.ui.SnapshotRecorder;
+import project.ui.TabManager;
+import project.ui.WallpaperCache;
 
 /**
  * PrimaryController is the main controller for the Quantum Browser UI.
  *
  * It coordinates:
- * - JavaFX WebView navigation
- * - Bookmarks and History (ListView + MySQL via DAOs)
- * - Background DB operations using ExecutorService
+ * - JavaFX WebView navigation in tabs (one WebEngine per tab; least recently
+ *   used background tabs are discarded past a budget, see TabManager)
+ * - Bookmarks and History (ListView + MySQL via DAOs); a star shows whether the page is bookmarked
+ * - Background DB operations through asynchronous DAOs (parallel startup loading)
+ * - Address bar autocomplete from an in-memory prefix index
+ * - Full-text search of bookmarks and history from the side panel
  * - Animated slide-in side panel
  * - Custom neon glass home page
+ * - Optional offline snapshots of visited pages (-Dquantum.snapshots.enabled=true)
+ * - Optional prefetching of likely next pages (-Dquantum.prefetch.enabled=true)
+ * - Optional history retention and monthly partitioning (see HistoryRetention)
+ * - Optional embedded storage instead of MySQL (-Dquantum.storage=log, see LogStore)
  */
 public class PrimaryController {
 
+    private static final Logger LOG = Logger.getLogger(PrimaryController.class.getName());
+
     // -------------------------------------------------------------------
     // FXML references
     // -------------------------------------------------------------------
 
-    @FXML private WebView webView;
+    @FXML private TabPane tabPane;
     @FXML private TextField addressBar;
+    @FXML private TextField panelSearch;
     @FXML private ListView<Bookmark> bookmarksList;
     @FXML private ListView<HistoryEntry> historyList;
     @FXML private Label statusLabel;
     @FXML private StackPane sidePanel;
+    @FXML private Button bookmarkButton;
 
     // -------------------------------------------------------------------
-    // Engine, DAO & Collections
+    // Tabs, DAO & Collections
     // -------------------------------------------------------------------
 
-    private WebEngine engine;
+    // One WebEngine per tab; the controller acts on the selected one
+    private TabManager tabs;
+
+    private BookmarkStore bookmarkDAO;
+    private HistoryStore historyDAO;
+
+    // Asynchronous views of the DAOs; independent operations run in parallel on dbExecutor
+    private AsyncDAO<Bookmark, BookmarkStore> asyncBookmarks;
+    private AsyncDAO<HistoryEntry, HistoryStore> asyncHistory;
+
+    // Write-behind buffer: batches history inserts off the UI thread
+    private HistoryWriter historyWriter;
 
-    private BookmarkDAO bookmarkDAO;
-    private HistoryDAO historyDAO;
+    // Expires old history in the background; null unless configured
+    private HistoryRetention historyRetention;
 
     private final ObservableList<Bookmark> bookmarks = FXCollections.observableArrayList();
-    private final ObservableList<HistoryEntry> history = FXCollections.observableArrayList();
+    // Bounded window over the history table, paged in as the side panel scrolls
+    private HistoryPager historyPager;
+
+    // Side panel search: results replace the lists while the search box is non-empty
+    private static final int PANEL_SEARCH_LIMIT = 100;
+    private final ObservableList<Bookmark> bookmarkMatches = FXCollections.observableArrayList();
+    private final ObservableList<HistoryEntry> historyMatches = FXCollections.observableArrayList();
+    private final PauseTransition panelSearchDelay = new PauseTransition(Duration.millis(200));
+    private long panelSearchGeneration = 0;
+
+    // Executor for DB tasks (keeps UI thread responsive); several threads so
+    // independent queries use separate pooled connections at the same time
+    private static final int DB_THREADS = Integer.getInteger("quantum.db.asyncThreads", 4);
+    private final ExecutorService dbExecutor = Executors.newFixedThreadPool(DB_THREADS, new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "db-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    // Most visited sites shown as tiles on the home page
+    private static final int TOP_SITES_ON_HOME = 8;
+    private volatile List<TopSite> topSites = Collections.emptyList();
 
-    // Single-threaded executor for DB tasks (keeps UI thread responsive)
-    private final ExecutorService dbExecutor = Executors.newSingleThreadExecutor();
+    // Home page HTML, built once and rebuilt only when the top sites or the wallpaper change
+    private String homeHtml;
+    // Wallpaper scaled to the screen (file in the local cache); null until it is ready
+    private String wallpaperUrl;
+
+    // Address bar autocomplete: lookups run off the UI thread; a newer keystroke
+    // cancels the pending lookup and stale results are discarded by generation.
+    private static final int SUGGESTIONS_SHOWN = 8;
+    private final UrlPrefixIndex urlIndex = new UrlPrefixIndex();
+    private final ExecutorService suggestExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "autocomplete");
+        t.setDaemon(true);
+        return t;
+    });
+    private final ContextMenu suggestionsPopup = new ContextMenu();
+    private Future<?> pendingSuggest;
+    private long suggestGeneration = 0;
 
     // Side panel state
     private boolean sideVisible = false;
 
+    // Per-host page-load timings; click the status bar to write them to a file
+    private final PageLoadMetrics pageLoads = new PageLoadMetrics();
+    private static final Path PAGE_LOAD_REPORT = Paths.get(System.getProperty("quantum.metrics.pageLoads.file",
+            Paths.get(System.getProperty("user.home"), ".quantum-browser", "page-loads.txt").toString()));
+
+    // Offline snapshots (opt-in): every loaded page is stored, LRU-evicted to the disk budget
+    private static final boolean SNAPSHOTS_ENABLED = Boolean.getBoolean("quantum.snapshots.enabled");
+    private static final long SNAPSHOT_MAX_BYTES = Long.getLong("quantum.snapshots.maxBytes", 256L * 1024 * 1024);
+    private SnapshotRecorder snapshots;
+
+    // Speculative prefetch (opt-in): likely next pages are fetched while the browser is idle
+    private static final boolean PREFETCH_ENABLED = Boolean.getBoolean("quantum.prefetch.enabled");
+    private PrefetchCache prefetchCache;
+    private Prefetcher prefetcher;
+
+    // Star in the navigation bar, filled while the page is bookmarked. Checked on every
+    // navigation against the bookmark store's URL set, loaded once in the background
+    private static final PseudoClass STARRED = PseudoClass.getPseudoClass("starred");
+    private boolean bookmarkedUrlsLoaded;
+
+    // Storage backend: MySQL (default) or the embedded log store, which needs no database server
+    private static final boolean LOG_STORAGE = "log".equalsIgnoreCase(System.getProperty("quantum.storage", "mysql"));
+
+    // Writes made by the web tier (or another browser) reach the side panel through the
+    // tables' change feeds; not needed with the log store, which only this process uses
+    private ChangePoller<HistoryEntry, HistoryStore> historyChanges;
+    private ChangePoller<Bookmark, BookmarkStore> bookmarkChanges;
+
     // -------------------------------------------------------------------
     // Initialization
     // -------------------------------------------------------------------
 
     @FXML
     public void initialize() {
-        // Setup WebView engine
-        engine = webView.getEngine();
-        loadHomePage();  // load custom neon home page
+        prepareWallpaper();
 
         // Make sure side panel starts hidden (off-screen)
         if (sidePanel != null) {
@@ -80,45 +214,264 @@ public class PrimaryController {
             sideVisible = false;
         }
 
-        // Setup DAOs and connect to DB
-        bookmarkDAO = new BookmarkDAO(DBUtil.getConnection());
-        historyDAO = new HistoryDAO(DBUtil.getConnection());
+        // Setup DAOs (connections are borrowed from the shared pool per operation)
+        if (LOG_STORAGE) {
+            bookmarkDAO = LogBookmarkDAO.open(LogStore.defaultDirectory().resolve("bookmarks"));
+            historyDAO = LogHistoryDAO.open(LogStore.defaultDirectory().resolve("history"));
+        } else {
+            HistoryDAO mysqlHistory = new HistoryDAO(DBUtil.getPool());
+            bookmarkDAO = new BookmarkDAO(DBUtil.getPool());
+            historyDAO = mysqlHistory;
+            if (HistoryRetention.isConfigured()) {
+                historyRetention = new HistoryRetention(mysqlHistory);
+                historyRetention.start();
+            }
+        }
+        historyWriter = new HistoryWriter(historyDAO);
+        asyncBookmarks = new AsyncDAO<>(bookmarkDAO, dbExecutor);
+        asyncHistory = new AsyncDAO<>(historyDAO, dbExecutor);
 
         // Bind observable lists to ListViews
+        historyPager = new HistoryPager(asyncHistory, historyList);
+        HistoryCell.install(historyList, historyPager);
         bookmarksList.setItems(bookmarks);
-        historyList.setItems(history);
+        historyList.setItems(historyPager.getItems());
 
-        // Load existing bookmarks & history from DB on background thread
-        dbExecutor.submit(() -> {
-            List<Bookmark> bk = bookmarkDAO.findAll();
-            List<HistoryEntry> hs = historyDAO.findAll();
+        if (LOG_STORAGE) {
+            loadInitialData();
+        } else {
+            startChangeFeeds();
+        }
 
-            Platform.runLater(() -> {
-                bookmarks.setAll(bk);
-                history.setAll(hs);
-                statusLabel.setText("Loaded bookmarks & history");
-            });
+        // Search the side panel lists once typing pauses
+        panelSearchDelay.setOnFinished(e -> runPanelSearch(panelSearch.getText()));
+        panelSearch.textProperty().addListener((obs, oldText, newText) -> panelSearchDelay.playFromStart());
+
+        // Suggest as the user types (only for keystrokes, not programmatic updates)
+        addressBar.textProperty().addListener((obs, oldText, newText) -> {
+            if (addressBar.isFocused()) {
+                requestSuggestions(newText);
+            }
+        });
+        addressBar.focusedProperty().addListener((obs, was, focused) -> {
+            if (!focused) {
+                hideSuggestions();
+            }
         });
 
-        // When location changes, add to history and update address bar
-        engine.locationProperty().addListener((obs, oldLoc, newLoc) -> {
-            if (newLoc != null && !newLoc.isEmpty()) {
-                HistoryEntry entry = new HistoryEntry(newLoc, LocalDateTime.now());
-                addHistoryEntry(entry);
-                addressBar.setText(newLoc);
+        // Page loads are timed per tab; click the status bar for the report
+        statusLabel.setTooltip(new Tooltip("Click to write page-load timings to " + PAGE_LOAD_REPORT));
+        statusLabel.setOnMouseClicked(e -> writePageLoadReport(true));
+
+        if (SNAPSHOTS_ENABLED) {
+            openSnapshots();
+        }
+        if (PREFETCH_ENABLED) {
+            startPrefetcher();
+        }
+
+        // First tab shows the custom neon home page
+        tabs = new TabManager(tabPane, new TabManager.Host() {
+            @Override
+            public void engineCreated(BrowserTab tab) {
+                setUpEngine(tab);
+            }
+
+            @Override
+            public void tabSelected(BrowserTab tab) {
+                addressBar.setText(tab.getUrl() != null ? tab.getUrl() : "");
+                updateBookmarkButton(tab.getUrl());
+            }
+
+            @Override
+            public void showHome(BrowserTab tab) {
+                tab.setHomePage(true);
+                tab.getEngine().loadContent(homeHtml());
             }
         });
+        tabs.open();
+        if (prefetcher != null) {
+            prefetcher.setUserAgent(engine().getUserAgent());
+        }
 
         statusLabel.setText("Ready");
     }
 
+    /**
+     * Attaches the per-tab listeners to a new (or restored) tab's engine:
+     * visits go to the history, loads are timed, and pages are recorded for
+     * snapshots and prefetch. Only the selected tab updates the address and
+     * status bars. Reloading a discarded tab is not a new visit.
+     */
+    private void setUpEngine(BrowserTab tab) {
+        WebEngine engine = tab.getEngine();
+        engine.locationProperty().addListener((obs, oldLoc, newLoc) -> {
+            if (newLoc != null && !newLoc.isEmpty() && tab.getEngine() == engine) {
+                if (!tab.isRestoring()) {
+                    addHistoryEntry(new HistoryEntry(newLoc, LocalDateTime.now()));
+                }
+                if (tab == tabs.getSelected()) {
+                    addressBar.setText(newLoc);
+                    updateBookmarkButton(newLoc);
+                }
+            }
+        });
+        new PageLoadTimer(engine, pageLoads, text -> {
+            if (tab == tabs.getSelected()) {
+                statusLabel.setText(text);
+            }
+        }).install();
+        if (snapshots != null) {
+            snapshots.install(engine);
+        }
+        if (prefetcher != null) {
+            engine.locationProperty().addListener((obs, oldLoc, newLoc) -> prefetcher.navigationStarted(newLoc));
+            engine.getLoadWorker().stateProperty().addListener((obs, oldState, newState) -> {
+                String location = engine.getLocation();
+                if (newState == Worker.State.SUCCEEDED && location != null && location.startsWith("http")) {
+                    prefetcher.pageLoaded(location);
+                }
+            });
+        }
+    }
+
+    /** @return engine of the selected tab */
+    private WebEngine engine() {
+        return tabs.getSelected().getEngine();
+    }
+
+    /**
+     * Opens the snapshot store, records pages from now on and adds
+     * "Open offline snapshot" to the history and bookmark context menus.
+     */
+    private void openSnapshots() {
+        try {
+            SnapshotStore store = SnapshotStore.open(SnapshotStore.defaultDirectory(), SNAPSHOT_MAX_BYTES);
+            snapshots = new SnapshotRecorder(store, statusLabel::setText);
+        } catch (IOException ex) {
+            LOG.warning("Offline snapshots disabled: " + ex.getMessage());
+            return;
+        }
+        historyList.setContextMenu(snapshotMenu(() -> {
+            HistoryEntry h = historyList.getSelectionModel().getSelectedItem();
+            return h == null ? null : h.getUrl();
+        }));
+        bookmarksList.setContextMenu(snapshotMenu(() -> {
+            Bookmark b = bookmarksList.getSelectionModel().getSelectedItem();
+            return b == null ? null : b.getUrl();
+        }));
+    }
+
+    /**
+     * Serves navigations from prefetched documents; every tab schedules a
+     * prefetch round after its page loads. The hit rate is logged on shutdown.
+     */
+    private void startPrefetcher() {
+        prefetchCache = new PrefetchCache();
+        prefetchCache.install();
+        prefetcher = new Prefetcher(prefetchCache, new PrefetchPredictor(historyDAO));
+    }
+
+    private ContextMenu snapshotMenu(Supplier<String> selectedUrl) {
+        MenuItem open = new MenuItem("Open offline snapshot");
+        open.setOnAction(e -> {
+            String url = selectedUrl.get();
+            if (url != null) {
+                tabs.getSelected().setHomePage(false);
+                snapshots.open(engine(), url);
+            }
+        });
+        ContextMenu menu = new ContextMenu(open);
+        menu.setOnShowing(e -> {
+            String url = selectedUrl.get();
+            open.setDisable(url == null || !snapshots.hasSnapshot(url));
+        });
+        return menu;
+    }
+
+    /**
+     * Writes the per-host page-load timings (slowest first) to the report file.
+     */
+    private void writePageLoadReport(boolean showStatus) {
+        try {
+            pageLoads.writeReport(PAGE_LOAD_REPORT);
+            if (showStatus) {
+                statusLabel.setText("Page-load timings written to " + PAGE_LOAD_REPORT
+                        + (prefetcher != null ? ". " + prefetcher : ""));
+            }
+        } catch (IOException ex) {
+            LOG.warning("Could not write page-load timings: " + ex.getMessage());
+            if (showStatus) {
+                statusLabel.setText("Could not write page-load timings: " + ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Loads bookmarks, the newest history page and top sites in parallel (one pooled connection
+     * each) and applies them on the FX thread once all have arrived. The
+     * wall-clock time is reported next to the sum of the individual loads,
+     * which is what the old one-after-the-other loading cost.
+     */
+    private void loadInitialData() {
+        long started = System.nanoTime();
+        CompletableFuture<List<Bookmark>> bk = asyncBookmarks.findAll();
+        CompletableFuture<Page<HistoryEntry>> hs = historyPager.reset();
+        CompletableFuture<List<TopSite>> top = asyncHistory.call("topSites", dao -> dao.topSites(TOP_SITES_ON_HOME));
+
+        CompletableFuture.allOf(bk, hs, top).whenComplete((ignored, error) -> {
+            long wallMillis = (System.nanoTime() - started) / 1_000_000;
+            Platform.runLater(() -> {
+                if (error != null) {
+                    statusLabel.setText("Could not load bookmarks & history: " + rootMessage(error));
+                    return;
+                }
+                bookmarks.setAll(bk.join());
+                showTopSites(top.join());
+
+                long sequentialMillis = asyncBookmarks.getLastMillis("findAll")
+                        + asyncHistory.getLastMillis("firstPage") + asyncHistory.getLastMillis("topSites");
+                String timing = String.format("Loaded bookmarks & history in %d ms (%d ms if sequential)",
+                        wallMillis, sequentialMillis);
+                statusLabel.setText(timing);
+                LOG.info(timing + "; bookmarks " + asyncBookmarks.getTimings() + ", history " + asyncHistory.getTimings());
+            });
+        });
+
+        asyncBookmarks.call("bookmarkedUrls", dao -> {
+            dao.loadBookmarkedUrls();
+            return null;
+        }).thenRun(() -> Platform.runLater(() -> {
+            bookmarkedUrlsLoaded = true;
+            updateBookmarkButton(tabs.getSelected().getUrl());
+        }));
+
+        // Every visited URL (one row per URL from history_stats) feeds the autocomplete index
+        CompletableFuture<List<TopSite>> visited =
+                asyncHistory.call("visitedUrls", dao -> dao.topSites(Integer.MAX_VALUE));
+        bk.thenAcceptBothAsync(visited, (bookmarkList, visitedList) -> {
+            urlIndex.load(bookmarkList, visitedList);
+            String summary = String.format("Autocomplete index: %,d entries, %.1f MB",
+                    urlIndex.size(), urlIndex.estimatedMemoryBytes() / (1024.0 * 1024.0));
+            Platform.runLater(() -> statusLabel.setText(summary));
+        }, suggestExecutor);
+    }
+
+    private static String rootMessage(Throwable error) {
+        Throwable root = error;
+        while (root.getCause() != null) {
+            root = root.getCause();
+        }
+        return root.getMessage();
+    }
+
     // -------------------------------------------------------------------
     // Navigation Buttons
     // -------------------------------------------------------------------
 
     @FXML
     private void onBack() {
-        WebHistory h = engine.getHistory();
+        WebHistory h = engine().getHistory();
         if (h.getCurrentIndex() > 0) {
             h.go(-1);
         }
@@ -126,7 +479,7 @@ public class PrimaryController {
 
     @FXML
     private void onForward() {
-        WebHistory h = engine.getHistory();
+        WebHistory h = engine().getHistory();
         if (h.getCurrentIndex() + 1 < h.getEntries().size()) {
             h.go(1);
         }
@@ -134,12 +487,20 @@ public class PrimaryController {
 
     @FXML
     private void onReload() {
-        engine.reload();
+        engine().reload();
     }
 
     @FXML
     private void onHome() {
         loadHomePage();
+        refreshTopSites();
+    }
+
+    @FXML
+    private void onNewTab() {
+        tabs.open();
+        refreshTopSites();
+        addressBar.requestFocus();
     }
 
     @FXML
@@ -153,7 +514,67 @@ public class PrimaryController {
         if (q == null || q.isBlank()) {
             return;
         }
-        engine.load("https://www.google.com/search?q=" + q.replace(" ", "+"));
+        engine().load("https://www.google.com/search?q=" + q.replace(" ", "+"));
+    }
+
+    /**
+     * Reads where the history and bookmark change feeds end, then loads the
+     * lists; from then on only the changes are polled. Reading the positions
+     * first means a write made during the load is applied again rather than
+     * missed, which is harmless.
+     */
+    private void startChangeFeeds() {
+        historyChanges = new ChangePoller<>(asyncHistory, "historyChanges",
+                HistoryStore::currentChangeSeq, HistoryStore::changesSince,
+                this::applyHistoryChanges, historyPager::reset);
+        bookmarkChanges = new ChangePoller<>(asyncBookmarks, "bookmarkChanges",
+                BookmarkStore::currentChangeSeq, BookmarkStore::changesSince,
+                this::applyBookmarkChanges, this::reloadBookmarks);
+        CompletableFuture.allOf(historyChanges.start(), bookmarkChanges.start())
+                .whenComplete((ignored, error) -> Platform.runLater(this::loadInitialData));
+    }
+
+    private void applyHistoryChanges(List<Change<HistoryEntry>> changes) {
+        historyPager.applyChanges(changes);
+        suggestExecutor.submit(() -> {
+            for (Change<HistoryEntry> change : changes) {
+                if (change.getType() == Change.Type.UPSERT) {
+                    urlIndex.recordVisit(change.getRow().getUrl(), change.getRow().getVisitedAt());
+                } else if (change.getFrom() == null && change.getTo() == null) {
+                    urlIndex.clearVisits();
+                }
+            }
+        });
+    }
+
+    private void applyBookmarkChanges(List<Change<Bookmark>> changes) {
+        for (Change<Bookmark> change : changes) {
+            if (change.getType() == Change.Type.DELETE) {
+                bookmarks.clear();
+                continue;
+            }
+            Bookmark b = change.getRow();
+            int index = -1;
+            for (int i = 0; i < bookmarks.size() && index < 0; i++) {
+                if (bookmarks.get(i).getId() == b.getId()) {
+                    index = i;
+                }
+            }
+            if (index >= 0) {
+                bookmarks.set(index, b);
+            } else {
+                bookmarks.add(0, b);
+                suggestExecutor.submit(() -> urlIndex.addBookmark(b.getUrl(), b.getTitle()));
+            }
+        }
+        updateBookmarkButton(tabs.getSelected().getUrl());
+    }
+
+    private void reloadBookmarks() {
+        asyncBookmarks.findAll().thenAccept(list -> Platform.runLater(() -> {
+            bookmarks.setAll(list);
+            updateBookmarkButton(tabs.getSelected().getUrl());
+        }));
     }
 
     // -------------------------------------------------------------------
@@ -162,23 +583,47 @@ public class PrimaryController {
 
     @FXML
     private void onAddBookmark() {
-        String currentUrl = engine.getLocation();
+        String currentUrl = engine().getLocation();
         if (currentUrl == null || currentUrl.isBlank()) {
             return;
         }
 
-        TextInputDialog dialog = new TextInputDialog(currentUrl);
-        dialog.setHeaderText("Add Bookmark");
+        // A URL is bookmarked once; saving it again renames the existing bookmark
+        String key = BookmarkDAO.normalizeUrl(currentUrl);
+        int existing = -1;
+        for (int i = 0; i < bookmarks.size() && existing < 0; i++) {
+            if (key.equals(BookmarkDAO.normalizeUrl(bookmarks.get(i).getUrl()))) {
+                existing = i;
+            }
+        }
+        int index = existing;
+
+        TextInputDialog dialog = new TextInputDialog(index >= 0 ? bookmarks.get(index).getTitle() : currentUrl);
+        dialog.setHeaderText(index >= 0 ? "Edit Bookmark" : "Add Bookmark");
         dialog.setContentText("Title:");
 
         dialog.showAndWait().ifPresent(title -> {
             Bookmark b = new Bookmark(title, currentUrl);
-            bookmarks.add(0, b);                     // update UI
-            dbExecutor.submit(() -> bookmarkDAO.save(b)); // persist in DB
-            statusLabel.setText("Bookmark added");
+            if (index >= 0) {
+                b.setUrl(bookmarks.get(index).getUrl()); // the stored URL is kept
+                bookmarks.set(index, b);                 // update UI
+            } else {
+                bookmarks.add(0, b);
+                suggestExecutor.submit(() -> urlIndex.addBookmark(currentUrl, title));
+            }
+            asyncBookmarks.save(b)                       // persist in DB
+                    .thenRun(() -> Platform.runLater(() -> updateBookmarkButton(tabs.getSelected().getUrl())));
+            statusLabel.setText(index >= 0 ? "Bookmark updated" : "Bookmark added");
         });
     }
 
+    /** Fills the star when the page is bookmarked (an in-memory lookup, no query). */
+    private void updateBookmarkButton(String url) {
+        boolean starred = bookmarkedUrlsLoaded && bookmarkDAO.isBookmarked(url);
+        bookmarkButton.setText(starred ? "\u2605" : "\u2606");
+        bookmarkButton.pseudoClassStateChanged(STARRED, starred);
+    }
+
     /**
      * Called from FXML on double-click (set onMouseClicked in FXML with a handler).
      */
@@ -192,11 +637,45 @@ public class PrimaryController {
 
     @FXML
     private void onClearHistory() {
-        history.clear();
-        dbExecutor.submit(historyDAO::clearAll);
+        historyPager.clear();
+        historyMatches.clear();
+        asyncHistory.clearAll();
+        suggestExecutor.submit(urlIndex::clearVisits);
         statusLabel.setText("History cleared");
     }
 
+    // -------------------------------------------------------------------
+    // Side panel search
+    // -------------------------------------------------------------------
+
+    /**
+     * Runs the search on the DB thread and shows the matches in relevance
+     * order; an empty query restores the full lists.
+     */
+    private void runPanelSearch(String query) {
+        long generation = ++panelSearchGeneration;
+        if (query == null || query.isBlank()) {
+            bookmarksList.setItems(bookmarks);
+            historyList.setItems(historyPager.getItems());
+            return;
+        }
+        // Both searches run in parallel
+        CompletableFuture<List<Bookmark>> bookmarkSearch =
+                asyncBookmarks.call("search", dao -> dao.search(query, PANEL_SEARCH_LIMIT));
+        CompletableFuture<List<HistoryEntry>> historySearch =
+                asyncHistory.call("search", dao -> dao.search(query, PANEL_SEARCH_LIMIT));
+        bookmarkSearch.thenAcceptBoth(historySearch, (bk, hs) -> Platform.runLater(() -> {
+            if (generation != panelSearchGeneration) {
+                return; // a newer query is on its way
+            }
+            bookmarkMatches.setAll(bk);
+            historyMatches.setAll(hs);
+            bookmarksList.setItems(bookmarkMatches);
+            historyList.setItems(historyMatches);
+            statusLabel.setText(bk.size() + " bookmarks, " + hs.size() + " history matches");
+        }));
+    }
+
     // -------------------------------------------------------------------
     // Slide Side Panel
     // -------------------------------------------------------------------
@@ -228,11 +707,15 @@ public class PrimaryController {
     // -------------------------------------------------------------------
 
     /**
-     * Thread-safe history insertion: updates UI list and persists to DB.
+     * Thread-safe history insertion: queues the visit for a batched DB write
+     * and updates the UI list. Consecutive duplicates (redirects, reloads)
+     * are dropped by the writer and not shown twice.
      */
     private synchronized void addHistoryEntry(HistoryEntry entry) {
-        history.add(0, entry);
-        dbExecutor.submit(() -> historyDAO.save(entry));
+        if (historyWriter.submit(entry)) {
+            historyPager.addVisit(entry);
+            suggestExecutor.submit(() -> urlIndex.recordVisit(entry.getUrl(), entry.getVisitedAt()));
+        }
     }
 
     /**
@@ -247,33 +730,191 @@ public class PrimaryController {
             url = "http://" + url;
         }
 
-        engine.load(url);
+        hideSuggestions();
+        engine().load(url);
         addressBar.setText(url);
     }
 
+    // -------------------------------------------------------------------
+    // Address bar autocomplete
+    // -------------------------------------------------------------------
+
+    /**
+     * Looks up suggestions for the typed text on the autocomplete thread.
+     * Any lookup still pending for an earlier keystroke is cancelled.
+     */
+    private void requestSuggestions(String typed) {
+        long generation = ++suggestGeneration;
+        if (pendingSuggest != null) {
+            pendingSuggest.cancel(true);
+        }
+        if (typed == null || typed.isBlank()) {
+            hideSuggestions();
+            return;
+        }
+        pendingSuggest = suggestExecutor.submit(() -> {
+            List<Suggestion> found = urlIndex.suggest(typed, SUGGESTIONS_SHOWN);
+            Platform.runLater(() -> {
+                if (generation == suggestGeneration) {
+                    showSuggestions(found);
+                }
+            });
+        });
+    }
+
+    private void showSuggestions(List<Suggestion> found) {
+        if (found.isEmpty() || !addressBar.isFocused()) {
+            suggestionsPopup.hide();
+            return;
+        }
+        List<MenuItem> items = new ArrayList<>(found.size());
+        for (Suggestion s : found) {
+            MenuItem item = new MenuItem(s.toString());
+            item.setOnAction(e -> loadPage(s.getUrl()));
+            items.add(item);
+        }
+        suggestionsPopup.getItems().setAll(items);
+        if (!suggestionsPopup.isShowing()) {
+            suggestionsPopup.show(addressBar, Side.BOTTOM, 0, 0);
+        }
+    }
+
+    private void hideSuggestions() {
+        suggestGeneration++;
+        suggestionsPopup.hide();
+    }
+
+    // -------------------------------------------------------------------
+    // Top sites (served by the history store's frecency index, no history scan)
+    // -------------------------------------------------------------------
+
+    /**
+     * Reloads the top sites in the background and repaints the home page if they changed.
+     */
+    private void refreshTopSites() {
+        asyncHistory.call("topSites", dao -> dao.topSites(TOP_SITES_ON_HOME))
+                .thenAccept(top -> Platform.runLater(() -> showTopSites(top)));
+    }
+
+    private void showTopSites(List<TopSite> top) {
+        if (sameUrls(top, topSites)) {
+            return;
+        }
+        topSites = top;
+        homeHtml = null;
+        repaintHomeTabs();
+    }
+
+    private static boolean sameUrls(List<TopSite> a, List<TopSite> b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            if (!Objects.equals(a.get(i).getUrl(), b.get(i).getUrl())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Renders the top sites as HTML tiles for the home page template.
+     */
+    private String renderTopSiteTiles() {
+        StringBuilder sb = new StringBuilder();
+        for (TopSite site : topSites) {
+            sb.append("<a class=\"tile\" href=\"").append(escapeHtml(site.getUrl()))
+              .append("\" title=\"").append(site.getVisitCount()).append(" visits\">")
+              .append(escapeHtml(site.getDisplayName()))
+              .append("</a>");
+        }
+        return sb.toString();
+    }
+
+    private static String escapeHtml(String s) {
+        if (s == null) {
+            return "";
+        }
+        return s.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;")
+                .replace("\"", "&quot;").replace("'", "&#39;");
+    }
+
     // -------------------------------------------------------------------
     // Neon Home Page Loader
     // -------------------------------------------------------------------
 
     private void loadHomePage() {
-        String bgUrl = null;
-        try {
-            bgUrl = Objects.requireNonNull(
-                    getClass().getResource("/project/wallpaper.jpg")
-            ).toExternalForm();
-        } catch (Exception ignored) {
-            // fallback background will be used
+        BrowserTab tab = tabs.getSelected();
+        tab.setHomePage(true);
+        tab.getEngine().loadContent(homeHtml());
+        addressBar.setText("");
+        updateBookmarkButton(null);
+    }
+
+    /** Shows the rebuilt home page in every live tab that is on it. */
+    private void repaintHomeTabs() {
+        if (tabs == null) {
+            return;
         }
+        for (BrowserTab tab : tabs.getTabs()) {
+            if (tab.isHomePage() && !tab.isDiscarded()) {
+                tab.getEngine().loadContent(homeHtml());
+            }
+        }
+    }
+
+    /**
+     * Returns the cached home page, building it first if the top sites or the
+     * wallpaper changed since the last build.
+     */
+    private String homeHtml() {
+        if (homeHtml == null) {
+            String css = (wallpaperUrl != null)
+                    ? "background: url('" + wallpaperUrl + "') no-repeat center center fixed; " +
+                      "background-size: cover;"
+                    : "background: radial-gradient(circle at top, #2f6bff, #000428);";
 
-        String css = (bgUrl != null)
-                ? "background: url('" + bgUrl + "') no-repeat center center fixed; " +
-                  "background-size: cover;"
-                : "background: radial-gradient(circle at top, #2f6bff, #000428);";
+            homeHtml = HOME_TEMPLATE
+                    .replace("%BACKGROUND%", css)
+                    .replace("%TOP_SITES%", renderTopSiteTiles());
+        }
+        return homeHtml;
+    }
 
-        String html = HOME_TEMPLATE.replace("%BACKGROUND%", css);
+    /**
+     * Scales the wallpaper to the screen resolution on a background thread
+     * (or picks up the copy cached by an earlier session) and repaints the
+     * home page with it. Until then the home page shows the plain gradient.
+     */
+    private void prepareWallpaper() {
+        URL source = getClass().getResource("/project/wallpaper.jpg");
+        if (source == null) {
+            return; // fallback background will be used
+        }
+        Screen screen = Screen.getPrimary();
+        Rectangle2D bounds = screen.getBounds();
+        int width = (int) Math.round(bounds.getWidth() * screen.getOutputScaleX());
+        int height = (int) Math.round(bounds.getHeight() * screen.getOutputScaleY());
 
-        engine.loadContent(html);
-        addressBar.setText("");
+        CompletableFuture.supplyAsync(() -> {
+            try {
+                return new WallpaperCache(WallpaperCache.defaultDirectory())
+                        .scaled(source, width, height).toUri().toString();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }, task -> {
+            Thread t = new Thread(task, "wallpaper");
+            t.setDaemon(true);
+            t.start();
+        }).whenComplete((url, error) -> Platform.runLater(() -> {
+            if (error != null) {
+                LOG.warning("Wallpaper cache unavailable, using the original image: " + rootMessage(error));
+            }
+            wallpaperUrl = url != null ? url : source.toExternalForm();
+            homeHtml = null;
+            repaintHomeTabs();
+        }));
     }
 
     // Full HTML home template with glass UI and JS search
@@ -323,6 +964,23 @@ public class PrimaryController {
                         font-size:17px;
                         margin-right:10px;
                     }
+                    .top-sites {
+                        display:flex;
+                        flex-wrap:wrap;
+                        justify-content:center;
+                        gap:10px;
+                        margin-top:26px;
+                    }
+                    .tile {
+                        padding:8px 16px;
+                        border-radius:16px;
+                        background:rgba(255,255,255,0.18);
+                        border:1px solid rgba(255,255,255,0.35);
+                        color:white;
+                        text-decoration:none;
+                        font-size:14px;
+                    }
+                    .tile:hover { background:rgba(11,107,255,0.55); }
                     button {
                         background:#0b6bff;
                         border:none;
@@ -342,6 +1000,8 @@ public class PrimaryController {
                     <input id="q" type="text" placeholder="Search here..." />
                     <button onclick="doSearch()">Search</button>
                 </div>
+
+                <div class="top-sites">%TOP_SITES%</div>
             </div>
 
             <script>
@@ -363,7 +1023,46 @@ public class PrimaryController {
     // Shutdown hook (called from App)
     // -------------------------------------------------------------------
 
+    /**
+     * Ordered shutdown: save the page-load report, drain pending history writes, let queued DB tasks
+     * finish (each within a deadline), then close the log stores or the connection pool.
+     */
     public void shutdown() {
-        dbExecutor.shutdownNow();
+        writePageLoadReport(false);
+        tabs.close();
+        if (snapshots != null) {
+            snapshots.close(2_000);
+        }
+        if (prefetcher != null) {
+            LOG.info(prefetcher.toString());
+            prefetcher.close();
+            prefetchCache.uninstall();
+        }
+        if (historyChanges != null) {
+            historyChanges.stop();
+            bookmarkChanges.stop();
+        }
+        suggestExecutor.shutdownNow();
+        historyWriter.close(3_000);
+        if (historyRetention != null) {
+            historyRetention.close();
+        }
+
+        dbExecutor.shutdown();
+        try {
+            if (!dbExecutor.awaitTermination(2, TimeUnit.SECONDS)) {
+                dbExecutor.shutdownNow();
+            }
+        } catch (InterruptedException ex) {
+            dbExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        if (historyDAO instanceof LogHistoryDAO) {
+            ((LogHistoryDAO) historyDAO).close();
+        }
+        if (bookmarkDAO instanceof LogBookmarkDAO) {
+            ((LogBookmarkDAO) bookmarkDAO).close();
+        }
+        DBUtil.shutdown();
     }
 }
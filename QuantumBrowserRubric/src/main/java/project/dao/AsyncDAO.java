@@ -0,0 +1,116 @@
+package project.dao;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.logging.Logger;
+import project.model.BaseEntity;
+
+/**
+ * Asynchronous companion to {@link GenericDAO}.
+ *
+ * <p>Every operation runs on the given executor and returns a
+ * {@link CompletableFuture}, so independent operations (for example loading
+ * bookmarks and history at startup) run in parallel, each on its own pooled
+ * connection, and callers combine the results instead of queueing them
+ * behind each other. Results are completed on an executor thread; UI code
+ * hands them to its own thread (e.g. {@code Platform::runLater}).
+ *
+ * <p>The duration of the most recent run of each operation is recorded and
+ * available from {@link #getTimings()}.
+ *
+ * @param <T> entity type
+ * @param <D> concrete DAO type, so DAO-specific queries can go through {@link #call}
+ */
+public class AsyncDAO<T extends BaseEntity, D extends GenericDAO<T>> {
+
+    private static final Logger LOG = Logger.getLogger(AsyncDAO.class.getName());
+
+    private final D dao;
+    private final Executor executor;
+    private final String name;
+    private final Map<String, Long> lastMillis = new ConcurrentHashMap<>();
+
+    /**
+     * @param dao      synchronous DAO doing the actual work
+     * @param executor executor the operations run on (its size bounds their parallelism)
+     */
+    public AsyncDAO(D dao, Executor executor) {
+        this.dao = dao;
+        this.executor = executor;
+        this.name = dao.getClass().getSimpleName();
+    }
+
+    /** @return the wrapped synchronous DAO */
+    public D getDelegate() {
+        return dao;
+    }
+
+    /** Asynchronous {@link GenericDAO#findAll()}. */
+    public CompletableFuture<List<T>> findAll() {
+        return call("findAll", GenericDAO::findAll);
+    }
+
+    /** Asynchronous {@link GenericDAO#save(BaseEntity)}. */
+    public CompletableFuture<Void> save(T entity) {
+        return call("save", d -> {
+            d.save(entity);
+            return null;
+        });
+    }
+
+    /** Asynchronous {@link GenericDAO#saveAll(List)}. */
+    public CompletableFuture<Void> saveAll(List<T> entities) {
+        return call("saveAll", d -> {
+            d.saveAll(entities);
+            return null;
+        });
+    }
+
+    /** Asynchronous {@link GenericDAO#clearAll()}. */
+    public CompletableFuture<Void> clearAll() {
+        return call("clearAll", d -> {
+            d.clearAll();
+            return null;
+        });
+    }
+
+    /**
+     * Runs any operation of the wrapped DAO asynchronously and records its duration.
+     *
+     * @param operation name under which the timing is recorded
+     * @param action    work to do with the DAO
+     * @return future completed with the action's result, or exceptionally
+     *         with the {@link project.exception.DataAccessException} it threw
+     */
+    public <R> CompletableFuture<R> call(String operation, Function<? super D, ? extends R> action) {
+        return CompletableFuture.supplyAsync(() -> {
+            long started = System.nanoTime();
+            try {
+                return action.apply(dao);
+            } finally {
+                long millis = (System.nanoTime() - started) / 1_000_000;
+                lastMillis.put(operation, millis);
+                LOG.fine(() -> name + "." + operation + " took " + millis + " ms");
+            }
+        }, executor);
+    }
+
+    /**
+     * @param operation operation name as passed to {@link #call}
+     * @return duration of its most recent run in milliseconds, or -1 if it never ran
+     */
+    public long getLastMillis(String operation) {
+        return lastMillis.getOrDefault(operation, -1L);
+    }
+
+    /** @return operation name to duration (ms) of its most recent run */
+    public Map<String, Long> getTimings() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(lastMillis));
+    }
+}
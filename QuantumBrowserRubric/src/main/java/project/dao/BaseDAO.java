@@ -1,8 +1,21 @@
 package project.dao;
 
+import java.security.SecureRandom;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import project.exception.DataAccessException;
 import project.model.BaseEntity;
 
@@ -21,19 +34,89 @@ import project.model.BaseEntity;
 public abstract class BaseDAO<T extends BaseEntity> implements GenericDAO<T> {
 
     /**
-     * Shared JDBC connection used by DAO implementations.
-     * The connection is managed externally and injected via constructor,
-     * which makes this class easier to test and reuse.
+     * Connector/J only streams a result set row by row (instead of buffering
+     * all of it on the client) when the fetch size is exactly this value.
      */
-    protected final Connection connection;
+    private static final int STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+
+    private static final String BUMP_VERSION_SQL =
+            "UPDATE table_versions SET version = version + 1 WHERE table_name = ?";
+
+    private static final String SELECT_VERSION_SQL =
+            "SELECT version FROM table_versions WHERE table_name = ?";
+
+    /** Codes of change_log.op: row inserted or updated, rows deleted, table rewritten in bulk. */
+    private static final String OP_UPSERT = "U";
+    private static final String OP_DELETE = "D";
+    private static final String OP_RELOAD = "R";
+
+    /** table_versions row holding the highest seq pruned from change_log. */
+    private static final String CHANGE_LOG = "change_log";
+
+    private static final String INSERT_CHANGE_SQL =
+            "INSERT INTO change_log(table_name, op, first_id, last_id, range_from, range_to, origin) " +
+            "VALUES(?, ?, ?, ?, ?, ?, ?)";
+
+    // %s: the row columns (t.id first), then the table they are read from. The limit counts
+    // feed entries, each joined to the rows of its id range.
+    private static final String SELECT_CHANGES_SQL =
+            "SELECT c.seq, c.op, c.range_from, c.range_to, c.origin, %s FROM (" +
+            "SELECT seq, op, first_id, last_id, range_from, range_to, origin FROM change_log " +
+            "WHERE table_name = ? AND seq > ? ORDER BY seq LIMIT ?) c " +
+            "LEFT JOIN %s t ON c.op = 'U' AND t.id BETWEEN c.first_id AND c.last_id " +
+            "ORDER BY c.seq, t.id";
+
+    private static final String SELECT_CHANGE_HEAD_SQL =
+            "SELECT COALESCE(MAX(seq), 0) FROM change_log WHERE table_name = ?";
+
+    private static final String PRUNE_CHANGES_SQL =
+            "DELETE FROM change_log WHERE seq <= ? ORDER BY seq LIMIT ?";
+
+    private static final String RAISE_PRUNED_SQL =
+            "UPDATE table_versions SET version = GREATEST(version, ?) WHERE table_name = '" + CHANGE_LOG + "'";
+
+    /** Changes kept for polling clients (-Dquantum.changes.maxRows); clients further behind reload. */
+    private static final long CHANGE_LOG_MAX_ROWS = Long.getLong("quantum.changes.maxRows", 100_000L);
+
+    /** change_log is pruned whenever this process has added this many changes. */
+    private static final long PRUNE_INTERVAL = 1_000;
+
+    /** Marks the changes written by this process, see {@link Change#isLocal()}. */
+    private static final long ORIGIN = new SecureRandom().nextLong();
+
+    private static final AtomicLong LAST_PRUNE_SEQ = new AtomicLong();
+
+    /** Statement timing can be switched off with -Dquantum.db.statementStats=false. */
+    private static final boolean STATEMENT_STATS =
+            Boolean.parseBoolean(System.getProperty("quantum.db.statementStats", "true"));
+
+    /**
+     * Pool that every operation borrows its connection from.
+     * Connections are never held between operations, so one DAO instance
+     * can be shared safely by many threads (e.g. Tomcat request threads).
+     */
+    protected final ConnectionPool pool;
 
     /**
-     * Creates a new BaseDAO with the given JDBC connection.
+     * Creates a new BaseDAO backed by the given connection pool.
      *
-     * @param connection active JDBC connection (must not be null)
+     * @param pool connection pool (must not be null)
      */
-    protected BaseDAO(Connection connection) {
-        this.connection = connection;
+    protected BaseDAO(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Borrows a connection for a single operation.
+     * Always use with try-with-resources so the connection goes back to the pool.
+     * Statements prepared on it are timed and counted in {@link QueryStats}.
+     *
+     * @return pooled connection
+     * @throws DataAccessException if no connection is available in time
+     */
+    protected Connection getConnection() throws DataAccessException {
+        Connection connection = pool.getConnection();
+        return STATEMENT_STATS ? TimedConnection.wrap(connection, QueryStats.getInstance()) : connection;
     }
 
     /**
@@ -62,6 +145,301 @@ public abstract class BaseDAO<T extends BaseEntity> implements GenericDAO<T> {
     @Override
     public abstract void clearAll() throws DataAccessException;
 
+    /**
+     * Increments the change version of a table. Call it on the same connection
+     * and inside the same transaction as the write, so readers never see new
+     * rows with an old version.
+     *
+     * @param connection connection the write runs on
+     * @param table      table name as registered in {@code table_versions}
+     * @return the new version; exact, because the transaction holds the row lock
+     * @throws SQLException if the update fails
+     */
+    protected final long bumpVersion(Connection connection, String table) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(BUMP_VERSION_SQL)) {
+            ps.setString(1, table);
+            ps.executeUpdate();
+        }
+        return version(connection, table);
+    }
+
+    /**
+     * Reads the change version of a table (single primary-key lookup).
+     * The version changes whenever the table's contents change through a DAO.
+     *
+     * @param table table name as registered in {@code table_versions}
+     * @return current version, or 0 if the table is not registered
+     * @throws DataAccessException if a database error occurs
+     */
+    protected final long readVersion(String table) throws DataAccessException {
+        try (Connection connection = getConnection()) {
+            return version(connection, table);
+        } catch (SQLException ex) {
+            handleSqlException(ex);
+            return 0;
+        }
+    }
+
+    private static long version(Connection connection, String table) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(SELECT_VERSION_SQL)) {
+            ps.setString(1, table);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * Adds inserted or updated rows to the table's change feed. Call it after
+     * {@link #bumpVersion} on the same transaction: the version row stays
+     * locked until commit, so the writers of one table take their feed
+     * positions in commit order and a reader never finds a gap that is
+     * filled later.
+     *
+     * <p>One entry covers the whole id range, so a batch costs one insert.
+     * Rows of concurrent writers inside the range are listed again with
+     * their own entry; readers apply rows by id, so that is harmless.
+     *
+     * @param connection connection the write runs on
+     * @param table      table name, as for {@link #bumpVersion}
+     * @param firstId    lowest id of the written rows
+     * @param lastId     highest id of the written rows
+     * @throws SQLException if the insert fails
+     */
+    protected final void recordUpserts(Connection connection, String table, int firstId, int lastId)
+            throws SQLException {
+        recordChange(connection, table, OP_UPSERT, firstId, lastId, null, null);
+    }
+
+    /**
+     * Adds a deleted range to the table's change feed (same rules as
+     * {@link #recordUpserts}). A null bound is open; with neither bound the
+     * table was cleared.
+     *
+     * @param from inclusive lower bound of the deleted rows' time, or null
+     * @param to   exclusive upper bound of the deleted rows' time, or null
+     * @throws SQLException if the insert fails
+     */
+    protected final void recordDelete(Connection connection, String table, Timestamp from, Timestamp to)
+            throws SQLException {
+        recordChange(connection, table, OP_DELETE, null, null, from, to);
+    }
+
+    /**
+     * Tells the table's readers to reload it, instead of adding every row of
+     * a bulk write to the change feed (same rules as {@link #recordUpserts}).
+     *
+     * @throws SQLException if the insert fails
+     */
+    protected final void recordReload(Connection connection, String table) throws SQLException {
+        recordChange(connection, table, OP_RELOAD, null, null, null, null);
+    }
+
+    private static void recordChange(Connection connection, String table, String op, Integer firstId, Integer lastId,
+                                     Timestamp from, Timestamp to) throws SQLException {
+        long seq;
+        try (PreparedStatement ps = connection.prepareStatement(INSERT_CHANGE_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            ps.setString(1, table);
+            ps.setString(2, op);
+            ps.setObject(3, firstId);
+            ps.setObject(4, lastId);
+            ps.setTimestamp(5, from);
+            ps.setTimestamp(6, to);
+            ps.setLong(7, ORIGIN);
+            ps.executeUpdate();
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                keys.next();
+                seq = keys.getLong(1);
+            }
+        }
+        pruneChangesIfDue(connection, seq);
+    }
+
+    /**
+     * Keeps change_log at about {@link #CHANGE_LOG_MAX_ROWS} rows. The highest
+     * pruned seq is stored with the versions, in the same transaction, so
+     * readers can tell that a client fell too far behind.
+     */
+    private static void pruneChangesIfDue(Connection connection, long seq) throws SQLException {
+        long last = LAST_PRUNE_SEQ.get();
+        if (seq - last < PRUNE_INTERVAL || !LAST_PRUNE_SEQ.compareAndSet(last, seq)) {
+            return;
+        }
+        long cutoff = seq - CHANGE_LOG_MAX_ROWS;
+        if (cutoff <= 0) {
+            return;
+        }
+        try (PreparedStatement prune = connection.prepareStatement(PRUNE_CHANGES_SQL);
+             PreparedStatement raise = connection.prepareStatement(RAISE_PRUNED_SQL)) {
+            prune.setLong(1, cutoff);
+            prune.setLong(2, 10 * PRUNE_INTERVAL);
+            prune.executeUpdate();
+            raise.setLong(1, cutoff);
+            raise.executeUpdate();
+        }
+    }
+
+    /**
+     * Reads the change feed of a table after the given position, joining the
+     * current contents of inserted and updated rows. Upserts of rows deleted
+     * since are left out; the delete follows later in the feed.
+     *
+     * @param table   table name, as for {@link #bumpVersion}
+     * @param columns columns read by {@code mapper}, qualified with {@code t.} and starting with {@code t.id}
+     * @param mapper  maps those columns to an entity
+     * @param since   last sequence number the client has applied (0 for the whole feed)
+     * @param limit   maximum number of feed entries to read (one per write, which may list many rows)
+     * @return the changes, or a reset if the feed no longer reaches back to {@code since}
+     * @throws DataAccessException if a database error occurs
+     */
+    protected final ChangeSet<T> readChanges(String table, String columns, RowMapper<T> mapper,
+                                             long since, int limit) throws DataAccessException {
+        int max = Math.max(1, limit);
+        List<Change<T>> changes = new ArrayList<>();
+        try (Connection connection = getConnection()) {
+            long next = since;
+            int entries = 0;
+            boolean reload = false;
+            try (PreparedStatement ps = connection.prepareStatement(String.format(SELECT_CHANGES_SQL, columns, table))) {
+                ps.setString(1, table);
+                ps.setLong(2, since);
+                ps.setInt(3, max);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next() && !reload) {
+                        if (rs.getLong(1) != next) {
+                            entries++;
+                            next = rs.getLong(1);
+                        }
+                        String op = rs.getString(2);
+                        boolean local = rs.getLong(5) == ORIGIN;
+                        if (OP_RELOAD.equals(op)) {
+                            reload = true;
+                        } else if (OP_DELETE.equals(op)) {
+                            changes.add(new Change<>(next, Change.Type.DELETE, null,
+                                    toLocalDateTime(rs.getTimestamp(3)), toLocalDateTime(rs.getTimestamp(4)), local));
+                        } else if (rs.getObject(6) != null) {
+                            changes.add(new Change<>(next, Change.Type.UPSERT, mapper.map(rs), null, null, local));
+                        }
+                    }
+                }
+            }
+            // Read after the rows: a prune that removed rows this read needed has committed by now
+            long pruned = version(connection, CHANGE_LOG);
+            if (reload || since < pruned) {
+                return new ChangeSet<>(new ArrayList<>(), changeHead(connection, table, pruned), true, false);
+            }
+            return new ChangeSet<>(changes, next, false, entries == max);
+        } catch (SQLException ex) {
+            handleSqlException(ex);
+            return new ChangeSet<>(changes, since, false, false);
+        }
+    }
+
+    /**
+     * Returns the current end of a table's change feed. A client reads it
+     * before loading the table, then polls from there.
+     *
+     * @param table table name, as for {@link #bumpVersion}
+     * @return sequence number to pass to the first {@code changesSince} call
+     * @throws DataAccessException if a database error occurs
+     */
+    protected final long readChangeHead(String table) throws DataAccessException {
+        try (Connection connection = getConnection()) {
+            return changeHead(connection, table, version(connection, CHANGE_LOG));
+        } catch (SQLException ex) {
+            handleSqlException(ex);
+            return 0;
+        }
+    }
+
+    // Never below the pruned position, or the next read would report a reset again
+    private static long changeHead(Connection connection, String table, long pruned) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(SELECT_CHANGE_HEAD_SQL)) {
+            ps.setString(1, table);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return Math.max(rs.getLong(1), pruned);
+            }
+        }
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp ts) {
+        return ts != null ? ts.toLocalDateTime() : null;
+    }
+
+    /**
+     * Runs a query and returns its rows as a lazily read stream.
+     *
+     * <p>The result set is streamed by the driver, so memory use does not
+     * depend on the number of rows. The connection stays borrowed until the
+     * stream is closed, and it cannot run other statements meanwhile, so
+     * callers must not nest DAO calls inside the stream pipeline.
+     * Closing the stream early still makes the driver read (and discard)
+     * the rows that are left.
+     *
+     * @param sql    SELECT statement without parameters
+     * @param mapper maps each row to an entity
+     * @return stream that must be closed by the caller
+     * @throws DataAccessException if the query fails, or later while reading rows
+     */
+    protected Stream<T> streamQuery(String sql, RowMapper<T> mapper) throws DataAccessException {
+        Connection connection = getConnection();
+        PreparedStatement ps = null;
+        ResultSet rs;
+        try {
+            ps = connection.prepareStatement(sql);
+            ps.setFetchSize(STREAMING_FETCH_SIZE);
+            rs = ps.executeQuery();
+        } catch (SQLException ex) {
+            closeQuietly(null, ps, connection);
+            throw new DataAccessException("Database error: " + ex.getMessage(), ex);
+        }
+
+        PreparedStatement statement = ps;
+        Spliterator<T> rows = new Spliterators.AbstractSpliterator<T>(
+                Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                try {
+                    if (!rs.next()) {
+                        return false;
+                    }
+                    action.accept(mapper.map(rs));
+                    return true;
+                } catch (SQLException ex) {
+                    throw new DataAccessException("Database error: " + ex.getMessage(), ex);
+                }
+            }
+        };
+        return StreamSupport.stream(rows, false)
+                .onClose(() -> closeQuietly(rs, statement, connection));
+    }
+
+    // Closed in reverse order of opening; nothing useful to do if one fails while releasing
+    private static void closeQuietly(ResultSet rs, PreparedStatement ps, Connection connection) {
+        if (rs != null) {
+            try {
+                rs.close();
+            } catch (SQLException ignored) {
+                // keep closing the others
+            }
+        }
+        if (ps != null) {
+            try {
+                ps.close();
+            } catch (SQLException ignored) {
+                // keep closing the others
+            }
+        }
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException ignored) {
+                // nothing left to release
+            }
+        }
+    }
+
     /**
      * Centralized handler for SQLExceptions.
      * Wraps low-level SQL errors into a custom unchecked DataAccessException,
@@ -3,6 +3,10 @@ package project.dao;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
 import project.model.Bookmark;
 
 /**
@@ -13,46 +17,66 @@ import project.model.Bookmark;
  *   <li>Inheritance from BaseDAO&lt;Bookmark&gt;</li>
  *   <li>Generics in the DAO layer</li>
  *   <li>JDBC usage with PreparedStatement and ResultSet</li>
- *   <li>Automatic table creation on first use</li>
+ *   <li>Schema owned by {@link SchemaMigrator}, not created per instance</li>
  * </ul>
+ *
+ * <p>A URL is bookmarked at most once: the table has a unique index on the
+ * hash of the {@linkplain #normalizeUrl normalized} URL, and saving a URL that
+ * is already bookmarked updates that bookmark's title. {@link #isBookmarked}
+ * answers from an in-memory set of normalized URLs, so it can run on every
+ * navigation.
  */
-public class BookmarkDAO extends BaseDAO<Bookmark> {
+public class BookmarkDAO extends BaseDAO<Bookmark> implements BookmarkStore {
 
-    private static final String CREATE_TABLE_SQL =
-            "CREATE TABLE IF NOT EXISTS bookmarks (" +
-            "id INT PRIMARY KEY AUTO_INCREMENT," +
-            "title VARCHAR(255)," +
-            "url TEXT" +
-            ")";
+    /** Name under which the bookmarks' change version is kept in table_versions. */
+    private static final String TABLE = "bookmarks";
 
-    private static final String INSERT_SQL =
-            "INSERT INTO bookmarks(title, url) VALUES(?, ?)";
+    // On a duplicate URL, LAST_INSERT_ID(id) makes the existing row's id the generated key
+    private static final String UPSERT_SQL =
+            "INSERT INTO bookmarks(title, url) VALUES(?, ?) " +
+            "ON DUPLICATE KEY UPDATE id = LAST_INSERT_ID(id), title = VALUES(title)";
 
     private static final String SELECT_ALL_SQL =
             "SELECT id, title, url FROM bookmarks ORDER BY id DESC";
 
+    /** Columns read by {@link #mapRow} in the change feed query. */
+    private static final String CHANGE_COLUMNS = "t.id, t.title, t.url";
+
+    private static final String SEARCH_SQL =
+            "SELECT id, title, url, MATCH(title, url) AGAINST(? IN BOOLEAN MODE) AS score FROM bookmarks " +
+            "WHERE MATCH(title, url) AGAINST(? IN BOOLEAN MODE) " +
+            "ORDER BY score DESC, id DESC LIMIT ?";
+
+    private static final String SEARCH_LIKE_SQL =
+            "SELECT id, title, url FROM bookmarks WHERE title LIKE ? OR url LIKE ? " +
+            "ORDER BY id DESC LIMIT ?";
+
     private static final String CLEAR_ALL_SQL =
             "DELETE FROM bookmarks";
 
-    public BookmarkDAO(Connection connection) {
-        super(connection);
-        createTableIfNeeded();
+    /** Normalized URLs of all bookmarks; null until {@link #loadBookmarkedUrls()} ran. */
+    private volatile Set<String> bookmarkedUrls;
+    private final Object bookmarkedUrlsLock = new Object();
+
+    /**
+     * Creates a DAO backed by the shared application pool.
+     */
+    public BookmarkDAO() {
+        this(DBUtil.getPool());
     }
 
     /**
-     * Creates the bookmarks table if it does not already exist.
-     * This avoids manual schema setup for the evaluator.
+     * Creates a DAO that borrows its connections from the given pool.
+     *
+     * @param pool connection pool to use for every operation
      */
-    private void createTableIfNeeded() {
-        try (Statement st = connection.createStatement()) {
-            st.execute(CREATE_TABLE_SQL);
-        } catch (SQLException ex) {
-            handleSqlException(ex);
-        }
+    public BookmarkDAO(ConnectionPool pool) {
+        super(pool);
     }
 
     /**
-     * Inserts a new bookmark row.
+     * Inserts a new bookmark, or updates the title of the bookmark with the
+     * same normalized URL, and sets the row's id on the bookmark.
      *
      * @param bookmark bookmark to save (title + url)
      */
@@ -62,10 +86,26 @@ public class BookmarkDAO extends BaseDAO<Bookmark> {
             // Defensive check: nothing to persist
             return;
         }
-        try (PreparedStatement ps = connection.prepareStatement(INSERT_SQL)) {
-            ps.setString(1, bookmark.getTitle());
-            ps.setString(2, bookmark.getUrl());
-            ps.executeUpdate();
+        try (Connection connection = getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement ps = connection.prepareStatement(UPSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                ps.setString(1, bookmark.getTitle());
+                ps.setString(2, bookmark.getUrl());
+                ps.executeUpdate();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    if (keys.next()) {
+                        bookmark.setId(keys.getInt(1));
+                    }
+                }
+                long version = bumpVersion(connection, TABLE);
+                recordUpserts(connection, TABLE, bookmark.getId(), bookmark.getId());
+                connection.commit();
+                bookmarked(bookmark.getUrl());
+                afterSave(bookmark, version);
+            } catch (SQLException ex) {
+                connection.rollback();
+                throw ex;
+            }
         } catch (SQLException ex) {
             handleSqlException(ex);
         }
@@ -79,16 +119,57 @@ public class BookmarkDAO extends BaseDAO<Bookmark> {
     @Override
     public List<Bookmark> findAll() {
         List<Bookmark> result = new ArrayList<>();
-        try (PreparedStatement ps = connection.prepareStatement(SELECT_ALL_SQL);
+        try (Connection connection = getConnection();
+             PreparedStatement ps = connection.prepareStatement(SELECT_ALL_SQL);
              ResultSet rs = ps.executeQuery()) {
 
             while (rs.next()) {
-                Bookmark b = new Bookmark(
-                        rs.getInt("id"),
-                        rs.getString("title"),
-                        rs.getString("url")
-                );
-                result.add(b);
+                result.add(mapRow(rs));
+            }
+        } catch (SQLException ex) {
+            handleSqlException(ex);
+        }
+        return result;
+    }
+
+    /**
+     * Streams all bookmarks, newest first, without loading the table into memory.
+     *
+     * @return stream that must be closed by the caller
+     */
+    @Override
+    public Stream<Bookmark> stream() {
+        return streamQuery(SELECT_ALL_SQL, BookmarkDAO::mapRow);
+    }
+
+    /**
+     * Full-text search over bookmark titles and URLs, most relevant first.
+     *
+     * @param query free text typed by the user
+     * @param limit maximum number of results
+     * @return matching bookmarks (never null)
+     */
+    @Override
+    public List<Bookmark> search(String query, int limit) {
+        List<Bookmark> result = new ArrayList<>();
+        FullTextQuery q = FullTextQuery.parse(query);
+        if (q.isEmpty() || limit <= 0) {
+            return result;
+        }
+        try (Connection connection = getConnection();
+             PreparedStatement ps = connection.prepareStatement(q.hasTerms() ? SEARCH_SQL : SEARCH_LIKE_SQL)) {
+            if (q.hasTerms()) {
+                ps.setString(1, q.booleanQuery());
+                ps.setString(2, q.booleanQuery());
+            } else {
+                ps.setString(1, q.likePattern());
+                ps.setString(2, q.likePattern());
+            }
+            ps.setInt(3, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    result.add(mapRow(rs));
+                }
             }
         } catch (SQLException ex) {
             handleSqlException(ex);
@@ -101,10 +182,204 @@ public class BookmarkDAO extends BaseDAO<Bookmark> {
      */
     @Override
     public void clearAll() {
-        try (Statement st = connection.createStatement()) {
-            st.executeUpdate(CLEAR_ALL_SQL);
+        try (Connection connection = getConnection()) {
+            connection.setAutoCommit(false);
+            try (Statement st = connection.createStatement()) {
+                st.executeUpdate(CLEAR_ALL_SQL);
+                long version = bumpVersion(connection, TABLE);
+                recordDelete(connection, TABLE, null, null);
+                connection.commit();
+                bookmarksCleared();
+                afterClear(version);
+            } catch (SQLException ex) {
+                connection.rollback();
+                throw ex;
+            }
         } catch (SQLException ex) {
             handleSqlException(ex);
         }
     }
+
+    /**
+     * Returns the change version of the bookmarks. It increases with every
+     * write made through this class, so it can serve as a cheap ETag.
+     *
+     * @return current version
+     */
+    @Override
+    public long getVersion() {
+        return readVersion(TABLE);
+    }
+
+    /**
+     * Tells whether a URL is bookmarked, in constant time. The first call
+     * reads the bookmark URLs (see {@link #loadBookmarkedUrls()}); after that
+     * no query is made, and writes through this DAO keep the answer current.
+     *
+     * @param url page URL (may be null)
+     * @return true if a bookmark has the same normalized URL
+     */
+    @Override
+    public boolean isBookmarked(String url) {
+        if (url == null) {
+            return false;
+        }
+        Set<String> urls = bookmarkedUrls;
+        if (urls == null) {
+            loadBookmarkedUrls();
+            urls = bookmarkedUrls;
+        }
+        return urls.contains(normalizeUrl(url));
+    }
+
+    /**
+     * Reads the URLs of all bookmarks into the set behind {@link #isBookmarked},
+     * unless that happened already. Call it off the UI thread before the first lookup.
+     */
+    @Override
+    public void loadBookmarkedUrls() {
+        // Writes also take the lock, so none can slip in between reading the table and publishing the set
+        synchronized (bookmarkedUrlsLock) {
+            if (bookmarkedUrls != null) {
+                return;
+            }
+            bookmarkedUrls = readBookmarkedUrls();
+        }
+    }
+
+    private Set<String> readBookmarkedUrls() {
+        Set<String> urls = ConcurrentHashMap.newKeySet();
+        try (Stream<Bookmark> rows = stream()) {
+            rows.forEach(b -> {
+                if (b.getUrl() != null) {
+                    urls.add(normalizeUrl(b.getUrl()));
+                }
+            });
+        }
+        return urls;
+    }
+
+    /**
+     * Returns the bookmarks saved and cleared after the given position of the
+     * bookmarks' change feed, oldest first. A clear is a delete without
+     * bounds. Changes made by other processes are also applied to the set
+     * behind {@link #isBookmarked}, so polling the feed keeps it current.
+     *
+     * @param seq   last sequence number applied by the caller
+     * @param limit maximum number of changes
+     * @return changes and the position to continue from
+     */
+    @Override
+    public ChangeSet<Bookmark> changesSince(long seq, int limit) {
+        ChangeSet<Bookmark> changes = readChanges(TABLE, CHANGE_COLUMNS, BookmarkDAO::mapRow, seq, limit);
+        if (changes.isReset()) {
+            synchronized (bookmarkedUrlsLock) {
+                if (bookmarkedUrls != null) {
+                    bookmarkedUrls = readBookmarkedUrls();
+                }
+            }
+        }
+        for (Change<Bookmark> change : changes.getChanges()) {
+            if (change.isLocal()) {
+                continue;
+            }
+            if (change.getType() == Change.Type.UPSERT) {
+                bookmarked(change.getRow().getUrl());
+            } else {
+                bookmarksCleared();
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Returns the current end of the bookmarks' change feed; read it before
+     * loading the bookmarks, then poll {@link #changesSince} from there.
+     *
+     * @return sequence number of the latest change
+     */
+    @Override
+    public long currentChangeSeq() {
+        return readChangeHead(TABLE);
+    }
+
+    /**
+     * Normalizes a URL for duplicate detection: the fragment is dropped, the
+     * scheme and host are lower-cased and trailing slashes are removed, so
+     * {@code HTTPS://Example.com/docs/#intro} and {@code https://example.com/docs}
+     * are the same bookmark. Mirrored in SQL by the {@code url_key} column
+     * (see {@link SchemaMigrator}); keep the two in step.
+     *
+     * @param url URL as saved or visited (may be null)
+     * @return normalized URL, or null for null
+     */
+    public static String normalizeUrl(String url) {
+        if (url == null) {
+            return null;
+        }
+        int fragment = url.indexOf('#');
+        String u = fragment >= 0 ? url.substring(0, fragment) : url;
+        // Scheme and host end at the third '/' (the whole string if there are fewer)
+        int end = -1;
+        for (int slashes = 0; slashes < 3; slashes++) {
+            end = u.indexOf('/', end + 1);
+            if (end < 0) {
+                end = u.length();
+                break;
+            }
+        }
+        String n = u.substring(0, end).toLowerCase(Locale.ROOT) + u.substring(end);
+        int length = n.length();
+        while (length > 0 && n.charAt(length - 1) == '/') {
+            length--;
+        }
+        return n.substring(0, length);
+    }
+
+    /** Adds a saved URL to the set behind {@link #isBookmarked}, if it is loaded. */
+    void bookmarked(String url) {
+        synchronized (bookmarkedUrlsLock) {
+            if (bookmarkedUrls != null && url != null) {
+                bookmarkedUrls.add(normalizeUrl(url));
+            }
+        }
+    }
+
+    /** Empties the set behind {@link #isBookmarked}, if it is loaded. */
+    void bookmarksCleared() {
+        synchronized (bookmarkedUrlsLock) {
+            if (bookmarkedUrls != null) {
+                bookmarkedUrls.clear();
+            }
+        }
+    }
+
+    /**
+     * Called after a bookmark has been committed. Subclasses that keep
+     * derived state (e.g. a cache) override this; the default does nothing.
+     *
+     * @param bookmark saved bookmark, with its generated id
+     * @param version  table version produced by this write
+     */
+    protected void afterSave(Bookmark bookmark, long version) {
+    }
+
+    /**
+     * Called after all bookmarks have been deleted and committed.
+     *
+     * @param version table version produced by this write
+     */
+    protected void afterClear(long version) {
+    }
+
+    /**
+     * Maps the current ResultSet row to a Bookmark.
+     */
+    static Bookmark mapRow(ResultSet rs) throws SQLException {
+        return new Bookmark(
+                rs.getInt("id"),
+                rs.getString("title"),
+                rs.getString("url")
+        );
+    }
 }
@@ -0,0 +1,56 @@
+package project.dao;
+
+import java.util.List;
+import project.model.Bookmark;
+
+/**
+ * BookmarkStore is the bookmark contract used by the desktop browser,
+ * whatever keeps the bookmarks: MySQL ({@link BookmarkDAO}) or the embedded
+ * log ({@link LogBookmarkDAO}). A URL is bookmarked at most once, compared
+ * by {@link BookmarkDAO#normalizeUrl}.
+ */
+public interface BookmarkStore extends GenericDAO<Bookmark> {
+
+    /**
+     * Searches bookmark titles and URLs.
+     *
+     * @param query free text typed by the user
+     * @param limit maximum number of results
+     * @return matching bookmarks (never null)
+     */
+    List<Bookmark> search(String query, int limit);
+
+    /**
+     * Tells whether a URL is bookmarked, cheaply enough to run on every navigation.
+     *
+     * @param url page URL (may be null)
+     * @return true if a bookmark has the same normalized URL
+     */
+    boolean isBookmarked(String url);
+
+    /**
+     * Prepares {@link #isBookmarked}, which may otherwise read the bookmarks
+     * on its first call. Call it off the UI thread.
+     */
+    void loadBookmarkedUrls();
+
+    /**
+     * @return change version of the bookmarks; it increases with every write
+     */
+    long getVersion();
+
+    /**
+     * Returns the bookmarks saved and cleared after the given position of the
+     * bookmarks' change feed, oldest first.
+     *
+     * @param seq   last sequence number applied by the caller
+     * @param limit maximum number of changes
+     * @return changes and the position to continue from
+     */
+    ChangeSet<Bookmark> changesSince(long seq, int limit);
+
+    /**
+     * @return sequence number of the latest change; poll {@link #changesSince} from there
+     */
+    long currentChangeSeq();
+}
@@ -0,0 +1,214 @@
+package project.dao;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+import project.model.Bookmark;
+
+/**
+ * Read-through cache in front of {@link BookmarkDAO}.
+ *
+ * <p>{@link #findAll()} and {@link #stream()} are served from an immutable
+ * snapshot held in an {@link AtomicReference}, so readers never lock.
+ * Writes go to the database first; the committed row is then added to a
+ * copy of the snapshot, which is swapped in (copy-on-write). That copy is
+ * only made when the write is the very next table version; if another writer
+ * got in between, the snapshot is dropped and the next read reloads it.
+ *
+ * <p>For deployments where other nodes write to the same database, a
+ * snapshot older than the TTL is revalidated against the table version
+ * (one primary-key lookup) and only reloaded if the version moved.
+ * Tables with more than {@code maxSize} rows are not cached at all.
+ * Defaults can be overridden with {@code -Dquantum.cache.bookmarks.maxSize}
+ * and {@code -Dquantum.cache.bookmarks.ttlMs}.
+ */
+public class CachingBookmarkDAO extends BookmarkDAO {
+
+    private static final int DEFAULT_MAX_SIZE =
+            Integer.getInteger("quantum.cache.bookmarks.maxSize", 10_000);
+    private static final long DEFAULT_TTL_MS =
+            Long.getLong("quantum.cache.bookmarks.ttlMs", 30_000L);
+
+    /** Immutable view of the table at one version; items == null means "too large to cache". */
+    private static final class Snapshot {
+        final List<Bookmark> items;
+        final long version;
+        final long loadedAtMillis;
+
+        Snapshot(List<Bookmark> items, long version, long loadedAtMillis) {
+            this.items = items;
+            this.version = version;
+            this.loadedAtMillis = loadedAtMillis;
+        }
+    }
+
+    private final int maxSize;
+    private final long ttlMillis;
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+    private final Object loadLock = new Object();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+    private final AtomicLong bypasses = new AtomicLong();
+
+    /**
+     * Creates a cache with the configured (or default) size limit and TTL.
+     *
+     * @param pool connection pool to use for every database operation
+     */
+    public CachingBookmarkDAO(ConnectionPool pool) {
+        this(pool, DEFAULT_MAX_SIZE, DEFAULT_TTL_MS);
+    }
+
+    /**
+     * @param pool      connection pool to use for every database operation
+     * @param maxSize   tables with more rows than this are not cached
+     * @param ttlMillis revalidate the snapshot against the table version after this long
+     */
+    public CachingBookmarkDAO(ConnectionPool pool, int maxSize, long ttlMillis) {
+        super(pool);
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Returns all bookmarks, newest first, from the snapshot when possible.
+     *
+     * @return unmodifiable list (never null)
+     */
+    @Override
+    public List<Bookmark> findAll() {
+        Snapshot s = current();
+        if (s.items == null) {
+            bypasses.incrementAndGet();
+            return super.findAll();
+        }
+        hits.incrementAndGet();
+        return s.items;
+    }
+
+    @Override
+    public Stream<Bookmark> stream() {
+        Snapshot s = current();
+        if (s.items == null) {
+            bypasses.incrementAndGet();
+            return super.stream();
+        }
+        hits.incrementAndGet();
+        return s.items.stream();
+    }
+
+    @Override
+    protected void afterSave(Bookmark bookmark, long version) {
+        Bookmark copy = new Bookmark(bookmark.getId(), bookmark.getTitle(), bookmark.getUrl());
+        snapshot.updateAndGet(s -> {
+            if (s == null || s.items == null || s.version != version - 1) {
+                return null; // missed a write elsewhere: reload on next read
+            }
+            if (!s.items.isEmpty() && s.items.get(0).getId() >= copy.getId()) {
+                return null; // a concurrent load already picked the row up
+            }
+            List<Bookmark> items = new ArrayList<>(s.items.size() + 1);
+            items.add(copy); // newest first, as in findAll()
+            items.addAll(s.items);
+            return items.size() > maxSize
+                    ? null
+                    : new Snapshot(Collections.unmodifiableList(items), version, s.loadedAtMillis);
+        });
+    }
+
+    @Override
+    protected void afterClear(long version) {
+        snapshot.updateAndGet(s -> s != null && s.version == version - 1
+                ? new Snapshot(Collections.emptyList(), version, s.loadedAtMillis)
+                : null);
+    }
+
+    /** Drops the snapshot; the next read reloads it from the database. */
+    public void invalidate() {
+        snapshot.set(null);
+    }
+
+    /** @return reads served from the snapshot */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /** @return snapshot (re)loads from the database */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /** @return expired snapshots that were confirmed current by a version check */
+    public long getRevalidations() {
+        return revalidations.get();
+    }
+
+    /** @return reads passed straight to the database because the table exceeds maxSize */
+    public long getBypasses() {
+        return bypasses.get();
+    }
+
+    @Override
+    public String toString() {
+        return "CachingBookmarkDAO{hits=" + hits + ", misses=" + misses
+                + ", revalidations=" + revalidations + ", bypasses=" + bypasses
+                + ", maxSize=" + maxSize + ", ttlMs=" + ttlMillis + '}';
+    }
+
+    // -------------------------------------------------------------------
+    // Internals
+    // -------------------------------------------------------------------
+
+    /** Returns a fresh snapshot, loading or revalidating it if necessary. */
+    private Snapshot current() {
+        Snapshot s = snapshot.get();
+        if (s != null && !isExpired(s)) {
+            return s;
+        }
+        // Only one thread loads; the others wait for its result instead of piling onto the database
+        synchronized (loadLock) {
+            s = snapshot.get();
+            if (s != null && !isExpired(s)) {
+                return s;
+            }
+            long version = getVersion();
+            if (s != null && s.version == version) {
+                revalidations.incrementAndGet();
+                Snapshot renewed = new Snapshot(s.items, s.version, System.currentTimeMillis());
+                snapshot.compareAndSet(s, renewed);
+                return renewed;
+            }
+            misses.incrementAndGet();
+            Snapshot loaded = load(version);
+            snapshot.set(loaded);
+            return loaded;
+        }
+    }
+
+    /**
+     * Reads the table into a new snapshot. The version is read first, so a
+     * concurrent write can only make the snapshot look older than it is.
+     */
+    private Snapshot load(long version) {
+        List<Bookmark> items = new ArrayList<>();
+        try (Stream<Bookmark> rows = super.stream()) {
+            for (Bookmark b : (Iterable<Bookmark>) rows::iterator) {
+                if (items.size() == maxSize) {
+                    return new Snapshot(null, version, System.currentTimeMillis());
+                }
+                items.add(b);
+            }
+        }
+        return new Snapshot(Collections.unmodifiableList(items), version, System.currentTimeMillis());
+    }
+
+    private boolean isExpired(Snapshot s) {
+        return System.currentTimeMillis() - s.loadedAtMillis > ttlMillis;
+    }
+}
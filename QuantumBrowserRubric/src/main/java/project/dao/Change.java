@@ -0,0 +1,83 @@
+package project.dao;
+
+import java.time.LocalDateTime;
+
+/**
+ * One entry of a table's change feed (see {@link ChangeSet}).
+ *
+ * <p>An {@link Type#UPSERT} carries the row as it is now: the client adds it,
+ * or replaces its copy with the same id. A {@link Type#DELETE} removes every
+ * row whose time lies in [{@code from}, {@code to}); a null bound is open,
+ * so a delete with neither bound means the table was cleared.
+ *
+ * @param <T> entity type of the table
+ */
+public final class Change<T> {
+
+    /** What happened to the table. */
+    public enum Type { UPSERT, DELETE }
+
+    private final long seq;
+    private final Type type;
+    private final T row;
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+    private final boolean local;
+
+    Change(long seq, Type type, T row, LocalDateTime from, LocalDateTime to, boolean local) {
+        this.seq = seq;
+        this.type = type;
+        this.row = row;
+        this.from = from;
+        this.to = to;
+        this.local = local;
+    }
+
+    /** @return position in the feed; increases with every write to the table, and rows written together share it */
+    public long getSeq() {
+        return seq;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /** @return the inserted or updated row; null for a delete */
+    public T getRow() {
+        return row;
+    }
+
+    /** @return inclusive lower bound of a delete, or null if unbounded */
+    public LocalDateTime getFrom() {
+        return from;
+    }
+
+    /** @return exclusive upper bound of a delete, or null if unbounded */
+    public LocalDateTime getTo() {
+        return to;
+    }
+
+    /**
+     * @return true if the change was written by this process, so a client
+     *         that updates its own lists as it writes can skip it
+     */
+    public boolean isLocal() {
+        return local;
+    }
+
+    /**
+     * @param time time of a row (visit time for history)
+     * @return true if this is a delete whose range contains the time
+     */
+    public boolean deletes(LocalDateTime time) {
+        if (type != Type.DELETE) {
+            return false;
+        }
+        if (from == null && to == null) {
+            return true;
+        }
+        return time != null
+                && (from == null || !time.isBefore(from))
+                && (to == null || time.isBefore(to));
+    }
+}
@@ -0,0 +1,51 @@
+package project.dao;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Changes of one table after a given sequence number, oldest first.
+ *
+ * <p>Poll with {@link #getNextSeq()} to continue where this set ended.
+ * Applying a change twice has no further effect, so a client may start from a
+ * sequence number read before its initial load. When {@link #isReset()} is
+ * true the changes since the requested position are no longer available
+ * (they were pruned, or a bulk import replaced them with a single marker):
+ * the client reloads the table and continues from {@code nextSeq}.
+ *
+ * @param <T> entity type of the table
+ */
+public final class ChangeSet<T> {
+
+    private final List<Change<T>> changes;
+    private final long nextSeq;
+    private final boolean reset;
+    private final boolean hasMore;
+
+    ChangeSet(List<Change<T>> changes, long nextSeq, boolean reset, boolean hasMore) {
+        this.changes = Collections.unmodifiableList(changes);
+        this.nextSeq = nextSeq;
+        this.reset = reset;
+        this.hasMore = hasMore;
+    }
+
+    /** @return changes in feed order (never null; empty on a reset) */
+    public List<Change<T>> getChanges() {
+        return changes;
+    }
+
+    /** @return sequence number to pass to the next {@code changesSince} call */
+    public long getNextSeq() {
+        return nextSeq;
+    }
+
+    /** @return true if the client must reload the whole table */
+    public boolean isReset() {
+        return reset;
+    }
+
+    /** @return true if the limit was reached and more changes are waiting */
+    public boolean hasMore() {
+        return hasMore;
+    }
+}
@@ -0,0 +1,505 @@
+package project.dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import project.exception.DataAccessException;
+import project.metrics.DatabaseTime;
+
+/**
+ * ConnectionPool is a small, bounded, thread-safe JDBC connection pool.
+ *
+ * <p>Features:
+ * <ul>
+ *   <li>Hard upper bound on open connections (guarded by a fair Semaphore)</li>
+ *   <li>Borrow timeout instead of unbounded waiting</li>
+ *   <li>Validation on borrow ({@link Connection#isValid(int)}), so dropped
+ *       MySQL connections are replaced transparently</li>
+ *   <li>Background eviction of connections that stayed idle too long</li>
+ *   <li>Per-connection LRU cache of PreparedStatements</li>
+ *   <li>Usage counters exposed through {@link #getStats()}</li>
+ *   <li>Time from borrow to return added to the borrowing thread's
+ *       {@link project.metrics.DatabaseTime} tally</li>
+ * </ul>
+ *
+ * <p>Borrowed connections are proxies: calling {@code close()} returns the
+ * physical connection to the pool instead of closing it, so DAOs simply use
+ * try-with-resources around every operation.
+ */
+public final class ConnectionPool implements AutoCloseable {
+
+    private final String url;
+    private final String user;
+    private final String password;
+
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final int statementCacheSize;
+
+    /** Idle physical connections; most recently returned first (LIFO keeps hot connections warm). */
+    private final ConcurrentLinkedDeque<PooledConnection> idle = new ConcurrentLinkedDeque<>();
+
+    /** One permit per connection that may be handed out. */
+    private final Semaphore permits;
+
+    private final ScheduledExecutorService evictor;
+
+    private volatile boolean closed = false;
+
+    // Statistics
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final AtomicInteger activeConnections = new AtomicInteger();
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong borrowTimeouts = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong validationFailures = new AtomicLong();
+    private final AtomicLong evictedCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong statementCacheHits = new AtomicLong();
+    private final AtomicLong statementCacheMisses = new AtomicLong();
+
+    /**
+     * Creates a new pool. Connections are opened lazily on first borrow.
+     *
+     * @param url                 JDBC URL
+     * @param user                database user
+     * @param password            database password
+     * @param maxSize             maximum number of physical connections
+     * @param borrowTimeoutMillis how long {@link #getConnection()} waits for a free connection
+     * @param idleTimeoutMillis   idle connections older than this are closed (0 disables eviction)
+     * @param statementCacheSize  PreparedStatements cached per connection (0 disables caching)
+     */
+    public ConnectionPool(String url, String user, String password,
+                          int maxSize, long borrowTimeoutMillis,
+                          long idleTimeoutMillis, int statementCacheSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+
+        if (idleTimeoutMillis > 0) {
+            evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "connection-pool-evictor");
+                t.setDaemon(true);
+                return t;
+            });
+            long period = Math.max(1000, idleTimeoutMillis / 2);
+            evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+        } else {
+            evictor = null;
+        }
+    }
+
+    /**
+     * Borrows a validated connection from the pool.
+     * The caller must close it (preferably with try-with-resources) to return it.
+     *
+     * @return a pooled connection
+     * @throws DataAccessException if the pool is exhausted for longer than the
+     *                             borrow timeout or a connection cannot be opened
+     */
+    public Connection getConnection() {
+        if (closed) {
+            throw new DataAccessException("Connection pool is closed", null);
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                borrowTimeouts.incrementAndGet();
+                throw new DataAccessException("Timed out after " + borrowTimeoutMillis
+                        + " ms waiting for a database connection (pool size " + maxSize + ")", null);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessException("Interrupted while waiting for a database connection", ex);
+        }
+        totalWaitNanos.addAndGet(System.nanoTime() - start);
+
+        try {
+            PooledConnection pc = takeValidIdle();
+            if (pc == null) {
+                pc = open();
+            }
+            borrowCount.incrementAndGet();
+            activeConnections.incrementAndGet();
+            return pc.lease(start);
+        } catch (SQLException ex) {
+            permits.release();
+            throw new DataAccessException("Unable to connect to database: " + ex.getMessage(), ex);
+        } catch (RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+
+    /** Returns a snapshot of the pool counters. */
+    public PoolStats getStats() {
+        long borrows = borrowCount.get();
+        return new PoolStats(
+                maxSize,
+                openConnections.get(),
+                activeConnections.get(),
+                idle.size(),
+                permits.getQueueLength(),
+                borrows,
+                borrowTimeouts.get(),
+                createdCount.get(),
+                validationFailures.get(),
+                evictedCount.get(),
+                borrows == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalWaitNanos.get()) / borrows,
+                statementCacheHits.get(),
+                statementCacheMisses.get()
+        );
+    }
+
+    /**
+     * Closes all idle connections and rejects further borrows.
+     * Connections currently in use are closed when they are returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (evictor != null) {
+            evictor.shutdownNow();
+        }
+        PooledConnection pc;
+        while ((pc = idle.pollFirst()) != null) {
+            pc.closePhysical();
+        }
+    }
+
+    // -------------------------------------------------------------------
+    // Internals
+    // -------------------------------------------------------------------
+
+    private PooledConnection takeValidIdle() {
+        PooledConnection pc;
+        while ((pc = idle.pollFirst()) != null) {
+            if (pc.isValid()) {
+                return pc;
+            }
+            validationFailures.incrementAndGet();
+            pc.closePhysical();
+        }
+        return null;
+    }
+
+    private PooledConnection open() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, user, password);
+        openConnections.incrementAndGet();
+        createdCount.incrementAndGet();
+        return new PooledConnection(physical);
+    }
+
+    private void release(PooledConnection pc, boolean broken) {
+        activeConnections.decrementAndGet();
+        try {
+            if (closed || broken || !pc.reset()) {
+                pc.closePhysical();
+            } else {
+                pc.lastUsed = System.currentTimeMillis();
+                idle.offerFirst(pc);
+                // close() may have drained the deque between the check above and the offer;
+                // closed is set before draining, so one of the two sees the connection
+                if (closed && idle.removeFirstOccurrence(pc)) {
+                    pc.closePhysical();
+                }
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /** Closes connections that have been idle for longer than the idle timeout. */
+    private void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+        // Oldest connections sit at the tail of the deque.
+        Iterator<PooledConnection> it = idle.descendingIterator();
+        while (it.hasNext()) {
+            PooledConnection pc = it.next();
+            if (pc.lastUsed < cutoff && idle.removeLastOccurrence(pc)) {
+                evictedCount.incrementAndGet();
+                pc.closePhysical();
+            }
+        }
+    }
+
+    // -------------------------------------------------------------------
+    // Pooled connection wrapper
+    // -------------------------------------------------------------------
+
+    /**
+     * Holds one physical connection plus its statement cache.
+     * A new logical proxy is created for every lease so that a stale
+     * reference held by a caller cannot use the connection after close().
+     */
+    private final class PooledConnection {
+
+        private final Connection physical;
+        private final Map<String, PreparedStatement> statements;
+        private volatile long lastUsed = System.currentTimeMillis();
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                    if (size() > statementCacheSize) {
+                        closeQuietly(eldest.getValue());
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        Connection lease(long borrowStartNanos) {
+            return (Connection) Proxy.newProxyInstance(
+                    ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new LogicalConnection(this, borrowStartNanos));
+        }
+
+        boolean isValid() {
+            try {
+                return !physical.isClosed() && physical.isValid(2);
+            } catch (SQLException ex) {
+                return false;
+            }
+        }
+
+        /** Restores default session state before the connection goes back to the pool. */
+        boolean reset() {
+            try {
+                if (physical.isClosed()) {
+                    return false;
+                }
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                return true;
+            } catch (SQLException ex) {
+                return false;
+            }
+        }
+
+        PreparedStatement prepare(String sql) throws SQLException {
+            if (statementCacheSize <= 0) {
+                statementCacheMisses.incrementAndGet();
+                return physical.prepareStatement(sql);
+            }
+            PreparedStatement ps = statements.remove(sql);
+            if (ps != null && !ps.isClosed()) {
+                statementCacheHits.incrementAndGet();
+            } else {
+                statementCacheMisses.incrementAndGet();
+                ps = physical.prepareStatement(sql);
+            }
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    new CachedStatement(this, sql, ps));
+        }
+
+        /** Puts a statement back into the cache once the caller closes it. */
+        void recycle(String sql, PreparedStatement ps) {
+            PreparedStatement previous = statements.put(sql, ps);
+            if (previous != null && previous != ps) {
+                closeQuietly(previous);
+            }
+        }
+
+        void closePhysical() {
+            List<PreparedStatement> cached = new ArrayList<>(statements.values());
+            statements.clear();
+            cached.forEach(ConnectionPool::closeQuietly);
+            try {
+                physical.close();
+            } catch (SQLException ignored) {
+                // connection is being discarded anyway
+            } finally {
+                openConnections.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Invocation handler for the Connection proxy handed to callers.
+     */
+    private final class LogicalConnection implements InvocationHandler {
+
+        private final PooledConnection pc;
+        private final long borrowStartNanos;
+        private boolean returned = false;
+        private boolean broken = false;
+
+        LogicalConnection(PooledConnection pc, long borrowStartNanos) {
+            this.pc = pc;
+            this.borrowStartNanos = borrowStartNanos;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        release(pc, broken);
+                        DatabaseTime.add(System.nanoTime() - borrowStartNanos);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || pc.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + pc.physical;
+                default:
+                    break;
+            }
+            if (returned) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            try {
+                if ("prepareStatement".equals(name) && args.length == 1) {
+                    return pc.prepare((String) args[0]);
+                }
+                return method.invoke(pc.physical, args);
+            } catch (InvocationTargetException ex) {
+                Throwable cause = ex.getCause();
+                if (cause instanceof SQLException && isFatal((SQLException) cause)) {
+                    broken = true;
+                }
+                throw cause;
+            } catch (SQLException ex) {
+                if (isFatal(ex)) {
+                    broken = true;
+                }
+                throw ex;
+            }
+        }
+    }
+
+    /**
+     * Invocation handler for cached PreparedStatements: {@code close()} clears
+     * the statement and returns it to the owning connection's cache.
+     */
+    private final class CachedStatement implements InvocationHandler {
+
+        private final PooledConnection pc;
+        private final String sql;
+        private final PreparedStatement target;
+        private boolean closed = false;
+
+        /** Set when the caller changed statement settings that must not leak into the next user. */
+        private boolean dirty = false;
+
+        CachedStatement(PooledConnection pc, String sql, PreparedStatement target) {
+            this.pc = pc;
+            this.sql = sql;
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        recycleOrClose();
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || target.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Cached" + target;
+                case "setFetchSize":
+                case "setMaxRows":
+                case "setQueryTimeout":
+                case "setFetchDirection":
+                case "setMaxFieldSize":
+                case "setEscapeProcessing":
+                case "setPoolable":
+                case "closeOnCompletion":
+                    dirty = true;
+                    break;
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Statement is closed");
+            }
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+        }
+
+        private void recycleOrClose() {
+            if (dirty || statementCacheSize <= 0) {
+                closeQuietly(target);
+                return;
+            }
+            try {
+                if (target.isClosed()) {
+                    return;
+                }
+                target.clearParameters();
+                target.clearBatch();
+                pc.recycle(sql, target);
+            } catch (SQLException ex) {
+                closeQuietly(target);
+            }
+        }
+    }
+
+    /** SQLState class 08 means the connection itself is gone. */
+    private static boolean isFatal(SQLException ex) {
+        String state = ex.getSQLState();
+        return state != null && state.startsWith("08");
+    }
+
+    private static void closeQuietly(AutoCloseable c) {
+        try {
+            c.close();
+        } catch (Exception ignored) {
+            // best effort
+        }
+    }
+}
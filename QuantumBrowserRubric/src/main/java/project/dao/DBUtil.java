@@ -1,29 +1,90 @@
 package project.dao;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.SQLException;
 
 import project.exception.DataAccessException;
 
 /**
- * Utility class responsible for creating JDBC connections.
+ * Utility class responsible for handing out JDBC connections.
+ *
+ * <p>All connections come from a single, lazily created {@link ConnectionPool}.
+ * The first time the pool is created, {@link SchemaMigrator} brings the
+ * schema up to date, so DAOs never run DDL themselves.
+ * Every value below can be overridden with a JVM system property
+ * (for example {@code -Dquantum.db.url=...}).
  */
 public final class DBUtil {
 
-    // Allow public key retrieval for MySQL 8.x (fixes "Public Key Retrieval is not allowed")
-    private static final String URL =
-            "jdbc:mysql://localhost:3306/quantum_browser?allowPublicKeyRetrieval=true&useSSL=false&serverTimezone=UTC";
-    private static final String USER = "root";
-    private static final String PASSWORD = "5469"; // change if needed
+    // Allow public key retrieval for MySQL 8.x (fixes "Public Key Retrieval is not allowed").
+    // rewriteBatchedStatements turns JDBC batches into multi-row INSERTs (one round trip per batch).
+    private static final String URL = System.getProperty("quantum.db.url",
+            "jdbc:mysql://localhost:3306/quantum_browser?allowPublicKeyRetrieval=true&useSSL=false&serverTimezone=UTC"
+            + "&rewriteBatchedStatements=true");
+    private static final String USER = System.getProperty("quantum.db.user", "root");
+    private static final String PASSWORD = System.getProperty("quantum.db.password", "5469"); // change if needed
+
+    // Pool sizing
+    private static final int POOL_MAX_SIZE = Integer.getInteger("quantum.db.pool.maxSize", 10);
+    private static final long BORROW_TIMEOUT_MS = Long.getLong("quantum.db.pool.borrowTimeoutMs", 5_000L);
+    private static final long IDLE_TIMEOUT_MS = Long.getLong("quantum.db.pool.idleTimeoutMs", 5 * 60_000L);
+    private static final int STATEMENT_CACHE_SIZE = Integer.getInteger("quantum.db.pool.statementCacheSize", 32);
+
+    private static volatile ConnectionPool pool;
 
     private DBUtil() {}
 
+    /**
+     * Returns the shared connection pool, creating it (and migrating the
+     * schema) on first use.
+     */
+    public static ConnectionPool getPool() {
+        ConnectionPool p = pool;
+        if (p == null) {
+            synchronized (DBUtil.class) {
+                p = pool;
+                if (p == null) {
+                    p = new ConnectionPool(URL, USER, PASSWORD, POOL_MAX_SIZE,
+                            BORROW_TIMEOUT_MS, IDLE_TIMEOUT_MS, STATEMENT_CACHE_SIZE);
+                    try {
+                        SchemaMigrator.migrate(p);
+                    } catch (RuntimeException ex) {
+                        p.close();
+                        throw ex;
+                    }
+                    pool = p;
+                }
+            }
+        }
+        return p;
+    }
+
+    /**
+     * Borrows a connection from the shared pool.
+     * Closing the returned connection gives it back to the pool.
+     *
+     * @throws DataAccessException if no connection becomes available in time
+     */
     public static Connection getConnection() {
-        try {
-            return DriverManager.getConnection(URL, USER, PASSWORD);
-        } catch (SQLException ex) {
-            throw new DataAccessException("Unable to connect to database: " + ex.getMessage(), ex);
+        return getPool().getConnection();
+    }
+
+    /** Returns a snapshot of the shared pool counters. */
+    public static PoolStats getPoolStats() {
+        return getPool().getStats();
+    }
+
+    /** Returns the statement timings and slow-query log of all DAOs. */
+    public static QueryStats getQueryStats() {
+        return QueryStats.getInstance();
+    }
+
+    /**
+     * Closes the shared pool (called on application / web-app shutdown).
+     */
+    public static synchronized void shutdown() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
         }
     }
 }
@@ -0,0 +1,130 @@
+package project.dao;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Turns free text typed by a user into a MySQL FULLTEXT boolean-mode query.
+ *
+ * <p>The text is split the same way InnoDB tokenizes the indexed columns
+ * (anything that is not a letter or digit separates words), so
+ * "docs.python.org/3/library" and "python library" both yield the tokens
+ * the index contains. Every token is required and matched as a prefix
+ * ({@code +python* +libr*}). Boolean operators typed by the user are never
+ * passed through.
+ *
+ * <p>Tokens shorter than InnoDB's default {@code innodb_ft_min_token_size}
+ * are not in the index; when nothing else is left, {@link #hasTerms()} is
+ * false and callers fall back to a {@code LIKE} match on {@link #likePattern()}.
+ * Stores without a FULLTEXT index evaluate the same query with {@link #matches(String)}.
+ */
+final class FullTextQuery {
+
+    /** InnoDB's default innodb_ft_min_token_size. */
+    static final int MIN_TOKEN_LENGTH = 3;
+
+    /** Extra tokens only narrow the result and slow the lookup. */
+    private static final int MAX_TERMS = 8;
+
+    private final List<String> terms;
+    private final String longest;
+    private final String booleanQuery;
+    private final String likePattern;
+
+    private FullTextQuery(List<String> terms, String longest, String booleanQuery, String likePattern) {
+        this.terms = terms;
+        this.longest = longest;
+        this.booleanQuery = booleanQuery;
+        this.likePattern = likePattern;
+    }
+
+    /**
+     * Parses user input.
+     *
+     * @param text raw search text (may be null)
+     * @return parsed query; {@link #isEmpty()} if the text contains no words
+     */
+    static FullTextQuery parse(String text) {
+        if (text == null) {
+            return new FullTextQuery(List.of(), "", "", null);
+        }
+        List<String> terms = new ArrayList<>();
+        String longest = "";
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (token.length() > longest.length()) {
+                longest = token;
+            }
+            if (token.length() >= MIN_TOKEN_LENGTH && terms.size() < MAX_TERMS && !terms.contains(token)) {
+                terms.add(token);
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        for (String term : terms) {
+            if (sb.length() > 0) {
+                sb.append(' ');
+            }
+            sb.append('+').append(term).append('*');
+        }
+        String like = longest.isEmpty() ? null : "%" + escapeLike(longest) + "%";
+        return new FullTextQuery(terms, longest, sb.toString(), like);
+    }
+
+    /** @return true if the input contained no searchable characters at all */
+    boolean isEmpty() {
+        return likePattern == null;
+    }
+
+    /** @return true if at least one token is long enough for the FULLTEXT index */
+    boolean hasTerms() {
+        return !booleanQuery.isEmpty();
+    }
+
+    /** @return query for {@code MATCH(...) AGAINST(? IN BOOLEAN MODE)} */
+    String booleanQuery() {
+        return booleanQuery;
+    }
+
+    /** @return {@code %token%} pattern for the short-token fallback */
+    String likePattern() {
+        return likePattern;
+    }
+
+    /**
+     * Evaluates the query against a text in memory: every term must start a
+     * word of the text, or, without terms, the text must contain the longest
+     * token (the {@code LIKE} fallback).
+     *
+     * @param text indexed text, e.g. a URL (may be null)
+     * @return true if the text matches
+     */
+    boolean matches(String text) {
+        if (text == null || isEmpty()) {
+            return false;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        if (!hasTerms()) {
+            return lower.contains(longest);
+        }
+        for (String term : terms) {
+            if (!startsWord(lower, term)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** @return true if {@code prefix} occurs in {@code text} at the start of a word */
+    private static boolean startsWord(String text, String prefix) {
+        for (int at = text.indexOf(prefix); at >= 0; at = text.indexOf(prefix, at + 1)) {
+            if (at == 0 || !Character.isLetterOrDigit(text.codePointBefore(at))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String escapeLike(String s) {
+        return s.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -1,6 +1,8 @@
 package project.dao;
 
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 import project.model.BaseEntity;
 
 /**
@@ -24,6 +26,22 @@ public interface GenericDAO<T extends BaseEntity> {
      */
     void save(T entity);
 
+    /**
+     * Persists several entities at once.
+     * Implementations should override this with a batched write; the default
+     * simply calls {@link #save(BaseEntity)} for each element.
+     *
+     * @param entities entities to save (null or empty is a no-op)
+     */
+    default void saveAll(List<T> entities) {
+        if (entities == null) {
+            return;
+        }
+        for (T entity : entities) {
+            save(entity);
+        }
+    }
+
     /**
      * Returns all entities of type T.
      *
@@ -31,6 +49,31 @@ public interface GenericDAO<T extends BaseEntity> {
      */
     List<T> findAll();
 
+    /**
+     * Returns all entities of type T as a lazily read stream, in the same
+     * order as {@link #findAll()}. The stream holds database resources and
+     * must be closed, preferably with try-with-resources.
+     * Implementations should override this to read rows on demand; the
+     * default materializes {@link #findAll()}.
+     *
+     * @return stream of entities (never null, may be empty)
+     */
+    default Stream<T> stream() {
+        return findAll().stream();
+    }
+
+    /**
+     * Passes every entity to the given action, one row at a time, without
+     * holding the whole table in memory (when {@link #stream()} is streaming).
+     *
+     * @param action callback invoked once per entity
+     */
+    default void forEach(Consumer<? super T> action) {
+        try (Stream<T> rows = stream()) {
+            rows.forEach(action);
+        }
+    }
+
     /**
      * Deletes all entities of type T from the underlying storage.
      */
@@ -0,0 +1,77 @@
+package project.dao;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import project.model.HistoryEntry;
+
+/**
+ * Keyset position inside the history table, ordered by {@code (visited_at, id)}.
+ *
+ * <p>Unlike OFFSET paging, seeking to a cursor costs the same on page 1 and
+ * page 10,000, because MySQL can jump straight to the key in the
+ * {@code (visited_at, id)} index. The string form is URL-safe and opaque to clients.
+ *
+ * <p>A visit without a time has a null {@code visitedAt}. Such visits sort
+ * below every timed one, as NULL does in MySQL, and among themselves by id.
+ */
+public final class HistoryCursor {
+
+    private final LocalDateTime visitedAt;
+    private final int id;
+
+    public HistoryCursor(LocalDateTime visitedAt, int id) {
+        this.visitedAt = visitedAt;
+        this.id = id;
+    }
+
+    /** Creates a cursor positioned at the given entry. */
+    public static HistoryCursor of(HistoryEntry entry) {
+        return new HistoryCursor(entry.getVisitedAt(), entry.getId());
+    }
+
+    public LocalDateTime getVisitedAt() {
+        return visitedAt;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    /** @return URL-safe token that {@link #decode(String)} understands */
+    public String encode() {
+        String raw = (visitedAt != null ? visitedAt.toString() : "") + "|" + id; // empty time: no time
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Parses a token produced by {@link #encode()}.
+     *
+     * @param token cursor token (may be null or blank)
+     * @return the cursor, or null if the token is missing or malformed
+     */
+    public static HistoryCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int sep = raw.lastIndexOf('|');
+            if (sep < 0) {
+                return null;
+            }
+            return new HistoryCursor(
+                    sep > 0 ? LocalDateTime.parse(raw.substring(0, sep)) : null,
+                    Integer.parseInt(raw.substring(sep + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException ex) {
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return encode();
+    }
+}
@@ -1,9 +1,17 @@
 package project.dao;
 
 import java.sql.*;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
 import project.model.HistoryEntry;
+import project.model.TopSite;
 
 /**
  * DAO implementation for HistoryEntry entities.
@@ -12,45 +20,168 @@ import project.model.HistoryEntry;
  * <ul>
  *   <li>Inheritance from BaseDAO&lt;HistoryEntry&gt;</li>
  *   <li>JDBC usage with PreparedStatement & ResultSet mapping</li>
- *   <li>Automatic table creation for persistent browser history</li>
+ *   <li>Schema owned by {@link SchemaMigrator}, not created per instance</li>
  * </ul>
+ *
+ * <p>Every insert also updates a per-URL row in {@code history_stats}
+ * (visit count, last visit and a decayed frecency score) in the same
+ * transaction, so "top sites" queries never scan the history log.
  */
-public class HistoryDAO extends BaseDAO<HistoryEntry> {
+public class HistoryDAO extends BaseDAO<HistoryEntry> implements HistoryStore {
+
+    /**
+     * Frecency half-life: a visit counts half as much after this many seconds (30 days).
+     */
+    static final long FRECENCY_HALF_LIFE_SECONDS = 30L * 24 * 60 * 60;
+
+    /**
+     * Reference point for stored scores (2020-01-01T00:00Z).
+     *
+     * <p>Decaying every stored score as time passes would mean rewriting every row.
+     * Instead a visit at time t adds {@code 2^((t - epoch) / halfLife)} to the URL's
+     * score, which only grows, and the column stores its log2. All URLs are ranked
+     * correctly by the stored value; the current decayed score is recovered by
+     * subtracting {@code (now - epoch) / halfLife} from the exponent.
+     */
+    static final long FRECENCY_EPOCH_SECONDS = 1_577_836_800L;
+
+    /**
+     * SQL for the log2 contribution of the visit in {@code visited_at}, read as UTC like
+     * {@link #frecencyExponent}. A URL's stored score is {@code LOG2(SUM(POW(2, ...)))} over its visits.
+     */
+    static final String FRECENCY_EXPONENT_SQL =
+            "(TIMESTAMPDIFF(SECOND, '1970-01-01', visited_at) - " + FRECENCY_EPOCH_SECONDS + ") / "
+            + FRECENCY_HALF_LIFE_SECONDS;
+
+    /**
+     * Rows removed per transaction by {@link #clearAll()} and the range deletes, so that no
+     * delete holds row locks or undo long enough to stall concurrent readers and writers.
+     */
+    static final int DELETE_CHUNK_SIZE = Integer.getInteger("quantum.history.deleteChunkSize", 2_000);
 
-    private static final String CREATE_TABLE_SQL =
-            "CREATE TABLE IF NOT EXISTS history (" +
-            "id INT PRIMARY KEY AUTO_INCREMENT," +
-            "url TEXT," +
-            "visited_at TIMESTAMP" +
-            ")";
+    /** Name under which the history's change version is kept in table_versions. */
+    private static final String TABLE = "history";
 
     private static final String INSERT_SQL =
             "INSERT INTO history(url, visited_at) VALUES(?, ?)";
 
+    /** Columns read by {@link #mapRow} in the change feed query. */
+    private static final String CHANGE_COLUMNS = "t.id, t.url, t.visited_at";
+
+    // frecency = log2(2^old + 2^new), computed without overflow as max + log2(1 + 2^(min - max))
+    private static final String UPSERT_STATS_SQL =
+            "INSERT INTO history_stats(url_hash, url, visit_count, last_visit, frecency) " +
+            "VALUES(UNHEX(MD5(?)), ?, 1, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "visit_count = visit_count + 1, " +
+            "last_visit = GREATEST(COALESCE(last_visit, VALUES(last_visit)), VALUES(last_visit)), " +
+            "frecency = GREATEST(frecency, VALUES(frecency)) " +
+            "+ LOG2(1 + POW(2, LEAST(frecency, VALUES(frecency)) - GREATEST(frecency, VALUES(frecency))))";
+
+    private static final String SELECT_TOP_SITES_SQL =
+            "SELECT url, visit_count, last_visit, frecency FROM history_stats " +
+            "ORDER BY frecency DESC LIMIT ?";
+
+    private static final String SELECT_FRECENCY_SQL =
+            "SELECT url, frecency FROM history_stats WHERE url_hash = UNHEX(MD5(?))";
+
+    // Relevance first; among equally relevant URLs the more frecent one wins
+    private static final String SEARCH_SQL =
+            "SELECT url, last_visit, MATCH(url) AGAINST(? IN BOOLEAN MODE) AS score FROM history_stats " +
+            "WHERE MATCH(url) AGAINST(? IN BOOLEAN MODE) " +
+            "ORDER BY score DESC, frecency DESC LIMIT ?";
+
+    private static final String SEARCH_LIKE_SQL =
+            "SELECT url, last_visit FROM history_stats WHERE url LIKE ? " +
+            "ORDER BY frecency DESC LIMIT ?";
+
     private static final String SELECT_ALL_SQL =
-            "SELECT id, url, visited_at FROM history ORDER BY visited_at DESC";
+            "SELECT id, url, visited_at FROM history ORDER BY visited_at DESC, id DESC";
+
+    private static final String SELECT_FIRST_PAGE_SQL =
+            "SELECT id, url, visited_at FROM history " +
+            "ORDER BY visited_at DESC, id DESC LIMIT ?";
+
+    // NULL sorts below every time, so visits without a time come last in DESC order;
+    // the seeks spell out their place since comparisons with NULL are never true
+    private static final String SELECT_PAGE_BEFORE_SQL =
+            "SELECT id, url, visited_at FROM history " +
+            "WHERE visited_at < ? OR (visited_at = ? AND id < ?) OR visited_at IS NULL " +
+            "ORDER BY visited_at DESC, id DESC LIMIT ?";
+
+    private static final String SELECT_PAGE_BEFORE_UNTIMED_SQL =
+            "SELECT id, url, visited_at FROM history " +
+            "WHERE visited_at IS NULL AND id < ? " +
+            "ORDER BY visited_at DESC, id DESC LIMIT ?";
+
+    private static final String SELECT_PAGE_AFTER_SQL =
+            "SELECT id, url, visited_at FROM history " +
+            "WHERE visited_at > ? OR (visited_at = ? AND id > ?) " +
+            "ORDER BY visited_at ASC, id ASC LIMIT ?";
 
-    private static final String CLEAR_ALL_SQL =
-            "DELETE FROM history";
+    private static final String SELECT_PAGE_AFTER_UNTIMED_SQL =
+            "SELECT id, url, visited_at FROM history " +
+            "WHERE (visited_at IS NULL AND id > ?) OR visited_at IS NOT NULL " +
+            "ORDER BY visited_at ASC, id ASC LIMIT ?";
 
-    public HistoryDAO(Connection connection) {
-        super(connection);
-        createTableIfNeeded();
+    // The visit that followed each of the latest visits of a URL (the next id in
+    // insertion order, a primary-key seek), grouped by destination
+    private static final String SELECT_NEXT_URLS_SQL =
+            "SELECT MIN(n.url) AS url, COUNT(*) AS visit_count, MAX(n.visited_at) AS last_visit FROM (" +
+            "SELECT id FROM history WHERE url_hash = UNHEX(MD5(?)) AND url = ? ORDER BY id DESC LIMIT ?" +
+            ") v JOIN history n ON n.id = (SELECT MIN(h.id) FROM history h WHERE h.id > v.id) " +
+            "WHERE n.url_hash <> UNHEX(MD5(?)) " +
+            "GROUP BY n.url_hash ORDER BY visit_count DESC, last_visit DESC LIMIT ?";
+
+    /** Number of recent visits of a URL whose successors are counted by {@link #nextUrls}. */
+    private static final int NEXT_URLS_SAMPLE = 200;
+
+    // Chunked deletes: lock the next chunk in index order (collecting the URLs it touches),
+    // then delete the same rows. %s is one of the WHERE_* conditions.
+    private static final String LOCK_CHUNK_SQL =
+            "SELECT HEX(url_hash) FROM history WHERE %s ORDER BY visited_at, id LIMIT ? FOR UPDATE";
+    private static final String DELETE_CHUNK_SQL =
+            "DELETE FROM history WHERE %s ORDER BY visited_at, id LIMIT ?";
+    private static final String WHERE_ALL = "TRUE";
+    private static final String WHERE_BEFORE = "visited_at < ?";
+    private static final String WHERE_BETWEEN = "visited_at >= ? AND visited_at < ?";
+
+    /** URLs whose statistics are rebuilt per statement (unused slots repeat a hash). */
+    private static final int STATS_BATCH = 500;
+    /** Touched URLs collected by a chunked delete before their statistics are rebuilt. */
+    private static final int STATS_FLUSH_THRESHOLD = 20_000;
+
+    private static final String IN_HASHES =
+            "url_hash IN (" + String.join(",", Collections.nCopies(STATS_BATCH, "UNHEX(?)")) + ")";
+
+    private static final String DELETE_STATS_SQL =
+            "DELETE FROM history_stats WHERE " + IN_HASHES;
+
+    private static final String REBUILD_STATS_SQL =
+            "INSERT INTO history_stats(url_hash, url, visit_count, last_visit, frecency) " +
+            "SELECT url_hash, MIN(url), COUNT(*), MAX(visited_at), LOG2(SUM(POW(2, " + FRECENCY_EXPONENT_SQL + "))) " +
+            "FROM history WHERE " + IN_HASHES + " AND url IS NOT NULL AND visited_at IS NOT NULL " +
+            "GROUP BY url_hash";
+
+    /**
+     * Creates a DAO backed by the shared application pool.
+     */
+    public HistoryDAO() {
+        this(DBUtil.getPool());
     }
 
     /**
-     * Creates the history table if it does not already exist.
+     * Creates a DAO that borrows its connections from the given pool.
+     *
+     * @param pool connection pool to use for every operation
      */
-    private void createTableIfNeeded() {
-        try (Statement st = connection.createStatement()) {
-            st.execute(CREATE_TABLE_SQL);
-        } catch (SQLException ex) {
-            handleSqlException(ex);
-        }
+    public HistoryDAO(ConnectionPool pool) {
+        super(pool);
     }
 
     /**
-     * Saves a visited webpage entry along with timestamp.
+     * Saves a visited webpage entry along with timestamp and updates the
+     * URL's visit statistics in the same transaction.
      *
      * @param entry history row to persist
      */
@@ -59,10 +190,67 @@ public class HistoryDAO extends BaseDAO<HistoryEntry> {
         if (entry == null) {
             return;
         }
-        try (PreparedStatement ps = connection.prepareStatement(INSERT_SQL)) {
-            ps.setString(1, entry.getUrl());
-            ps.setTimestamp(2, Timestamp.valueOf(entry.getVisitedAt()));
-            ps.executeUpdate();
+        saveAll(List.of(entry));
+    }
+
+    /**
+     * Saves many history entries in a single JDBC batch and transaction.
+     * With {@code rewriteBatchedStatements=true} this becomes one multi-row
+     * INSERT instead of one round trip per entry.
+     *
+     * @param entries history rows to persist (null or empty is a no-op)
+     * @throws IllegalArgumentException if an entry has no visit time
+     */
+    @Override
+    public void saveAll(List<HistoryEntry> entries) {
+        if (entries == null || entries.isEmpty()) {
+            return;
+        }
+        for (HistoryEntry entry : entries) {
+            if (entry != null && entry.getVisitedAt() == null) {
+                throw new IllegalArgumentException("History entry has no visit time: " + entry.getUrl());
+            }
+        }
+        try (Connection connection = getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS);
+                 PreparedStatement stats = connection.prepareStatement(UPSERT_STATS_SQL)) {
+                for (HistoryEntry entry : entries) {
+                    if (entry == null) {
+                        continue;
+                    }
+                    Timestamp ts = Timestamp.valueOf(entry.getVisitedAt());
+                    ps.setString(1, entry.getUrl());
+                    ps.setTimestamp(2, ts);
+                    ps.addBatch();
+
+                    if (entry.getUrl() != null) {
+                        stats.setString(1, entry.getUrl());
+                        stats.setString(2, entry.getUrl());
+                        stats.setTimestamp(3, ts);
+                        stats.setDouble(4, frecencyExponent(entry.getVisitedAt()));
+                        stats.addBatch();
+                    }
+                }
+                ps.executeBatch();
+                int firstId = Integer.MAX_VALUE;
+                int lastId = Integer.MIN_VALUE;
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    while (keys.next()) {
+                        firstId = Math.min(firstId, keys.getInt(1));
+                        lastId = Math.max(lastId, keys.getInt(1));
+                    }
+                }
+                stats.executeBatch();
+                bumpVersion(connection, TABLE);
+                if (firstId <= lastId) {
+                    recordUpserts(connection, TABLE, firstId, lastId);
+                }
+                connection.commit();
+            } catch (SQLException ex) {
+                connection.rollback();
+                throw ex;
+            }
         } catch (SQLException ex) {
             handleSqlException(ex);
         }
@@ -76,32 +264,450 @@ public class HistoryDAO extends BaseDAO<HistoryEntry> {
     @Override
     public List<HistoryEntry> findAll() {
         List<HistoryEntry> result = new ArrayList<>();
-        try (PreparedStatement ps = connection.prepareStatement(SELECT_ALL_SQL);
+        try (Connection connection = getConnection();
+             PreparedStatement ps = connection.prepareStatement(SELECT_ALL_SQL);
              ResultSet rs = ps.executeQuery()) {
 
             while (rs.next()) {
-                HistoryEntry h = new HistoryEntry(
-                        rs.getInt("id"),
-                        rs.getString("url"),
-                        rs.getTimestamp("visited_at").toLocalDateTime()
-                );
-                result.add(h);
+                result.add(mapRow(rs));
+            }
+        } catch (SQLException ex) {
+            handleSqlException(ex);
+        }
+        return result;
+    }
+
+    /**
+     * Streams all history entries, newest first, straight from the database
+     * cursor, so memory use stays flat however large the history is.
+     *
+     * @return stream that must be closed by the caller
+     */
+    @Override
+    public Stream<HistoryEntry> stream() {
+        return streamQuery(SELECT_ALL_SQL, HistoryDAO::mapRow);
+    }
+
+    /**
+     * Returns one page of history, newest first, using keyset pagination on
+     * {@code (visited_at, id)}. Only {@code limit + 1} rows are read, no matter
+     * how deep into the history the cursor points.
+     *
+     * @param before cursor returned by a previous page, or null for the newest page
+     * @param limit  maximum number of entries to return (must be positive)
+     * @return page of entries plus the cursor for the next (older) page
+     */
+    @Override
+    public Page<HistoryEntry> findPage(HistoryCursor before, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        List<HistoryEntry> result = new ArrayList<>(Math.min(limit + 1, 1024));
+        boolean untimed = before != null && before.getVisitedAt() == null;
+        String sql = before == null ? SELECT_FIRST_PAGE_SQL
+                : untimed ? SELECT_PAGE_BEFORE_UNTIMED_SQL : SELECT_PAGE_BEFORE_SQL;
+
+        try (Connection connection = getConnection();
+             PreparedStatement ps = connection.prepareStatement(sql)) {
+
+            int i = 1;
+            if (before != null && !untimed) {
+                Timestamp ts = Timestamp.valueOf(before.getVisitedAt());
+                ps.setTimestamp(i++, ts);
+                ps.setTimestamp(i++, ts);
+            }
+            if (before != null) {
+                ps.setInt(i++, before.getId());
+            }
+            // Fetch one extra row to learn whether another page exists
+            ps.setInt(i, limit + 1);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    result.add(mapRow(rs));
+                }
+            }
+        } catch (SQLException ex) {
+            handleSqlException(ex);
+        }
+
+        String next = null;
+        if (result.size() > limit) {
+            result.remove(limit);
+            next = HistoryCursor.of(result.get(limit - 1)).encode();
+        }
+        return new Page<>(result, next);
+    }
+
+    /**
+     * Returns up to {@code limit} entries that are newer than the cursor, the
+     * reverse direction of {@link #findPage}. Used to page back towards the
+     * newest visits after older ones were dropped from a bounded window.
+     *
+     * @param after cursor of the newest entry already held by the caller
+     * @param limit maximum number of entries to return (must be positive)
+     * @return entries newest first; fewer than {@code limit} means the newest entry was reached
+     */
+    @Override
+    public List<HistoryEntry> findNewer(HistoryCursor after, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        List<HistoryEntry> result = new ArrayList<>(Math.min(limit, 1024));
+
+        boolean untimed = after.getVisitedAt() == null;
+        try (Connection connection = getConnection();
+             PreparedStatement ps = connection.prepareStatement(
+                     untimed ? SELECT_PAGE_AFTER_UNTIMED_SQL : SELECT_PAGE_AFTER_SQL)) {
+
+            int i = 1;
+            if (!untimed) {
+                Timestamp ts = Timestamp.valueOf(after.getVisitedAt());
+                ps.setTimestamp(i++, ts);
+                ps.setTimestamp(i++, ts);
+            }
+            ps.setInt(i++, after.getId());
+            ps.setInt(i, limit);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    result.add(mapRow(rs));
+                }
+            }
+        } catch (SQLException ex) {
+            handleSqlException(ex);
+        }
+
+        Collections.reverse(result); // read oldest first to use the index, hand out newest first
+        return result;
+    }
+
+    /**
+     * Returns the most frequently and recently visited URLs.
+     * Served from the frecency index, so the cost depends on {@code n},
+     * not on the size of the history.
+     *
+     * @param n maximum number of sites
+     * @return sites ordered by descending frecency
+     */
+    @Override
+    public List<TopSite> topSites(int n) {
+        List<TopSite> result = new ArrayList<>();
+        if (n <= 0) {
+            return result;
+        }
+        double now = frecencyExponent(LocalDateTime.now());
+        try (Connection connection = getConnection();
+             PreparedStatement ps = connection.prepareStatement(SELECT_TOP_SITES_SQL)) {
+            ps.setInt(1, n);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Timestamp last = rs.getTimestamp("last_visit");
+                    result.add(new TopSite(
+                            rs.getString("url"),
+                            rs.getInt("visit_count"),
+                            last != null ? last.toLocalDateTime() : null,
+                            Math.pow(2, rs.getDouble("frecency") - now)
+                    ));
+                }
+            }
+        } catch (SQLException ex) {
+            handleSqlException(ex);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the URLs most often visited right after the given one, based on
+     * its latest visits. In the returned sites, {@code visitCount} is how many
+     * of those visits were followed by the URL, and {@code score} is that
+     * count's share of all counted transitions (0..1).
+     *
+     * @param url   URL the user is on
+     * @param limit maximum number of URLs
+     * @return likely next URLs, most frequent first (never null)
+     */
+    @Override
+    public List<TopSite> nextUrls(String url, int limit) {
+        List<TopSite> result = new ArrayList<>();
+        if (url == null || limit <= 0) {
+            return result;
+        }
+        int total = 0;
+        try (Connection connection = getConnection();
+             PreparedStatement ps = connection.prepareStatement(SELECT_NEXT_URLS_SQL)) {
+            ps.setString(1, url);
+            ps.setString(2, url);
+            ps.setInt(3, NEXT_URLS_SAMPLE);
+            ps.setString(4, url);
+            ps.setInt(5, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Timestamp last = rs.getTimestamp("last_visit");
+                    int count = rs.getInt("visit_count");
+                    total += count;
+                    result.add(new TopSite(rs.getString("url"), count,
+                            last != null ? last.toLocalDateTime() : null, 0));
+                }
             }
         } catch (SQLException ex) {
             handleSqlException(ex);
         }
+        for (int i = 0; i < result.size(); i++) {
+            TopSite site = result.get(i);
+            result.set(i, new TopSite(site.getUrl(), site.getVisitCount(), site.getLastVisit(),
+                    (double) site.getVisitCount() / total));
+        }
         return result;
     }
 
     /**
-     * Deletes all stored history entries.
+     * Full-text search over visited URLs (host labels and path segments are
+     * separate words). Returns one entry per URL, carrying its last visit time,
+     * ordered by relevance and then frecency.
+     *
+     * @param query free text typed by the user
+     * @param limit maximum number of results
+     * @return matching URLs, best first (never null)
+     */
+    @Override
+    public List<HistoryEntry> search(String query, int limit) {
+        List<HistoryEntry> result = new ArrayList<>();
+        FullTextQuery q = FullTextQuery.parse(query);
+        if (q.isEmpty() || limit <= 0) {
+            return result;
+        }
+        try (Connection connection = getConnection();
+             PreparedStatement ps = connection.prepareStatement(q.hasTerms() ? SEARCH_SQL : SEARCH_LIKE_SQL)) {
+            if (q.hasTerms()) {
+                ps.setString(1, q.booleanQuery());
+                ps.setString(2, q.booleanQuery());
+                ps.setInt(3, limit);
+            } else {
+                ps.setString(1, q.likePattern());
+                ps.setInt(2, limit);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Timestamp last = rs.getTimestamp("last_visit");
+                    result.add(new HistoryEntry(rs.getString("url"),
+                            last != null ? last.toLocalDateTime() : null));
+                }
+            }
+        } catch (SQLException ex) {
+            handleSqlException(ex);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the current decayed frecency score of a URL: each visit counts
+     * 1.0 when fresh and half as much per {@link #FRECENCY_HALF_LIFE_SECONDS}.
+     * Single primary-key lookup.
+     *
+     * @param url exact URL
+     * @return score, or 0 if the URL was never visited
+     */
+    @Override
+    public double frecencyFor(String url) {
+        if (url == null) {
+            return 0;
+        }
+        try (Connection connection = getConnection();
+             PreparedStatement ps = connection.prepareStatement(SELECT_FRECENCY_SQL)) {
+            ps.setString(1, url);
+            try (ResultSet rs = ps.executeQuery()) {
+                // url_hash match is confirmed against the full URL to rule out MD5 collisions
+                while (rs.next()) {
+                    if (url.equals(rs.getString("url"))) {
+                        return Math.pow(2, rs.getDouble("frecency")
+                                - frecencyExponent(LocalDateTime.now()));
+                    }
+                }
+            }
+        } catch (SQLException ex) {
+            handleSqlException(ex);
+        }
+        return 0;
+    }
+
+    /** log2 of the contribution of one visit at the given time (see FRECENCY_EPOCH_SECONDS). */
+    private static double frecencyExponent(LocalDateTime time) {
+        long seconds = time.toEpochSecond(ZoneOffset.UTC);
+        return (double) (seconds - FRECENCY_EPOCH_SECONDS) / FRECENCY_HALF_LIFE_SECONDS;
+    }
+
+    /**
+     * Maps the current ResultSet row to a HistoryEntry.
+     */
+    static HistoryEntry mapRow(ResultSet rs) throws SQLException {
+        Timestamp ts = rs.getTimestamp("visited_at");
+        return new HistoryEntry(
+                rs.getInt("id"),
+                rs.getString("url"),
+                ts != null ? ts.toLocalDateTime() : null
+        );
+    }
+
+    /**
+     * Deletes all stored history entries and their visit statistics, in
+     * chunks of {@link #DELETE_CHUNK_SIZE} rows (see {@link #deleteBetween}).
      */
     @Override
     public void clearAll() {
-        try (Statement st = connection.createStatement()) {
-            st.executeUpdate(CLEAR_ALL_SQL);
+        deleteInChunks(WHERE_ALL);
+    }
+
+    /**
+     * Deletes the visits made before {@code cutoff}.
+     *
+     * @return number of visits deleted
+     * @see #deleteBetween(LocalDateTime, LocalDateTime)
+     */
+    @Override
+    public long deleteOlderThan(LocalDateTime cutoff) {
+        return deleteInChunks(WHERE_BEFORE, Timestamp.valueOf(cutoff));
+    }
+
+    /**
+     * Deletes the visits made in [{@code from}, {@code to}).
+     *
+     * <p>Rows are removed oldest first in transactions of at most
+     * {@link #DELETE_CHUNK_SIZE} rows, each taking only the locks of its own
+     * rows, so concurrent page views and inserts interleave with a long
+     * delete instead of waiting for it. The change version is bumped per
+     * chunk, and the range is added to the change feed with the last one
+     * (see {@link #changesSince}). Statistics of the affected URLs are rebuilt from their remaining
+     * visits (rows with no visits left are removed). A failure leaves the
+     * chunks already deleted deleted.
+     *
+     * @return number of visits deleted
+     */
+    @Override
+    public long deleteBetween(LocalDateTime from, LocalDateTime to) {
+        return deleteInChunks(WHERE_BETWEEN, Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+
+    // bounds: none (all rows), the cutoff (before) or from and to (between)
+    private long deleteInChunks(String where, Timestamp... bounds) {
+        Timestamp rangeFrom = bounds.length == 2 ? bounds[0] : null;
+        Timestamp rangeTo = bounds.length > 0 ? bounds[bounds.length - 1] : null;
+        String lockSql = String.format(LOCK_CHUNK_SQL, where);
+        String deleteSql = String.format(DELETE_CHUNK_SQL, where);
+        Set<String> touched = new HashSet<>();
+        long total = 0;
+        try {
+            int deleted;
+            do {
+                try (Connection connection = getConnection()) {
+                    connection.setAutoCommit(false);
+                    try (PreparedStatement lock = connection.prepareStatement(lockSql);
+                         PreparedStatement delete = connection.prepareStatement(deleteSql)) {
+                        for (int i = 0; i < bounds.length; i++) {
+                            lock.setTimestamp(i + 1, bounds[i]);
+                            delete.setTimestamp(i + 1, bounds[i]);
+                        }
+                        lock.setInt(bounds.length + 1, DELETE_CHUNK_SIZE);
+                        delete.setInt(bounds.length + 1, DELETE_CHUNK_SIZE);
+                        try (ResultSet rs = lock.executeQuery()) {
+                            while (rs.next()) {
+                                if (rs.getString(1) != null) {
+                                    touched.add(rs.getString(1));
+                                }
+                            }
+                        }
+                        deleted = delete.executeUpdate();
+                        // The change feed gets the whole range once, with the last chunk
+                        boolean last = deleted < DELETE_CHUNK_SIZE;
+                        if (deleted > 0 || (last && total > 0)) {
+                            bumpVersion(connection, TABLE);
+                        }
+                        if (last && total + deleted > 0) {
+                            recordDelete(connection, TABLE, rangeFrom, rangeTo);
+                        }
+                        connection.commit();
+                    } catch (SQLException ex) {
+                        connection.rollback();
+                        throw ex;
+                    }
+                }
+                total += deleted;
+                if (touched.size() >= STATS_FLUSH_THRESHOLD) {
+                    rebuildStats(touched);
+                    touched.clear();
+                }
+            } while (deleted == DELETE_CHUNK_SIZE);
+            rebuildStats(touched);
         } catch (SQLException ex) {
             handleSqlException(ex);
         }
+        return total;
+    }
+
+    /**
+     * Recomputes the {@code history_stats} rows of the given URLs from their
+     * remaining visits, a few hundred URLs per transaction.
+     *
+     * @param urlHashes hex-encoded {@code url_hash} values
+     */
+    void rebuildStats(Collection<String> urlHashes) throws SQLException {
+        List<String> hashes = new ArrayList<>(urlHashes);
+        for (int start = 0; start < hashes.size(); start += STATS_BATCH) {
+            List<String> batch = hashes.subList(start, Math.min(hashes.size(), start + STATS_BATCH));
+            try (Connection connection = getConnection()) {
+                connection.setAutoCommit(false);
+                try (PreparedStatement delete = connection.prepareStatement(DELETE_STATS_SQL);
+                     PreparedStatement rebuild = connection.prepareStatement(REBUILD_STATS_SQL)) {
+                    for (int i = 0; i < STATS_BATCH; i++) {
+                        String hash = batch.get(Math.min(i, batch.size() - 1));
+                        delete.setString(i + 1, hash);
+                        rebuild.setString(i + 1, hash);
+                    }
+                    delete.executeUpdate();
+                    rebuild.executeUpdate();
+                    bumpVersion(connection, TABLE);
+                    connection.commit();
+                } catch (SQLException ex) {
+                    connection.rollback();
+                    throw ex;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the change version of the history. It increases with every
+     * write made through this class, so it can serve as a cheap ETag.
+     *
+     * @return current version
+     */
+    @Override
+    public long getVersion() {
+        return readVersion(TABLE);
+    }
+
+    /**
+     * Returns the visits inserted and the ranges deleted after the given
+     * position of the history's change feed, oldest first. Visits are
+     * returned as stored; deletes cover visit times.
+     *
+     * @param seq   last sequence number applied by the caller
+     * @param limit maximum number of changes
+     * @return changes and the position to continue from
+     */
+    @Override
+    public ChangeSet<HistoryEntry> changesSince(long seq, int limit) {
+        return readChanges(TABLE, CHANGE_COLUMNS, HistoryDAO::mapRow, seq, limit);
+    }
+
+    /**
+     * Returns the current end of the history's change feed; read it before
+     * loading the history, then poll {@link #changesSince} from there.
+     *
+     * @return sequence number of the latest change
+     */
+    @Override
+    public long currentChangeSeq() {
+        return readChangeHead(TABLE);
     }
 }
@@ -0,0 +1,343 @@
+package project.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import project.exception.DataAccessException;
+
+/**
+ * HistoryRetention expires old history in the background and can keep the
+ * history table partitioned by month.
+ *
+ * <ul>
+ *   <li>{@code -Dquantum.history.retentionDays=N} (default 0, keep everything):
+ *       visits older than N days are deleted on every run, in small chunks
+ *       (see {@link HistoryDAO#deleteOlderThan}).</li>
+ *   <li>{@code -Dquantum.history.partitionByMonth=true}: schema migration 9
+ *       (see {@link SchemaMigrator}) converts {@code history} to RANGE
+ *       partitions at the next startup. It rebuilds the table, blocking writes
+ *       while it runs, and deletes the visits without a time. Every run then
+ *       adds partitions for the months up to three ahead, and months that are
+ *       entirely past the retention cutoff are removed with DROP PARTITION,
+ *       whose cost does not depend on the number of rows. Only the month
+ *       containing the cutoff is deleted row by row.</li>
+ * </ul>
+ *
+ * <p>Runs never change the table's definition beyond adding and dropping
+ * partitions. Turning the property off again stops that, but the table
+ * stays partitioned.
+ *
+ * <p>Runs start a minute after {@link #start()} and repeat every
+ * {@code -Dquantum.history.maintenanceHours} (default 6) on one daemon
+ * thread. A MySQL named lock keeps the desktop app and the web tier from
+ * maintaining the same database at the same time.
+ */
+public class HistoryRetention implements AutoCloseable {
+
+    private static final Logger LOG = Logger.getLogger(HistoryRetention.class.getName());
+
+    private static final String LOCK_NAME = "quantum_browser_history_maintenance";
+    private static final String TABLE = "history";
+
+    /** System property that enables monthly partitioning, also read by {@link SchemaMigrator}. */
+    static final String PARTITION_PROPERTY = "quantum.history.partitionByMonth";
+
+    /** Partitions kept ready beyond the current month. */
+    private static final int MONTHS_AHEAD = 3;
+    static final String MAX_PARTITION = "pmax";
+
+    private static final String SELECT_PARTITIONS_SQL =
+            "SELECT PARTITION_NAME, PARTITION_DESCRIPTION FROM information_schema.PARTITIONS " +
+            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'history' AND PARTITION_NAME IS NOT NULL " +
+            "ORDER BY PARTITION_ORDINAL_POSITION";
+
+    private static final String SELECT_FIRST_VISIT_SQL =
+            "SELECT MIN(visited_at) FROM history";
+
+    private static final String SPLIT_MAX_SQL =
+            "ALTER TABLE history REORGANIZE PARTITION " + MAX_PARTITION + " INTO (%s)";
+
+    private static final String DROP_PARTITION_SQL =
+            "ALTER TABLE history DROP PARTITION %s";
+
+    private static final String SELECT_PARTITION_URLS_SQL =
+            "SELECT HEX(url_hash), COUNT(*) FROM history PARTITION (%s) GROUP BY url_hash";
+
+    // Epoch seconds of a time as the server stores it, comparable with the partition bounds
+    private static final String EPOCH_SQL =
+            "SELECT UNIX_TIMESTAMP(?)";
+
+    // The reverse: a partition bound as a time, for the change feed
+    private static final String FROM_EPOCH_SQL =
+            "SELECT FROM_UNIXTIME(?)";
+
+    /** A month partition: name and exclusive upper bound in epoch seconds. */
+    private static final class Partition {
+        final String name;
+        final long bound;
+
+        Partition(String name, long bound) {
+            this.name = name;
+            this.bound = bound;
+        }
+    }
+
+    private final HistoryDAO dao;
+    private final int retentionDays;
+    private final boolean partitionByMonth;
+    private final long intervalHours;
+    private ScheduledExecutorService scheduler;
+
+    /** @return true if a retention period or monthly partitioning is configured */
+    public static boolean isConfigured() {
+        return Integer.getInteger("quantum.history.retentionDays", 0) > 0
+                || Boolean.getBoolean(PARTITION_PROPERTY);
+    }
+
+    /**
+     * Creates a maintainer with the configured settings (see the class comment).
+     */
+    public HistoryRetention(HistoryDAO dao) {
+        this(dao, Integer.getInteger("quantum.history.retentionDays", 0),
+                Boolean.getBoolean(PARTITION_PROPERTY),
+                Long.getLong("quantum.history.maintenanceHours", 6L));
+    }
+
+    /**
+     * @param dao              history to maintain
+     * @param retentionDays    visits older than this many days are deleted; 0 keeps everything
+     * @param partitionByMonth partition the history table by month
+     * @param intervalHours    time between background runs
+     */
+    public HistoryRetention(HistoryDAO dao, int retentionDays, boolean partitionByMonth, long intervalHours) {
+        this.dao = dao;
+        this.retentionDays = retentionDays;
+        this.partitionByMonth = partitionByMonth;
+        this.intervalHours = Math.max(1, intervalHours);
+    }
+
+    /** Schedules the background runs. */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "history-retention");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                maintain();
+            } catch (RuntimeException ex) {
+                LOG.log(Level.WARNING, "History maintenance failed", ex);
+            }
+        }, 1, TimeUnit.HOURS.toMinutes(intervalHours), TimeUnit.MINUTES);
+    }
+
+    /**
+     * Runs maintenance now: adds upcoming partitions and drops expired ones if
+     * monthly partitioning is on, then deletes expired visits. Does nothing
+     * if another process is maintaining the same database.
+     *
+     * @return number of visits deleted
+     */
+    public long maintain() {
+        try (Connection connection = dao.getConnection()) {
+            if (!acquireLock(connection)) {
+                LOG.info("History maintenance is running elsewhere, skipped");
+                return 0;
+            }
+            try {
+                long deleted = 0;
+                LocalDateTime cutoff = retentionDays > 0 ? LocalDateTime.now().minusDays(retentionDays) : null;
+                if (partitionByMonth) {
+                    List<Partition> partitions = partitions(connection);
+                    if (partitions.isEmpty()) {
+                        LOG.warning("History is not partitioned (schema migration 9 not applied), partitions skipped");
+                    } else {
+                        addUpcomingPartitions(connection, partitions);
+                    }
+                    if (cutoff != null && !partitions.isEmpty()) {
+                        deleted += dropPartitionsBefore(connection, cutoff);
+                    }
+                }
+                if (cutoff != null) {
+                    deleted += dao.deleteOlderThan(cutoff);
+                    LOG.info("History retention (" + retentionDays + " days): " + deleted + " visits deleted");
+                }
+                return deleted;
+            } finally {
+                releaseLock(connection);
+            }
+        } catch (SQLException ex) {
+            throw new DataAccessException("History maintenance failed: " + ex.getMessage(), ex);
+        }
+    }
+
+    /** Stops the background runs, waiting briefly for a running one. */
+    @Override
+    public synchronized void close() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdownNow();
+        try {
+            scheduler.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        scheduler = null;
+    }
+
+    /**
+     * Splits month partitions off the catch-all one up to {@link #MONTHS_AHEAD}
+     * months ahead; right after migration 9, starting at the oldest visit.
+     */
+    private static void addUpcomingPartitions(Connection connection, List<Partition> partitions) throws SQLException {
+        YearMonth last = null;
+        for (Partition p : partitions) {
+            if (!p.name.equals(MAX_PARTITION)) {
+                last = YearMonth.parse(p.name.substring(1, 5) + "-" + p.name.substring(5));
+            }
+        }
+        YearMonth upTo = YearMonth.now().plusMonths(MONTHS_AHEAD);
+        if (last != null && !last.isBefore(upTo)) {
+            return;
+        }
+        YearMonth from = last != null ? last.plusMonths(1) : firstVisitMonth(connection);
+        LOG.info("Adding history partitions " + from + " to " + upTo);
+        try (Statement st = connection.createStatement()) {
+            st.execute(String.format(SPLIT_MAX_SQL, definitions(from, upTo)));
+        }
+    }
+
+    /**
+     * Drops month partitions that hold only visits before the cutoff, one at
+     * a time, rebuilding the statistics of the URLs each one contained.
+     *
+     * @return number of visits dropped
+     */
+    private long dropPartitionsBefore(Connection connection, LocalDateTime cutoff) throws SQLException {
+        long cutoffEpoch;
+        try (PreparedStatement ps = connection.prepareStatement(EPOCH_SQL)) {
+            ps.setTimestamp(1, Timestamp.valueOf(cutoff));
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                cutoffEpoch = rs.getLong(1);
+            }
+        }
+        long dropped = 0;
+        for (Partition p : partitions(connection)) {
+            if (p.name.equals(MAX_PARTITION) || p.bound > cutoffEpoch) {
+                break;
+            }
+            Set<String> urls = new HashSet<>();
+            long visits = 0;
+            try (Statement st = connection.createStatement();
+                 ResultSet rs = st.executeQuery(String.format(SELECT_PARTITION_URLS_SQL, p.name))) {
+                while (rs.next()) {
+                    if (rs.getString(1) != null) {
+                        urls.add(rs.getString(1));
+                    }
+                    visits += rs.getLong(2);
+                }
+            }
+            try (Statement st = connection.createStatement()) {
+                st.execute(String.format(DROP_PARTITION_SQL, p.name));
+            }
+            Timestamp bound;
+            try (PreparedStatement ps = connection.prepareStatement(FROM_EPOCH_SQL)) {
+                ps.setLong(1, p.bound);
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    bound = rs.getTimestamp(1);
+                }
+            }
+            // DDL commits on its own; the version and the feed entry go in one transaction.
+            // Only the visits below the partition's bound are gone; the rest of the range up
+            // to the cutoff is recorded by deleteOlderThan once it has deleted them.
+            connection.setAutoCommit(false);
+            try {
+                dao.bumpVersion(connection, TABLE);
+                dao.recordDelete(connection, TABLE, null, bound);
+                connection.commit();
+            } catch (SQLException ex) {
+                connection.rollback();
+                throw ex;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+            dao.rebuildStats(urls);
+            LOG.info("Dropped history partition " + p.name + " (" + visits + " visits)");
+            dropped += visits;
+        }
+        return dropped;
+    }
+
+    private static YearMonth firstVisitMonth(Connection connection) throws SQLException {
+        try (Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery(SELECT_FIRST_VISIT_SQL)) {
+            if (rs.next() && rs.getTimestamp(1) != null) {
+                YearMonth first = YearMonth.from(rs.getTimestamp(1).toLocalDateTime());
+                return first.isBefore(YearMonth.now()) ? first : YearMonth.now();
+            }
+        }
+        return YearMonth.now();
+    }
+
+    private static List<Partition> partitions(Connection connection) throws SQLException {
+        List<Partition> partitions = new ArrayList<>();
+        try (Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery(SELECT_PARTITIONS_SQL)) {
+            while (rs.next()) {
+                String bound = rs.getString(2);
+                partitions.add(new Partition(rs.getString(1),
+                        "MAXVALUE".equalsIgnoreCase(bound) ? Long.MAX_VALUE : Long.parseLong(bound.trim())));
+            }
+        }
+        return partitions;
+    }
+
+    /** Partition definitions for the months from..to (inclusive), followed by the catch-all partition. */
+    private static String definitions(YearMonth from, YearMonth to) {
+        StringBuilder sql = new StringBuilder();
+        for (YearMonth m = from; !m.isAfter(to); m = m.plusMonths(1)) {
+            sql.append(String.format("PARTITION p%04d%02d VALUES LESS THAN (UNIX_TIMESTAMP('%s-01 00:00:00')), ",
+                    m.getYear(), m.getMonthValue(), m.plusMonths(1)));
+        }
+        return sql.append("PARTITION ").append(MAX_PARTITION).append(" VALUES LESS THAN MAXVALUE").toString();
+    }
+
+    private static boolean acquireLock(Connection connection) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT GET_LOCK(?, 0)")) {
+            ps.setString(1, LOCK_NAME);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getInt(1) == 1;
+            }
+        }
+    }
+
+    private static void releaseLock(Connection connection) {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            ps.setString(1, LOCK_NAME);
+            ps.executeQuery().close();
+        } catch (SQLException ignored) {
+            // the lock is released anyway when the session ends
+        }
+    }
+}
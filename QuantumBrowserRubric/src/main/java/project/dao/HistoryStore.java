@@ -0,0 +1,103 @@
+package project.dao;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import project.model.HistoryEntry;
+import project.model.TopSite;
+
+/**
+ * HistoryStore is the history contract used by the desktop browser, whatever
+ * keeps the visits: MySQL ({@link HistoryDAO}) or the embedded log
+ * ({@link LogHistoryDAO}).
+ *
+ * <p>Operations that only exist on MySQL (retention with partitions, bulk
+ * import and export) take a {@link HistoryDAO} instead.
+ */
+public interface HistoryStore extends GenericDAO<HistoryEntry> {
+
+    /**
+     * Returns one page of history, newest first, ordered by {@code (visitedAt, id)}.
+     *
+     * @param before cursor returned by a previous page, or null for the newest page
+     * @param limit  maximum number of entries to return (must be positive)
+     * @return page of entries plus the cursor for the next (older) page
+     */
+    Page<HistoryEntry> findPage(HistoryCursor before, int limit);
+
+    /**
+     * Returns up to {@code limit} entries that are newer than the cursor, the
+     * reverse direction of {@link #findPage}.
+     *
+     * @param after cursor of the newest entry already held by the caller
+     * @param limit maximum number of entries to return (must be positive)
+     * @return entries newest first; fewer than {@code limit} means the newest entry was reached
+     */
+    List<HistoryEntry> findNewer(HistoryCursor after, int limit);
+
+    /**
+     * Returns the most frequently and recently visited URLs.
+     *
+     * @param n maximum number of sites
+     * @return sites ordered by descending frecency
+     */
+    List<TopSite> topSites(int n);
+
+    /**
+     * Returns the URLs most often visited right after the given one, with
+     * their share of those transitions as the score.
+     *
+     * @param url   URL the user is on
+     * @param limit maximum number of URLs
+     * @return likely next URLs, most frequent first (never null)
+     */
+    List<TopSite> nextUrls(String url, int limit);
+
+    /**
+     * Searches the visited URLs; one entry per URL, carrying its last visit time.
+     *
+     * @param query free text typed by the user
+     * @param limit maximum number of results
+     * @return matching URLs, best first (never null)
+     */
+    List<HistoryEntry> search(String query, int limit);
+
+    /**
+     * @param url exact URL
+     * @return current decayed frecency score, or 0 if the URL was never visited
+     */
+    double frecencyFor(String url);
+
+    /**
+     * Deletes the visits made before {@code cutoff}.
+     *
+     * @return number of visits deleted
+     */
+    long deleteOlderThan(LocalDateTime cutoff);
+
+    /**
+     * Deletes the visits made in [{@code from}, {@code to}).
+     *
+     * @return number of visits deleted
+     */
+    long deleteBetween(LocalDateTime from, LocalDateTime to);
+
+    /**
+     * @return change version of the history; it increases with every write
+     */
+    long getVersion();
+
+    /**
+     * Returns the visits inserted and the ranges deleted after the given
+     * position of the history's change feed, oldest first.
+     *
+     * @param seq   last sequence number applied by the caller
+     * @param limit maximum number of changes
+     * @return changes and the position to continue from
+     */
+    ChangeSet<HistoryEntry> changesSince(long seq, int limit);
+
+    /**
+     * @return sequence number of the latest change; poll {@link #changesSince} from there
+     */
+    long currentChangeSeq();
+}
@@ -0,0 +1,728 @@
+package project.dao;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import project.exception.DataAccessException;
+import project.model.HistoryEntry;
+
+/**
+ * Bulk export and import of the browsing history as NDJSON or CSV.
+ *
+ * <p>Export streams rows straight from the database cursor
+ * ({@link HistoryDAO#stream()}) to a writer, newest first, so memory use does
+ * not depend on the size of the history. NDJSON lines look like
+ * {@code {"url":"https://...","visitedAt":"2024-05-01T10:15:30"}}; CSV has a
+ * {@code url,visited_at} header and RFC 4180 quoting, except that line breaks
+ * are percent-encoded ({@code %0D}, {@code %0A}). One record per line in both
+ * formats. Visits without a time cannot be imported, so they are left out of
+ * the export and their number is logged.
+ *
+ * <p>Import splits the file into chunks at line boundaries and parses them
+ * in parallel. Parsed rows are loaded on one connection into a temporary
+ * staging table whose primary key drops duplicates within the file, using
+ * large JDBC batches or, with {@code -Dquantum.import.loadData=true} (and
+ * {@code allowLoadLocalInfile=true} in the JDBC URL), {@code LOAD DATA LOCAL
+ * INFILE}. A single transaction then removes visits already in the history,
+ * appends the rest with one {@code INSERT ... SELECT} and merges their
+ * visit counts and frecency into {@code history_stats}, so an import is
+ * all-or-nothing and can be repeated safely.
+ */
+public class HistoryTransfer {
+
+    private static final Logger LOG = Logger.getLogger(HistoryTransfer.class.getName());
+
+    /** File formats. */
+    public enum Format {
+        NDJSON, CSV;
+
+        /**
+         * @param nameOrFile format name or file name ({@code .csv} is CSV, anything else NDJSON)
+         */
+        public static Format of(String nameOrFile) {
+            String s = nameOrFile == null ? "" : nameOrFile.toLowerCase(Locale.ROOT);
+            return s.equals("csv") || s.endsWith(".csv") ? CSV : NDJSON;
+        }
+    }
+
+    /** Outcome of an import. */
+    public static final class ImportResult {
+        private final long rows;
+        private final long rejected;
+        private final long duplicatesInFile;
+        private final long alreadyPresent;
+        private final long inserted;
+        private final long millis;
+
+        ImportResult(long rows, long rejected, long duplicatesInFile, long alreadyPresent,
+                     long inserted, long millis) {
+            this.rows = rows;
+            this.rejected = rejected;
+            this.duplicatesInFile = duplicatesInFile;
+            this.alreadyPresent = alreadyPresent;
+            this.inserted = inserted;
+            this.millis = millis;
+        }
+
+        /** @return records read from the file (header excluded) */
+        public long getRows() {
+            return rows;
+        }
+
+        /** @return records that could not be parsed or lack a URL or time */
+        public long getRejected() {
+            return rejected;
+        }
+
+        /** @return records repeating an earlier record of the file */
+        public long getDuplicatesInFile() {
+            return duplicatesInFile;
+        }
+
+        /** @return records whose visit was already in the history */
+        public long getAlreadyPresent() {
+            return alreadyPresent;
+        }
+
+        /** @return visits added to the history */
+        public long getInserted() {
+            return inserted;
+        }
+
+        /** @return wall-clock time of the import */
+        public long getMillis() {
+            return millis;
+        }
+
+        /** @return records read per second */
+        public double getRowsPerSecond() {
+            return millis == 0 ? rows : rows * 1000.0 / millis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "%d rows in %d ms (%.0f rows/s): %d inserted, %d already present, "
+                            + "%d duplicates in file, %d rejected",
+                    rows, millis, getRowsPerSecond(), inserted, alreadyPresent, duplicatesInFile, rejected);
+        }
+    }
+
+    private static final String CSV_HEADER = "url,visited_at";
+
+    /** Parse unit; a chunk ends at the first line break after this many bytes. */
+    private static final int CHUNK_BYTES = 8 * 1024 * 1024;
+    private static final int BATCH_SIZE = 5_000;
+
+    private static final DateTimeFormatter TSV_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSS");
+
+    private static final String CREATE_STAGING_SQL =
+            "CREATE TEMPORARY TABLE history_import (" +
+            "url_hash BINARY(16) NOT NULL," +
+            "url TEXT NOT NULL," +
+            "visited_at TIMESTAMP NOT NULL," +
+            "PRIMARY KEY (url_hash, visited_at))";
+
+    private static final String DROP_STAGING_SQL =
+            "DROP TEMPORARY TABLE IF EXISTS history_import";
+
+    private static final String STAGE_SQL =
+            "INSERT IGNORE INTO history_import(url_hash, url, visited_at) VALUES(UNHEX(MD5(?)), ?, ?)";
+
+    private static final String LOAD_DATA_SQL =
+            "LOAD DATA LOCAL INFILE 'history-import.tsv' IGNORE INTO TABLE history_import " +
+            "CHARACTER SET utf8mb4 FIELDS TERMINATED BY '\\t' ESCAPED BY '\\\\' " +
+            "LINES TERMINATED BY '\\n' (@url, @visited_at) " +
+            "SET url = @url, visited_at = @visited_at, url_hash = UNHEX(MD5(@url))";
+
+    private static final String COUNT_STAGED_SQL =
+            "SELECT COUNT(*) FROM history_import";
+
+    // url_hash match is confirmed against the full URL to rule out MD5 collisions
+    private static final String DELETE_PRESENT_SQL =
+            "DELETE i FROM history_import i JOIN history h " +
+            "ON h.visited_at = i.visited_at AND h.url_hash = i.url_hash AND h.url = i.url";
+
+    private static final String INSERT_HISTORY_SQL =
+            "INSERT INTO history(url, visited_at) " +
+            "SELECT url, visited_at FROM history_import ORDER BY visited_at";
+
+    // Same score as HistoryDAO's per-visit upsert, summed over the imported visits of each URL
+    private static final String UPSERT_STATS_SQL =
+            "INSERT INTO history_stats(url_hash, url, visit_count, last_visit, frecency) " +
+            "SELECT url_hash, MIN(url), COUNT(*), MAX(visited_at), " +
+            "LOG2(SUM(POW(2, " + HistoryDAO.FRECENCY_EXPONENT_SQL + "))) " +
+            "FROM history_import GROUP BY url_hash " +
+            "ON DUPLICATE KEY UPDATE " +
+            "visit_count = visit_count + VALUES(visit_count), " +
+            "last_visit = GREATEST(COALESCE(last_visit, VALUES(last_visit)), VALUES(last_visit)), " +
+            "frecency = GREATEST(frecency, VALUES(frecency)) " +
+            "+ LOG2(1 + POW(2, LEAST(frecency, VALUES(frecency)) - GREATEST(frecency, VALUES(frecency))))";
+
+    /** Name under which the history's change version is kept in table_versions. */
+    private static final String TABLE = "history";
+
+    private final HistoryDAO dao;
+    private final int parserThreads;
+    private final boolean loadData;
+
+    /**
+     * Creates a transfer that parses on one thread per CPU and stages rows
+     * with JDBC batches unless {@code -Dquantum.import.loadData=true}.
+     */
+    public HistoryTransfer(HistoryDAO dao) {
+        this(dao, Runtime.getRuntime().availableProcessors(), Boolean.getBoolean("quantum.import.loadData"));
+    }
+
+    /**
+     * @param dao           history to export from and import into
+     * @param parserThreads threads parsing file chunks during an import
+     * @param loadData      stage rows with LOAD DATA LOCAL INFILE instead of JDBC batches
+     */
+    public HistoryTransfer(HistoryDAO dao, int parserThreads, boolean loadData) {
+        this.dao = dao;
+        this.parserThreads = Math.max(1, parserThreads);
+        this.loadData = loadData;
+    }
+
+    /**
+     * Writes the whole history, newest first, except visits without a time.
+     * The writer is flushed but not closed.
+     *
+     * @return number of records written
+     */
+    public long export(Writer out, Format format) throws IOException, DataAccessException {
+        BufferedWriter writer = new BufferedWriter(out, 64 * 1024);
+        if (format == Format.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+        long count = 0;
+        long untimed = 0;
+        try (Stream<HistoryEntry> rows = dao.stream()) {
+            for (HistoryEntry entry : (Iterable<HistoryEntry>) rows::iterator) {
+                if (entry.getVisitedAt() == null) {
+                    untimed++;
+                    continue;
+                }
+                String time = entry.getVisitedAt().toString();
+                if (format == Format.CSV) {
+                    writeCsvField(writer, entry.getUrl());
+                    writer.write(',');
+                    writeCsvField(writer, time);
+                } else {
+                    writer.write("{\"url\":");
+                    writeJsonString(writer, entry.getUrl());
+                    writer.write(",\"visitedAt\":");
+                    writeJsonString(writer, time);
+                    writer.write('}');
+                }
+                writer.write('\n');
+                count++;
+            }
+        }
+        writer.flush();
+        if (untimed > 0) {
+            LOG.warning("History export skipped " + untimed + " visits without a time");
+        }
+        return count;
+    }
+
+    /**
+     * Imports a history file (see the class comment). Nothing is written if
+     * the database rejects any part of the load.
+     *
+     * @param file   UTF-8 NDJSON or CSV file
+     * @param format file format
+     * @return counts and throughput
+     * @throws IOException if the file cannot be read
+     */
+    public ImportResult importFile(Path file, Format format) throws IOException, DataAccessException {
+        long started = System.nanoTime();
+        long rows = 0;
+        long rejected = 0;
+        long accepted = 0;
+        long alreadyPresent = 0;
+        long inserted = 0;
+        long staged = 0;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService parsers = Executors.newFixedThreadPool(parserThreads, r -> {
+            Thread t = new Thread(r, "history-import-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             Connection connection = dao.getConnection()) {
+            List<long[]> chunks = split(channel);
+            try (PreparedStatement create = connection.prepareStatement(CREATE_STAGING_SQL)) {
+                create.executeUpdate();
+            }
+            try {
+                // Parse ahead on the pool while this thread stages, with a bounded number of chunks in memory
+                Deque<Future<Chunk>> inFlight = new ArrayDeque<>();
+                int next = 0;
+                boolean useLoadData = loadData;
+                while (next < chunks.size() || !inFlight.isEmpty()) {
+                    while (next < chunks.size() && inFlight.size() <= parserThreads) {
+                        long[] range = chunks.get(next);
+                        boolean first = next == 0;
+                        inFlight.add(parsers.submit(() -> parse(channel, range[0], range[1], format, first)));
+                        next++;
+                    }
+                    Chunk chunk = await(inFlight.poll());
+                    rows += chunk.lines;
+                    rejected += chunk.rejected;
+                    accepted += chunk.urls.size();
+                    if (useLoadData) {
+                        try {
+                            loadData(connection, chunk);
+                            continue;
+                        } catch (SQLException ex) {
+                            LOG.warning("LOAD DATA LOCAL INFILE failed, using JDBC batches: " + ex.getMessage());
+                            useLoadData = false;
+                        }
+                    }
+                    stage(connection, chunk);
+                }
+                try (PreparedStatement count = connection.prepareStatement(COUNT_STAGED_SQL);
+                     ResultSet rs = count.executeQuery()) {
+                    rs.next();
+                    staged = rs.getLong(1);
+                }
+
+                connection.setAutoCommit(false);
+                try (PreparedStatement delete = connection.prepareStatement(DELETE_PRESENT_SQL);
+                     PreparedStatement insert = connection.prepareStatement(INSERT_HISTORY_SQL);
+                     PreparedStatement stats = connection.prepareStatement(UPSERT_STATS_SQL)) {
+                    alreadyPresent = delete.executeUpdate();
+                    inserted = insert.executeUpdate();
+                    if (inserted > 0) {
+                        stats.executeUpdate();
+                        dao.bumpVersion(connection, TABLE);
+                        // Too many rows to list one by one: polling clients reload instead
+                        dao.recordReload(connection, TABLE);
+                    }
+                    connection.commit();
+                } catch (SQLException ex) {
+                    connection.rollback();
+                    throw ex;
+                }
+            } finally {
+                // The table belongs to the session and would outlive the borrow otherwise
+                try (PreparedStatement drop = connection.prepareStatement(DROP_STAGING_SQL)) {
+                    drop.executeUpdate();
+                }
+            }
+        } catch (SQLException ex) {
+            throw new DataAccessException("Database error: " + ex.getMessage(), ex);
+        } finally {
+            parsers.shutdownNow();
+        }
+
+        long millis = (System.nanoTime() - started) / 1_000_000;
+        ImportResult result = new ImportResult(rows, rejected, accepted - staged, alreadyPresent, inserted, millis);
+        LOG.info("History import from " + file + ": " + result);
+        return result;
+    }
+
+    /** Rows parsed from one chunk of the file. */
+    private static final class Chunk {
+        final List<String> urls = new ArrayList<>();
+        final List<Timestamp> times = new ArrayList<>();
+        long lines;
+        long rejected;
+    }
+
+    /** Splits the file into [start, end) ranges that each end after a line break (or at EOF). */
+    private static List<long[]> split(FileChannel channel) throws IOException {
+        List<long[]> chunks = new ArrayList<>();
+        long size = channel.size();
+        long start = 0;
+        ByteBuffer buf = ByteBuffer.allocate(4096);
+        while (start < size) {
+            long end = Math.min(size, start + CHUNK_BYTES);
+            // Extend to the end of the line the boundary falls in
+            scan:
+            while (end < size) {
+                buf.clear();
+                int n = channel.read(buf, end);
+                if (n <= 0) {
+                    end = size;
+                    break;
+                }
+                for (int i = 0; i < n; i++) {
+                    if (buf.get(i) == '\n') {
+                        end += i + 1;
+                        break scan;
+                    }
+                }
+                end += n;
+            }
+            chunks.add(new long[]{start, end});
+            start = end;
+        }
+        return chunks;
+    }
+
+    private static Chunk parse(FileChannel channel, long start, long end, Format format, boolean first)
+            throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate((int) (end - start));
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, start + buf.position()) < 0) {
+                break;
+            }
+        }
+        String text = new String(buf.array(), 0, buf.position(), StandardCharsets.UTF_8);
+        Chunk chunk = new Chunk();
+        int pos = 0;
+        if (first && !text.isEmpty() && text.charAt(0) == '\uFEFF') {
+            pos = 1; // byte order mark
+        }
+        boolean header = first && format == Format.CSV;
+        while (pos < text.length()) {
+            int eol = text.indexOf('\n', pos);
+            if (eol < 0) {
+                eol = text.length();
+            }
+            int lineEnd = eol > pos && text.charAt(eol - 1) == '\r' ? eol - 1 : eol;
+            String line = text.substring(pos, lineEnd);
+            pos = eol + 1;
+            if (line.isBlank()) {
+                continue;
+            }
+            if (header) {
+                header = false;
+                if (line.trim().equalsIgnoreCase(CSV_HEADER)) {
+                    continue;
+                }
+            }
+            chunk.lines++;
+            String[] fields = format == Format.CSV ? parseCsv(line) : parseJson(line);
+            Timestamp time = fields != null ? parseTime(fields[1]) : null;
+            if (fields == null || fields[0] == null || fields[0].isEmpty() || time == null) {
+                chunk.rejected++;
+                continue;
+            }
+            chunk.urls.add(fields[0]);
+            chunk.times.add(time);
+        }
+        return chunk;
+    }
+
+    private static Chunk await(Future<Chunk> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Could not parse import file", cause);
+        }
+    }
+
+    private static void stage(Connection connection, Chunk chunk) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(STAGE_SQL)) {
+            for (int i = 0; i < chunk.urls.size(); i++) {
+                ps.setString(1, chunk.urls.get(i));
+                ps.setString(2, chunk.urls.get(i));
+                ps.setTimestamp(3, chunk.times.get(i));
+                ps.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    ps.executeBatch();
+                }
+            }
+            ps.executeBatch();
+        }
+    }
+
+    /**
+     * Streams the chunk to the server as tab-separated text. Times are written
+     * in the zone the driver renders TIMESTAMP parameters in, so that both
+     * staging paths store the same instants.
+     */
+    private static void loadData(Connection connection, Chunk chunk) throws SQLException {
+        ZoneId zone = parameterZone(connection);
+        ByteArrayOutputStream tsv = new ByteArrayOutputStream(chunk.urls.size() * 96);
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < chunk.urls.size(); i++) {
+            line.setLength(0);
+            String url = chunk.urls.get(i);
+            for (int j = 0; j < url.length(); j++) {
+                char c = url.charAt(j);
+                switch (c) {
+                    case '\\': line.append("\\\\"); break;
+                    case '\t': line.append("\\t"); break;
+                    case '\n': line.append("\\n"); break;
+                    case '\r': line.append("\\r"); break;
+                    default: line.append(c);
+                }
+            }
+            line.append('\t')
+                    .append(TSV_TIME.format(chunk.times.get(i).toInstant().atZone(zone)))
+                    .append('\n');
+            byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+            tsv.write(bytes, 0, bytes.length);
+        }
+        try (PreparedStatement ps = connection.prepareStatement(LOAD_DATA_SQL)) {
+            ps.unwrap(com.mysql.cj.jdbc.JdbcStatement.class)
+                    .setLocalInfileInputStream(new ByteArrayInputStream(tsv.toByteArray()));
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Zone of {@link PreparedStatement#setTimestamp} as Connector/J applies it to
+     * TIMESTAMP values: the session's with {@code preserveInstants} (the
+     * default), the JVM's otherwise.
+     */
+    private static ZoneId parameterZone(Connection connection) throws SQLException {
+        com.mysql.cj.jdbc.JdbcConnection mysql = connection.unwrap(com.mysql.cj.jdbc.JdbcConnection.class);
+        com.mysql.cj.protocol.ServerSession session = mysql.getSession().getServerSession();
+        boolean preserveInstants = mysql.getPropertySet()
+                .getBooleanProperty(com.mysql.cj.conf.PropertyKey.preserveInstants).getValue();
+        return (preserveInstants ? session.getSessionTimeZone() : session.getDefaultTimeZone()).toZoneId();
+    }
+
+    /** @return url and visited_at of a CSV record, or null if it is malformed */
+    private static String[] parseCsv(String line) {
+        List<String> fields = new ArrayList<>(2);
+        StringBuilder field = new StringBuilder();
+        int i = 0;
+        while (true) {
+            field.setLength(0);
+            if (i < line.length() && line.charAt(i) == '"') {
+                i++;
+                while (true) {
+                    if (i >= line.length()) {
+                        return null; // unterminated quote
+                    }
+                    char c = line.charAt(i++);
+                    if (c == '"') {
+                        if (i < line.length() && line.charAt(i) == '"') {
+                            field.append('"');
+                            i++;
+                        } else {
+                            break;
+                        }
+                    } else {
+                        field.append(c);
+                    }
+                }
+                if (i < line.length() && line.charAt(i) != ',') {
+                    return null;
+                }
+            } else {
+                int comma = line.indexOf(',', i);
+                field.append(line, i, comma < 0 ? line.length() : comma);
+                i = comma < 0 ? line.length() : comma;
+            }
+            fields.add(field.toString());
+            if (i >= line.length()) {
+                break;
+            }
+            i++; // comma
+        }
+        return fields.size() < 2 ? null : new String[]{fields.get(0), fields.get(1)};
+    }
+
+    /**
+     * Reads a flat JSON object of strings, numbers, booleans and nulls.
+     *
+     * @return url and visitedAt (or visited_at) values, or null if the line is not such an object
+     */
+    private static String[] parseJson(String line) {
+        String[] result = new String[2];
+        int[] pos = {skipSpace(line, 0)};
+        if (pos[0] >= line.length() || line.charAt(pos[0]++) != '{') {
+            return null;
+        }
+        pos[0] = skipSpace(line, pos[0]);
+        if (pos[0] < line.length() && line.charAt(pos[0]) == '}') {
+            return result;
+        }
+        while (true) {
+            String key = readJsonString(line, pos);
+            pos[0] = skipSpace(line, pos[0]);
+            if (key == null || pos[0] >= line.length() || line.charAt(pos[0]++) != ':') {
+                return null;
+            }
+            pos[0] = skipSpace(line, pos[0]);
+            String value;
+            if (pos[0] < line.length() && line.charAt(pos[0]) == '"') {
+                value = readJsonString(line, pos);
+                if (value == null) {
+                    return null;
+                }
+            } else {
+                int startOfValue = pos[0];
+                while (pos[0] < line.length() && ",} \t".indexOf(line.charAt(pos[0])) < 0) {
+                    pos[0]++;
+                }
+                String literal = line.substring(startOfValue, pos[0]);
+                if (literal.isEmpty()) {
+                    return null;
+                }
+                value = literal.equals("null") ? null : literal;
+            }
+            if (key.equals("url")) {
+                result[0] = value;
+            } else if (key.equals("visitedAt") || key.equals("visited_at")) {
+                result[1] = value;
+            }
+            pos[0] = skipSpace(line, pos[0]);
+            if (pos[0] >= line.length()) {
+                return null;
+            }
+            char c = line.charAt(pos[0]++);
+            if (c == '}') {
+                return result;
+            }
+            if (c != ',') {
+                return null;
+            }
+            pos[0] = skipSpace(line, pos[0]);
+        }
+    }
+
+    /** Reads a JSON string starting at pos[0] and advances past it; null if malformed. */
+    private static String readJsonString(String s, int[] pos) {
+        int i = pos[0];
+        if (i >= s.length() || s.charAt(i) != '"') {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder();
+        i++;
+        while (i < s.length()) {
+            char c = s.charAt(i++);
+            if (c == '"') {
+                pos[0] = i;
+                return sb.toString();
+            }
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            if (i >= s.length()) {
+                return null;
+            }
+            char e = s.charAt(i++);
+            switch (e) {
+                case '"': case '\\': case '/': sb.append(e); break;
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                case 'n': sb.append('\n'); break;
+                case 'r': sb.append('\r'); break;
+                case 't': sb.append('\t'); break;
+                case 'u':
+                    if (i + 4 > s.length()) {
+                        return null;
+                    }
+                    try {
+                        sb.append((char) Integer.parseInt(s.substring(i, i + 4), 16));
+                    } catch (NumberFormatException ex) {
+                        return null;
+                    }
+                    i += 4;
+                    break;
+                default:
+                    return null;
+            }
+        }
+        return null;
+    }
+
+    private static int skipSpace(String s, int i) {
+        while (i < s.length() && Character.isWhitespace(s.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    /** Accepts ISO local date-times, with 'T' or a space between date and time. */
+    private static Timestamp parseTime(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Timestamp.valueOf(LocalDateTime.parse(value.trim().replace(' ', 'T')));
+        } catch (DateTimeParseException ex) {
+            return null;
+        }
+    }
+
+    /** Writes a CSV field, percent-encoding line breaks so that the record stays on one line. */
+    private static void writeCsvField(Writer out, String s) throws IOException {
+        if (s == null) {
+            return;
+        }
+        if (s.indexOf('\n') >= 0 || s.indexOf('\r') >= 0) {
+            s = s.replace("\r", "%0D").replace("\n", "%0A");
+        }
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0) {
+            out.write(s);
+            return;
+        }
+        out.write('"');
+        out.write(s.replace("\"", "\"\""));
+        out.write('"');
+    }
+
+    /** Quoted, escaped JSON string ({@code null} for null). */
+    private static void writeJsonString(Writer out, String s) throws IOException {
+        if (s == null) {
+            out.write("null");
+            return;
+        }
+        out.write('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':  out.write("\\\""); break;
+                case '\\': out.write("\\\\"); break;
+                case '\n': out.write("\\n"); break;
+                case '\r': out.write("\\r"); break;
+                case '\t': out.write("\\t"); break;
+                default:
+                    if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                        out.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.write(c);
+                    }
+            }
+        }
+        out.write('"');
+    }
+}
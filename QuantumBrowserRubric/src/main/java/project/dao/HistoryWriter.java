@@ -0,0 +1,271 @@
+package project.dao;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import project.model.HistoryEntry;
+
+/**
+ * Write-behind buffer for history visits.
+ *
+ * <p>Callers (the UI thread) only enqueue entries; a single background thread
+ * collects them and writes them with {@link GenericDAO#saveAll(List)} when
+ * either {@code batchSize} entries are pending or the oldest pending entry has
+ * waited {@code flushIntervalMillis}. Consecutive visits to the same URL within
+ * {@code dedupeWindowMillis} (redirect chains, double clicks, reloads) are
+ * dropped before they reach the queue.
+ *
+ * <p>{@link #close(long)} stops accepting new entries and drains the queue
+ * within a deadline instead of discarding it. Once the deadline has passed
+ * the writer is abandoned: nothing more is written.
+ */
+public class HistoryWriter implements AutoCloseable {
+
+    private static final Logger LOG = Logger.getLogger(HistoryWriter.class.getName());
+
+    /** Upper bound on buffered entries so a dead database cannot exhaust the heap. */
+    private static final int MAX_PENDING = 100_000;
+    private static final int MAX_ATTEMPTS = 3;
+
+    /** Marker queued by close() to wake the worker without interrupting JDBC calls. */
+    private static final HistoryEntry WAKE_UP = new HistoryEntry();
+
+    private final GenericDAO<HistoryEntry> dao;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final long dedupeWindowMillis;
+
+    private final BlockingQueue<HistoryEntry> queue = new LinkedBlockingQueue<>(MAX_PENDING);
+    private final Thread worker;
+    private volatile boolean accepting = true;
+
+    // Accepted entries not yet written or dropped: queued, collected or being written. Guarded by this
+    private int unwritten;
+    private boolean abandoned;
+
+    // Last accepted visit, for consecutive-duplicate suppression
+    private String lastUrl;
+    private long lastAcceptedAt;
+
+    // Statistics
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong duplicatesDropped = new AtomicLong();
+    private final AtomicLong failedDropped = new AtomicLong();
+
+    /**
+     * Creates and starts a writer with sensible defaults
+     * (batches of 100, flushed at least every 500 ms, 2 s duplicate window).
+     */
+    public HistoryWriter(GenericDAO<HistoryEntry> dao) {
+        this(dao, 100, 500, 2_000);
+    }
+
+    /**
+     * Creates and starts a writer.
+     *
+     * @param dao                 DAO used for batched inserts
+     * @param batchSize           flush as soon as this many entries are pending
+     * @param flushIntervalMillis flush at the latest this long after the first pending entry
+     * @param dedupeWindowMillis  consecutive visits to the same URL within this window are dropped
+     */
+    public HistoryWriter(GenericDAO<HistoryEntry> dao, int batchSize,
+                         long flushIntervalMillis, long dedupeWindowMillis) {
+        this.dao = dao;
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.dedupeWindowMillis = dedupeWindowMillis;
+
+        worker = new Thread(this::run, "history-writer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Queues a visit for writing. Never blocks.
+     *
+     * @param entry visit to record
+     * @return true if the entry was accepted, false if it was a consecutive
+     *         duplicate, the writer is closed or the buffer is full
+     */
+    public synchronized boolean submit(HistoryEntry entry) {
+        if (entry == null || !accepting) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        if (entry.getUrl() != null && entry.getUrl().equals(lastUrl)
+                && now - lastAcceptedAt < dedupeWindowMillis) {
+            duplicatesDropped.incrementAndGet();
+            return false;
+        }
+        if (!queue.offer(entry)) {
+            failedDropped.incrementAndGet();
+            return false;
+        }
+        unwritten++;
+        lastUrl = entry.getUrl();
+        lastAcceptedAt = now;
+        return true;
+    }
+
+    /**
+     * Stops accepting entries and waits for everything already queued to be
+     * written, but no longer than the deadline. After that the worker starts
+     * no further write; a batch it is still writing is counted as lost, since
+     * the caller is about to close the connections it uses.
+     *
+     * @param timeoutMillis maximum time to wait for the drain
+     * @return number of entries that could not be written in time, whether
+     *         still queued, collected into a batch or being written
+     */
+    public int close(long timeoutMillis) {
+        synchronized (this) {
+            accepting = false;
+        }
+        queue.offer(WAKE_UP);
+        try {
+            worker.join(Math.max(1, timeoutMillis));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        int lost;
+        synchronized (this) {
+            abandoned = true;
+            lost = unwritten;
+        }
+        queue.clear();
+        if (lost > 0) {
+            LOG.warning("History writer closed with " + lost + " unwritten entries");
+        }
+        return lost;
+    }
+
+    @Override
+    public void close() {
+        close(5_000);
+    }
+
+    /** @return entries written to the database so far */
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    /** @return number of batched flushes performed */
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    /** @return consecutive duplicate visits that were dropped */
+    public long getDuplicatesDropped() {
+        return duplicatesDropped.get();
+    }
+
+    /** @return entries dropped because the buffer was full or writes kept failing */
+    public long getFailedDropped() {
+        return failedDropped.get();
+    }
+
+    /** @return entries accepted but not yet written or dropped, including a batch being written */
+    public synchronized int getPendingCount() {
+        return unwritten;
+    }
+
+    // -------------------------------------------------------------------
+    // Background worker
+    // -------------------------------------------------------------------
+
+    private void run() {
+        List<HistoryEntry> batch = new ArrayList<>(batchSize);
+        while ((accepting || !queue.isEmpty()) && !isAbandoned()) {
+            try {
+                collect(batch);
+            } catch (InterruptedException ex) {
+                queue.drainTo(batch);
+                accepting = false;
+            }
+            batch.removeIf(e -> e == WAKE_UP);
+            if (!batch.isEmpty()) {
+                flushInChunks(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Blocks until at least one entry is available, then keeps collecting until
+     * the batch is full or the flush interval since the first entry has passed.
+     */
+    private void collect(List<HistoryEntry> batch) throws InterruptedException {
+        HistoryEntry first = accepting
+                ? queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS)
+                : queue.poll();
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            if (batch.size() >= batchSize || !accepting) {
+                return;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            HistoryEntry next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void flushInChunks(List<HistoryEntry> entries) {
+        for (int from = 0; from < entries.size(); from += batchSize) {
+            flush(entries.subList(from, Math.min(entries.size(), from + batchSize)));
+        }
+    }
+
+    private synchronized boolean isAbandoned() {
+        return abandoned;
+    }
+
+    /** Marks entries as written or dropped. */
+    private synchronized void settled(int count) {
+        unwritten -= count;
+    }
+
+    private void flush(List<HistoryEntry> chunk) {
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            if (isAbandoned()) {
+                return; // close() has counted the chunk as lost
+            }
+            try {
+                dao.saveAll(chunk);
+                settled(chunk.size());
+                written.addAndGet(chunk.size());
+                batches.incrementAndGet();
+                return;
+            } catch (RuntimeException ex) {
+                LOG.log(Level.WARNING, "History batch write failed (attempt " + attempt + ")", ex);
+                if (attempt < MAX_ATTEMPTS && accepting) {
+                    try {
+                        Thread.sleep(200L * attempt);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            }
+        }
+        settled(chunk.size());
+        failedDropped.addAndGet(chunk.size());
+    }
+}
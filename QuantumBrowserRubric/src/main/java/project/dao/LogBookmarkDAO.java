@@ -0,0 +1,244 @@
+package project.dao;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import project.exception.DataAccessException;
+import project.model.Bookmark;
+
+/**
+ * {@link BookmarkStore} backed by an embedded {@link LogStore} instead of MySQL,
+ * for the desktop browser ({@code -Dquantum.storage=log}).
+ *
+ * <p>Each save is one log record; opening the DAO replays them into a map
+ * that serves every read. Saving a URL that is already bookmarked rewrites
+ * that bookmark under its id, as the upsert in MySQL does, and compaction
+ * drops the superseded records. The map by URL also answers
+ * {@link #isBookmarked}. Like {@link LogHistoryDAO}, its change feed stays empty.
+ */
+public class LogBookmarkDAO implements BookmarkStore, AutoCloseable {
+
+    private static final byte BOOKMARK_RECORD = 1;
+
+    private static final int SEGMENT_BYTES = Integer.getInteger("quantum.storage.segmentBytes", 16 * 1024 * 1024);
+    private static final long COMPACTION_INTERVAL_MILLIS =
+            Long.getLong("quantum.storage.compactionSeconds", 60) * 1000;
+
+    private LogStore store;
+    private long replayGarbage;
+
+    // By id (ids grow with every new bookmark), and id by normalized URL
+    private final TreeMap<Integer, Bookmark> bookmarks = new TreeMap<>();
+    private final Map<String, Integer> idsByUrl = new HashMap<>();
+    private int nextId = 1;
+    private long version = System.currentTimeMillis(); // distinct from the versions of earlier runs
+
+    private LogBookmarkDAO(Path directory) throws IOException {
+        store = LogStore.open(directory, SEGMENT_BYTES, this::replay);
+        store.discard(replayGarbage);
+        store.startCompaction(this::writeLive, COMPACTION_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Opens the bookmarks stored in the given directory, creating it if needed.
+     *
+     * @param directory directory of the log (used by one process at a time)
+     * @return open DAO; close it on shutdown
+     * @throws DataAccessException if the log cannot be opened
+     */
+    public static LogBookmarkDAO open(Path directory) {
+        try {
+            return new LogBookmarkDAO(directory);
+        } catch (IOException ex) {
+            throw new DataAccessException("Could not open bookmark store " + directory, ex);
+        }
+    }
+
+    @Override
+    public void save(Bookmark bookmark) {
+        if (bookmark == null) {
+            return;
+        }
+        synchronized (store) {
+            // An existing bookmark of the URL keeps its id and URL and takes the new title
+            Integer existing = bookmark.getUrl() != null
+                    ? idsByUrl.get(BookmarkDAO.normalizeUrl(bookmark.getUrl()))
+                    : null;
+            Bookmark row = existing != null
+                    ? new Bookmark(existing, bookmark.getTitle(), bookmarks.get(existing).getUrl())
+                    : new Bookmark(nextId, bookmark.getTitle(), bookmark.getUrl());
+            try {
+                append(store, row);
+                store.sync();
+            } catch (IOException | IllegalArgumentException ex) {
+                throw new DataAccessException("Could not write to bookmark store", ex);
+            }
+            bookmark.setId(row.getId());
+            apply(row);
+            version++;
+        }
+    }
+
+    @Override
+    public List<Bookmark> findAll() {
+        List<Bookmark> result;
+        synchronized (store) {
+            result = new ArrayList<>(bookmarks.size());
+            for (Bookmark b : bookmarks.descendingMap().values()) {
+                result.add(copy(b));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Stream<Bookmark> stream() {
+        return findAll().stream();
+    }
+
+    /**
+     * Searches titles and URLs. All words must match (as prefixes of their
+     * words), like the FULLTEXT query; results are ordered newest first.
+     */
+    @Override
+    public List<Bookmark> search(String query, int limit) {
+        List<Bookmark> result = new ArrayList<>();
+        FullTextQuery q = FullTextQuery.parse(query);
+        if (q.isEmpty() || limit <= 0) {
+            return result;
+        }
+        synchronized (store) {
+            for (Bookmark b : bookmarks.descendingMap().values()) {
+                if (result.size() == limit) {
+                    break;
+                }
+                if (q.matches(b.getTitle() + " " + b.getUrl())) {
+                    result.add(copy(b));
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void clearAll() {
+        synchronized (store) {
+            try {
+                store.clear();
+            } catch (IOException ex) {
+                throw new DataAccessException("Could not clear bookmark store", ex);
+            }
+            bookmarks.clear();
+            idsByUrl.clear();
+            version++;
+        }
+    }
+
+    @Override
+    public boolean isBookmarked(String url) {
+        if (url == null) {
+            return false;
+        }
+        synchronized (store) {
+            return idsByUrl.containsKey(BookmarkDAO.normalizeUrl(url));
+        }
+    }
+
+    /** Nothing to load: the bookmarks are always in memory. */
+    @Override
+    public void loadBookmarkedUrls() {
+    }
+
+    @Override
+    public long getVersion() {
+        synchronized (store) {
+            return version;
+        }
+    }
+
+    /** Always 0: no other process writes the store. */
+    @Override
+    public long currentChangeSeq() {
+        return 0;
+    }
+
+    /** Always empty: the changes made through this DAO are the only ones. */
+    @Override
+    public ChangeSet<Bookmark> changesSince(long seq, int limit) {
+        return new ChangeSet<>(new ArrayList<>(), seq, false, false);
+    }
+
+    /** Flushes the log and releases its files. */
+    @Override
+    public void close() {
+        store.close();
+    }
+
+    private void replay(byte type, ByteBuffer payload) {
+        if (type != BOOKMARK_RECORD) {
+            throw new IllegalStateException("Unknown bookmark record type " + type);
+        }
+        int id = payload.getInt();
+        String title = LogStore.getString(payload);
+        String url = LogStore.getString(payload);
+        apply(new Bookmark(id, title, url));
+    }
+
+    /** Stores a saved bookmark, replacing the older record of its id or URL. */
+    private void apply(Bookmark bookmark) {
+        Bookmark replaced = bookmarks.put(bookmark.getId(), bookmark);
+        if (replaced != null) {
+            discard(recordBytes(replaced));
+        }
+        if (bookmark.getUrl() != null) {
+            Integer other = idsByUrl.put(BookmarkDAO.normalizeUrl(bookmark.getUrl()), bookmark.getId());
+            if (other != null && other != bookmark.getId()) {
+                // Duplicate written before URLs were unique: the newer bookmark wins
+                discard(recordBytes(bookmarks.remove(other)));
+            }
+        }
+        nextId = Math.max(nextId, bookmark.getId() + 1);
+    }
+
+    /** Garbage found while replaying is handed to the store once it is open. */
+    private void discard(long bytes) {
+        if (store != null) {
+            store.discard(bytes);
+        } else {
+            replayGarbage += bytes;
+        }
+    }
+
+    private Runnable writeLive(LogStore target) throws IOException {
+        for (Bookmark b : bookmarks.values()) {
+            append(target, b);
+        }
+        return () -> { }; // ids are kept, so the index stays as it is
+    }
+
+    private static void append(LogStore target, Bookmark b) throws IOException {
+        byte[] title = LogStore.utf8(b.getTitle());
+        byte[] url = LogStore.utf8(b.getUrl());
+        ByteBuffer payload = ByteBuffer.allocate(4 + LogStore.stringBytes(title) + LogStore.stringBytes(url));
+        payload.putInt(b.getId());
+        LogStore.putString(payload, title);
+        LogStore.putString(payload, url);
+        target.append(BOOKMARK_RECORD, payload.array());
+    }
+
+    private static int recordBytes(Bookmark b) {
+        return LogStore.RECORD_HEADER_BYTES + 4
+                + LogStore.stringBytes(LogStore.utf8(b.getTitle())) + LogStore.stringBytes(LogStore.utf8(b.getUrl()));
+    }
+
+    // Callers get their own objects, as from a query
+    private static Bookmark copy(Bookmark b) {
+        return new Bookmark(b.getId(), b.getTitle(), b.getUrl());
+    }
+}
@@ -0,0 +1,653 @@
+package project.dao;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import project.exception.DataAccessException;
+import project.model.HistoryEntry;
+import project.model.TopSite;
+
+/**
+ * {@link HistoryStore} backed by an embedded {@link LogStore} instead of MySQL,
+ * for the desktop browser ({@code -Dquantum.storage=log}).
+ *
+ * <p>Every visit is one small log record that refers to its URL by number; a
+ * URL's text is written once, when it is first visited. Opening the DAO
+ * replays the log into an in-memory index:
+ * <ul>
+ *   <li>the visits as three parallel arrays sorted by {@code (visited_at, id)}
+ *       (16 bytes per visit), which serve paging by binary search, and</li>
+ *   <li>one statistics object per URL (visit count, last visit and the same
+ *       frecency score as {@code history_stats}), which serve top sites,
+ *       search and frecency lookups.</li>
+ * </ul>
+ * Writes append to the log and update the index; nothing is a network round
+ * trip. Range deletes append a tombstone, and the periodic compaction of the
+ * store rewrites only the visits and URLs still alive.
+ *
+ * <p>Only one process uses the store, so every change is made through this
+ * DAO and its change feed stays empty. All methods are thread-safe; they
+ * synchronize on the store.
+ */
+public class LogHistoryDAO implements HistoryStore, AutoCloseable {
+
+    private static final byte URL_RECORD = 1;
+    private static final byte VISIT_RECORD = 2;
+    private static final byte DELETE_RECORD = 3;
+
+    /** id, time, URL number */
+    private static final int VISIT_RECORD_BYTES = LogStore.RECORD_HEADER_BYTES + 16;
+    private static final int DELETE_RECORD_BYTES = LogStore.RECORD_HEADER_BYTES + 16;
+    private static final int NO_URL = -1;
+
+    /** Number of recent visits of a URL whose successors are counted by {@link #nextUrls}. */
+    private static final int NEXT_URLS_SAMPLE = 200;
+
+    private static final int SEGMENT_BYTES = Integer.getInteger("quantum.storage.segmentBytes", 16 * 1024 * 1024);
+    private static final long COMPACTION_INTERVAL_MILLIS =
+            Long.getLong("quantum.storage.compactionSeconds", 60) * 1000;
+
+    /** Statistics of one URL, the in-memory counterpart of a history_stats row. */
+    private static final class UrlStats {
+        final String url;
+        final int recordBytes;
+        int visits;
+        long lastVisit;
+        double frecency; // log2 of the sum of 2^exponent over the visits
+
+        UrlStats(String url, int recordBytes) {
+            this.url = url;
+            this.recordBytes = recordBytes;
+        }
+
+        void add(long millis) {
+            double exponent = frecencyExponent(millis);
+            if (visits == 0) {
+                frecency = exponent;
+                lastVisit = millis;
+            } else {
+                double max = Math.max(frecency, exponent);
+                frecency = max + Math.log(1 + Math.pow(2, Math.min(frecency, exponent) - max)) / Math.log(2);
+                lastVisit = Math.max(lastVisit, millis);
+            }
+            visits++;
+        }
+    }
+
+    private LogStore store;
+    private long replayGarbage;
+
+    // Visits sorted by (times, ids); urls holds URL numbers (NO_URL for a visit without URL)
+    private long[] times = new long[1024];
+    private int[] ids = new int[1024];
+    private int[] urls = new int[1024];
+    private int size;
+    private int nextId = 1;
+
+    // URL number -> statistics (null once a URL has no visits left)
+    private final List<UrlStats> urlTable = new ArrayList<>();
+    private final Map<String, Integer> urlNumbers = new HashMap<>();
+
+    private long version = System.currentTimeMillis(); // distinct from the versions of earlier runs
+
+    private LogHistoryDAO(Path directory) throws IOException {
+        store = LogStore.open(directory, SEGMENT_BYTES, this::replay);
+        store.discard(replayGarbage);
+        store.startCompaction(this::writeLive, COMPACTION_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Opens the history stored in the given directory, creating it if needed.
+     *
+     * @param directory directory of the log (used by one process at a time)
+     * @return open DAO; close it on shutdown
+     * @throws DataAccessException if the log cannot be opened
+     */
+    public static LogHistoryDAO open(Path directory) {
+        try {
+            return new LogHistoryDAO(directory);
+        } catch (IOException ex) {
+            throw new DataAccessException("Could not open history store " + directory, ex);
+        }
+    }
+
+    @Override
+    public void save(HistoryEntry entry) {
+        saveAll(Collections.singletonList(entry));
+    }
+
+    /**
+     * Appends the entries and syncs the log once.
+     *
+     * @throws IllegalArgumentException if an entry has no visit time, like {@link HistoryDAO#saveAll}
+     */
+    @Override
+    public void saveAll(List<HistoryEntry> entries) {
+        if (entries == null || entries.isEmpty()) {
+            return;
+        }
+        for (HistoryEntry entry : entries) {
+            if (entry != null && entry.getVisitedAt() == null) {
+                throw new IllegalArgumentException("History entry has no visit time: " + entry.getUrl());
+            }
+        }
+        synchronized (store) {
+            try {
+                long[] millis = new long[entries.size()];
+                for (int i = 0; i < millis.length; i++) {
+                    HistoryEntry entry = entries.get(i);
+                    if (entry != null) {
+                        millis[i] = toMillis(entry.getVisitedAt());
+                    }
+                }
+                for (int i = 0; i < millis.length; i++) {
+                    HistoryEntry entry = entries.get(i);
+                    if (entry == null) {
+                        continue;
+                    }
+                    int url = entry.getUrl() != null ? urlNumber(entry.getUrl()) : NO_URL;
+                    int id = nextId;
+                    store.append(VISIT_RECORD, ByteBuffer.allocate(16).putInt(id).putLong(millis[i]).putInt(url).array());
+                    addVisit(id, millis[i], url);
+                    entry.setId(id);
+                }
+                store.sync();
+                version++;
+            } catch (IOException | IllegalArgumentException ex) {
+                throw new DataAccessException("Could not write to history store", ex);
+            }
+        }
+    }
+
+    @Override
+    public List<HistoryEntry> findAll() {
+        synchronized (store) {
+            List<HistoryEntry> result = new ArrayList<>(size);
+            for (int i = size - 1; i >= 0; i--) {
+                result.add(entryAt(i));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Streams all history entries, newest first. The stream reads a snapshot
+     * of the index taken when it is created and builds entries on demand.
+     */
+    @Override
+    public Stream<HistoryEntry> stream() {
+        long[] t;
+        int[] id;
+        int[] u;
+        String[] text;
+        synchronized (store) {
+            t = Arrays.copyOf(times, size);
+            id = Arrays.copyOf(ids, size);
+            u = Arrays.copyOf(urls, size);
+            text = new String[urlTable.size()];
+            for (int i = 0; i < text.length; i++) {
+                UrlStats stats = urlTable.get(i);
+                text[i] = stats != null ? stats.url : null;
+            }
+        }
+        Spliterator<HistoryEntry> rows = new Spliterators.AbstractSpliterator<>(t.length,
+                Spliterator.ORDERED | Spliterator.SIZED | Spliterator.NONNULL) {
+            private int next = t.length - 1;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super HistoryEntry> action) {
+                if (next < 0) {
+                    return false;
+                }
+                action.accept(new HistoryEntry(id[next], u[next] != NO_URL ? text[u[next]] : null,
+                        toDateTime(t[next])));
+                next--;
+                return true;
+            }
+        };
+        return StreamSupport.stream(rows, false);
+    }
+
+    @Override
+    public Page<HistoryEntry> findPage(HistoryCursor before, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        synchronized (store) {
+            int end = before == null ? size : position(cursorMillis(before), before.getId());
+            List<HistoryEntry> result = new ArrayList<>(Math.min(limit, 1024));
+            for (int i = end - 1; i >= 0 && result.size() < limit; i--) {
+                result.add(entryAt(i));
+            }
+            String next = end - result.size() > 0
+                    ? HistoryCursor.of(result.get(result.size() - 1)).encode()
+                    : null;
+            return new Page<>(result, next);
+        }
+    }
+
+    @Override
+    public List<HistoryEntry> findNewer(HistoryCursor after, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        synchronized (store) {
+            long millis = cursorMillis(after);
+            int start = position(millis, after.getId());
+            if (start < size && times[start] == millis && ids[start] == after.getId()) {
+                start++;
+            }
+            List<HistoryEntry> result = new ArrayList<>(Math.min(limit, 1024));
+            for (int i = Math.min(size, start + limit) - 1; i >= start; i--) {
+                result.add(entryAt(i));
+            }
+            return result;
+        }
+    }
+
+    @Override
+    public List<TopSite> topSites(int n) {
+        List<TopSite> result = new ArrayList<>();
+        if (n <= 0) {
+            return result;
+        }
+        PriorityQueue<UrlStats> best = new PriorityQueue<>(Math.min(n, 1024) + 1,
+                (a, b) -> Double.compare(a.frecency, b.frecency));
+        double now = frecencyExponent(toMillis(LocalDateTime.now()));
+        synchronized (store) {
+            for (UrlStats stats : urlTable) {
+                if (stats != null && stats.visits > 0) {
+                    best.add(stats);
+                    if (best.size() > n) {
+                        best.poll();
+                    }
+                }
+            }
+            while (!best.isEmpty()) {
+                UrlStats stats = best.poll();
+                result.add(new TopSite(stats.url, stats.visits, toDateTime(stats.lastVisit),
+                        Math.pow(2, stats.frecency - now)));
+            }
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    /**
+     * Returns the URLs most often visited right after the given one. The
+     * successor of a visit is the next visit in time order; otherwise this
+     * behaves like {@link HistoryDAO#nextUrls}.
+     */
+    @Override
+    public List<TopSite> nextUrls(String url, int limit) {
+        List<TopSite> result = new ArrayList<>();
+        if (url == null || limit <= 0) {
+            return result;
+        }
+        synchronized (store) {
+            Integer known = urlNumbers.get(url);
+            if (known == null) {
+                return result;
+            }
+            int number = known;
+            Map<Integer, int[]> counts = new HashMap<>(); // URL -> {count, position of last visit}
+            int sampled = 0;
+            int total = 0;
+            for (int i = size - 1; i >= 0 && sampled < NEXT_URLS_SAMPLE; i--) {
+                if (urls[i] != number) {
+                    continue;
+                }
+                sampled++;
+                if (i + 1 == size) {
+                    continue;
+                }
+                int next = urls[i + 1];
+                if (next == number || next == NO_URL) {
+                    continue;
+                }
+                int[] c = counts.computeIfAbsent(next, k -> new int[] {0, -1});
+                c[0]++;
+                c[1] = Math.max(c[1], i + 1);
+                total++;
+            }
+            List<Map.Entry<Integer, int[]>> ranked = new ArrayList<>(counts.entrySet());
+            ranked.sort((a, b) -> a.getValue()[0] != b.getValue()[0]
+                    ? Integer.compare(b.getValue()[0], a.getValue()[0])
+                    : Integer.compare(b.getValue()[1], a.getValue()[1]));
+            for (Map.Entry<Integer, int[]> e : ranked.subList(0, Math.min(limit, ranked.size()))) {
+                int count = e.getValue()[0];
+                result.add(new TopSite(urlTable.get(e.getKey()).url, count,
+                        toDateTime(times[e.getValue()[1]]), (double) count / total));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Searches the visited URLs. All words must match (as prefixes of the
+     * URL's words), like the FULLTEXT query; results are ordered by frecency.
+     */
+    @Override
+    public List<HistoryEntry> search(String query, int limit) {
+        List<HistoryEntry> result = new ArrayList<>();
+        FullTextQuery q = FullTextQuery.parse(query);
+        if (q.isEmpty() || limit <= 0) {
+            return result;
+        }
+        List<UrlStats> matches = new ArrayList<>();
+        synchronized (store) {
+            for (UrlStats stats : urlTable) {
+                if (stats != null && stats.visits > 0 && q.matches(stats.url)) {
+                    matches.add(stats);
+                }
+            }
+            matches.sort((a, b) -> Double.compare(b.frecency, a.frecency));
+            for (UrlStats stats : matches.subList(0, Math.min(limit, matches.size()))) {
+                result.add(new HistoryEntry(stats.url, toDateTime(stats.lastVisit)));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public double frecencyFor(String url) {
+        if (url == null) {
+            return 0;
+        }
+        synchronized (store) {
+            Integer number = urlNumbers.get(url);
+            UrlStats stats = number != null ? urlTable.get(number) : null;
+            return stats != null && stats.visits > 0
+                    ? Math.pow(2, stats.frecency - frecencyExponent(toMillis(LocalDateTime.now())))
+                    : 0;
+        }
+    }
+
+    /** Deletes the whole history and truncates the log. */
+    @Override
+    public void clearAll() {
+        synchronized (store) {
+            try {
+                store.clear();
+            } catch (IOException ex) {
+                throw new DataAccessException("Could not clear history store", ex);
+            }
+            size = 0;
+            urlTable.clear();
+            urlNumbers.clear();
+            version++;
+        }
+    }
+
+    @Override
+    public long deleteOlderThan(LocalDateTime cutoff) {
+        return delete(Long.MIN_VALUE, toMillis(cutoff));
+    }
+
+    @Override
+    public long deleteBetween(LocalDateTime from, LocalDateTime to) {
+        return delete(toMillis(from), toMillis(to));
+    }
+
+    @Override
+    public long getVersion() {
+        synchronized (store) {
+            return version;
+        }
+    }
+
+    /** Always 0: no other process writes the store. */
+    @Override
+    public long currentChangeSeq() {
+        return 0;
+    }
+
+    /** Always empty: the changes made through this DAO are the only ones. */
+    @Override
+    public ChangeSet<HistoryEntry> changesSince(long seq, int limit) {
+        return new ChangeSet<>(new ArrayList<>(), seq, false, false);
+    }
+
+    /** @return the underlying store (for its size and garbage figures) */
+    public LogStore getStore() {
+        return store;
+    }
+
+    /** Flushes the log and releases its files. */
+    @Override
+    public void close() {
+        store.close();
+    }
+
+    // -------------------------------------------------------------------
+    // Index
+    // -------------------------------------------------------------------
+
+    private long delete(long from, long to) {
+        synchronized (store) {
+            int start = position(from, Integer.MIN_VALUE);
+            int end = position(to, Integer.MIN_VALUE);
+            if (start >= end) {
+                return 0;
+            }
+            try {
+                store.append(DELETE_RECORD, ByteBuffer.allocate(16).putLong(from).putLong(to).array());
+                store.sync();
+            } catch (IOException ex) {
+                throw new DataAccessException("Could not write to history store", ex);
+            }
+            discard(DELETE_RECORD_BYTES);
+            removeRange(start, end);
+            version++;
+            try {
+                store.compactIfNeeded(this::writeLive);
+            } catch (IOException ex) {
+                throw new DataAccessException("Could not compact history store", ex);
+            }
+            return end - start;
+        }
+    }
+
+    /** Removes the visits at positions [start, end) and recomputes the statistics of their URLs. */
+    private void removeRange(int start, int end) {
+        if (start >= end) {
+            return;
+        }
+        boolean[] rebuild = new boolean[urlTable.size()];
+        for (int i = start; i < end; i++) {
+            if (urls[i] != NO_URL) {
+                rebuild[urls[i]] = true;
+            }
+        }
+        int removed = end - start;
+        System.arraycopy(times, end, times, start, size - end);
+        System.arraycopy(ids, end, ids, start, size - end);
+        System.arraycopy(urls, end, urls, start, size - end);
+        size -= removed;
+        discard((long) removed * VISIT_RECORD_BYTES);
+
+        // Rebuild the affected URLs from their remaining visits, like HistoryDAO.rebuildStats
+        for (int url = 0; url < rebuild.length; url++) {
+            if (rebuild[url]) {
+                UrlStats old = urlTable.get(url);
+                urlTable.set(url, new UrlStats(old.url, old.recordBytes));
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            if (urls[i] != NO_URL && rebuild[urls[i]]) {
+                urlTable.get(urls[i]).add(times[i]);
+            }
+        }
+        for (int url = 0; url < rebuild.length; url++) {
+            UrlStats stats = urlTable.get(url);
+            if (rebuild[url] && stats.visits == 0) {
+                urlTable.set(url, null);
+                urlNumbers.remove(stats.url);
+                discard(stats.recordBytes);
+            }
+        }
+    }
+
+    /** Garbage found while replaying is handed to the store once it is open. */
+    private void discard(long bytes) {
+        if (store != null) {
+            store.discard(bytes);
+        } else {
+            replayGarbage += bytes;
+        }
+    }
+
+    private void addVisit(int id, long millis, int url) {
+        if (size == times.length) {
+            int capacity = size * 2;
+            times = Arrays.copyOf(times, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+            urls = Arrays.copyOf(urls, capacity);
+        }
+        // Visits almost always arrive in time order and are appended; older ones are inserted
+        int at = size > 0 && (times[size - 1] > millis || (times[size - 1] == millis && ids[size - 1] > id))
+                ? position(millis, id)
+                : size;
+        System.arraycopy(times, at, times, at + 1, size - at);
+        System.arraycopy(ids, at, ids, at + 1, size - at);
+        System.arraycopy(urls, at, urls, at + 1, size - at);
+        times[at] = millis;
+        ids[at] = id;
+        urls[at] = url;
+        size++;
+        nextId = Math.max(nextId, id + 1);
+        if (url != NO_URL) {
+            urlTable.get(url).add(millis);
+        }
+    }
+
+    /** @return number of visits ordered before {@code (millis, id)} */
+    private int position(long millis, int id) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (times[mid] < millis || (times[mid] == millis && ids[mid] < id)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /** @return the number of the URL, logging it first if it is new */
+    private int urlNumber(String url) throws IOException {
+        Integer number = urlNumbers.get(url);
+        if (number != null) {
+            return number;
+        }
+        int n = urlTable.size();
+        byte[] text = LogStore.utf8(url);
+        ByteBuffer payload = ByteBuffer.allocate(4 + LogStore.stringBytes(text)).putInt(n);
+        LogStore.putString(payload, text);
+        int recordBytes = store.append(URL_RECORD, payload.array());
+        urlTable.add(new UrlStats(url, recordBytes));
+        urlNumbers.put(url, n);
+        return n;
+    }
+
+    private HistoryEntry entryAt(int i) {
+        return new HistoryEntry(ids[i], urls[i] != NO_URL ? urlTable.get(urls[i]).url : null, toDateTime(times[i]));
+    }
+
+    private void replay(byte type, ByteBuffer payload) {
+        switch (type) {
+            case URL_RECORD:
+                int n = payload.getInt();
+                String url = LogStore.getString(payload);
+                while (urlTable.size() <= n) {
+                    urlTable.add(null);
+                }
+                urlTable.set(n, new UrlStats(url, LogStore.RECORD_HEADER_BYTES + payload.capacity()));
+                urlNumbers.put(url, n);
+                break;
+            case VISIT_RECORD:
+                addVisit(payload.getInt(), payload.getLong(), payload.getInt());
+                break;
+            case DELETE_RECORD:
+                long from = payload.getLong();
+                long to = payload.getLong();
+                discard(DELETE_RECORD_BYTES);
+                removeRange(position(from, Integer.MIN_VALUE), position(to, Integer.MIN_VALUE));
+                break;
+            default:
+                throw new IllegalStateException("Unknown history record type " + type);
+        }
+    }
+
+    /** Writes the URLs that still have visits, then the visits, renumbering the URLs densely. */
+    private Runnable writeLive(LogStore target) throws IOException {
+        int[] renumber = new int[urlTable.size()];
+        List<UrlStats> live = new ArrayList<>();
+        for (int i = 0; i < urlTable.size(); i++) {
+            UrlStats stats = urlTable.get(i);
+            if (stats != null && stats.visits > 0) {
+                byte[] text = LogStore.utf8(stats.url);
+                ByteBuffer payload = ByteBuffer.allocate(4 + LogStore.stringBytes(text)).putInt(live.size());
+                LogStore.putString(payload, text);
+                target.append(URL_RECORD, payload.array());
+                renumber[i] = live.size();
+                live.add(stats);
+            } else {
+                renumber[i] = NO_URL;
+            }
+        }
+        int[] renumbered = new int[urls.length];
+        for (int i = 0; i < size; i++) {
+            renumbered[i] = urls[i] != NO_URL ? renumber[urls[i]] : NO_URL;
+            target.append(VISIT_RECORD,
+                    ByteBuffer.allocate(16).putInt(ids[i]).putLong(times[i]).putInt(renumbered[i]).array());
+        }
+        // The index switches to the new URL numbers only once the new log is current
+        return () -> {
+            urls = renumbered;
+            urlTable.clear();
+            urlTable.addAll(live);
+            urlNumbers.clear();
+            for (int i = 0; i < live.size(); i++) {
+                urlNumbers.put(live.get(i).url, i);
+            }
+        };
+    }
+
+    /** Timestamps are kept as the epoch millisecond of the local date-time read as UTC. */
+    private static long toMillis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    /** Visits always have a time here; a cursor without one sorts below all of them, like NULL in MySQL. */
+    private static long cursorMillis(HistoryCursor cursor) {
+        return cursor.getVisitedAt() != null ? toMillis(cursor.getVisitedAt()) : Long.MIN_VALUE;
+    }
+
+    private static LocalDateTime toDateTime(long millis) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000),
+                Math.floorMod(millis, 1000) * 1_000_000, ZoneOffset.UTC);
+    }
+
+    /** Same value as HistoryDAO's exponent for a visit at the given time. */
+    private static double frecencyExponent(long millis) {
+        return (double) (Math.floorDiv(millis, 1000) - HistoryDAO.FRECENCY_EPOCH_SECONDS)
+                / HistoryDAO.FRECENCY_HALF_LIFE_SECONDS;
+    }
+}
@@ -0,0 +1,523 @@
+package project.dao;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * LogStore is an embedded, append-only record log: the storage engine behind
+ * {@link LogHistoryDAO} and {@link LogBookmarkDAO}.
+ *
+ * <p>Records are length-prefixed and checksummed
+ * ({@code [int length][int crc32][byte type][payload]}) and appended to
+ * fixed-size, memory-mapped segment files, so an append is a memory copy;
+ * {@link #sync()} forces the written pages to disk. The DAOs keep their data
+ * in a compact in-memory index that is rebuilt by replaying the log when the
+ * store is opened, so reads never touch the files.
+ *
+ * <p>Records that no longer matter (deleted rows, tombstones) are reported
+ * with {@link #discard(long)}. When more than half of the log is garbage,
+ * compaction rewrites the live records into a new generation of segments and
+ * switches to it atomically (the {@code CURRENT} file names the generation);
+ * the old segments are then deleted. A crash leaves either generation intact,
+ * and a torn record at the end of the log is detected by its checksum and
+ * dropped on the next open.
+ *
+ * <p>All methods are thread-safe. The DAOs synchronize on the store, so a
+ * compaction sees their index in a consistent state.
+ */
+public final class LogStore implements AutoCloseable {
+
+    private static final Logger LOG = Logger.getLogger(LogStore.class.getName());
+
+    /** Receives the records of the log in append order when a store is opened. */
+    @FunctionalInterface
+    public interface Replay {
+        /**
+         * @param type    record type (1-127)
+         * @param payload record payload, positioned at its start; a view of the
+         *                mapped file that is only valid during the call
+         */
+        void record(byte type, ByteBuffer payload);
+    }
+
+    /** Writes the live records of the DAO during compaction. */
+    @FunctionalInterface
+    public interface Compactor {
+        /**
+         * Appends the live records to {@code target}. Nothing the DAO reads
+         * may change yet, since the compaction can still fail.
+         *
+         * @return switches the DAO to the rewritten records; run only once
+         *         the new generation is current
+         */
+        Runnable writeLive(LogStore target) throws IOException;
+    }
+
+    /** length, crc32, type */
+    static final int RECORD_HEADER_BYTES = 9;
+
+    private static final String CURRENT_FILE = "CURRENT";
+    private static final String LOCK_FILE = "lock";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    /** Compaction runs when garbage exceeds this share of the log and {@link #MIN_GARBAGE_BYTES}. */
+    private static final double COMPACTION_GARBAGE_RATIO = 0.5;
+    private static final long MIN_GARBAGE_BYTES = 1024 * 1024;
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+
+    private int generation;
+    private int segmentNumber;
+    private FileChannel channel;
+    private MappedByteBuffer active;
+    private final List<Path> segments = new ArrayList<>();
+
+    private long bytes;         // bytes of all records in the current generation
+    private long garbageBytes;  // of which no longer live
+    private boolean dirty;
+    private boolean closed;
+    private ScheduledExecutorService compactionTimer;
+
+    private LogStore(Path directory, int segmentBytes, FileChannel lockChannel, FileLock lock) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.lockChannel = lockChannel;
+        this.lock = lock;
+    }
+
+    /** @return the configured storage directory ({@code -Dquantum.storage.dir}) */
+    public static Path defaultDirectory() {
+        String configured = System.getProperty("quantum.storage.dir");
+        return configured != null
+                ? Paths.get(configured)
+                : Paths.get(System.getProperty("user.home"), ".quantum-browser", "store");
+    }
+
+    /**
+     * Opens (or creates) a log and replays its records.
+     *
+     * @param directory    directory holding the segments
+     * @param segmentBytes size of one segment file (the largest possible record)
+     * @param replay       receives every record, oldest first
+     * @return the open store, positioned for appends
+     * @throws IOException if the directory cannot be used or another process holds it
+     */
+    public static LogStore open(Path directory, int segmentBytes, Replay replay) throws IOException {
+        Files.createDirectories(directory);
+        FileChannel lockChannel = FileChannel.open(directory.resolve(LOCK_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException ex) {
+            lock = null; // already open in this JVM
+        } catch (IOException ex) {
+            lockChannel.close();
+            throw ex;
+        }
+        if (lock == null) {
+            lockChannel.close();
+            throw new IOException("Log store " + directory + " is in use by another process");
+        }
+        LogStore store = new LogStore(directory, segmentBytes, lockChannel, lock);
+        try {
+            store.load(replay);
+        } catch (IOException | RuntimeException ex) {
+            store.close();
+            throw ex;
+        }
+        return store;
+    }
+
+    /**
+     * Appends a record. It is readable by the next replay once this returns,
+     * and survives a crash of the process; call {@link #sync()} to survive a
+     * crash of the machine.
+     *
+     * @return bytes the record occupies in the log
+     */
+    public synchronized int append(byte type, byte[] payload) throws IOException {
+        if (type <= 0) {
+            throw new IllegalArgumentException("Record types start at 1");
+        }
+        int size = RECORD_HEADER_BYTES + payload.length;
+        if (size > segmentBytes) {
+            throw new IllegalArgumentException("Record of " + size + " bytes exceeds the segment size");
+        }
+        ensureOpen();
+        if (active.remaining() < size) {
+            roll();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(payload);
+        active.putInt(payload.length);
+        active.putInt((int) crc.getValue());
+        active.put(type);
+        active.put(payload);
+        bytes += size;
+        dirty = true;
+        return size;
+    }
+
+    /** Forces appended records to disk. */
+    public synchronized void sync() {
+        if (dirty && !closed) {
+            active.force();
+            dirty = false;
+        }
+    }
+
+    /** Records that {@code size} bytes of the log are no longer live. */
+    public synchronized void discard(long size) {
+        garbageBytes += size;
+    }
+
+    /**
+     * Rewrites the live records into a new generation if enough of the log
+     * is garbage.
+     *
+     * @return true if the log was compacted
+     */
+    public synchronized boolean compactIfNeeded(Compactor compactor) throws IOException {
+        if (garbageBytes < MIN_GARBAGE_BYTES || garbageBytes < bytes * COMPACTION_GARBAGE_RATIO) {
+            return false;
+        }
+        compact(compactor);
+        return true;
+    }
+
+    /**
+     * Rewrites the log: {@code compactor} appends the live records to a new
+     * generation, which replaces the current one once it is on disk. If that
+     * fails, the partial generation is deleted and appends continue in the
+     * current one.
+     */
+    public synchronized void compact(Compactor compactor) throws IOException {
+        ensureOpen();
+        long before = bytes;
+        active.force();
+        dirty = false;
+
+        // The current generation stays open until CURRENT names the new one
+        int oldGeneration = generation;
+        int oldSegmentNumber = segmentNumber;
+        FileChannel oldChannel = channel;
+        MappedByteBuffer oldActive = active;
+        long oldGarbageBytes = garbageBytes;
+        List<Path> old = new ArrayList<>(segments);
+
+        segments.clear();
+        generation++;
+        segmentNumber = 0;
+        bytes = 0;
+        garbageBytes = 0;
+        channel = null;
+        Runnable switchOver;
+        try {
+            openSegment(segmentPath(generation, 0));
+            switchOver = compactor.writeLive(this);
+            active.force();
+            writeCurrent();
+        } catch (IOException | RuntimeException ex) {
+            abandonGeneration();
+            generation = oldGeneration;
+            segmentNumber = oldSegmentNumber;
+            channel = oldChannel;
+            active = oldActive;
+            bytes = before;
+            garbageBytes = oldGarbageBytes;
+            segments.clear();
+            segments.addAll(old);
+            throw ex;
+        }
+        dirty = false;
+        switchOver.run();
+        oldChannel.close();
+        for (Path p : old) {
+            try {
+                Files.deleteIfExists(p);
+            } catch (IOException ex) {
+                // Still mapped on some platforms; open() removes old generations
+                LOG.fine("Could not delete " + p + " yet: " + ex);
+            }
+        }
+        LOG.fine("Compacted " + directory + ": " + before + " -> " + bytes + " bytes");
+    }
+
+    /** Drops every record. */
+    public synchronized void clear() throws IOException {
+        compact(target -> () -> { });
+    }
+
+    /**
+     * Checks for compaction in the background every {@code intervalMillis}.
+     */
+    public synchronized void startCompaction(Compactor compactor, long intervalMillis) {
+        if (compactionTimer != null) {
+            return;
+        }
+        compactionTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "log-compaction");
+            t.setDaemon(true);
+            return t;
+        });
+        compactionTimer.scheduleWithFixedDelay(() -> {
+            try {
+                compactIfNeeded(compactor);
+            } catch (IOException | RuntimeException ex) {
+                LOG.log(Level.WARNING, "Compaction of " + directory + " failed", ex);
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /** @return bytes of records in the log, live or not */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /** @return bytes of records that compaction would drop */
+    public synchronized long getGarbageBytes() {
+        return garbageBytes;
+    }
+
+    /** Forces pending records to disk and releases the files. */
+    @Override
+    public void close() {
+        ScheduledExecutorService timer;
+        synchronized (this) {
+            timer = compactionTimer;
+            compactionTimer = null;
+        }
+        if (timer != null) {
+            timer.shutdownNow();
+        }
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                if (active != null && dirty) {
+                    active.force();
+                }
+                if (channel != null) {
+                    channel.close();
+                }
+                lock.release();
+                lockChannel.close();
+            } catch (IOException ex) {
+                LOG.log(Level.WARNING, "Could not close log store " + directory, ex);
+            }
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "LogStore{" + directory + ", generation=" + generation + ", segments=" + segments.size()
+                + ", bytes=" + bytes + ", garbage=" + garbageBytes + '}';
+    }
+
+    // -------------------------------------------------------------------
+    // Payload helpers for the DAOs
+    // -------------------------------------------------------------------
+
+    /** @return UTF-8 bytes of a string, or null for null */
+    static byte[] utf8(String s) {
+        return s != null ? s.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    /** @return bytes {@link #putString} writes for the given UTF-8 bytes */
+    static int stringBytes(byte[] utf8) {
+        return 4 + (utf8 != null ? utf8.length : 0);
+    }
+
+    /** Writes a length-prefixed string (length -1 for null). */
+    static void putString(ByteBuffer buf, byte[] utf8) {
+        if (utf8 == null) {
+            buf.putInt(-1);
+        } else {
+            buf.putInt(utf8.length);
+            buf.put(utf8);
+        }
+    }
+
+    /** Reads a string written by {@link #putString}. */
+    static String getString(ByteBuffer buf) {
+        int length = buf.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] utf8 = new byte[length];
+        buf.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    // -------------------------------------------------------------------
+    // Segments
+    // -------------------------------------------------------------------
+
+    private void load(Replay replay) throws IOException {
+        Path current = directory.resolve(CURRENT_FILE);
+        generation = Files.exists(current)
+                ? Integer.parseInt(Files.readString(current, StandardCharsets.US_ASCII).trim())
+                : 1;
+
+        // Segments of other generations are left over from an interrupted compaction
+        List<Path> found = new ArrayList<>();
+        String prefix = String.format("%08d-", generation);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path p : files) {
+                if (p.getFileName().toString().startsWith(prefix)) {
+                    found.add(p);
+                } else {
+                    Files.deleteIfExists(p);
+                }
+            }
+        }
+        found.sort(null);
+
+        if (found.isEmpty()) {
+            writeCurrent();
+            openSegment(segmentPath(generation, 0));
+            return;
+        }
+        for (int i = 0; i < found.size(); i++) {
+            boolean last = i == found.size() - 1;
+            Path p = found.get(i);
+            segments.add(p);
+            segmentNumber = Integer.parseInt(p.getFileName().toString().substring(9, 15));
+            if (last) {
+                openSegment(p);
+                replaySegment(active, replay, true);
+            } else {
+                try (FileChannel ch = FileChannel.open(p, StandardOpenOption.READ)) {
+                    replaySegment(ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()), replay, false);
+                }
+            }
+        }
+    }
+
+    /**
+     * Replays the records of one segment. In the last segment the buffer is
+     * left positioned after the last valid record, with anything behind it
+     * (a torn write) zeroed.
+     */
+    private void replaySegment(ByteBuffer buf, Replay replay, boolean last) {
+        CRC32 crc = new CRC32();
+        while (buf.remaining() >= RECORD_HEADER_BYTES) {
+            int start = buf.position();
+            int length = buf.getInt();
+            int checksum = buf.getInt();
+            byte type = buf.get();
+            if (length == 0 && checksum == 0 && type == 0) {
+                buf.position(start);
+                return; // end of the written part
+            }
+            if (type <= 0 || length < 0 || length > buf.remaining()) {
+                truncate(buf, start, last);
+                return;
+            }
+            // The payload is handed out as a view of the mapped segment, without copying
+            ByteBuffer payload = buf.slice(buf.position(), length);
+            crc.reset();
+            crc.update(type);
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) {
+                truncate(buf, start, last);
+                return;
+            }
+            buf.position(buf.position() + length);
+            bytes += RECORD_HEADER_BYTES + length;
+            replay.record(type, payload.flip());
+        }
+    }
+
+    private void truncate(ByteBuffer buf, int start, boolean last) {
+        LOG.warning("Dropping damaged log tail of " + directory + " at offset " + start);
+        if (last) {
+            buf.position(start);
+            while (buf.hasRemaining()) {
+                buf.put((byte) 0);
+            }
+            buf.position(start);
+        }
+    }
+
+    /** Closes and deletes the segments of a compaction that failed. */
+    private void abandonGeneration() {
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException ex) {
+            LOG.fine("Could not close " + segments + ": " + ex);
+        }
+        for (Path p : segments) {
+            try {
+                Files.deleteIfExists(p);
+            } catch (IOException ex) {
+                // open() removes segments of other generations
+                LOG.fine("Could not delete " + p + " yet: " + ex);
+            }
+        }
+    }
+
+    private void roll() throws IOException {
+        active.force();
+        channel.close();
+        segmentNumber++;
+        openSegment(segmentPath(generation, segmentNumber));
+    }
+
+    private void openSegment(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        active = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        if (!segments.contains(path)) {
+            segments.add(path);
+        }
+    }
+
+    private Path segmentPath(int gen, int number) {
+        return directory.resolve(String.format("%08d-%06d%s", gen, number, SEGMENT_SUFFIX));
+    }
+
+    private void writeCurrent() throws IOException {
+        Path tmp = directory.resolve(CURRENT_FILE + ".tmp");
+        Files.writeString(tmp, Integer.toString(generation), StandardCharsets.US_ASCII);
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            ch.force(true);
+        }
+        Files.move(tmp, directory.resolve(CURRENT_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Log store " + directory + " is closed");
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package project.dao;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A single, versioned schema change.
+ *
+ * <p>Migrations are applied in ascending version order and recorded in the
+ * {@code schema_version} table, so each one runs exactly once per database.
+ * Released migrations must never be edited; add a new version instead.
+ *
+ * <p>An optional migration ({@link #enabledBy}) is skipped while its system
+ * property is not true, and applied at the first startup with the property
+ * set, possibly after later versions. It must not depend on those.
+ */
+public final class Migration {
+
+    private final int version;
+    private final String description;
+    private final List<String> statements;
+    private final String enablingProperty; // null: always applied
+
+    /**
+     * @param version     unique, increasing version number
+     * @param description short human-readable summary (stored in schema_version)
+     * @param statements  DDL/DML statements executed in order
+     */
+    public Migration(int version, String description, String... statements) {
+        this(version, description, Collections.unmodifiableList(Arrays.asList(statements)), null);
+    }
+
+    private Migration(int version, String description, List<String> statements, String enablingProperty) {
+        this.version = version;
+        this.description = description;
+        this.statements = statements;
+        this.enablingProperty = enablingProperty;
+    }
+
+    /**
+     * @param property system property that must be true for the migration to run
+     * @return the same migration, made optional
+     */
+    public Migration enabledBy(String property) {
+        return new Migration(version, description, statements, property);
+    }
+
+    /** @return true unless the migration is optional and its property is not set */
+    public boolean isEnabled() {
+        return enablingProperty == null || Boolean.getBoolean(enablingProperty);
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public List<String> getStatements() {
+        return statements;
+    }
+
+    @Override
+    public String toString() {
+        return "V" + version + " " + description;
+    }
+}
@@ -0,0 +1,39 @@
+package project.dao;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated query.
+ *
+ * <p>The {@code nextCursor} is an opaque token that points just past the last
+ * item of this page; pass it back to the DAO to fetch the following page.
+ * It is {@code null} when there are no more rows.
+ *
+ * @param <T> item type
+ */
+public final class Page<T> {
+
+    private final List<T> items;
+    private final String nextCursor;
+
+    public Page(List<T> items, String nextCursor) {
+        this.items = Collections.unmodifiableList(items);
+        this.nextCursor = nextCursor;
+    }
+
+    /** @return items of this page in query order (never null) */
+    public List<T> getItems() {
+        return items;
+    }
+
+    /** @return token for the next page, or null if this is the last page */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /** @return true if another page follows this one */
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
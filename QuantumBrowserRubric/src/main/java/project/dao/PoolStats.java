@@ -0,0 +1,123 @@
+package project.dao;
+
+/**
+ * Immutable snapshot of {@link ConnectionPool} counters.
+ * Suitable for display in the UI, logs or a metrics endpoint.
+ */
+public final class PoolStats {
+
+    private final int maxSize;
+    private final int openConnections;
+    private final int activeConnections;
+    private final int idleConnections;
+    private final int waitingThreads;
+    private final long borrowCount;
+    private final long borrowTimeouts;
+    private final long createdCount;
+    private final long validationFailures;
+    private final long evictedCount;
+    private final long averageWaitMicros;
+    private final long statementCacheHits;
+    private final long statementCacheMisses;
+
+    PoolStats(int maxSize, int openConnections, int activeConnections, int idleConnections,
+              int waitingThreads, long borrowCount, long borrowTimeouts, long createdCount,
+              long validationFailures, long evictedCount, long averageWaitMicros,
+              long statementCacheHits, long statementCacheMisses) {
+        this.maxSize = maxSize;
+        this.openConnections = openConnections;
+        this.activeConnections = activeConnections;
+        this.idleConnections = idleConnections;
+        this.waitingThreads = waitingThreads;
+        this.borrowCount = borrowCount;
+        this.borrowTimeouts = borrowTimeouts;
+        this.createdCount = createdCount;
+        this.validationFailures = validationFailures;
+        this.evictedCount = evictedCount;
+        this.averageWaitMicros = averageWaitMicros;
+        this.statementCacheHits = statementCacheHits;
+        this.statementCacheMisses = statementCacheMisses;
+    }
+
+    /** @return configured upper bound on physical connections */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /** @return physical connections currently open (idle + active) */
+    public int getOpenConnections() {
+        return openConnections;
+    }
+
+    /** @return connections currently borrowed by callers */
+    public int getActiveConnections() {
+        return activeConnections;
+    }
+
+    /** @return open connections waiting in the pool */
+    public int getIdleConnections() {
+        return idleConnections;
+    }
+
+    /** @return threads currently blocked waiting for a connection */
+    public int getWaitingThreads() {
+        return waitingThreads;
+    }
+
+    /** @return total successful borrows */
+    public long getBorrowCount() {
+        return borrowCount;
+    }
+
+    /** @return borrows that gave up after the borrow timeout */
+    public long getBorrowTimeouts() {
+        return borrowTimeouts;
+    }
+
+    /** @return physical connections opened since start */
+    public long getCreatedCount() {
+        return createdCount;
+    }
+
+    /** @return idle connections discarded because validation failed */
+    public long getValidationFailures() {
+        return validationFailures;
+    }
+
+    /** @return idle connections closed by the idle evictor */
+    public long getEvictedCount() {
+        return evictedCount;
+    }
+
+    /** @return average time a borrow waited for a permit, in microseconds */
+    public long getAverageWaitMicros() {
+        return averageWaitMicros;
+    }
+
+    /** @return PreparedStatements served from the per-connection cache */
+    public long getStatementCacheHits() {
+        return statementCacheHits;
+    }
+
+    /** @return PreparedStatements that had to be prepared on the server */
+    public long getStatementCacheMisses() {
+        return statementCacheMisses;
+    }
+
+    @Override
+    public String toString() {
+        return "PoolStats{open=" + openConnections + "/" + maxSize
+                + ", active=" + activeConnections
+                + ", idle=" + idleConnections
+                + ", waiting=" + waitingThreads
+                + ", borrows=" + borrowCount
+                + ", timeouts=" + borrowTimeouts
+                + ", created=" + createdCount
+                + ", invalid=" + validationFailures
+                + ", evicted=" + evictedCount
+                + ", avgWaitUs=" + averageWaitMicros
+                + ", stmtCacheHits=" + statementCacheHits
+                + ", stmtCacheMisses=" + statementCacheMisses
+                + "}";
+    }
+}
@@ -0,0 +1,253 @@
+package project.dao;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+import project.metrics.LatencyHistogram;
+
+/**
+ * Statement-level statistics of the DAO layer, keyed by SQL template.
+ *
+ * <p>Every statement prepared through {@link BaseDAO#getConnection()} is
+ * timed (execution plus reading its rows) and counted with the rows it read
+ * or wrote. Statements slower than the threshold
+ * ({@code -Dquantum.db.slowQueryMs}, default 200) are logged to the
+ * {@code project.dao.slowquery} logger with the calling DAO method and the
+ * number of bound parameters, and the most recent ones are kept for display.
+ *
+ * <p>Read the numbers with {@link #getStatements()} and
+ * {@link #getRecentSlowQueries()}; the shared instance is returned by
+ * {@link DBUtil#getQueryStats()}. Recording is lock-free except for slow
+ * statements.
+ */
+public final class QueryStats {
+
+    private static final Logger SLOW_LOG = Logger.getLogger("project.dao.slowquery");
+
+    private static final long HIGHEST_TRACKABLE_MICROS = 600_000_000L;
+    private static final int RECENT_SLOW_QUERIES = 50;
+
+    private static final QueryStats INSTANCE =
+            new QueryStats(Long.getLong("quantum.db.slowQueryMs", 200L));
+
+    /** Counters of one SQL template. */
+    public static final class StatementStats {
+        private final String sql;
+        private final LongAdder executions = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rowsRead = new LongAdder();
+        private final LongAdder rowsWritten = new LongAdder();
+        private final LongAdder slow = new LongAdder();
+        private final LatencyHistogram micros = new LatencyHistogram(HIGHEST_TRACKABLE_MICROS);
+
+        StatementStats(String sql) {
+            this.sql = sql;
+        }
+
+        /** @return the SQL template (with ? placeholders) */
+        public String getSql() {
+            return sql;
+        }
+
+        public long getExecutions() {
+            return executions.sum();
+        }
+
+        /** @return executions that threw an SQLException */
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        public long getRowsRead() {
+            return rowsRead.sum();
+        }
+
+        /** @return update counts summed over all executions (and batch entries) */
+        public long getRowsWritten() {
+            return rowsWritten.sum();
+        }
+
+        /** @return executions over the slow-query threshold */
+        public long getSlowExecutions() {
+            return slow.sum();
+        }
+
+        /** @return execution times in microseconds */
+        public LatencyHistogram getMicros() {
+            return micros;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d x %.0f us avg (p99 %d us), %d read, %d written, %d slow, %d errors: %s",
+                    getExecutions(), micros.getMean(), micros.getValueAtQuantile(0.99),
+                    getRowsRead(), getRowsWritten(), getSlowExecutions(), getErrors(), sql);
+        }
+    }
+
+    /** One statement that exceeded the slow-query threshold. */
+    public static final class SlowQuery {
+        private final long timestampMillis;
+        private final String operation;
+        private final String sql;
+        private final long millis;
+        private final int parameterCount;
+        private final long rows;
+
+        SlowQuery(long timestampMillis, String operation, String sql, long millis, int parameterCount, long rows) {
+            this.timestampMillis = timestampMillis;
+            this.operation = operation;
+            this.sql = sql;
+            this.millis = millis;
+            this.parameterCount = parameterCount;
+            this.rows = rows;
+        }
+
+        public long getTimestampMillis() {
+            return timestampMillis;
+        }
+
+        /** @return calling DAO method, e.g. "HistoryDAO.findPage" */
+        public String getOperation() {
+            return operation;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+
+        /** @return number of bound parameters (per batch entry for batches) */
+        public int getParameterCount() {
+            return parameterCount;
+        }
+
+        /** @return rows read or written */
+        public long getRows() {
+            return rows;
+        }
+
+        @Override
+        public String toString() {
+            return "Slow query " + millis + " ms in " + operation + " (" + parameterCount
+                    + " params, " + rows + " rows): " + sql;
+        }
+    }
+
+    private final long slowThresholdNanos;
+    private final ConcurrentMap<String, StatementStats> statements = new ConcurrentHashMap<>();
+    private final Deque<SlowQuery> recentSlow = new ArrayDeque<>();
+
+    /**
+     * @param slowThresholdMillis statements taking longer than this are logged
+     */
+    public QueryStats(long slowThresholdMillis) {
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis);
+    }
+
+    /** @return the instance shared by all DAOs */
+    static QueryStats getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Records one execution.
+     *
+     * @param sql            SQL template
+     * @param nanos          execution time, including reading the result rows
+     * @param rowsRead       rows returned by a query
+     * @param rowsWritten    update count of a write
+     * @param parameterCount bound parameters
+     * @param failed         true if the statement threw
+     */
+    void record(String sql, long nanos, long rowsRead, long rowsWritten, int parameterCount, boolean failed) {
+        StatementStats s = statements.get(sql);
+        if (s == null) {
+            s = statements.computeIfAbsent(sql, StatementStats::new);
+        }
+        s.executions.increment();
+        s.micros.record(nanos / 1_000);
+        if (rowsRead > 0) {
+            s.rowsRead.add(rowsRead);
+        }
+        if (rowsWritten > 0) {
+            s.rowsWritten.add(rowsWritten);
+        }
+        if (failed) {
+            s.errors.increment();
+        }
+        if (nanos > slowThresholdNanos) {
+            s.slow.increment();
+            SlowQuery slow = new SlowQuery(System.currentTimeMillis(), callingOperation(), sql,
+                    TimeUnit.NANOSECONDS.toMillis(nanos), parameterCount, rowsRead + rowsWritten);
+            SLOW_LOG.warning(slow.toString());
+            synchronized (recentSlow) {
+                if (recentSlow.size() == RECENT_SLOW_QUERIES) {
+                    recentSlow.removeFirst();
+                }
+                recentSlow.addLast(slow);
+            }
+        }
+    }
+
+    /** @return per-template statistics, highest total time first */
+    public List<StatementStats> getStatements() {
+        List<StatementStats> list = new ArrayList<>(statements.values());
+        list.sort(Comparator.comparingLong((StatementStats s) -> s.micros.getSum()).reversed());
+        return list;
+    }
+
+    /** @return the latest slow statements, oldest first */
+    public List<SlowQuery> getRecentSlowQueries() {
+        synchronized (recentSlow) {
+            return new ArrayList<>(recentSlow);
+        }
+    }
+
+    /** @return slow-query threshold in milliseconds */
+    public long getSlowThresholdMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(slowThresholdNanos);
+    }
+
+    /** Forgets all statistics. */
+    public void reset() {
+        statements.clear();
+        synchronized (recentSlow) {
+            recentSlow.clear();
+        }
+    }
+
+    /**
+     * Finds the DAO method that ran the statement: the first frame in a
+     * BaseDAO subclass, or else (for streamed results closed by the caller)
+     * the first application frame outside the DAO package. Only called for
+     * slow statements, so the stack walk is cheap overall.
+     */
+    private static String callingOperation() {
+        return StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE).walk(frames -> {
+            StackWalker.StackFrame caller = null;
+            for (StackWalker.StackFrame f : (Iterable<StackWalker.StackFrame>) frames::iterator) {
+                Class<?> type = f.getDeclaringClass();
+                if (BaseDAO.class.isAssignableFrom(type) && type != BaseDAO.class) {
+                    return type.getSimpleName() + "." + f.getMethodName();
+                }
+                if (caller == null && type.getName().startsWith("project.")
+                        && !type.getPackageName().equals(QueryStats.class.getPackageName())) {
+                    caller = f;
+                }
+            }
+            return caller == null ? "unknown"
+                    : caller.getDeclaringClass().getSimpleName() + "." + caller.getMethodName();
+        });
+    }
+}
@@ -0,0 +1,21 @@
+package project.dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps the current row of a {@link ResultSet} to an entity.
+ * Implementations must not move the cursor.
+ *
+ * @param <T> entity type produced per row
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+
+    /**
+     * @param rs result set positioned on the row to map
+     * @return entity for that row
+     * @throws SQLException if a column cannot be read
+     */
+    T map(ResultSet rs) throws SQLException;
+}
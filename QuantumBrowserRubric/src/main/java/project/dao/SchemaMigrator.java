@@ -0,0 +1,257 @@
+package project.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Logger;
+import project.exception.DataAccessException;
+
+/**
+ * SchemaMigrator brings the database schema up to date at startup.
+ *
+ * <p>The list of {@link Migration}s below is the single source of truth for
+ * the schema, including the optional parts switched on by configuration
+ * (see {@link Migration#enabledBy}). Applied versions are tracked in {@code schema_version}; a MySQL
+ * named lock keeps the desktop app and the web tier from migrating the same
+ * database at the same time.
+ */
+public final class SchemaMigrator {
+
+    private static final Logger LOG = Logger.getLogger(SchemaMigrator.class.getName());
+
+    private static final String LOCK_NAME = "quantum_browser_schema";
+    private static final int LOCK_TIMEOUT_SECONDS = 30;
+
+    private static final String CREATE_VERSION_TABLE_SQL =
+            "CREATE TABLE IF NOT EXISTS schema_version (" +
+            "version INT PRIMARY KEY," +
+            "description VARCHAR(255) NOT NULL," +
+            "applied_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP" +
+            ")";
+
+    private static final String SELECT_VERSIONS_SQL =
+            "SELECT version FROM schema_version";
+
+    private static final String INSERT_VERSION_SQL =
+            "INSERT INTO schema_version(version, description) VALUES(?, ?)";
+
+    /**
+     * SQL form of {@link BookmarkDAO#normalizeUrl}: drop the fragment, lower-case
+     * everything before the third '/', strip trailing slashes.
+     */
+    private static final String BOOKMARK_URL_KEY_SQL =
+            "TRIM(TRAILING '/' FROM CONCAT(" +
+            "LOWER(SUBSTRING_INDEX(SUBSTRING_INDEX(url, '#', 1), '/', 3)), " +
+            "SUBSTRING(SUBSTRING_INDEX(url, '#', 1), " +
+            "CHAR_LENGTH(SUBSTRING_INDEX(SUBSTRING_INDEX(url, '#', 1), '/', 3)) + 1)))";
+
+    /**
+     * All schema changes, in order. Append only.
+     */
+    private static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "Create bookmarks and history tables",
+                    "CREATE TABLE IF NOT EXISTS bookmarks (" +
+                    "id INT PRIMARY KEY AUTO_INCREMENT," +
+                    "title VARCHAR(255)," +
+                    "url TEXT" +
+                    ")",
+                    "CREATE TABLE IF NOT EXISTS history (" +
+                    "id INT PRIMARY KEY AUTO_INCREMENT," +
+                    "url TEXT," +
+                    "visited_at TIMESTAMP" +
+                    ")"),
+
+            // Serves ORDER BY visited_at DESC, id DESC and keyset seeks without a filesort
+            new Migration(2, "Index history by (visited_at, id)",
+                    "CREATE INDEX idx_history_visited_at_id ON history (visited_at, id)"),
+
+            // TEXT columns cannot be indexed in full; index a 16-byte MD5 of the URL instead.
+            // Lookups use: WHERE url_hash = UNHEX(MD5(?)) AND url = ?
+            new Migration(3, "Add hashed URL indexes",
+                    "ALTER TABLE history " +
+                    "ADD COLUMN url_hash BINARY(16) AS (UNHEX(MD5(url))) STORED, " +
+                    "ADD INDEX idx_history_url_hash (url_hash)",
+                    "ALTER TABLE bookmarks " +
+                    "ADD COLUMN url_hash BINARY(16) AS (UNHEX(MD5(url))) STORED, " +
+                    "ADD INDEX idx_bookmarks_url_hash (url_hash)"),
+
+            // One row per URL, maintained incrementally by HistoryDAO on insert.
+            // frecency is log2 of the decayed visit score, computed like HistoryDAO does
+            // (visit times read as UTC, see HistoryDAO.FRECENCY_EXPONENT_SQL).
+            new Migration(4, "Add per-URL visit statistics for frecency",
+                    "CREATE TABLE IF NOT EXISTS history_stats (" +
+                    "url_hash BINARY(16) PRIMARY KEY," +
+                    "url TEXT NOT NULL," +
+                    "visit_count INT NOT NULL," +
+                    "last_visit TIMESTAMP NULL," +
+                    "frecency DOUBLE NOT NULL," +
+                    "INDEX idx_history_stats_frecency (frecency)" +
+                    ")",
+                    "INSERT INTO history_stats(url_hash, url, visit_count, last_visit, frecency) " +
+                    "SELECT url_hash, MIN(url), COUNT(*), MAX(visited_at), " +
+                    "LOG2(SUM(POW(2, " + HistoryDAO.FRECENCY_EXPONENT_SQL + "))) " +
+                    "FROM history WHERE url IS NOT NULL AND visited_at IS NOT NULL GROUP BY url_hash"),
+
+            // Word indexes for search(query, limit). InnoDB splits on every non-alphanumeric
+            // character, so host labels and path segments of a URL become separate tokens.
+            // History is searched through history_stats (one row per URL) to keep the
+            // index small and the visit log itself free of FULLTEXT constraints.
+            new Migration(5, "Add full-text indexes for history and bookmark search",
+                    "ALTER TABLE bookmarks ADD FULLTEXT INDEX ft_bookmarks_title_url (title, url)",
+                    "ALTER TABLE history_stats ADD FULLTEXT INDEX ft_history_stats_url (url)"),
+
+            // Change counter per table, bumped by the DAOs in the same transaction as
+            // every write; HTTP ETags are derived from it with a primary-key lookup.
+            new Migration(6, "Add per-table change versions",
+                    "CREATE TABLE IF NOT EXISTS table_versions (" +
+                    "table_name VARCHAR(64) PRIMARY KEY," +
+                    "version BIGINT NOT NULL" +
+                    ")",
+                    "INSERT IGNORE INTO table_versions(table_name, version) " +
+                    "VALUES ('bookmarks', 0), ('history', 0)"),
+
+            // One bookmark per normalized URL: BookmarkDAO.save upserts on this index.
+            // Existing duplicates are merged into the newest bookmark first.
+            new Migration(7, "Make bookmarks unique per normalized URL",
+                    "ALTER TABLE bookmarks " +
+                    "ADD COLUMN url_key BINARY(16) AS (UNHEX(MD5(" + BOOKMARK_URL_KEY_SQL + "))) STORED",
+                    "DELETE b FROM bookmarks b JOIN bookmarks n ON n.url_key = b.url_key AND n.id > b.id",
+                    "ALTER TABLE bookmarks ADD UNIQUE INDEX uq_bookmarks_url_key (url_key)",
+                    "UPDATE table_versions SET version = version + 1 WHERE table_name = 'bookmarks'"),
+
+            // Change feed for polling clients: one row per write, naming the id range of the
+            // rows inserted or updated ('U'), the deleted time range ('D') or a bulk write ('R'),
+            // added after the version bump in the same transaction. The 'change_log' version
+            // holds the highest pruned seq.
+            new Migration(8, "Add change feed",
+                    "CREATE TABLE IF NOT EXISTS change_log (" +
+                    "seq BIGINT PRIMARY KEY AUTO_INCREMENT," +
+                    "table_name VARCHAR(64) NOT NULL," +
+                    "op CHAR(1) NOT NULL," +
+                    "first_id INT NULL," +
+                    "last_id INT NULL," +
+                    "range_from TIMESTAMP NULL," +
+                    "range_to TIMESTAMP NULL," +
+                    "origin BIGINT NOT NULL," +
+                    "INDEX idx_change_log_table_seq (table_name, seq)" +
+                    ")",
+                    "INSERT IGNORE INTO table_versions(table_name, version) VALUES ('change_log', 0)"),
+
+            // Opt-in: one RANGE partition per month, so that HistoryRetention drops expired months
+            // whole. The partitioning column must be part of the primary key, hence NOT NULL:
+            // visits without a time are deleted and the statistics of their URLs rebuilt (the DAOs
+            // never store such visits). Re-keying and partitioning is one ALTER, so it either
+            // happens entirely or not at all. The table starts with the catch-all partition only;
+            // HistoryRetention splits the months off it.
+            new Migration(9, "Partition history by month",
+                    "DROP TEMPORARY TABLE IF EXISTS untimed_urls",
+                    "CREATE TEMPORARY TABLE untimed_urls AS " +
+                    "SELECT DISTINCT url_hash FROM history WHERE visited_at IS NULL AND url_hash IS NOT NULL",
+                    "DELETE FROM history WHERE visited_at IS NULL",
+                    "DELETE s FROM history_stats s JOIN untimed_urls u ON u.url_hash = s.url_hash",
+                    "INSERT INTO history_stats(url_hash, url, visit_count, last_visit, frecency) " +
+                    "SELECT h.url_hash, MIN(h.url), COUNT(*), MAX(h.visited_at), " +
+                    "LOG2(SUM(POW(2, " + HistoryDAO.FRECENCY_EXPONENT_SQL + "))) " +
+                    "FROM history h JOIN untimed_urls u ON u.url_hash = h.url_hash GROUP BY h.url_hash",
+                    "DROP TEMPORARY TABLE untimed_urls",
+                    "ALTER TABLE history MODIFY visited_at TIMESTAMP NOT NULL, " +
+                    "DROP PRIMARY KEY, ADD PRIMARY KEY (id, visited_at) " +
+                    "PARTITION BY RANGE (UNIX_TIMESTAMP(visited_at)) " +
+                    "(PARTITION " + HistoryRetention.MAX_PARTITION + " VALUES LESS THAN MAXVALUE)",
+                    "UPDATE table_versions SET version = version + 1 WHERE table_name = 'history'",
+                    "INSERT INTO change_log(table_name, op, origin) VALUES ('history', 'R', 0)")
+                    .enabledBy(HistoryRetention.PARTITION_PROPERTY)
+    );
+
+    private SchemaMigrator() {}
+
+    /** @return the schema version this build expects */
+    public static int latestVersion() {
+        return MIGRATIONS.get(MIGRATIONS.size() - 1).getVersion();
+    }
+
+    /**
+     * Applies every migration newer than the version recorded in the database.
+     *
+     * @param pool pool to borrow a connection from
+     * @return migrations that were applied by this call (empty if up to date)
+     * @throws DataAccessException if a migration fails; later ones are not attempted
+     */
+    public static List<Migration> migrate(ConnectionPool pool) {
+        try (Connection connection = pool.getConnection()) {
+            acquireLock(connection);
+            try {
+                return applyPending(connection);
+            } finally {
+                releaseLock(connection);
+            }
+        } catch (SQLException ex) {
+            throw new DataAccessException("Schema migration failed: " + ex.getMessage(), ex);
+        }
+    }
+
+    private static List<Migration> applyPending(Connection connection) throws SQLException {
+        try (Statement st = connection.createStatement()) {
+            st.execute(CREATE_VERSION_TABLE_SQL);
+        }
+
+        Set<Integer> done = new HashSet<>();
+        try (Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery(SELECT_VERSIONS_SQL)) {
+            while (rs.next()) {
+                done.add(rs.getInt(1));
+            }
+        }
+
+        List<Migration> applied = new ArrayList<>();
+        for (Migration m : MIGRATIONS) {
+            if (done.contains(m.getVersion()) || !m.isEnabled()) {
+                continue;
+            }
+            LOG.info("Applying schema migration " + m);
+            try (Statement st = connection.createStatement()) {
+                for (String sql : m.getStatements()) {
+                    st.execute(sql);
+                }
+            } catch (SQLException ex) {
+                throw new SQLException("Migration " + m + " failed: " + ex.getMessage(),
+                        ex.getSQLState(), ex.getErrorCode(), ex);
+            }
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_VERSION_SQL)) {
+                ps.setInt(1, m.getVersion());
+                ps.setString(2, m.getDescription());
+                ps.executeUpdate();
+            }
+            applied.add(m);
+        }
+        return applied;
+    }
+
+    private static void acquireLock(Connection connection) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            ps.setString(1, LOCK_NAME);
+            ps.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Could not acquire schema migration lock within "
+                            + LOCK_TIMEOUT_SECONDS + " s");
+                }
+            }
+        }
+    }
+
+    private static void releaseLock(Connection connection) {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            ps.setString(1, LOCK_NAME);
+            ps.executeQuery().close();
+        } catch (SQLException ignored) {
+            // the lock is released anyway when the session ends
+        }
+    }
+}
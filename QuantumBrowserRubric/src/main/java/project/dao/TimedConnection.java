@@ -0,0 +1,254 @@
+package project.dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Connection wrapper that reports every statement execution to {@link QueryStats}.
+ *
+ * <p>Like the pool, it is built from {@link Proxy} handlers: the connection
+ * wraps the statements it prepares or creates, and a statement wraps the
+ * result sets of its queries. A query is recorded when its result set is
+ * closed (or its statement closed or re-executed), so the time includes
+ * reading the rows; writes are recorded as soon as they return. The number
+ * of bound parameters is the highest parameter index set.
+ *
+ * <p>A prepared statement is recorded under the SQL it was prepared with. A
+ * plain statement ({@code createStatement}) is recorded under the SQL text
+ * of each execution, and a batch under the first statement added to it.
+ */
+final class TimedConnection implements InvocationHandler {
+
+    private final Connection target;
+    private final QueryStats stats;
+
+    private TimedConnection(Connection target, QueryStats stats) {
+        this.target = target;
+        this.stats = stats;
+    }
+
+    /**
+     * @param connection connection to instrument (usually a pooled one)
+     * @param stats      where executions are recorded
+     * @return instrumented connection; closing it closes {@code connection}
+     */
+    static Connection wrap(Connection connection, QueryStats stats) {
+        return (Connection) Proxy.newProxyInstance(
+                TimedConnection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new TimedConnection(connection, stats));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        Object result = delegate(target, method, args);
+        switch (method.getName()) {
+            case "prepareStatement":
+                return Proxy.newProxyInstance(
+                        TimedConnection.class.getClassLoader(),
+                        new Class<?>[]{PreparedStatement.class},
+                        new TimedStatement((PreparedStatement) result, (String) args[0]));
+            case "createStatement":
+                return Proxy.newProxyInstance(
+                        TimedConnection.class.getClassLoader(),
+                        new Class<?>[]{Statement.class},
+                        new TimedStatement((Statement) result, null));
+            default:
+                return result;
+        }
+    }
+
+    private static Object delegate(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    /**
+     * Statement handler: counts bound parameters and times executions.
+     */
+    private final class TimedStatement implements InvocationHandler {
+
+        private final Statement target;
+        private final boolean prepared;
+        private String sql;        // of the current execution; fixed for a prepared statement
+        private String batchSql;   // first statement added to a plain statement's batch
+        private int parameterCount;
+        private TimedResultSet openResult;
+
+        /**
+         * @param target statement to time
+         * @param sql    SQL of a prepared statement, or null for a plain one
+         */
+        TimedStatement(Statement target, String sql) {
+            this.target = target;
+            this.prepared = sql != null;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                parameterCount = Math.max(parameterCount, (Integer) args[0]);
+                return delegate(target, method, args);
+            }
+            switch (name) {
+                case "executeQuery":
+                    return executeQuery(method, args);
+                case "executeUpdate":
+                case "executeLargeUpdate":
+                case "execute":
+                case "executeBatch":
+                case "executeLargeBatch":
+                    return executeWrite(method, args);
+                case "addBatch":
+                    if (!prepared && batchSql == null) {
+                        batchSql = (String) args[0];
+                    }
+                    return delegate(target, method, args);
+                case "clearBatch":
+                    batchSql = null;
+                    return delegate(target, method, args);
+                case "close":
+                    finishResult();
+                    return delegate(target, method, args);
+                default:
+                    return delegate(target, method, args);
+            }
+        }
+
+        private Object executeQuery(Method method, Object[] args) throws Throwable {
+            finishResult();
+            executing(method, args);
+            long start = System.nanoTime();
+            ResultSet rs;
+            try {
+                rs = (ResultSet) delegate(target, method, args);
+            } catch (SQLException ex) {
+                stats.record(sql, System.nanoTime() - start, 0, 0, parameterCount, true);
+                throw ex;
+            }
+            openResult = new TimedResultSet(this, rs, System.nanoTime() - start);
+            return Proxy.newProxyInstance(
+                    TimedConnection.class.getClassLoader(),
+                    new Class<?>[]{ResultSet.class},
+                    openResult);
+        }
+
+        private Object executeWrite(Method method, Object[] args) throws Throwable {
+            finishResult();
+            executing(method, args);
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = delegate(target, method, args);
+            } catch (SQLException ex) {
+                stats.record(sql, System.nanoTime() - start, 0, 0, parameterCount, true);
+                throw ex;
+            }
+            stats.record(sql, System.nanoTime() - start, 0, rowsWritten(result), parameterCount, false);
+            return result;
+        }
+
+        /** Takes a plain statement's SQL from the execute call, or from its batch. */
+        private void executing(Method method, Object[] args) {
+            if (prepared) {
+                return;
+            }
+            if (args != null && args.length > 0 && args[0] instanceof String) {
+                sql = (String) args[0];
+            } else if (method.getName().endsWith("Batch")) {
+                sql = batchSql != null ? batchSql : "(empty batch)";
+                batchSql = null;
+            }
+        }
+
+        /** Records the pending query if its result set was never closed explicitly. */
+        private void finishResult() {
+            if (openResult != null) {
+                openResult.finish();
+            }
+        }
+
+        void recordQuery(long nanos, long rows) {
+            openResult = null;
+            stats.record(sql, nanos, rows, 0, parameterCount, false);
+        }
+    }
+
+    /** Sums update counts; batch entries that report no count are counted as one row. */
+    private static long rowsWritten(Object result) {
+        if (result instanceof Integer) {
+            return Math.max(0, (Integer) result);
+        }
+        if (result instanceof Long) {
+            return Math.max(0, (Long) result);
+        }
+        long rows = 0;
+        if (result instanceof int[]) {
+            for (int count : (int[]) result) {
+                rows += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(0, count);
+            }
+        } else if (result instanceof long[]) {
+            for (long count : (long[]) result) {
+                rows += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(0, count);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Result set handler: counts rows and adds the time spent in next()
+     * (fetching from the server when streaming) to the execution time.
+     */
+    private static final class TimedResultSet implements InvocationHandler {
+
+        private final TimedStatement statement;
+        private final ResultSet target;
+        private long nanos;
+        private long rows;
+        private boolean finished;
+
+        TimedResultSet(TimedStatement statement, ResultSet target, long executeNanos) {
+            this.statement = statement;
+            this.target = target;
+            this.nanos = executeNanos;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "next":
+                    long start = System.nanoTime();
+                    boolean hasRow = target.next();
+                    nanos += System.nanoTime() - start;
+                    if (hasRow) {
+                        rows++;
+                    }
+                    return hasRow;
+                case "close":
+                    finish();
+                    return delegate(target, method, args);
+                default:
+                    return delegate(target, method, args);
+            }
+        }
+
+        void finish() {
+            if (!finished) {
+                finished = true;
+                statement.recordQuery(nanos, rows);
+            }
+        }
+    }
+}
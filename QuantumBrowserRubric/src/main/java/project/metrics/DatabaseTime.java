@@ -0,0 +1,33 @@
+package project.metrics;
+
+/**
+ * Per-thread tally of time spent holding a database connection.
+ *
+ * <p>{@link project.dao.ConnectionPool} adds the time from the start of each
+ * borrow (including any wait for a free connection) until the connection is
+ * returned. A request filter can {@link #reset()} the tally when a request
+ * starts and read it when the request ends, which tells how much of the
+ * request was spent in the DAO layer. Recording is a thread-local add and
+ * never blocks.
+ */
+public final class DatabaseTime {
+
+    private static final ThreadLocal<long[]> NANOS = ThreadLocal.withInitial(() -> new long[1]);
+
+    private DatabaseTime() {}
+
+    /** Adds time spent on the database by the current thread. */
+    public static void add(long nanos) {
+        NANOS.get()[0] += nanos;
+    }
+
+    /** @return nanoseconds recorded by the current thread since the last reset */
+    public static long get() {
+        return NANOS.get()[0];
+    }
+
+    /** Starts a new tally for the current thread. */
+    public static void reset() {
+        NANOS.get()[0] = 0;
+    }
+}
@@ -0,0 +1,163 @@
+package project.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-size, lock-free histogram of non-negative values (usually durations).
+ *
+ * <p>Buckets are log-linear: every power of two is split into 8 equal
+ * sub-buckets, so a recorded value is known to within 12.5% while the whole
+ * range up to {@code highestTrackableValue} needs only a few hundred
+ * counters. Recording is a handful of atomic increments and never allocates,
+ * so it can sit on hot paths and be shared by many threads. Values above the
+ * highest trackable value are counted in the last bucket.
+ *
+ * <p>Readers see a slightly fuzzy view while writers are active (count and
+ * buckets are not updated as one unit), which is fine for monitoring.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final AtomicLongArray buckets;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param highestTrackableValue largest value that gets its own bucket (at least 8)
+     */
+    public LatencyHistogram(long highestTrackableValue) {
+        this.buckets = new AtomicLongArray(indexOf(Math.max(highestTrackableValue, SUB_BUCKETS)) + 1);
+    }
+
+    /**
+     * Records one value; negative values are recorded as 0.
+     */
+    public void record(long value) {
+        long v = Math.max(0, value);
+        buckets.incrementAndGet(Math.min(indexOf(v), buckets.length() - 1));
+        count.increment();
+        sum.add(v);
+        max.accumulateAndGet(v, Math::max);
+    }
+
+    /** @return number of recorded values */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /** @return sum of all recorded values */
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /** @return largest recorded value, or 0 if nothing was recorded */
+    public long getMax() {
+        return max.get();
+    }
+
+    /** @return arithmetic mean, or 0 if nothing was recorded */
+    public double getMean() {
+        long n = getCount();
+        return n == 0 ? 0 : (double) getSum() / n;
+    }
+
+    /**
+     * Returns the value below which the given fraction of recorded values
+     * fall, as the upper bound of the bucket holding it (never above the max).
+     *
+     * @param quantile fraction between 0 and 1, e.g. 0.99
+     * @return the estimated quantile, or 0 if nothing was recorded
+     */
+    public long getValueAtQuantile(double quantile) {
+        long[] snapshot = snapshot();
+        long total = 0;
+        for (long c : snapshot) {
+            total += c;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(1.0, Math.max(0.0, quantile)) * total));
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                // The last bucket also holds everything above the trackable range
+                return i == snapshot.length - 1 ? getMax() : Math.min(upperBound(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Counts recorded values that are less than or equal to {@code value}.
+     * Exact when {@code value + 1} is a bucket boundary (0-8 and every
+     * power of two, e.g. 1023), otherwise rounded to the enclosing bucket.
+     */
+    public long getCountAtOrBelow(long value) {
+        if (value < 0) {
+            return 0;
+        }
+        int last = Math.min(indexOf(value), buckets.length() - 1);
+        long n = 0;
+        for (int i = 0; i <= last; i++) {
+            n += buckets.get(i);
+        }
+        return n;
+    }
+
+    /** Forgets everything recorded so far. */
+    public void reset() {
+        for (int i = 0; i < buckets.length(); i++) {
+            buckets.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d mean=%.1f p50=%d p90=%d p99=%d max=%d",
+                getCount(), getMean(), getValueAtQuantile(0.5), getValueAtQuantile(0.9),
+                getValueAtQuantile(0.99), getMax());
+    }
+
+    // -------------------------------------------------------------------
+    // Internals
+    // -------------------------------------------------------------------
+
+    private long[] snapshot() {
+        long[] copy = new long[buckets.length()];
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = buckets.get(i);
+        }
+        return copy;
+    }
+
+    /** Values 0-7 map to themselves; above that, 8 buckets per power of two. */
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /** Largest value that maps to the given bucket. */
+    static long upperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int sub = index % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return (1L << exponent) + (sub + 1) * width - 1;
+    }
+}
@@ -0,0 +1,166 @@
+package project.metrics;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-host aggregate of page-load timings.
+ *
+ * <p>For each host it keeps three {@link LatencyHistogram}s (milliseconds):
+ * time to first byte, DOMContentLoaded and load complete, plus a count of
+ * failed loads. Memory is bounded: at most {@code maxHosts} hosts are kept
+ * and the least recently loaded one is dropped when a new host arrives.
+ * The host limit defaults to 200 and can be changed with
+ * {@code -Dquantum.metrics.pageLoads.maxHosts}.
+ */
+public class PageLoadMetrics {
+
+    /** Page loads slower than this (ms) share the last histogram bucket. */
+    private static final long HIGHEST_TRACKABLE_MILLIS = 10 * 60 * 1000L;
+
+    private static final int DEFAULT_MAX_HOSTS =
+            Integer.getInteger("quantum.metrics.pageLoads.maxHosts", 200);
+
+    /** Timings of one host. */
+    public static final class HostStats {
+        private final String host;
+        private final LatencyHistogram firstByte = new LatencyHistogram(HIGHEST_TRACKABLE_MILLIS);
+        private final LatencyHistogram domContentLoaded = new LatencyHistogram(HIGHEST_TRACKABLE_MILLIS);
+        private final LatencyHistogram loadComplete = new LatencyHistogram(HIGHEST_TRACKABLE_MILLIS);
+        private final LongAdder failures = new LongAdder();
+
+        HostStats(String host) {
+            this.host = host;
+        }
+
+        public String getHost() {
+            return host;
+        }
+
+        /** @return time to first byte (ms) */
+        public LatencyHistogram getFirstByte() {
+            return firstByte;
+        }
+
+        /** @return time until DOMContentLoaded finished (ms) */
+        public LatencyHistogram getDomContentLoaded() {
+            return domContentLoaded;
+        }
+
+        /** @return time until the load event finished (ms) */
+        public LatencyHistogram getLoadComplete() {
+            return loadComplete;
+        }
+
+        /** @return loads that failed or were cancelled */
+        public long getFailures() {
+            return failures.sum();
+        }
+    }
+
+    private final int maxHosts;
+    private final Map<String, HostStats> hosts;
+
+    public PageLoadMetrics() {
+        this(DEFAULT_MAX_HOSTS);
+    }
+
+    /**
+     * @param maxHosts number of hosts kept before the least recently loaded one is dropped
+     */
+    public PageLoadMetrics(int maxHosts) {
+        this.maxHosts = Math.max(1, maxHosts);
+        this.hosts = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, HostStats> eldest) {
+                return size() > PageLoadMetrics.this.maxHosts;
+            }
+        };
+    }
+
+    /**
+     * Records a completed page load. Negative timings mean "not available"
+     * and are skipped.
+     *
+     * @return the host's stats after recording
+     */
+    public HostStats recordLoad(String host, long firstByteMillis, long domContentLoadedMillis,
+                                long loadCompleteMillis) {
+        HostStats stats = statsFor(host);
+        if (firstByteMillis >= 0) {
+            stats.firstByte.record(firstByteMillis);
+        }
+        if (domContentLoadedMillis >= 0) {
+            stats.domContentLoaded.record(domContentLoadedMillis);
+        }
+        if (loadCompleteMillis >= 0) {
+            stats.loadComplete.record(loadCompleteMillis);
+        }
+        return stats;
+    }
+
+    /** Records a failed or cancelled load. */
+    public void recordFailure(String host) {
+        statsFor(host).failures.increment();
+    }
+
+    /**
+     * @return stats of every tracked host, slowest median load first
+     */
+    public synchronized List<HostStats> getHosts() {
+        List<HostStats> list = new ArrayList<>(hosts.values());
+        list.sort(Comparator.comparingLong((HostStats s) -> s.loadComplete.getValueAtQuantile(0.5)).reversed());
+        return list;
+    }
+
+    /**
+     * Writes a plain-text table (one host per line, slowest first) with the
+     * count, p50, p90, p99 and max of each timing, in milliseconds.
+     */
+    public void writeReport(Writer out) {
+        PrintWriter pw = new PrintWriter(out);
+        pw.printf("%-40s %6s %6s  %-23s  %-23s  %-23s%n", "host", "loads", "failed",
+                "ttfb p50/p90/p99/max", "dcl p50/p90/p99/max", "load p50/p90/p99/max");
+        for (HostStats s : getHosts()) {
+            pw.printf("%-40s %6d %6d  %-23s  %-23s  %-23s%n", s.host, s.loadComplete.getCount(), s.getFailures(),
+                    quantiles(s.firstByte), quantiles(s.domContentLoaded), quantiles(s.loadComplete));
+        }
+        pw.flush();
+    }
+
+    /**
+     * Writes {@link #writeReport(Writer)} to a file, replacing it.
+     */
+    public void writeReport(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writeReport(out);
+        }
+    }
+
+    // -------------------------------------------------------------------
+    // Internals
+    // -------------------------------------------------------------------
+
+    private synchronized HostStats statsFor(String host) {
+        return hosts.computeIfAbsent(host == null || host.isEmpty() ? "(none)" : host, HostStats::new);
+    }
+
+    private static String quantiles(LatencyHistogram h) {
+        return h.getValueAtQuantile(0.5) + "/" + h.getValueAtQuantile(0.9) + "/"
+                + h.getValueAtQuantile(0.99) + "/" + h.getMax();
+    }
+}
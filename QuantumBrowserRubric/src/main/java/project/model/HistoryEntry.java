@@ -10,6 +10,9 @@ import java.time.format.DateTimeFormatter;
  */
 public class HistoryEntry extends BaseEntity {
 
+    /** Shared display format; DateTimeFormatter is immutable and thread-safe. */
+    public static final DateTimeFormatter DISPLAY_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
     /** Full URL of the visited webpage. */
     private String url;
 
@@ -68,7 +71,7 @@ public class HistoryEntry extends BaseEntity {
     @Override
     public String toString() {
         return (visitedAt != null
-                ? visitedAt.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"))
+                ? visitedAt.format(DISPLAY_FORMAT)
                 : "") + " - " + url;
     }
 }
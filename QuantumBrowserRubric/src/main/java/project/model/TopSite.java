@@ -0,0 +1,68 @@
+package project.model;
+
+import java.net.URI;
+import java.time.LocalDateTime;
+
+/**
+ * TopSite is a read-only summary of how often and how recently a URL was visited.
+ * It is produced from the per-URL statistics that HistoryDAO maintains on
+ * every insert, so it is not a BaseEntity (it has no row id of its own).
+ */
+public class TopSite {
+
+    /** Full URL of the site. */
+    private final String url;
+
+    /** Total number of recorded visits. */
+    private final int visitCount;
+
+    /** Time of the most recent visit. */
+    private final LocalDateTime lastVisit;
+
+    /** Time-decayed frecency score at query time (roughly "recent visits"). */
+    private final double score;
+
+    public TopSite(String url, int visitCount, LocalDateTime lastVisit, double score) {
+        this.url = url;
+        this.visitCount = visitCount;
+        this.lastVisit = lastVisit;
+        this.score = score;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public int getVisitCount() {
+        return visitCount;
+    }
+
+    public LocalDateTime getLastVisit() {
+        return lastVisit;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    /**
+     * Short label for tiles: the host name without a leading "www.",
+     * or the raw URL if it cannot be parsed.
+     */
+    public String getDisplayName() {
+        try {
+            String host = URI.create(url).getHost();
+            if (host != null) {
+                return host.startsWith("www.") ? host.substring(4) : host;
+            }
+        } catch (IllegalArgumentException ignored) {
+            // fall through to the raw URL
+        }
+        return url;
+    }
+
+    @Override
+    public String toString() {
+        return getDisplayName() + " (" + visitCount + " visits)";
+    }
+}
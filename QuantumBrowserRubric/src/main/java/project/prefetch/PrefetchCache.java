@@ -0,0 +1,266 @@
+package project.prefetch;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.CacheRequest;
+import java.net.CacheResponse;
+import java.net.ResponseCache;
+import java.net.SecureCacheResponse;
+import java.net.URI;
+import java.net.URLConnection;
+import java.security.Principal;
+import java.security.cert.Certificate;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.net.ssl.SSLPeerUnverifiedException;
+
+/**
+ * PrefetchCache holds prefetched main documents and hands them to the next
+ * request for the same URL.
+ *
+ * <p>It is installed as the JVM-wide {@link ResponseCache}. The WebView loads
+ * pages through {@link java.net.HttpURLConnection}, which asks the response
+ * cache before connecting, so a navigation to a prefetched URL is answered
+ * from memory without touching the network. Every entry is used at most once
+ * (reloads go to the network) and only for a short time, which keeps the
+ * served copy as fresh as a normal load. Nothing but prefetched documents is
+ * ever cached: {@link #put} declines all other responses.
+ *
+ * <p>Entries are evicted oldest first to a byte budget. Entries that expire or are
+ * evicted without being used are counted as wasted.
+ */
+public class PrefetchCache extends ResponseCache {
+
+    /** Stored prefetch response. */
+    private static final class Entry {
+        final Map<String, List<String>> headers;
+        final byte[] body;
+        final long expiresAt;
+        // TLS details of the prefetch connection, required to answer https requests
+        final TlsInfo tls;
+
+        Entry(Map<String, List<String>> headers, byte[] body, long expiresAt, TlsInfo tls) {
+            this.headers = headers;
+            this.body = body;
+            this.expiresAt = expiresAt;
+            this.tls = tls;
+        }
+
+        CacheResponse response() {
+            if (tls == null) {
+                return new CacheResponse() {
+                    @Override
+                    public Map<String, List<String>> getHeaders() {
+                        return headers;
+                    }
+
+                    @Override
+                    public InputStream getBody() {
+                        return new ByteArrayInputStream(body);
+                    }
+                };
+            }
+            return new SecureCacheResponse() {
+                @Override
+                public Map<String, List<String>> getHeaders() {
+                    return headers;
+                }
+
+                @Override
+                public InputStream getBody() {
+                    return new ByteArrayInputStream(body);
+                }
+
+                @Override
+                public String getCipherSuite() {
+                    return tls.cipherSuite;
+                }
+
+                @Override
+                public List<Certificate> getLocalCertificateChain() {
+                    return tls.localChain;
+                }
+
+                @Override
+                public List<Certificate> getServerCertificateChain() throws SSLPeerUnverifiedException {
+                    if (tls.serverChain == null) {
+                        throw new SSLPeerUnverifiedException("No server certificates");
+                    }
+                    return tls.serverChain;
+                }
+
+                @Override
+                public Principal getPeerPrincipal() throws SSLPeerUnverifiedException {
+                    if (tls.peerPrincipal == null) {
+                        throw new SSLPeerUnverifiedException("No peer principal");
+                    }
+                    return tls.peerPrincipal;
+                }
+
+                @Override
+                public Principal getLocalPrincipal() {
+                    return tls.localPrincipal;
+                }
+            };
+        }
+    }
+
+    private final long maxBytes;
+    private final long ttlMillis;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(); // oldest first
+    private long bytes;
+
+    private final AtomicLong stored = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong wasted = new AtomicLong();
+
+    /**
+     * Creates a cache with the configured limits
+     * ({@code -Dquantum.prefetch.cacheBytes}, default 8 MB;
+     * {@code -Dquantum.prefetch.ttlMs}, default 5 minutes).
+     */
+    public PrefetchCache() {
+        this(Long.getLong("quantum.prefetch.cacheBytes", 8L * 1024 * 1024),
+                Long.getLong("quantum.prefetch.ttlMs", 5 * 60_000L));
+    }
+
+    /**
+     * @param maxBytes  memory budget for stored documents
+     * @param ttlMillis how long a prefetched document may be served
+     */
+    public PrefetchCache(long maxBytes, long ttlMillis) {
+        this.maxBytes = maxBytes;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /** Makes this the JVM-wide response cache. */
+    public void install() {
+        ResponseCache.setDefault(this);
+    }
+
+    /** Removes this cache again if it is still the JVM-wide one. */
+    public void uninstall() {
+        if (ResponseCache.getDefault() == this) {
+            ResponseCache.setDefault(null);
+        }
+    }
+
+    /**
+     * Called by HttpURLConnection for every request that may use caches.
+     * Only GET requests for a stored, unexpired document are answered; the
+     * entry is removed so it is served once.
+     */
+    @Override
+    public CacheResponse get(URI uri, String method, Map<String, List<String>> requestHeaders) {
+        if (!"GET".equals(method)) {
+            return null;
+        }
+        Entry entry;
+        synchronized (this) {
+            entry = entries.remove(key(uri));
+            if (entry == null) {
+                return null;
+            }
+            bytes -= entry.body.length;
+        }
+        if (System.currentTimeMillis() > entry.expiresAt) {
+            wasted.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.response();
+    }
+
+    /** Regular responses are never cached. */
+    @Override
+    public CacheRequest put(URI uri, URLConnection connection) {
+        return null;
+    }
+
+    /**
+     * Stores a prefetched document, evicting the oldest ones beyond the
+     * byte budget.
+     *
+     * @param tls TLS details of the connection, or null for plain http
+     */
+    void store(URI uri, Map<String, List<String>> headers, byte[] body, TlsInfo tls) {
+        if (body.length > maxBytes) {
+            return;
+        }
+        Entry entry = new Entry(headers, body, System.currentTimeMillis() + ttlMillis, tls);
+        synchronized (this) {
+            Entry previous = entries.remove(key(uri));
+            if (previous != null) {
+                bytes -= previous.body.length;
+            }
+            entries.put(key(uri), entry);
+            bytes += body.length;
+            Iterator<Entry> it = entries.values().iterator();
+            while (bytes > maxBytes && it.hasNext()) {
+                Entry eldest = it.next();
+                it.remove();
+                bytes -= eldest.body.length;
+                wasted.incrementAndGet();
+            }
+        }
+        stored.incrementAndGet();
+    }
+
+    /** @return true if an unexpired document for the URL is waiting to be used */
+    public synchronized boolean contains(URI uri) {
+        Entry entry = entries.get(key(uri));
+        return entry != null && System.currentTimeMillis() <= entry.expiresAt;
+    }
+
+    /** @return documents stored so far */
+    public long getStored() {
+        return stored.get();
+    }
+
+    /** @return requests answered from the cache */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /** @return documents that expired or were evicted before anyone asked for them */
+    public long getWasted() {
+        return wasted.get();
+    }
+
+    /** @return bytes currently held */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /** Cache key: the URI without fragment, with an empty path written as "/". */
+    static String key(URI uri) {
+        String path = uri.getRawPath();
+        String query = uri.getRawQuery();
+        return Optional.ofNullable(uri.getScheme()).orElse("").toLowerCase() + "://"
+                + Optional.ofNullable(uri.getRawAuthority()).orElse("").toLowerCase()
+                + (path == null || path.isEmpty() ? "/" : path)
+                + (query != null ? "?" + query : "");
+    }
+
+    /** TLS session details copied from the prefetch connection. */
+    static final class TlsInfo {
+        final String cipherSuite;
+        final List<Certificate> localChain;
+        final List<Certificate> serverChain;
+        final Principal peerPrincipal;
+        final Principal localPrincipal;
+
+        TlsInfo(String cipherSuite, List<Certificate> localChain, List<Certificate> serverChain,
+                Principal peerPrincipal, Principal localPrincipal) {
+            this.cipherSuite = cipherSuite;
+            this.localChain = localChain;
+            this.serverChain = serverChain;
+            this.peerPrincipal = peerPrincipal;
+            this.localPrincipal = localPrincipal;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package project.prefetch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import project.dao.HistoryStore;
+import project.model.TopSite;
+
+/**
+ * PrefetchPredictor ranks the URLs the user is most likely to open next.
+ *
+ * <p>Two signals from {@link HistoryStore} are blended:
+ * <ul>
+ *   <li>transitions: how often each URL followed the current page
+ *       ({@link HistoryStore#nextUrls}), as a share of 0..1</li>
+ *   <li>frecency: visit frequency decayed by recency
+ *       ({@link HistoryStore#topSites}), relative to the top site</li>
+ * </ul>
+ * A URL that often follows the current page outranks a generally popular
+ * one; without transition data the ranking falls back to frecency.
+ */
+public class PrefetchPredictor {
+
+    /** Weight of the transition share; frecency gets the rest. */
+    private static final double TRANSITION_WEIGHT = 0.6;
+
+    /** URLs read from each signal before blending. */
+    private static final int CANDIDATES = 20;
+
+    private final HistoryStore dao;
+
+    public PrefetchPredictor(HistoryStore dao) {
+        this.dao = dao;
+    }
+
+    /**
+     * Runs two indexed queries; call it off the UI thread.
+     *
+     * @param currentUrl page the user is on (may be null on the home page)
+     * @param n          maximum number of URLs
+     * @return http(s) URLs, most likely first, never including {@code currentUrl}
+     */
+    public List<String> rank(String currentUrl, int n) {
+        Map<String, Double> scores = new HashMap<>();
+        if (currentUrl != null) {
+            for (TopSite next : dao.nextUrls(currentUrl, CANDIDATES)) {
+                scores.merge(next.getUrl(), TRANSITION_WEIGHT * next.getScore(), Double::sum);
+            }
+        }
+        List<TopSite> top = dao.topSites(CANDIDATES);
+        double best = top.isEmpty() ? 0 : top.get(0).getScore();
+        for (TopSite site : top) {
+            if (best > 0) {
+                scores.merge(site.getUrl(), (1 - TRANSITION_WEIGHT) * site.getScore() / best, Double::sum);
+            }
+        }
+
+        List<Map.Entry<String, Double>> ranked = new ArrayList<>(scores.entrySet());
+        ranked.sort(Map.Entry.<String, Double>comparingByValue().reversed());
+        List<String> result = new ArrayList<>(n);
+        for (Map.Entry<String, Double> e : ranked) {
+            String url = e.getKey();
+            if (result.size() == n) {
+                break;
+            }
+            if (url != null && !url.equals(currentUrl)
+                    && (url.startsWith("http://") || url.startsWith("https://"))) {
+                result.add(url);
+            }
+        }
+        return result;
+    }
+}
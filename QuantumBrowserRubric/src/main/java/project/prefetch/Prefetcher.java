@@ -0,0 +1,428 @@
+package project.prefetch;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.URL;
+import java.security.Principal;
+import java.security.cert.Certificate;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLPeerUnverifiedException;
+
+/**
+ * Prefetcher speculatively loads the pages the user is likely to open next.
+ *
+ * <p>When a page has finished loading and the browser stays idle for a
+ * moment, the {@link PrefetchPredictor} ranks candidate URLs. The top ones
+ * have their main document fetched into the {@link PrefetchCache}, from where
+ * the WebView's next request for that URL is answered; the next few are only
+ * warmed (DNS lookup plus a HEAD request, which leaves a keep-alive
+ * connection in the JVM's connection cache for the WebView to reuse).
+ * A new navigation cancels any round that has not started its requests yet.
+ *
+ * <p>Prefetching is bounded by a number of concurrent requests, a maximum
+ * document size and a byte budget per hour. Only {@code 200 text/html}
+ * responses without {@code Cache-Control: no-store} are kept, and redirects
+ * are not followed, so a cached document always belongs to the URL it is
+ * served for.
+ *
+ * <p>{@link #getHitRate()} is the share of navigations answered from the
+ * cache; {@link #getAccuracy()} the share of prefetched documents that were
+ * used. Both are in {@link #toString()}.
+ */
+public class Prefetcher implements AutoCloseable {
+
+    private static final Logger LOG = Logger.getLogger(Prefetcher.class.getName());
+
+    private static final long HOUR_MILLIS = 60 * 60_000L;
+    private static final int CONNECT_TIMEOUT_MILLIS = 5_000;
+    private static final int READ_TIMEOUT_MILLIS = 10_000;
+
+    private final PrefetchCache cache;
+    private final PrefetchPredictor predictor;
+    private final int documents;
+    private final int warmed;
+    private final long idleMillis;
+    private final long maxDocumentBytes;
+    private final long budgetBytesPerHour;
+    private volatile String userAgent;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "prefetch-scheduler");
+        t.setDaemon(true);
+        return t;
+    });
+    private final ExecutorService fetchers;
+
+    // Bumped by every navigation; requests of older rounds are not started
+    private final AtomicLong generation = new AtomicLong();
+    private ScheduledFuture<?> pendingRound;
+
+    // Bandwidth budget over a fixed one-hour window
+    private long budgetWindowStart = System.currentTimeMillis();
+    private long budgetUsed;
+
+    // Statistics
+    private final AtomicLong navigations = new AtomicLong();
+    private final AtomicLong fetched = new AtomicLong();
+    private final AtomicLong warmedHosts = new AtomicLong();
+    private final AtomicLong bytesFetched = new AtomicLong();
+    private final AtomicLong overBudget = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    /**
+     * Creates a prefetcher with the configured limits:
+     * {@code -Dquantum.prefetch.documents} (default 2) documents and
+     * {@code -Dquantum.prefetch.warm} (default 4) warmed hosts per round,
+     * {@code -Dquantum.prefetch.concurrency} (default 2) requests at a time,
+     * {@code -Dquantum.prefetch.idleMs} (default 1500) idle time before a round,
+     * {@code -Dquantum.prefetch.maxDocumentBytes} (default 1 MB) and
+     * {@code -Dquantum.prefetch.budgetBytes} (default 20 MB per hour).
+     *
+     * @param cache     where documents are stored (install it as the response cache)
+     * @param predictor ranks candidates after each page load (null to only prefetch on request)
+     */
+    public Prefetcher(PrefetchCache cache, PrefetchPredictor predictor) {
+        this(cache, predictor,
+                Integer.getInteger("quantum.prefetch.documents", 2),
+                Integer.getInteger("quantum.prefetch.warm", 4),
+                Integer.getInteger("quantum.prefetch.concurrency", 2),
+                Long.getLong("quantum.prefetch.idleMs", 1_500L),
+                Long.getLong("quantum.prefetch.maxDocumentBytes", 1024L * 1024),
+                Long.getLong("quantum.prefetch.budgetBytes", 20L * 1024 * 1024));
+    }
+
+    /**
+     * @param cache              where documents are stored
+     * @param predictor          ranks candidates (may be null)
+     * @param documents          documents fetched per round
+     * @param warmed             further candidates only warmed per round
+     * @param concurrency        maximum requests in flight
+     * @param idleMillis         quiet time after a page load before a round starts
+     * @param maxDocumentBytes   larger documents are abandoned
+     * @param budgetBytesPerHour bytes that may be downloaded per hour
+     */
+    public Prefetcher(PrefetchCache cache, PrefetchPredictor predictor, int documents, int warmed,
+                      int concurrency, long idleMillis, long maxDocumentBytes, long budgetBytesPerHour) {
+        this.cache = cache;
+        this.predictor = predictor;
+        this.documents = documents;
+        this.warmed = warmed;
+        this.idleMillis = idleMillis;
+        this.maxDocumentBytes = maxDocumentBytes;
+        this.budgetBytesPerHour = budgetBytesPerHour;
+        AtomicInteger count = new AtomicInteger();
+        this.fetchers = Executors.newFixedThreadPool(Math.max(1, concurrency), r -> {
+            Thread t = new Thread(r, "prefetch-" + count.incrementAndGet());
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+    }
+
+    /** Sends the browser's User-Agent, so servers return the same page the WebView would get. */
+    public void setUserAgent(String userAgent) {
+        this.userAgent = userAgent;
+    }
+
+    /**
+     * Called when the browser starts navigating: counts the navigation and
+     * cancels the pending round, since the browser is busy again.
+     *
+     * @param url URL being loaded
+     */
+    public synchronized void navigationStarted(String url) {
+        generation.incrementAndGet();
+        if (pendingRound != null) {
+            pendingRound.cancel(false);
+            pendingRound = null;
+        }
+        if (url != null && (url.startsWith("http://") || url.startsWith("https://"))) {
+            navigations.incrementAndGet();
+        }
+    }
+
+    /**
+     * Called when a page finished loading: schedules a prefetch round for
+     * its likely successors once the browser has been idle for a while.
+     *
+     * @param url URL of the loaded page
+     */
+    public synchronized void pageLoaded(String url) {
+        if (predictor == null) {
+            return;
+        }
+        if (pendingRound != null) {
+            pendingRound.cancel(false);
+        }
+        long round = generation.get();
+        pendingRound = scheduler.schedule(() -> runRound(url, round), idleMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void runRound(String url, long round) {
+        List<String> candidates;
+        try {
+            candidates = predictor.rank(url, documents + warmed);
+        } catch (RuntimeException ex) {
+            LOG.log(Level.FINE, "Could not rank prefetch candidates", ex);
+            return;
+        }
+        for (int i = 0; i < candidates.size(); i++) {
+            String candidate = candidates.get(i);
+            if (i < documents) {
+                fetchers.execute(() -> fetchIfCurrent(candidate, round));
+            } else {
+                fetchers.execute(() -> warmIfCurrent(candidate, round));
+            }
+        }
+    }
+
+    /**
+     * Fetches one document into the cache now, regardless of idleness.
+     *
+     * @param url http(s) URL
+     * @return completes with true if the document was stored
+     */
+    public CompletableFuture<Boolean> prefetch(String url) {
+        long round = generation.get();
+        return CompletableFuture.supplyAsync(() -> fetchIfCurrent(url, round), fetchers);
+    }
+
+    /**
+     * Warms the DNS entry and a connection for one URL now.
+     *
+     * @param url http(s) URL
+     * @return completes once the host was warmed (or warming failed)
+     */
+    public CompletableFuture<Void> warm(String url) {
+        long round = generation.get();
+        return CompletableFuture.runAsync(() -> warmIfCurrent(url, round), fetchers);
+    }
+
+    private boolean fetchIfCurrent(String url, long round) {
+        if (round != generation.get()) {
+            return false;
+        }
+        try {
+            URI uri = URI.create(url);
+            if (cache.contains(uri) || !reserveBudget(0)) {
+                return false;
+            }
+            HttpURLConnection connection = open(uri.toURL(), "GET");
+            int status = connection.getResponseCode();
+            String type = connection.getContentType();
+            String cacheControl = connection.getHeaderField("Cache-Control");
+            boolean cacheable = status == HttpURLConnection.HTTP_OK
+                    && type != null && type.toLowerCase(Locale.ROOT).startsWith("text/html")
+                    && (cacheControl == null || !cacheControl.toLowerCase(Locale.ROOT).contains("no-store"))
+                    && connection.getContentLengthLong() <= maxDocumentBytes;
+            if (!cacheable) {
+                discard(connection);
+                return false;
+            }
+            byte[] body = readBody(connection);
+            if (body == null) {
+                return false;
+            }
+            cache.store(uri, cachedHeaders(connection, body.length), body, tlsInfo(connection));
+            fetched.incrementAndGet();
+            return true;
+        } catch (IOException | IllegalArgumentException ex) {
+            failures.incrementAndGet();
+            LOG.fine("Prefetch of " + url + " failed: " + ex.getMessage());
+            return false;
+        }
+    }
+
+    private void warmIfCurrent(String url, long round) {
+        if (round != generation.get()) {
+            return;
+        }
+        try {
+            URL target = URI.create(url).toURL();
+            InetAddress.getAllByName(target.getHost()); // DNS, cached by the JVM for the WebView
+            if (!reserveBudget(0)) {
+                return;
+            }
+            HttpURLConnection connection = open(target, "HEAD");
+            connection.getResponseCode();
+            discard(connection);
+            warmedHosts.incrementAndGet();
+        } catch (IOException | IllegalArgumentException ex) {
+            failures.incrementAndGet();
+            LOG.fine("Warming " + url + " failed: " + ex.getMessage());
+        }
+    }
+
+    private HttpURLConnection open(URL url, String method) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setUseCaches(false); // never answer a prefetch from the prefetch cache
+        connection.setInstanceFollowRedirects(false);
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+        connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+        connection.setRequestProperty("Sec-Purpose", "prefetch");
+        connection.setRequestProperty("Accept", "text/html,application/xhtml+xml;q=0.9,*/*;q=0.8");
+        if (userAgent != null) {
+            connection.setRequestProperty("User-Agent", userAgent);
+        }
+        return connection;
+    }
+
+    /**
+     * Reads the response body, counting it against the budget.
+     *
+     * @return the body, or null if it exceeded the document size or the budget
+     */
+    private byte[] readBody(HttpURLConnection connection) throws IOException {
+        try (InputStream body = connection.getInputStream()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[16 * 1024];
+            int n;
+            while ((n = body.read(buffer)) != -1) {
+                bytesFetched.addAndGet(n);
+                if (!reserveBudget(n) || out.size() + n > maxDocumentBytes) {
+                    return null; // abandoned: closing a partly read stream drops the connection
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * Closes the response without reading it. A body-less or short response
+     * leaves the connection in the keep-alive cache for the WebView to reuse.
+     */
+    private static void discard(HttpURLConnection connection) {
+        try {
+            InputStream in = connection.getResponseCode() >= 400
+                    ? connection.getErrorStream() : connection.getInputStream();
+            if (in != null) {
+                in.close();
+            }
+        } catch (IOException ignored) {
+            // the connection is simply not reused
+        }
+    }
+
+    /** Takes bytes from this hour's budget; false once it is used up. */
+    private synchronized boolean reserveBudget(long bytes) {
+        long now = System.currentTimeMillis();
+        if (now - budgetWindowStart >= HOUR_MILLIS) {
+            budgetWindowStart = now;
+            budgetUsed = 0;
+        }
+        if (budgetUsed >= budgetBytesPerHour) {
+            overBudget.incrementAndGet();
+            return false;
+        }
+        budgetUsed += bytes;
+        return true;
+    }
+
+    /**
+     * Response headers as the WebView will see them: the body is stored
+     * decoded and complete, and cookies were already handled by the prefetch.
+     */
+    private static Map<String, List<String>> cachedHeaders(HttpURLConnection connection, int length) {
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> e : connection.getHeaderFields().entrySet()) {
+            String name = e.getKey();
+            if (name != null) {
+                String lower = name.toLowerCase(Locale.ROOT);
+                if (lower.equals("transfer-encoding") || lower.equals("content-length")
+                        || lower.equals("set-cookie") || lower.equals("set-cookie2")) {
+                    continue;
+                }
+            }
+            headers.put(name, e.getValue());
+        }
+        headers.put("Content-Length", List.of(Integer.toString(length)));
+        return headers;
+    }
+
+    private static PrefetchCache.TlsInfo tlsInfo(HttpURLConnection connection) {
+        if (!(connection instanceof HttpsURLConnection)) {
+            return null;
+        }
+        HttpsURLConnection https = (HttpsURLConnection) connection;
+        List<Certificate> serverChain = null;
+        Principal peer = null;
+        try {
+            serverChain = Arrays.asList(https.getServerCertificates());
+            peer = https.getPeerPrincipal();
+        } catch (SSLPeerUnverifiedException ignored) {
+            // anonymous cipher suites have no peer certificates
+        }
+        Certificate[] local = https.getLocalCertificates();
+        return new PrefetchCache.TlsInfo(https.getCipherSuite(), local != null ? Arrays.asList(local) : null,
+                serverChain, peer, https.getLocalPrincipal());
+    }
+
+    /** @return top-level http(s) navigations seen */
+    public long getNavigations() {
+        return navigations.get();
+    }
+
+    /** @return documents stored in the cache */
+    public long getFetched() {
+        return fetched.get();
+    }
+
+    /** @return hosts warmed without fetching a document */
+    public long getWarmed() {
+        return warmedHosts.get();
+    }
+
+    /** @return bytes downloaded by prefetching, used or not */
+    public long getBytesFetched() {
+        return bytesFetched.get();
+    }
+
+    /** @return share of navigations answered from the prefetch cache (0..1) */
+    public double getHitRate() {
+        long n = navigations.get();
+        return n == 0 ? 0 : Math.min(1.0, (double) cache.getHits() / n);
+    }
+
+    /** @return share of prefetched documents that were used (0..1) */
+    public double getAccuracy() {
+        long n = fetched.get();
+        return n == 0 ? 0 : (double) cache.getHits() / n;
+    }
+
+    /** Cancels pending rounds and stops the request threads. */
+    @Override
+    public void close() {
+        generation.incrementAndGet();
+        scheduler.shutdownNow();
+        fetchers.shutdownNow();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Prefetch: %d navigations, %d hits (%.0f%% hit rate), %d documents fetched "
+                        + "(%.0f%% used, %d wasted), %d hosts warmed, %,d bytes, %d failures, %d over budget",
+                getNavigations(), cache.getHits(), getHitRate() * 100, getFetched(), getAccuracy() * 100,
+                cache.getWasted(), getWarmed(), getBytesFetched(), failures.get(), overBudget.get());
+    }
+}
@@ -0,0 +1,59 @@
+package project.search;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Suggestion is an immutable autocomplete result produced by {@link UrlPrefixIndex}.
+ */
+public final class Suggestion {
+
+    private final String url;
+    private final String title;
+    private final int visitCount;
+    private final long lastVisitMillis;
+    private final boolean bookmarked;
+
+    Suggestion(String url, String title, int visitCount, long lastVisitMillis, boolean bookmarked) {
+        this.url = url;
+        this.title = title;
+        this.visitCount = visitCount;
+        this.lastVisitMillis = lastVisitMillis;
+        this.bookmarked = bookmarked;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    /** @return bookmark title, or null for plain history URLs */
+    public String getTitle() {
+        return title;
+    }
+
+    public int getVisitCount() {
+        return visitCount;
+    }
+
+    /** @return time of the last visit, or null if the URL was only bookmarked */
+    public LocalDateTime getLastVisit() {
+        return lastVisitMillis == 0 ? null
+                : LocalDateTime.ofInstant(Instant.ofEpochMilli(lastVisitMillis), ZoneId.systemDefault());
+    }
+
+    public boolean isBookmarked() {
+        return bookmarked;
+    }
+
+    /**
+     * UI-friendly representation for the address bar dropdown.
+     */
+    @Override
+    public String toString() {
+        String prefix = bookmarked ? "★ " : "";
+        return title != null && !title.isBlank()
+                ? prefix + title + " - " + url
+                : prefix + url;
+    }
+}
@@ -0,0 +1,577 @@
+package project.search;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import project.model.Bookmark;
+import project.model.TopSite;
+
+/**
+ * In-memory prefix index over visited and bookmarked URLs for address-bar autocomplete.
+ *
+ * <p>Layout:
+ * <ul>
+ *   <li>A compact, sorted pair of arrays (search key → entry) built in bulk at startup.
+ *       The keys matching a prefix form one contiguous range, found by binary search.</li>
+ *   <li>A max-rank segment tree over those arrays, so the best K entries of any
+ *       range (even "a", which matches a large share of the index) are found in
+ *       O(K log n) without scanning the range.</li>
+ *   <li>A small sorted "delta" map that absorbs new URLs and is merged into the
+ *       arrays once it grows, so single inserts never copy the arrays. Keys a
+ *       bookmark rename drops leave an empty slot in the arrays until then.</li>
+ * </ul>
+ *
+ * <p>Each URL is reachable by its normalized form (no scheme, no "www."), by the
+ * same form starting at every later host label ("python.org/..." for
+ * "docs.python.org/..."), and by every word of its bookmark title.
+ *
+ * <p>Ranking combines visit count and recency in a time-invariant way:
+ * {@code log2(visits + 1) + (lastVisit - epoch) / halfLife}, plus a bonus for
+ * bookmarks, so ranks only change when an entry itself is updated.
+ *
+ * <p>Thread-safe: lookups take a read lock, updates a write lock.
+ */
+public class UrlPrefixIndex {
+
+    /** Upper bound on suggestions per lookup. */
+    static final int MAX_RESULTS = 20;
+
+    /** Delta keys are merged into the arrays once the delta exceeds this many keys. */
+    private static final int MERGE_THRESHOLD = 16_384;
+
+    private static final long EPOCH_MILLIS = 1_577_836_800_000L;             // 2020-01-01T00:00Z
+    private static final double HALF_LIFE_MILLIS = 30.0 * 24 * 60 * 60 * 1000; // 30 days
+    private static final double BOOKMARK_BONUS = 2.0;                        // worth two half-lives
+
+    /** One indexed URL. Mutable fields are only changed under the write lock. */
+    private static final class Entry {
+        final String url;
+        String title;
+        int visits;
+        long lastVisitMillis;
+        boolean bookmarked;
+        double rank;
+
+        Entry(String url) {
+            this.url = url;
+        }
+
+        void updateRank() {
+            double recency = lastVisitMillis == 0 ? 0 : (lastVisitMillis - EPOCH_MILLIS) / HALF_LIFE_MILLIS;
+            rank = Math.log(visits + 1.0) / Math.log(2) + recency + (bookmarked ? BOOKMARK_BONUS : 0);
+        }
+
+        Suggestion toSuggestion() {
+            return new Suggestion(url, title, visits, lastVisitMillis, bookmarked);
+        }
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Entry> byUrl = new HashMap<>();
+
+    // Sorted arrays: baseKeys[i] is a search key for baseEntries[i] (null once the key was dropped)
+    private String[] baseKeys = new String[0];
+    private Entry[] baseEntries = new Entry[0];
+
+    // Segment tree over baseEntries: tree[node] = index of the best-ranked entry
+    // below that node (-1 for padding). Leaves start at treeSize.
+    private int[] tree = new int[0];
+    private int treeSize = 0;
+
+    // Keys of new URLs not yet merged into the arrays
+    private final TreeMap<String, List<Entry>> delta = new TreeMap<>();
+    private int deltaSize = 0;
+
+    // -------------------------------------------------------------------
+    // Building and updating
+    // -------------------------------------------------------------------
+
+    /**
+     * Replaces the index contents with the given bookmarks and visited sites.
+     * Intended for startup; runs in O(n log n).
+     *
+     * @param bookmarks all bookmarks
+     * @param sites     per-URL visit statistics (e.g. {@code HistoryDAO.topSites(n)})
+     */
+    public void load(List<Bookmark> bookmarks, List<TopSite> sites) {
+        lock.writeLock().lock();
+        try {
+            byUrl.clear();
+            for (TopSite site : sites) {
+                if (site.getUrl() == null) {
+                    continue;
+                }
+                Entry e = byUrl.computeIfAbsent(site.getUrl(), Entry::new);
+                e.visits = site.getVisitCount();
+                e.lastVisitMillis = toMillis(site.getLastVisit());
+            }
+            for (Bookmark b : bookmarks) {
+                if (b.getUrl() == null) {
+                    continue;
+                }
+                Entry e = byUrl.computeIfAbsent(b.getUrl(), Entry::new);
+                e.bookmarked = true;
+                e.title = b.getTitle();
+            }
+            rebuild();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Records one visit to a URL (new or existing).
+     */
+    public void recordVisit(String url, LocalDateTime visitedAt) {
+        if (url == null || url.isBlank()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Entry e = byUrl.get(url);
+            boolean isNew = e == null;
+            if (isNew) {
+                e = new Entry(url);
+                byUrl.put(url, e);
+            }
+            e.visits++;
+            e.lastVisitMillis = Math.max(e.lastVisitMillis, toMillis(visitedAt));
+            e.updateRank();
+            if (isNew) {
+                addKeys(e, keysFor(e));
+            } else {
+                rankChanged(e, keysFor(e));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds or updates a bookmark; its title words become searchable.
+     */
+    public void addBookmark(String url, String title) {
+        if (url == null || url.isBlank()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Entry e = byUrl.get(url);
+            List<String> oldKeys = e == null ? Collections.emptyList() : keysFor(e);
+            if (e == null) {
+                e = new Entry(url);
+                byUrl.put(url, e);
+            }
+            e.bookmarked = true;
+            e.title = title;
+            e.updateRank();
+
+            List<String> keys = keysFor(e);
+            List<String> dropped = new ArrayList<>(oldKeys);
+            dropped.removeAll(keys);
+            List<String> added = new ArrayList<>(keys);
+            added.removeAll(oldKeys);
+            removeKeys(e, dropped);
+            rankChanged(e, oldKeys);
+            addKeys(e, added);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Forgets all visit data (after "Clear History"); bookmarks stay searchable.
+     */
+    public void clearVisits() {
+        lock.writeLock().lock();
+        try {
+            byUrl.values().removeIf(e -> !e.bookmarked);
+            for (Entry e : byUrl.values()) {
+                e.visits = 0;
+                e.lastVisitMillis = 0;
+            }
+            rebuild();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // -------------------------------------------------------------------
+    // Lookup
+    // -------------------------------------------------------------------
+
+    /**
+     * Returns the best matches for what the user has typed so far.
+     *
+     * @param typed raw address bar text
+     * @param limit maximum number of suggestions
+     * @return suggestions ordered best first (never null)
+     */
+    public List<Suggestion> suggest(String typed, int limit) {
+        String q = normalize(typed);
+        if (q.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        limit = Math.min(limit, MAX_RESULTS);
+
+        lock.readLock().lock();
+        try {
+            Entry[] best = new Entry[limit];
+            int[] count = {0};
+            Set<Entry> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+
+            // Arrays: best-first walk of the segment tree over the matching range
+            int from = lowerBound(baseKeys, q);
+            int to = lowerBound(baseKeys, q + Character.MAX_VALUE);
+            if (from < to) {
+                topOfRange(from, to, limit, seen, best, count);
+            }
+
+            // Delta: small enough to scan
+            NavigableMap<String, List<Entry>> range = delta.subMap(q, true, q + Character.MAX_VALUE, false);
+            for (List<Entry> list : range.values()) {
+                for (Entry e : list) {
+                    if (seen.add(e)) {
+                        offer(best, count, e, limit);
+                    }
+                }
+            }
+
+            List<Suggestion> result = new ArrayList<>(count[0]);
+            for (int i = 0; i < count[0]; i++) {
+                result.add(best[i].toSuggestion());
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** @return number of distinct URLs in the index */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return byUrl.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rough heap footprint of the index in bytes (64-bit JVM, compressed oops,
+     * compact Latin-1 strings). Intended for display, not for accounting.
+     */
+    public long estimatedMemoryBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = 0;
+            for (Entry e : byUrl.values()) {
+                bytes += 48                              // Entry object
+                        + 32 + 4                         // HashMap node + table slot
+                        + stringBytes(e.url)
+                        + (e.title != null ? stringBytes(e.title) : 0);
+            }
+            bytes += 2L * (16 + 4L * baseKeys.length);   // key and entry arrays
+            bytes += 16 + 4L * tree.length;              // segment tree
+            for (String k : baseKeys) {
+                bytes += stringBytes(k);
+            }
+            for (Map.Entry<String, List<Entry>> d : delta.entrySet()) {
+                bytes += 40 + stringBytes(d.getKey()) + 40 + 4L * d.getValue().size();
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // -------------------------------------------------------------------
+    // Segment tree
+    // -------------------------------------------------------------------
+
+    /**
+     * Collects the best entries of baseEntries[from, to) into 'best', visiting
+     * tree nodes in rank order: each pop of the queue yields the next best
+     * leaf, so only O(limit * log n) nodes are touched however wide the range is.
+     */
+    private void topOfRange(int from, int to, int limit, Set<Entry> seen, Entry[] best, int[] count) {
+        PriorityQueue<Integer> queue = new PriorityQueue<>(
+                Comparator.comparingDouble((Integer node) -> baseEntries[tree[node]].rank).reversed());
+
+        // Canonical cover of [from, to) by maximal subtrees
+        for (int lo = from + treeSize, hi = to + treeSize; lo < hi; lo >>= 1, hi >>= 1) {
+            if ((lo & 1) == 1) {
+                if (tree[lo] >= 0) {
+                    queue.add(lo);
+                }
+                lo++;
+            }
+            if ((hi & 1) == 1) {
+                hi--;
+                if (tree[hi] >= 0) {
+                    queue.add(hi);
+                }
+            }
+        }
+
+        while (!queue.isEmpty() && count[0] < limit) {
+            int node = queue.poll();
+            if (node >= treeSize) {
+                Entry e = baseEntries[tree[node]];
+                if (seen.add(e)) {
+                    offer(best, count, e, limit);
+                }
+            } else {
+                if (tree[2 * node] >= 0) {
+                    queue.add(2 * node);
+                }
+                if (tree[2 * node + 1] >= 0) {
+                    queue.add(2 * node + 1);
+                }
+            }
+        }
+    }
+
+    /** Rebuilds the tree bottom-up from baseEntries. */
+    private void buildTree() {
+        int n = baseEntries.length;
+        int size = 1;
+        while (size < n) {
+            size <<= 1;
+        }
+        treeSize = size;
+        tree = new int[2 * size];
+        Arrays.fill(tree, -1);
+        for (int i = 0; i < n; i++) {
+            tree[size + i] = i;
+        }
+        for (int node = size - 1; node >= 1; node--) {
+            tree[node] = better(tree[2 * node], tree[2 * node + 1]);
+        }
+    }
+
+    private int better(int a, int b) {
+        if (a < 0) {
+            return b;
+        }
+        if (b < 0) {
+            return a;
+        }
+        return baseEntries[a].rank >= baseEntries[b].rank ? a : b;
+    }
+
+    /** Empties the array slots of e under the given key, updating the tree above them. */
+    private void removeFromTree(Entry e, String key) {
+        for (int i = lowerBound(baseKeys, key); i < baseKeys.length && baseKeys[i].equals(key); i++) {
+            if (baseEntries[i] == e) {
+                baseEntries[i] = null;
+                tree[i + treeSize] = -1;
+                for (int node = (i + treeSize) >> 1; node >= 1; node >>= 1) {
+                    tree[node] = better(tree[2 * node], tree[2 * node + 1]);
+                }
+            }
+        }
+    }
+
+    /** Propagates a rank increase of e up the tree for each of its array positions. */
+    private void rankChanged(Entry e, List<String> keys) {
+        for (String key : keys) {
+            for (int i = lowerBound(baseKeys, key); i < baseKeys.length && baseKeys[i].equals(key); i++) {
+                if (baseEntries[i] == e) {
+                    for (int node = (i + treeSize) >> 1; node >= 1; node >>= 1) {
+                        tree[node] = better(tree[2 * node], tree[2 * node + 1]);
+                    }
+                }
+            }
+        }
+    }
+
+    // -------------------------------------------------------------------
+    // Internals
+    // -------------------------------------------------------------------
+
+    /** Inserts e into the ranked array 'best' (holding count[0] entries) if it qualifies. */
+    private static void offer(Entry[] best, int[] count, Entry e, int limit) {
+        int n = count[0];
+        if (n == limit && e.rank <= best[n - 1].rank) {
+            return;
+        }
+        int pos = n == limit ? n - 1 : n;
+        while (pos > 0 && best[pos - 1].rank < e.rank) {
+            best[pos] = best[pos - 1];
+            pos--;
+        }
+        best[pos] = e;
+        if (n < limit) {
+            count[0] = n + 1;
+        }
+    }
+
+    private void addKeys(Entry e, List<String> keys) {
+        for (String key : keys) {
+            delta.computeIfAbsent(key, k -> new ArrayList<>(1)).add(e);
+            deltaSize++;
+        }
+        if (deltaSize > MERGE_THRESHOLD) {
+            mergeDelta();
+        }
+    }
+
+    /** Unlinks e from keys it no longer has, in the delta and in the arrays. */
+    private void removeKeys(Entry e, List<String> keys) {
+        for (String key : keys) {
+            List<Entry> list = delta.get(key);
+            if (list != null && list.remove(e)) {
+                deltaSize--;
+                if (list.isEmpty()) {
+                    delta.remove(key);
+                }
+            }
+            removeFromTree(e, key);
+        }
+    }
+
+    /** Merges the delta into the sorted arrays (linear merge), dropping empty slots, and rebuilds the tree. */
+    private void mergeDelta() {
+        int total = baseKeys.length + deltaSize;
+        String[] keys = new String[total];
+        Entry[] entries = new Entry[total];
+
+        int i = 0;
+        int out = 0;
+        for (Map.Entry<String, List<Entry>> d : delta.entrySet()) {
+            String key = d.getKey();
+            while (i < baseKeys.length && baseKeys[i].compareTo(key) <= 0) {
+                if (baseEntries[i] != null) {
+                    keys[out] = baseKeys[i];
+                    entries[out++] = baseEntries[i];
+                }
+                i++;
+            }
+            for (Entry e : d.getValue()) {
+                keys[out] = key;
+                entries[out++] = e;
+            }
+        }
+        while (i < baseKeys.length) {
+            if (baseEntries[i] != null) {
+                keys[out] = baseKeys[i];
+                entries[out++] = baseEntries[i];
+            }
+            i++;
+        }
+
+        baseKeys = out == total ? keys : Arrays.copyOf(keys, out);
+        baseEntries = out == total ? entries : Arrays.copyOf(entries, out);
+        delta.clear();
+        deltaSize = 0;
+        buildTree();
+    }
+
+    /** Rebuilds arrays and tree from byUrl (bulk path). */
+    private void rebuild() {
+        delta.clear();
+        deltaSize = 0;
+
+        List<String> keyList = new ArrayList<>(byUrl.size() * 2);
+        List<Entry> entryList = new ArrayList<>(byUrl.size() * 2);
+        for (Entry e : byUrl.values()) {
+            e.updateRank();
+            for (String key : keysFor(e)) {
+                keyList.add(key);
+                entryList.add(e);
+            }
+        }
+
+        Integer[] order = new Integer[keyList.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.parallelSort(order, Comparator.comparing(keyList::get));
+
+        String[] keys = new String[order.length];
+        Entry[] entries = new Entry[order.length];
+        for (int i = 0; i < order.length; i++) {
+            keys[i] = keyList.get(order[i]);
+            entries[i] = entryList.get(order[i]);
+        }
+        baseKeys = keys;
+        baseEntries = entries;
+        buildTree();
+    }
+
+    /** Search keys for an entry: normalized URL, its host-label suffixes and title words. */
+    private static List<String> keysFor(Entry e) {
+        List<String> keys = new ArrayList<>(4);
+        String norm = normalize(e.url);
+        if (!norm.isEmpty()) {
+            keys.add(norm);
+            int hostEnd = norm.indexOf('/');
+            String host = hostEnd < 0 ? norm : norm.substring(0, hostEnd);
+            int lastDot = host.lastIndexOf('.');
+            for (int dot = host.indexOf('.'); dot >= 0 && dot < lastDot; dot = host.indexOf('.', dot + 1)) {
+                keys.add(norm.substring(dot + 1));
+            }
+        }
+        if (e.title != null) {
+            for (String word : e.title.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+                if (word.length() >= 2 && !keys.contains(word)) {
+                    keys.add(word);
+                }
+            }
+        }
+        return keys;
+    }
+
+    /** Lower-cases and strips scheme and a leading "www." so "https://www.x.com" matches "x". */
+    static String normalize(String s) {
+        if (s == null) {
+            return "";
+        }
+        String n = s.trim().toLowerCase(Locale.ROOT);
+        int scheme = n.indexOf("://");
+        if (scheme >= 0 && scheme <= 10) {
+            n = n.substring(scheme + 3);
+        }
+        if (n.startsWith("www.")) {
+            n = n.substring(4);
+        }
+        return n;
+    }
+
+    private static int lowerBound(String[] keys, String q) {
+        int lo = 0;
+        int hi = keys.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[mid].compareTo(q) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time == null ? 0 : time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static long stringBytes(String s) {
+        return 24 + 16 + s.length(); // String + byte[] header + Latin-1 payload
+    }
+}
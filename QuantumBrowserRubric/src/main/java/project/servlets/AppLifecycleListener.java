@@ -0,0 +1,81 @@
+package project.servlets;
+
+import project.dao.BookmarkDAO;
+import project.dao.CachingBookmarkDAO;
+import project.dao.DBUtil;
+import project.dao.HistoryDAO;
+import project.dao.HistoryRetention;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+
+/**
+ * Web application lifecycle hook.
+ * Releases the shared JDBC connection pool when Tomcat undeploys the app,
+ * so redeploys do not leak MySQL connections.
+ * Also owns the DAO instances that servlets must share (such as the
+ * bookmark cache, which only stays coherent if every writer goes through it).
+ * When history retention or monthly partitioning is configured, the web
+ * tier runs {@link HistoryRetention} in the background.
+ */
+@WebListener
+public class AppLifecycleListener implements ServletContextListener {
+
+    private static final String BOOKMARK_DAO_ATTRIBUTE = "project.bookmarkDAO";
+    private static final String REQUEST_METRICS_ATTRIBUTE = "project.requestMetrics";
+    private static final String HISTORY_RETENTION_ATTRIBUTE = "project.historyRetention";
+
+    /**
+     * Returns the web app's shared, cached bookmark DAO, creating it on first use.
+     *
+     * @param context servlet context of the calling servlet
+     * @return DAO shared by all servlets of this web app
+     */
+    static synchronized BookmarkDAO bookmarkDAO(ServletContext context) {
+        BookmarkDAO dao = (BookmarkDAO) context.getAttribute(BOOKMARK_DAO_ATTRIBUTE);
+        if (dao == null) {
+            dao = new CachingBookmarkDAO(DBUtil.getPool());
+            context.setAttribute(BOOKMARK_DAO_ATTRIBUTE, dao);
+        }
+        return dao;
+    }
+
+    /**
+     * Returns the web app's request metrics, creating them on first use.
+     *
+     * @param context servlet context of the calling filter or servlet
+     * @return metrics shared by {@link MetricsFilter} and {@link MetricsServlet}
+     */
+    static synchronized RequestMetrics requestMetrics(ServletContext context) {
+        RequestMetrics metrics = (RequestMetrics) context.getAttribute(REQUEST_METRICS_ATTRIBUTE);
+        if (metrics == null) {
+            metrics = new RequestMetrics();
+            context.setAttribute(REQUEST_METRICS_ATTRIBUTE, metrics);
+        }
+        return metrics;
+    }
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        if (HistoryRetention.isConfigured()) {
+            HistoryRetention retention = new HistoryRetention(new HistoryDAO(DBUtil.getPool()));
+            retention.start();
+            sce.getServletContext().setAttribute(HISTORY_RETENTION_ATTRIBUTE, retention);
+        }
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        HistoryRetention retention =
+                (HistoryRetention) sce.getServletContext().getAttribute(HISTORY_RETENTION_ATTRIBUTE);
+        if (retention != null) {
+            retention.close();
+            sce.getServletContext().removeAttribute(HISTORY_RETENTION_ATTRIBUTE);
+        }
+        sce.getServletContext().removeAttribute(BOOKMARK_DAO_ATTRIBUTE);
+        sce.getServletContext().removeAttribute(REQUEST_METRICS_ATTRIBUTE);
+        DBUtil.shutdown();
+    }
+}
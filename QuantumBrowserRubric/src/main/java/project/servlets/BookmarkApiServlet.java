@@ -0,0 +1,76 @@
+package project.servlets;
+
+import project.dao.BookmarkDAO;
+import project.model.Bookmark;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.*;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * JSON variant of {@link BookmarkServlet} for polling clients.
+ * URL: /api/bookmarks?q=...
+ *
+ * <p>Responses carry a strong ETag derived from the bookmarks' change
+ * version. A conditional GET whose If-None-Match still matches costs one
+ * primary-key lookup and returns {@code 304 Not Modified} without reading
+ * the table.
+ */
+@WebServlet("/api/bookmarks")
+public class BookmarkApiServlet extends HttpServlet {
+
+    private static final int MAX_SEARCH_RESULTS = 100;
+
+    private BookmarkDAO bookmarkDAO;
+
+    @Override
+    public void init() throws ServletException {
+        try {
+            bookmarkDAO = AppLifecycleListener.bookmarkDAO(getServletContext());
+        } catch (Exception e) {
+            throw new ServletException("Failed to init BookmarkDAO", e);
+        }
+    }
+
+    /**
+     * GET /api/bookmarks?q=...
+     * → {"version": n, "items": [{"id": .., "title": .., "url": ..}, ...]}
+     */
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp)
+            throws ServletException, IOException {
+
+        // Read the version before the data: a concurrent write can only make the tag too old
+        long version = bookmarkDAO.getVersion();
+        if (HttpCaching.notModified(req, resp, HttpCaching.etag(version, req))) {
+            return;
+        }
+
+        String q = req.getParameter("q");
+        boolean searching = q != null && !q.isBlank();
+
+        resp.setContentType("application/json");
+        resp.setCharacterEncoding("UTF-8");
+        PrintWriter out = resp.getWriter();
+
+        try (Stream<Bookmark> rows = searching
+                ? bookmarkDAO.search(q, MAX_SEARCH_RESULTS).stream()
+                : bookmarkDAO.stream()) {
+            out.write("{\"version\":" + version + ",\"items\":[");
+            Iterator<Bookmark> it = rows.iterator();
+            while (it.hasNext()) {
+                Bookmark b = it.next();
+                out.write("{\"id\":" + b.getId() + ",\"title\":");
+                Json.writeString(out, b.getTitle());
+                out.write(",\"url\":");
+                Json.writeString(out, b.getUrl());
+                out.write(it.hasNext() ? "}," : "}");
+            }
+            out.write("]}");
+        }
+    }
+}
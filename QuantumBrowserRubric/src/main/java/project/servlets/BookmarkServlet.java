@@ -1,46 +1,55 @@
 package project.servlets;
 
 import project.dao.BookmarkDAO;
-import project.dao.DBUtil;
 import project.model.Bookmark;
 
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.*;
 import java.io.IOException;
-import java.sql.Connection;
-import java.util.List;
+import java.util.stream.Stream;
 
 /**
- * Servlet for listing, adding and deleting bookmarks.
- * URL: /bookmarks
+ * Servlet for listing, searching, adding and deleting bookmarks.
+ * URL: /bookmarks?q=...
+ *
+ * <p>The full list is streamed from the database into the page, which the
+ * JSP flushes in chunks, so memory use does not grow with the number of bookmarks.
  */
 @WebServlet("/bookmarks")
 public class BookmarkServlet extends HttpServlet {
 
+    private static final int MAX_SEARCH_RESULTS = 100;
+
     private BookmarkDAO bookmarkDAO;
 
     @Override
     public void init() throws ServletException {
         try {
-            Connection conn = DBUtil.getConnection();
-            bookmarkDAO = new BookmarkDAO(conn);
+            bookmarkDAO = AppLifecycleListener.bookmarkDAO(getServletContext());
         } catch (Exception e) {
             throw new ServletException("Failed to init BookmarkDAO", e);
         }
     }
 
     /**
-     * GET /bookmarks
-     * → forward bookmark list to bookmarks.jsp
+     * GET /bookmarks?q=...
+     * → forward all bookmarks, or the search matches in relevance order, to bookmarks.jsp
      */
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp)
             throws ServletException, IOException {
 
-        List<Bookmark> list = bookmarkDAO.findAll();
-        req.setAttribute("bookmarks", list);
-        req.getRequestDispatcher("/bookmarks.jsp").forward(req, resp);
+        String q = req.getParameter("q");
+        boolean searching = q != null && !q.isBlank();
+
+        try (Stream<Bookmark> rows = searching
+                ? bookmarkDAO.search(q, MAX_SEARCH_RESULTS).stream()
+                : bookmarkDAO.stream()) {
+            req.setAttribute("bookmarks", rows.iterator());
+            req.setAttribute("q", searching ? q.trim() : "");
+            req.getRequestDispatcher("/bookmarks.jsp").forward(req, resp);
+        }
     }
 
     /**
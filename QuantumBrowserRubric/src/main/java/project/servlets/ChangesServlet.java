@@ -0,0 +1,127 @@
+package project.servlets;
+
+import project.dao.BookmarkDAO;
+import project.dao.Change;
+import project.dao.ChangeSet;
+import project.dao.DBUtil;
+import project.dao.HistoryDAO;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.*;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.LocalDateTime;
+
+/**
+ * Change feed of the history and the bookmarks, for clients that keep a copy
+ * of a table and only want what changed since their last poll.
+ * URL: /api/changes?table=history|bookmarks&amp;since=...&amp;limit=...
+ *
+ * <p>Without {@code since} the response only carries the current end of the
+ * feed: read it before loading the table, then poll from there with the
+ * {@code next} of each response. When {@code reset} is true the client
+ * reloads the table first. The limit counts writes, not rows, and a row may
+ * be listed again by a later write: clients apply rows by id.
+ */
+@WebServlet("/api/changes")
+public class ChangesServlet extends HttpServlet {
+
+    private HistoryDAO historyDAO;
+    private BookmarkDAO bookmarkDAO;
+
+    @Override
+    public void init() throws ServletException {
+        try {
+            historyDAO = new HistoryDAO(DBUtil.getPool());
+            bookmarkDAO = AppLifecycleListener.bookmarkDAO(getServletContext());
+        } catch (Exception e) {
+            throw new ServletException("Failed to init DAOs", e);
+        }
+    }
+
+    /**
+     * GET /api/changes?table=history&amp;since=n&amp;limit=...
+     * → {"next": n, "reset": false, "more": false, "changes": [
+     *      {"seq": .., "op": "upsert", "id": .., "url": .., "visitedAt": ..},
+     *      {"seq": .., "op": "delete", "from": .., "to": ..}, ...]}
+     * Bookmark upserts carry "title" and "url" instead.
+     */
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp)
+            throws ServletException, IOException {
+
+        String table = req.getParameter("table");
+        boolean history = "history".equals(table);
+        if (!history && !"bookmarks".equals(table)) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "table must be history or bookmarks");
+            return;
+        }
+        String rawSince = req.getParameter("since");
+        long since;
+        try {
+            since = rawSince == null || rawSince.isBlank() ? -1 : Long.parseLong(rawSince.trim());
+        } catch (NumberFormatException ex) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "since must be a number");
+            return;
+        }
+        int limit = HistoryServlet.parseLimit(req.getParameter("limit"));
+
+        resp.setContentType("application/json");
+        resp.setCharacterEncoding("UTF-8");
+        resp.setHeader("Cache-Control", "no-store");
+        PrintWriter out = resp.getWriter();
+
+        if (since < 0) {
+            long head = history ? historyDAO.currentChangeSeq() : bookmarkDAO.currentChangeSeq();
+            out.write("{\"next\":" + head + ",\"reset\":false,\"more\":false,\"changes\":[]}");
+        } else if (history) {
+            write(out, historyDAO.changesSince(since, limit), (entry, o) -> {
+                o.write(",\"id\":" + entry.getId() + ",\"url\":");
+                Json.writeString(o, entry.getUrl());
+                o.write(",\"visitedAt\":");
+                writeTime(o, entry.getVisitedAt());
+            });
+        } else {
+            write(out, bookmarkDAO.changesSince(since, limit), (bookmark, o) -> {
+                o.write(",\"id\":" + bookmark.getId() + ",\"title\":");
+                Json.writeString(o, bookmark.getTitle());
+                o.write(",\"url\":");
+                Json.writeString(o, bookmark.getUrl());
+            });
+        }
+    }
+
+    /** Writes the fields of an upserted row, after its "seq" and "op". */
+    private interface RowWriter<T> {
+        void write(T row, PrintWriter out) throws IOException;
+    }
+
+    private static <T> void write(PrintWriter out, ChangeSet<T> changes, RowWriter<T> rows) throws IOException {
+        out.write("{\"next\":" + changes.getNextSeq() + ",\"reset\":" + changes.isReset()
+                + ",\"more\":" + changes.hasMore() + ",\"changes\":[");
+        boolean first = true;
+        for (Change<T> change : changes.getChanges()) {
+            if (!first) {
+                out.write(',');
+            }
+            first = false;
+            out.write("{\"seq\":" + change.getSeq());
+            if (change.getType() == Change.Type.UPSERT) {
+                out.write(",\"op\":\"upsert\"");
+                rows.write(change.getRow(), out);
+            } else {
+                out.write(",\"op\":\"delete\",\"from\":");
+                writeTime(out, change.getFrom());
+                out.write(",\"to\":");
+                writeTime(out, change.getTo());
+            }
+            out.write('}');
+        }
+        out.write("]}");
+    }
+
+    private static void writeTime(PrintWriter out, LocalDateTime time) throws IOException {
+        Json.writeString(out, time != null ? time.toString() : null);
+    }
+}
@@ -0,0 +1,79 @@
+package project.servlets;
+
+import project.dao.DBUtil;
+import project.dao.HistoryCursor;
+import project.dao.HistoryDAO;
+import project.dao.Page;
+import project.model.HistoryEntry;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.*;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * JSON variant of {@link HistoryServlet} for polling clients.
+ * URL: /api/history?cursor=...&amp;limit=... or /api/history?q=...
+ *
+ * <p>Responses carry a strong ETag derived from the history's change
+ * version. A conditional GET whose If-None-Match still matches costs one
+ * primary-key lookup and returns {@code 304 Not Modified} without reading
+ * the table.
+ */
+@WebServlet("/api/history")
+public class HistoryApiServlet extends HttpServlet {
+
+    private HistoryDAO historyDAO;
+
+    @Override
+    public void init() throws ServletException {
+        try {
+            historyDAO = new HistoryDAO(DBUtil.getPool());
+        } catch (Exception e) {
+            throw new ServletException("Failed to init HistoryDAO", e);
+        }
+    }
+
+    /**
+     * GET /api/history?cursor=...&amp;limit=...&amp;q=...
+     * → {"version": n, "items": [{"id": .., "url": .., "visitedAt": ..}, ...], "nextCursor": ..}
+     */
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp)
+            throws ServletException, IOException {
+
+        // Read the version before the data: a concurrent write can only make the tag too old
+        long version = historyDAO.getVersion();
+        if (HttpCaching.notModified(req, resp, HttpCaching.etag(version, req))) {
+            return;
+        }
+
+        String q = req.getParameter("q");
+        int limit = HistoryServlet.parseLimit(req.getParameter("limit"));
+        Page<HistoryEntry> page = q != null && !q.isBlank()
+                ? new Page<>(historyDAO.search(q, limit), null)
+                : historyDAO.findPage(HistoryCursor.decode(req.getParameter("cursor")), limit);
+
+        resp.setContentType("application/json");
+        resp.setCharacterEncoding("UTF-8");
+        PrintWriter out = resp.getWriter();
+
+        out.write("{\"version\":" + version + ",\"items\":[");
+        boolean first = true;
+        for (HistoryEntry h : page.getItems()) {
+            if (!first) {
+                out.write(',');
+            }
+            first = false;
+            out.write("{\"id\":" + h.getId() + ",\"url\":");
+            Json.writeString(out, h.getUrl());
+            out.write(",\"visitedAt\":");
+            Json.writeString(out, h.getVisitedAt() != null ? h.getVisitedAt().toString() : null);
+            out.write('}');
+        }
+        out.write("],\"nextCursor\":");
+        Json.writeString(out, page.getNextCursor());
+        out.write('}');
+    }
+}
@@ -1,59 +1,80 @@
 package project.servlets;
 
 import project.dao.DBUtil;
+import project.dao.HistoryCursor;
 import project.dao.HistoryDAO;
+import project.dao.Page;
 import project.model.HistoryEntry;
 
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.*;
 import java.io.IOException;
-import java.sql.Connection;
-import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.stream.Stream;
 
 /**
- * Servlet for viewing and clearing browser history.
- * URL: /history
+ * Servlet for viewing, searching and clearing browser history.
+ * URL: /history?cursor=...&amp;limit=..., /history?limit=all or /history?q=...
+ *
+ * <p>History is rendered one keyset page at a time, so the cost of a page
+ * view does not grow with the size of the table. A {@code q} parameter
+ * switches to full-text search: one row per matching URL, best match first.
+ * {@code limit=all} streams the entire history straight from the database
+ * cursor into the chunked response, with constant memory use.
  */
 @WebServlet("/history")
 public class HistoryServlet extends HttpServlet {
 
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
+
     private HistoryDAO historyDAO;
-    private final DateTimeFormatter formatter =
-            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
     @Override
     public void init() throws ServletException {
         try {
-            Connection conn = DBUtil.getConnection();
-            historyDAO = new HistoryDAO(conn);
+            historyDAO = new HistoryDAO(DBUtil.getPool());
         } catch (Exception e) {
             throw new ServletException("Failed to init HistoryDAO", e);
         }
     }
 
     /**
-     * GET /history
-     * → forward history data to history.jsp
+     * GET /history?cursor=...&amp;limit=...  → forward one page of history data to history.jsp
+     * GET /history?limit=all                → stream the whole history to history.jsp
+     * GET /history?q=...&amp;limit=...       → forward the search matches to history.jsp
      */
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp)
             throws ServletException, IOException {
 
-        List<HistoryEntry> entries = historyDAO.findAll();
-        List<String> history = new ArrayList<>();
+        String q = req.getParameter("q");
+        boolean searching = q != null && !q.isBlank();
+        boolean all = !searching && "all".equalsIgnoreCase(req.getParameter("limit"));
+        HistoryCursor cursor = HistoryCursor.decode(req.getParameter("cursor"));
+        int limit = parseLimit(req.getParameter("limit"));
 
-        for (HistoryEntry h : entries) {
-            String time = h.getVisitedAt() != null
-                    ? formatter.format(h.getVisitedAt())
-                    : "";
-            history.add(time + " — " + h.getUrl());
+        Stream<HistoryEntry> rows;
+        String nextCursor = null;
+        if (searching) {
+            rows = historyDAO.search(q, limit).stream();
+        } else if (all) {
+            rows = historyDAO.stream();
+        } else {
+            Page<HistoryEntry> page = historyDAO.findPage(cursor, limit);
+            rows = page.getItems().stream();
+            nextCursor = page.getNextCursor();
         }
 
-        req.setAttribute("history", history);
-        req.getRequestDispatcher("/history.jsp").forward(req, resp);
+        // The JSP formats each entry as it writes it; nothing is copied into a second list
+        try (Stream<HistoryEntry> history = rows) {
+            req.setAttribute("history", history.iterator());
+            req.setAttribute("nextCursor", nextCursor);
+            req.setAttribute("firstPage", searching || all || cursor == null);
+            req.setAttribute("limit", limit);
+            req.setAttribute("q", searching ? q.trim() : "");
+            req.getRequestDispatcher("/history.jsp").forward(req, resp);
+        }
     }
 
     /**
@@ -66,4 +87,20 @@ public class HistoryServlet extends HttpServlet {
         historyDAO.clearAll();
         resp.sendRedirect(req.getContextPath() + "/history");
     }
+
+    /**
+     * Parses the page size parameter, falling back to the default and
+     * clamping to {@link #MAX_PAGE_SIZE}.
+     */
+    static int parseLimit(String raw) {
+        if (raw == null || raw.isBlank()) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        try {
+            int limit = Integer.parseInt(raw.trim());
+            return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        } catch (NumberFormatException ex) {
+            return DEFAULT_PAGE_SIZE;
+        }
+    }
 }
@@ -0,0 +1,100 @@
+package project.servlets;
+
+import project.dao.DBUtil;
+import project.dao.HistoryDAO;
+import project.dao.HistoryTransfer;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.*;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Bulk history export and import.
+ * URL: /api/history/export?format=ndjson|csv and /api/history/import?format=ndjson|csv
+ *
+ * <p>Export streams the whole history from the database cursor into the
+ * chunked response. Import spools the request body to a temporary file and
+ * loads it with {@link HistoryTransfer}, which parses it in parallel chunks
+ * and inserts it in bulk.
+ */
+@WebServlet({"/api/history/export", "/api/history/import"})
+public class HistoryTransferServlet extends HttpServlet {
+
+    private HistoryTransfer transfer;
+
+    @Override
+    public void init() throws ServletException {
+        try {
+            transfer = new HistoryTransfer(new HistoryDAO(DBUtil.getPool()));
+        } catch (Exception e) {
+            throw new ServletException("Failed to init HistoryDAO", e);
+        }
+    }
+
+    /**
+     * GET /api/history/export?format=... → every timed visit, newest first, as an attachment
+     */
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp)
+            throws ServletException, IOException {
+
+        if (!req.getServletPath().endsWith("/export")) {
+            resp.sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+            return;
+        }
+        HistoryTransfer.Format format = HistoryTransfer.Format.of(req.getParameter("format"));
+        boolean csv = format == HistoryTransfer.Format.CSV;
+        resp.setContentType(csv ? "text/csv" : "application/x-ndjson");
+        resp.setCharacterEncoding("UTF-8");
+        resp.setHeader("Content-Disposition",
+                "attachment; filename=\"history." + (csv ? "csv" : "ndjson") + "\"");
+        transfer.export(resp.getWriter(), format);
+    }
+
+    /**
+     * POST /api/history/import?format=... (body: the file)
+     * → {"rows": n, "inserted": n, "alreadyPresent": n, "duplicatesInFile": n, "rejected": n,
+     *    "millis": n, "rowsPerSecond": n}
+     */
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp)
+            throws ServletException, IOException {
+
+        if (!req.getServletPath().endsWith("/import")) {
+            resp.sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+            return;
+        }
+        String type = req.getContentType();
+        HistoryTransfer.Format format = HistoryTransfer.Format.of(req.getParameter("format") != null
+                ? req.getParameter("format")
+                : type != null && type.startsWith("text/csv") ? "csv" : "ndjson");
+
+        Path file = Files.createTempFile("history-import", format == HistoryTransfer.Format.CSV ? ".csv" : ".ndjson");
+        HistoryTransfer.ImportResult result;
+        try {
+            try (InputStream in = req.getInputStream()) {
+                Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            result = transfer.importFile(file, format);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+
+        resp.setContentType("application/json");
+        resp.setCharacterEncoding("UTF-8");
+        PrintWriter out = resp.getWriter();
+        out.write("{\"rows\":" + result.getRows()
+                + ",\"inserted\":" + result.getInserted()
+                + ",\"alreadyPresent\":" + result.getAlreadyPresent()
+                + ",\"duplicatesInFile\":" + result.getDuplicatesInFile()
+                + ",\"rejected\":" + result.getRejected()
+                + ",\"millis\":" + result.getMillis()
+                + ",\"rowsPerSecond\":" + Math.round(result.getRowsPerSecond()) + "}");
+    }
+}
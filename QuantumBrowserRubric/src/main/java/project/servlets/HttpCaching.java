@@ -0,0 +1,56 @@
+package project.servlets;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Conditional GET support for the JSON endpoints.
+ *
+ * <p>The ETag combines the table's change version (see
+ * {@code BookmarkDAO.getVersion()}) with the query string, so each distinct
+ * view of a table gets its own tag and every write invalidates all of them.
+ */
+final class HttpCaching {
+
+    private HttpCaching() {}
+
+    /**
+     * Builds a strong ETag for one view of a table.
+     *
+     * @param version current change version of the table
+     * @param req     request whose query string selects the view
+     * @return quoted entity tag
+     */
+    static String etag(long version, HttpServletRequest req) {
+        String query = req.getQueryString() == null ? "" : req.getQueryString();
+        return "\"v" + version + "-" + Integer.toHexString(query.hashCode()) + "\"";
+    }
+
+    /**
+     * Sets the validator headers and, if the client already holds this
+     * version, answers {@code 304 Not Modified}.
+     *
+     * @return true if a 304 was sent and the caller must not write a body
+     */
+    static boolean notModified(HttpServletRequest req, HttpServletResponse resp, String etag) {
+        resp.setHeader("ETag", etag);
+        // Clients may keep the body but must revalidate before every use
+        resp.setHeader("Cache-Control", "no-cache");
+
+        String ifNoneMatch = req.getHeader("If-None-Match");
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2); // weak comparison is what If-None-Match specifies
+            }
+            if (tag.equals(etag) || tag.equals("*")) {
+                resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,42 @@
+package project.servlets;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Minimal JSON output helpers for the /api servlets (no library needed for
+ * flat objects of strings and numbers).
+ */
+final class Json {
+
+    private Json() {}
+
+    /**
+     * Writes a string as a quoted, escaped JSON value ({@code null} for null).
+     */
+    static void writeString(Writer out, String s) throws IOException {
+        if (s == null) {
+            out.write("null");
+            return;
+        }
+        out.write('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':  out.write("\\\""); break;
+                case '\\': out.write("\\\\"); break;
+                case '\n': out.write("\\n"); break;
+                case '\r': out.write("\\r"); break;
+                case '\t': out.write("\\t"); break;
+                default:
+                    // control characters, plus the JavaScript line separators
+                    if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                        out.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.write(c);
+                    }
+            }
+        }
+        out.write('"');
+    }
+}
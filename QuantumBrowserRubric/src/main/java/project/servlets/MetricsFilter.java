@@ -0,0 +1,155 @@
+package project.servlets;
+
+import project.metrics.DatabaseTime;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.http.HttpFilter;
+import javax.servlet.http.HttpServletMapping;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+
+/**
+ * Records count, errors, latency, response size and database time of every
+ * request into the web app's {@link RequestMetrics}.
+ *
+ * <p>Database time is the time the request thread held pooled connections
+ * (see {@link DatabaseTime}). Pages that stream rows while rendering keep
+ * their connection until the last row, so for them it includes the
+ * interleaved rendering too. Latency minus database time is time spent in
+ * servlet and JSP code; Tomcat's own queueing happens before the filter runs
+ * and shows up as the difference to the client-side latency.
+ */
+@WebFilter("/*")
+public class MetricsFilter extends HttpFilter {
+
+    private RequestMetrics metrics;
+
+    @Override
+    public void init() {
+        metrics = AppLifecycleListener.requestMetrics(getServletContext());
+    }
+
+    @Override
+    protected void doFilter(HttpServletRequest req, HttpServletResponse resp, FilterChain chain)
+            throws IOException, ServletException {
+        long started = System.nanoTime();
+        DatabaseTime.reset();
+        CountingResponse counting = new CountingResponse(resp);
+        boolean failed = true;
+        try {
+            chain.doFilter(req, counting);
+            counting.finish();
+            failed = false;
+        } finally {
+            long latencyMicros = (System.nanoTime() - started) / 1_000;
+            long databaseMicros = DatabaseTime.get() / 1_000;
+            boolean error = failed || resp.getStatus() >= 500;
+            metrics.record(endpointOf(req), latencyMicros, databaseMicros, counting.bytes, error);
+        }
+    }
+
+    /** Servlet mapping pattern, e.g. "/history" or "*.jsp"; bounded by the number of mappings. */
+    private static String endpointOf(HttpServletRequest req) {
+        HttpServletMapping mapping = req.getHttpServletMapping();
+        String pattern = mapping != null ? mapping.getPattern() : null;
+        return pattern == null || pattern.isEmpty() ? "/" : pattern;
+    }
+
+    /**
+     * Response wrapper that counts the bytes of the body. The writer is built
+     * on the counting stream with the response's character encoding, so the
+     * count is in bytes for both kinds of output.
+     */
+    private static final class CountingResponse extends HttpServletResponseWrapper {
+
+        private long bytes;
+        private ServletOutputStream stream;
+        private PrintWriter writer;
+
+        CountingResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (writer != null) {
+                throw new IllegalStateException("getWriter() has already been called");
+            }
+            return stream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                if (stream != null) {
+                    throw new IllegalStateException("getOutputStream() has already been called");
+                }
+                writer = new PrintWriter(new OutputStreamWriter(stream(), getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            super.flushBuffer();
+        }
+
+        /** Pushes buffered characters to the container before the response is committed. */
+        void finish() {
+            if (writer != null) {
+                writer.flush();
+            }
+        }
+
+        private ServletOutputStream stream() throws IOException {
+            if (stream == null) {
+                ServletOutputStream target = super.getOutputStream();
+                stream = new ServletOutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        target.write(b);
+                        bytes++;
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        target.write(b, off, len);
+                        bytes += len;
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        target.flush();
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        target.close();
+                    }
+
+                    @Override
+                    public boolean isReady() {
+                        return target.isReady();
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener listener) {
+                        target.setWriteListener(listener);
+                    }
+                };
+            }
+            return stream;
+        }
+    }
+}
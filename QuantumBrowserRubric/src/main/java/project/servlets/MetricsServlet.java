@@ -0,0 +1,184 @@
+package project.servlets;
+
+import project.dao.DBUtil;
+import project.dao.PoolStats;
+import project.dao.QueryStats;
+import project.metrics.LatencyHistogram;
+
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exports the request metrics in the Prometheus text format (version 0.0.4).
+ * URL: /metrics
+ *
+ * <p>Per endpoint: request and error counters, a latency histogram in
+ * seconds, total seconds spent on the database (divide by the latency sum
+ * for the DAO share) and a response size histogram in bytes. Connection
+ * pool gauges and per-statement DAO counters (see {@link QueryStats}) are
+ * appended so queueing for connections can be told apart from slow queries.
+ */
+@WebServlet("/metrics")
+public class MetricsServlet extends HttpServlet {
+
+    /** Latency bucket bounds: 2^7 - 1 .. 2^24 - 1 microseconds (0.127 ms .. 16.8 s). */
+    private static final int LATENCY_MIN_SHIFT = 7;
+    private static final int LATENCY_MAX_SHIFT = 24;
+    /** Size bucket bounds: 2^8 - 1 .. 2^24 - 1 bytes (255 B .. 16 MiB). */
+    private static final int SIZE_MIN_SHIFT = 8;
+    private static final int SIZE_MAX_SHIFT = 24;
+
+    private RequestMetrics metrics;
+
+    @Override
+    public void init() {
+        metrics = AppLifecycleListener.requestMetrics(getServletContext());
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        resp.setContentType("text/plain; version=0.0.4; charset=UTF-8");
+        resp.setHeader("Cache-Control", "no-store");
+        PrintWriter out = resp.getWriter();
+        Map<String, RequestMetrics.Endpoint> endpoints = metrics.snapshot();
+
+        out.println("# HELP quantum_http_requests_total Requests served, by servlet mapping.");
+        out.println("# TYPE quantum_http_requests_total counter");
+        for (Map.Entry<String, RequestMetrics.Endpoint> e : endpoints.entrySet()) {
+            out.println("quantum_http_requests_total" + labels(e.getKey()) + " " + e.getValue().requests.sum());
+        }
+
+        out.println("# HELP quantum_http_request_errors_total Requests that threw or returned 5xx.");
+        out.println("# TYPE quantum_http_request_errors_total counter");
+        for (Map.Entry<String, RequestMetrics.Endpoint> e : endpoints.entrySet()) {
+            out.println("quantum_http_request_errors_total" + labels(e.getKey()) + " " + e.getValue().errors.sum());
+        }
+
+        out.println("# HELP quantum_http_request_duration_seconds Time from entering the filter to a complete response.");
+        out.println("# TYPE quantum_http_request_duration_seconds histogram");
+        for (Map.Entry<String, RequestMetrics.Endpoint> e : endpoints.entrySet()) {
+            writeHistogram(out, "quantum_http_request_duration_seconds", e.getKey(),
+                    e.getValue().latencyMicros, LATENCY_MIN_SHIFT, LATENCY_MAX_SHIFT, 1e-6);
+        }
+
+        out.println("# HELP quantum_http_request_db_seconds_total Part of the request time spent holding database connections.");
+        out.println("# TYPE quantum_http_request_db_seconds_total counter");
+        for (Map.Entry<String, RequestMetrics.Endpoint> e : endpoints.entrySet()) {
+            out.println("quantum_http_request_db_seconds_total" + labels(e.getKey()) + " "
+                    + seconds(e.getValue().databaseMicros.sum()));
+        }
+
+        out.println("# HELP quantum_http_response_size_bytes Response body size.");
+        out.println("# TYPE quantum_http_response_size_bytes histogram");
+        for (Map.Entry<String, RequestMetrics.Endpoint> e : endpoints.entrySet()) {
+            writeHistogram(out, "quantum_http_response_size_bytes", e.getKey(),
+                    e.getValue().responseBytes, SIZE_MIN_SHIFT, SIZE_MAX_SHIFT, 1);
+        }
+
+        writePool(out, DBUtil.getPoolStats());
+        writeStatements(out, DBUtil.getQueryStats());
+    }
+
+    /**
+     * Writes cumulative buckets with the inclusive bounds {@code le = 2^k - 1}.
+     * Values are whole units, so each bucket counts the values below a power
+     * of two, which is an exact bucket boundary of {@link LatencyHistogram}:
+     * the counts are exact.
+     */
+    private static void writeHistogram(PrintWriter out, String name, String endpoint, LatencyHistogram h,
+                                       int minShift, int maxShift, double unit) {
+        long count = h.getCount();
+        for (int shift = minShift; shift <= maxShift; shift++) {
+            long bound = (1L << shift) - 1;
+            out.println(name + "_bucket" + labels(endpoint, "le", scaled(bound, unit)) + " "
+                    + Math.min(h.getCountAtOrBelow(bound), count));
+        }
+        out.println(name + "_bucket" + labels(endpoint, "le", "+Inf") + " " + count);
+        out.println(name + "_sum" + labels(endpoint) + " " + format(h.getSum() * unit));
+        out.println(name + "_count" + labels(endpoint) + " " + count);
+    }
+
+    private static void writePool(PrintWriter out, PoolStats pool) {
+        gauge(out, "quantum_db_pool_max_connections", "Configured pool size.", pool.getMaxSize());
+        gauge(out, "quantum_db_pool_active_connections", "Connections currently borrowed.", pool.getActiveConnections());
+        gauge(out, "quantum_db_pool_idle_connections", "Open connections waiting in the pool.", pool.getIdleConnections());
+        gauge(out, "quantum_db_pool_waiting_threads", "Threads waiting for a connection.", pool.getWaitingThreads());
+        out.println("# HELP quantum_db_pool_borrow_timeouts_total Borrows that gave up waiting.");
+        out.println("# TYPE quantum_db_pool_borrow_timeouts_total counter");
+        out.println("quantum_db_pool_borrow_timeouts_total " + pool.getBorrowTimeouts());
+    }
+
+    private static void writeStatements(PrintWriter out, QueryStats stats) {
+        List<QueryStats.StatementStats> statements = stats.getStatements();
+        out.println("# HELP quantum_db_statement_executions_total Executions per SQL template.");
+        out.println("# TYPE quantum_db_statement_executions_total counter");
+        for (QueryStats.StatementStats s : statements) {
+            out.println("quantum_db_statement_executions_total" + statementLabel(s) + " " + s.getExecutions());
+        }
+        out.println("# HELP quantum_db_statement_seconds_total Execution time per SQL template, including row reads.");
+        out.println("# TYPE quantum_db_statement_seconds_total counter");
+        for (QueryStats.StatementStats s : statements) {
+            out.println("quantum_db_statement_seconds_total" + statementLabel(s) + " " + seconds(s.getMicros().getSum()));
+        }
+        out.println("# HELP quantum_db_statement_rows_read_total Rows returned per SQL template.");
+        out.println("# TYPE quantum_db_statement_rows_read_total counter");
+        for (QueryStats.StatementStats s : statements) {
+            out.println("quantum_db_statement_rows_read_total" + statementLabel(s) + " " + s.getRowsRead());
+        }
+        out.println("# HELP quantum_db_statement_rows_written_total Rows changed per SQL template.");
+        out.println("# TYPE quantum_db_statement_rows_written_total counter");
+        for (QueryStats.StatementStats s : statements) {
+            out.println("quantum_db_statement_rows_written_total" + statementLabel(s) + " " + s.getRowsWritten());
+        }
+        out.println("# HELP quantum_db_statement_slow_total Executions over the slow-query threshold.");
+        out.println("# TYPE quantum_db_statement_slow_total counter");
+        for (QueryStats.StatementStats s : statements) {
+            out.println("quantum_db_statement_slow_total" + statementLabel(s) + " " + s.getSlowExecutions());
+        }
+    }
+
+    private static String statementLabel(QueryStats.StatementStats s) {
+        return "{statement=\"" + escape(s.getSql()) + "\"}";
+    }
+
+    private static void gauge(PrintWriter out, String name, String help, long value) {
+        out.println("# HELP " + name + " " + help);
+        out.println("# TYPE " + name + " gauge");
+        out.println(name + " " + value);
+    }
+
+    private static String labels(String endpoint) {
+        return "{endpoint=\"" + escape(endpoint) + "\"}";
+    }
+
+    private static String labels(String endpoint, String name, String value) {
+        return "{endpoint=\"" + escape(endpoint) + "\"," + name + "=\"" + value + "\"}";
+    }
+
+    /** Label value escaping as required by the text format. */
+    private static String escape(String s) {
+        return s.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String seconds(long micros) {
+        return format(micros * 1e-6);
+    }
+
+    /** {@code value * unit} without binary rounding noise, e.g. 0.000127 for 127 microseconds. */
+    private static String scaled(long value, double unit) {
+        return BigDecimal.valueOf(value).multiply(BigDecimal.valueOf(unit)).stripTrailingZeros().toPlainString();
+    }
+
+    private static String format(double value) {
+        return value == Math.rint(value) && Math.abs(value) < 1e15
+                ? Long.toString((long) value)
+                : BigDecimal.valueOf(value).toPlainString();
+    }
+}
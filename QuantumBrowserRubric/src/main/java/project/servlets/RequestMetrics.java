@@ -0,0 +1,65 @@
+package project.servlets;
+
+import project.metrics.LatencyHistogram;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-endpoint request statistics collected by {@link MetricsFilter} and
+ * exported by {@link MetricsServlet}.
+ *
+ * <p>Endpoints are keyed by their servlet mapping (e.g. {@code /api/history},
+ * {@code *.jsp}), not by the raw URL, so the number of series stays small
+ * no matter what clients request. Recording is lock-free: counters are
+ * {@link LongAdder}s and distributions are {@link LatencyHistogram}s.
+ */
+final class RequestMetrics {
+
+    /** Latency in microseconds; slower requests share the last bucket. */
+    private static final long HIGHEST_TRACKABLE_MICROS = 60_000_000L;
+    /** Response size in bytes; larger responses share the last bucket. */
+    private static final long HIGHEST_TRACKABLE_BYTES = 1L << 30;
+
+    /** Counters of one endpoint. */
+    static final class Endpoint {
+        final LongAdder requests = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder databaseMicros = new LongAdder();
+        final LatencyHistogram latencyMicros = new LatencyHistogram(HIGHEST_TRACKABLE_MICROS);
+        final LatencyHistogram responseBytes = new LatencyHistogram(HIGHEST_TRACKABLE_BYTES);
+    }
+
+    private final ConcurrentMap<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    /**
+     * Records one finished request.
+     *
+     * @param endpoint       servlet mapping that served the request
+     * @param latencyMicros  time from entering the filter until the response was complete
+     * @param databaseMicros part of that time spent holding a database connection
+     * @param bytes          response body size
+     * @param error          true for 5xx responses and requests that threw
+     */
+    void record(String endpoint, long latencyMicros, long databaseMicros, long bytes, boolean error) {
+        Endpoint e = endpoints.get(endpoint);
+        if (e == null) {
+            e = endpoints.computeIfAbsent(endpoint, k -> new Endpoint());
+        }
+        e.requests.increment();
+        if (error) {
+            e.errors.increment();
+        }
+        e.latencyMicros.record(latencyMicros);
+        e.databaseMicros.add(databaseMicros);
+        e.responseBytes.record(bytes);
+    }
+
+    /** @return endpoints sorted by name (stable output for scrapers and diffs) */
+    Map<String, Endpoint> snapshot() {
+        return new TreeMap<>(endpoints);
+    }
+}
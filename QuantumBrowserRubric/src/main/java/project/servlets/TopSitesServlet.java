@@ -0,0 +1,82 @@
+package project.servlets;
+
+import project.dao.DBUtil;
+import project.dao.HistoryDAO;
+import project.model.TopSite;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.*;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+
+/**
+ * Servlet that renders the most visited sites as an HTML fragment.
+ * URL: /top-sites?n=...
+ *
+ * <p>Included by index.jsp. Data comes from HistoryDAO's per-URL frecency
+ * table, so rendering never scans the history log.
+ */
+@WebServlet("/top-sites")
+public class TopSitesServlet extends HttpServlet {
+
+    private static final int DEFAULT_COUNT = 8;
+    private static final int MAX_COUNT = 50;
+
+    private HistoryDAO historyDAO;
+
+    @Override
+    public void init() throws ServletException {
+        try {
+            historyDAO = new HistoryDAO(DBUtil.getPool());
+        } catch (Exception e) {
+            throw new ServletException("Failed to init HistoryDAO", e);
+        }
+    }
+
+    /**
+     * GET /top-sites
+     * → HTML fragment with one link per top site
+     */
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp)
+            throws ServletException, IOException {
+
+        List<TopSite> sites = historyDAO.topSites(parseCount(req.getParameter("n")));
+
+        // When included from a JSP the including page owns the content type
+        if (req.getAttribute("javax.servlet.include.request_uri") == null) {
+            resp.setContentType("text/html;charset=UTF-8");
+        }
+        PrintWriter out = resp.getWriter();
+        out.println("<div class=\"top-sites\">");
+        if (sites.isEmpty()) {
+            out.println("  <p>No top sites yet.</p>");
+        }
+        for (TopSite site : sites) {
+            out.println("  <a class=\"tile\" href=\"" + escape(site.getUrl()) + "\" target=\"_blank\" title=\""
+                    + site.getVisitCount() + " visits\">" + escape(site.getDisplayName()) + "</a>");
+        }
+        out.println("</div>");
+    }
+
+    private static int parseCount(String raw) {
+        if (raw == null || raw.isBlank()) {
+            return DEFAULT_COUNT;
+        }
+        try {
+            return Math.max(1, Math.min(Integer.parseInt(raw.trim()), MAX_COUNT));
+        } catch (NumberFormatException ex) {
+            return DEFAULT_COUNT;
+        }
+    }
+
+    private static String escape(String s) {
+        if (s == null) {
+            return "";
+        }
+        return s.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;")
+                .replace("\"", "&quot;").replace("'", "&#39;");
+    }
+}
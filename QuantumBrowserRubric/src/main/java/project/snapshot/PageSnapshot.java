@@ -0,0 +1,34 @@
+package project.snapshot;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * PageSnapshot is an immutable copy of a page's HTML as stored by {@link SnapshotStore}.
+ */
+public final class PageSnapshot {
+
+    private final String url;
+    private final String html;
+    private final long capturedAtMillis;
+
+    PageSnapshot(String url, String html, long capturedAtMillis) {
+        this.url = url;
+        this.html = html;
+        this.capturedAtMillis = capturedAtMillis;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    /** @return serialized DOM of the page at capture time */
+    public String getHtml() {
+        return html;
+    }
+
+    public LocalDateTime getCapturedAt() {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(capturedAtMillis), ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,656 @@
+package project.snapshot;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Content-addressed, size-bounded store of offline page snapshots.
+ *
+ * <p>Layout on disk:
+ * <ul>
+ *   <li><b>Segments</b> ({@code segment-NNNNN.dat}): append-only files of
+ *       records {@code [magic][sha-256][raw length][stored length][deflated bytes]}.
+ *       Reads go through a read-only memory mapping of the segment, so
+ *       opening a snapshot is a copy out of the page cache plus inflating.</li>
+ *   <li><b>Index</b> ({@code index.dat}): URL to content hash (in LRU order) and
+ *       content hash to record position. It is written atomically on
+ *       {@link #flush()}, {@link #close()} and after segments are reclaimed.</li>
+ * </ul>
+ *
+ * <p>Identical pages share one record (the key is the SHA-256 of the HTML),
+ * so re-capturing an unchanged page costs no disk space. When the stored
+ * bytes exceed the budget, the least recently used URLs are dropped; segments
+ * with no live records are deleted and segments that are mostly dead are
+ * compacted into the active one.
+ *
+ * <p>All methods are thread-safe. One store directory can be opened by one
+ * process at a time (a lock file enforces this).
+ */
+public class SnapshotStore implements AutoCloseable {
+
+    private static final Logger LOG = Logger.getLogger(SnapshotStore.class.getName());
+
+    private static final int RECORD_MAGIC = 0x51534E50; // "QSNP"
+    private static final int HASH_BYTES = 32;
+    private static final int RECORD_HEADER_BYTES = 4 + HASH_BYTES + 4 + 4;
+    private static final int INDEX_VERSION = 1;
+    private static final long MIN_SEGMENT_SIZE = 64L * 1024;
+    private static final long MAX_SEGMENT_SIZE = 32L * 1024 * 1024;
+    private static final String INDEX_FILE = "index.dat";
+    private static final String LOCK_FILE = "lock";
+
+    /** One stored record, shared by every URL whose page had the same content. */
+    private static final class Blob {
+        final byte[] hash;
+        int segment;
+        long offset;
+        int length;
+        int rawLength;
+        int refs;
+
+        Blob(byte[] hash, int segment, long offset, int length, int rawLength) {
+            this.hash = hash;
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.rawLength = rawLength;
+        }
+
+        long recordBytes() {
+            return RECORD_HEADER_BYTES + (long) length;
+        }
+    }
+
+    /** URL index entry. */
+    private static final class Entry {
+        final String url;
+        final Blob blob;
+        long capturedAtMillis;
+
+        Entry(String url, Blob blob, long capturedAtMillis) {
+            this.url = url;
+            this.blob = blob;
+            this.capturedAtMillis = capturedAtMillis;
+        }
+    }
+
+    /** Append-only segment file and its read mapping. */
+    private static final class Segment {
+        final int id;
+        final Path path;
+        final FileChannel channel;
+        long size;
+        long liveBytes;
+        MappedByteBuffer map;
+
+        Segment(int id, Path path, FileChannel channel, long size) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+            this.size = size;
+        }
+
+        /** Returns a mapping that covers the given range, remapping if the file grew. */
+        ByteBuffer mapping(long end) throws IOException {
+            if (map == null || map.capacity() < end) {
+                map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+            return map.duplicate();
+        }
+    }
+
+    private final Path directory;
+    private final long maxBytes;
+    // An eighth of the budget, so dead space in full segments is reclaimed long before the disk use doubles
+    private final long segmentSize;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Blob> blobs = new HashMap<>();
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+    private long liveBytes;
+    private boolean dirty;
+    private boolean closed;
+
+    private SnapshotStore(Path directory, long maxBytes, FileChannel lockChannel, FileLock lock) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.segmentSize = Math.max(MIN_SEGMENT_SIZE, Math.min(MAX_SEGMENT_SIZE, maxBytes / 8));
+        this.lockChannel = lockChannel;
+        this.lock = lock;
+    }
+
+    /** @return the configured store directory ({@code -Dquantum.snapshots.dir}) */
+    public static Path defaultDirectory() {
+        String configured = System.getProperty("quantum.snapshots.dir");
+        return configured != null
+                ? Paths.get(configured)
+                : Paths.get(System.getProperty("user.home"), ".quantum-browser", "snapshots");
+    }
+
+    /**
+     * Opens (or creates) a store.
+     *
+     * @param directory directory holding the segments and the index
+     * @param maxBytes  disk budget for stored records; LRU pages are evicted beyond it
+     * @return the open store
+     * @throws IOException if the directory cannot be used or another process holds it
+     */
+    public static SnapshotStore open(Path directory, long maxBytes) throws IOException {
+        Files.createDirectories(directory);
+        FileChannel lockChannel = FileChannel.open(directory.resolve(LOCK_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException ex) {
+            lock = null; // already open in this JVM
+        } catch (IOException ex) {
+            lockChannel.close();
+            throw ex;
+        }
+        if (lock == null) {
+            lockChannel.close();
+            throw new IOException("Snapshot store " + directory + " is in use by another process");
+        }
+        SnapshotStore store = new SnapshotStore(directory, maxBytes, lockChannel, lock);
+        try {
+            store.load();
+        } catch (IOException | RuntimeException ex) {
+            store.close();
+            throw ex;
+        }
+        return store;
+    }
+
+    /**
+     * Stores the HTML of a page, replacing any earlier snapshot of the URL.
+     *
+     * @param url  page URL (index key)
+     * @param html serialized DOM
+     * @throws IOException if the record cannot be written
+     */
+    public void put(String url, String html) throws IOException {
+        byte[] raw = html.getBytes(StandardCharsets.UTF_8);
+        byte[] hash = sha256(raw);
+        String key = HexFormat.of().formatHex(hash);
+        boolean known;
+        synchronized (this) {
+            known = blobs.containsKey(key);
+        }
+        // Compress outside the lock so readers are not held up by it
+        byte[] deflated = known ? null : deflate(raw);
+
+        synchronized (this) {
+            ensureOpen();
+            Entry previous = entries.get(url);
+            if (previous != null && Arrays.equals(previous.blob.hash, hash)) {
+                previous.capturedAtMillis = System.currentTimeMillis();
+                dirty = true;
+                return;
+            }
+
+            Blob blob = blobs.get(key);
+            if (blob == null) {
+                blob = append(hash, raw.length, deflated != null ? deflated : deflate(raw));
+                blobs.put(key, blob);
+            }
+            blob.refs++;
+            entries.put(url, new Entry(url, blob, System.currentTimeMillis()));
+            if (previous != null) {
+                release(previous.blob);
+            }
+            dirty = true;
+            evict(url);
+        }
+    }
+
+    /**
+     * Returns the snapshot of a URL and marks it as recently used.
+     *
+     * @param url page URL
+     * @return the snapshot, or null if none is stored
+     * @throws IOException if the record cannot be read or is corrupt
+     */
+    public PageSnapshot get(String url) throws IOException {
+        byte[] stored;
+        int rawLength;
+        long capturedAt;
+        synchronized (this) {
+            ensureOpen();
+            Entry entry = entries.get(url);
+            if (entry == null) {
+                return null;
+            }
+            Blob blob = entry.blob;
+            stored = read(blob);
+            rawLength = blob.rawLength;
+            capturedAt = entry.capturedAtMillis;
+            dirty = true; // LRU order changed
+        }
+        return new PageSnapshot(url, new String(inflate(stored, rawLength), StandardCharsets.UTF_8), capturedAt);
+    }
+
+    /** @return true if a snapshot of the URL is stored */
+    public synchronized boolean contains(String url) {
+        return !closed && entries.containsKey(url); // containsKey does not touch the LRU order
+    }
+
+    /** Removes the snapshot of a URL, if any. */
+    public synchronized void remove(String url) throws IOException {
+        ensureOpen();
+        Entry entry = entries.remove(url);
+        if (entry != null) {
+            release(entry.blob);
+            dirty = true;
+            reclaimSegments();
+        }
+    }
+
+    /** @return number of stored URLs */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /** @return bytes of live records on disk (the quantity the budget applies to) */
+    public synchronized long getStoredBytes() {
+        return liveBytes;
+    }
+
+    /** @return disk budget in bytes */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /** Writes the index if it changed since the last write. */
+    public synchronized void flush() throws IOException {
+        if (!closed && dirty) {
+            writeIndex();
+        }
+    }
+
+    /** Writes the index and releases the files. */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            if (dirty) {
+                writeIndex();
+            }
+        } finally {
+            closed = true;
+            for (Segment s : segments.values()) {
+                closeQuietly(s.channel);
+            }
+            segments.clear();
+            try {
+                lock.release();
+            } finally {
+                lockChannel.close();
+            }
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "SnapshotStore{" + directory + ", pages=" + entries.size() + ", bytes=" + liveBytes
+                + "/" + maxBytes + ", segments=" + segments.size() + '}';
+    }
+
+    // -------------------------------------------------------------------
+    // Records
+    // -------------------------------------------------------------------
+
+    private Blob append(byte[] hash, int rawLength, byte[] deflated) throws IOException {
+        Segment segment = activeSegment(RECORD_HEADER_BYTES + (long) deflated.length);
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + deflated.length);
+        record.putInt(RECORD_MAGIC).put(hash).putInt(rawLength).putInt(deflated.length).put(deflated).flip();
+        long offset = segment.size;
+        while (record.hasRemaining()) {
+            segment.channel.write(record, offset + record.position());
+        }
+        segment.size += record.capacity();
+        Blob blob = new Blob(hash, segment.id, offset, deflated.length, rawLength);
+        segment.liveBytes += blob.recordBytes();
+        liveBytes += blob.recordBytes();
+        return blob;
+    }
+
+    private byte[] read(Blob blob) throws IOException {
+        Segment segment = segments.get(blob.segment);
+        if (segment == null) {
+            throw new IOException("Snapshot segment " + blob.segment + " is missing");
+        }
+        ByteBuffer map = segment.mapping(blob.offset + blob.recordBytes());
+        map.position((int) blob.offset);
+        if (map.getInt() != RECORD_MAGIC) {
+            throw new IOException("Corrupt snapshot record in " + segment.path + " at " + blob.offset);
+        }
+        map.position(map.position() + HASH_BYTES + 8);
+        byte[] stored = new byte[blob.length];
+        map.get(stored);
+        return stored;
+    }
+
+    /** Drops one reference; the record becomes dead space once nothing refers to it. */
+    private void release(Blob blob) {
+        if (--blob.refs > 0) {
+            return;
+        }
+        blobs.remove(HexFormat.of().formatHex(blob.hash));
+        Segment segment = segments.get(blob.segment);
+        if (segment != null) {
+            segment.liveBytes -= blob.recordBytes();
+        }
+        liveBytes -= blob.recordBytes();
+    }
+
+    /** Drops least recently used URLs (never {@code keep}) until the budget is met. */
+    private void evict(String keep) throws IOException {
+        Iterator<Entry> it = entries.values().iterator();
+        while (liveBytes > maxBytes && it.hasNext()) {
+            Entry eldest = it.next();
+            if (eldest.url.equals(keep)) {
+                continue;
+            }
+            it.remove();
+            release(eldest.blob);
+        }
+        reclaimSegments();
+    }
+
+    /**
+     * Deletes segments without live records and compacts the mostly dead
+     * ones (less than half live) into the active segment.
+     */
+    private void reclaimSegments() throws IOException {
+        if (segments.isEmpty()) {
+            return;
+        }
+        int active = segments.lastKey();
+        List<Segment> candidates = new ArrayList<>();
+        for (Segment s : segments.values()) {
+            if (s.id != active && s.liveBytes * 2 < s.size) {
+                candidates.add(s);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return;
+        }
+        for (Segment s : candidates) {
+            if (s.liveBytes > 0) {
+                for (Blob blob : new ArrayList<>(blobs.values())) {
+                    if (blob.segment == s.id) {
+                        move(blob);
+                    }
+                }
+            }
+            segments.remove(s.id);
+            closeQuietly(s.channel);
+            s.map = null;
+            try {
+                Files.deleteIfExists(s.path);
+            } catch (IOException ex) {
+                // Still mapped on some platforms; it is an orphan now and goes on the next open
+                LOG.fine("Could not delete " + s.path + ": " + ex.getMessage());
+            }
+        }
+        writeIndex(); // the index must not point into deleted segments
+    }
+
+    private void move(Blob blob) throws IOException {
+        byte[] stored = read(blob);
+        long bytes = blob.recordBytes();
+        Segment from = segments.get(blob.segment);
+        from.liveBytes -= bytes;
+        liveBytes -= bytes;
+        Blob moved = append(blob.hash, blob.rawLength, stored);
+        blob.segment = moved.segment;
+        blob.offset = moved.offset;
+    }
+
+    private Segment activeSegment(long recordBytes) throws IOException {
+        if (!segments.isEmpty()) {
+            Segment last = segments.lastEntry().getValue();
+            if (last.size == 0 || last.size + recordBytes <= segmentSize) {
+                return last;
+            }
+        }
+        int id = segments.isEmpty() ? 1 : segments.lastKey() + 1;
+        Path path = directory.resolve(segmentName(id));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        Segment segment = new Segment(id, path, channel, channel.size());
+        segments.put(id, segment);
+        return segment;
+    }
+
+    // -------------------------------------------------------------------
+    // Index
+    // -------------------------------------------------------------------
+
+    private void load() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "segment-*.dat")) {
+            for (Path path : files) {
+                int id = segmentId(path);
+                if (id > 0) {
+                    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                    segments.put(id, new Segment(id, path, channel, channel.size()));
+                }
+            }
+        }
+        try {
+            readIndex();
+        } catch (NoSuchFileException ex) {
+            // new store
+        } catch (IOException | RuntimeException ex) {
+            LOG.warning("Snapshot index unreadable, starting empty: " + ex.getMessage());
+            entries.clear();
+            blobs.clear();
+        }
+        liveBytes = 0;
+        for (Segment s : segments.values()) {
+            s.liveBytes = 0;
+        }
+        for (Blob blob : blobs.values()) {
+            segments.get(blob.segment).liveBytes += blob.recordBytes();
+            liveBytes += blob.recordBytes();
+        }
+        // Segments the index does not know about (crash after compaction) are dead
+        for (Segment s : new ArrayList<>(segments.values())) {
+            if (s.liveBytes == 0 && s.id != segments.lastKey()) {
+                segments.remove(s.id);
+                closeQuietly(s.channel);
+                Files.deleteIfExists(s.path);
+            }
+        }
+        evict(null);
+    }
+
+    private void readIndex() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(directory.resolve(INDEX_FILE))))) {
+            if (in.readInt() != INDEX_VERSION) {
+                throw new IOException("Unsupported snapshot index version");
+            }
+            int blobCount = in.readInt();
+            List<Blob> byPosition = new ArrayList<>(blobCount);
+            for (int i = 0; i < blobCount; i++) {
+                byte[] hash = new byte[HASH_BYTES];
+                in.readFully(hash);
+                Blob blob = new Blob(hash, in.readInt(), in.readLong(), in.readInt(), in.readInt());
+                Segment segment = segments.get(blob.segment);
+                // Records beyond the end of a segment were never fully written
+                byPosition.add(segment != null && blob.offset + blob.recordBytes() <= segment.size ? blob : null);
+            }
+            int entryCount = in.readInt();
+            for (int i = 0; i < entryCount; i++) {
+                byte[] url = new byte[in.readInt()];
+                in.readFully(url);
+                int blobIndex = in.readInt();
+                long capturedAt = in.readLong();
+                Blob blob = byPosition.get(blobIndex);
+                if (blob != null) {
+                    blob.refs++;
+                    blobs.put(HexFormat.of().formatHex(blob.hash), blob);
+                    entries.put(new String(url, StandardCharsets.UTF_8),
+                            new Entry(new String(url, StandardCharsets.UTF_8), blob, capturedAt));
+                }
+            }
+        } catch (EOFException ex) {
+            throw new IOException("Truncated snapshot index", ex);
+        }
+    }
+
+    /** Writes the index to a temp file and moves it into place. */
+    private void writeIndex() throws IOException {
+        for (Segment s : segments.values()) {
+            s.channel.force(false); // records must be durable before the index points at them
+        }
+        Path tmp = directory.resolve(INDEX_FILE + ".tmp");
+        List<Blob> order = new ArrayList<>(blobs.values());
+        Map<Blob, Integer> positions = new HashMap<>();
+        for (int i = 0; i < order.size(); i++) {
+            positions.put(order.get(i), i);
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(INDEX_VERSION);
+            out.writeInt(order.size());
+            for (Blob blob : order) {
+                out.write(blob.hash);
+                out.writeInt(blob.segment);
+                out.writeLong(blob.offset);
+                out.writeInt(blob.length);
+                out.writeInt(blob.rawLength);
+            }
+            out.writeInt(entries.size());
+            for (Entry entry : entries.values()) { // eldest first, so the LRU order survives restarts
+                byte[] url = entry.url.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(url.length);
+                out.write(url);
+                out.writeInt(positions.get(entry.blob));
+                out.writeLong(entry.capturedAtMillis);
+            }
+        }
+        Files.move(tmp, directory.resolve(INDEX_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        dirty = false;
+    }
+
+    // -------------------------------------------------------------------
+    // Helpers
+    // -------------------------------------------------------------------
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Snapshot store is closed");
+        }
+    }
+
+    private static String segmentName(int id) {
+        return String.format("segment-%05d.dat", id);
+    }
+
+    private static int segmentId(Path path) {
+        String name = path.getFileName().toString();
+        try {
+            return Integer.parseInt(name.substring("segment-".length(), name.length() - ".dat".length()));
+        } catch (NumberFormatException | StringIndexOutOfBoundsException ex) {
+            return -1;
+        }
+    }
+
+    private static byte[] sha256(byte[] data) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            byte[] buffer = new byte[Math.max(64, raw.length / 2)];
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                length += deflater.deflate(buffer, length, buffer.length - length);
+            }
+            return Arrays.copyOf(buffer, length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] stored, int rawLength) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(stored);
+            byte[] raw = new byte[rawLength];
+            int length = 0;
+            while (length < rawLength && !inflater.finished()) {
+                int n = inflater.inflate(raw, length, rawLength - length);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += n;
+            }
+            if (length != rawLength) {
+                throw new IOException("Corrupt snapshot: expected " + rawLength + " bytes, got " + length);
+            }
+            return raw;
+        } catch (DataFormatException ex) {
+            throw new IOException("Corrupt snapshot", ex);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // nothing useful to do while releasing resources
+        }
+    }
+}
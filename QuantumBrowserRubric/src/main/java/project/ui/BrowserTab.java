@@ -0,0 +1,188 @@
+package project.ui;
+
+import java.net.URI;
+import javafx.beans.binding.Bindings;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+import javafx.concurrent.Worker;
+import javafx.scene.control.Label;
+import javafx.scene.control.Tab;
+import javafx.scene.web.WebEngine;
+import javafx.scene.web.WebView;
+
+/**
+ * BrowserTab is one tab of the browser: a {@link Tab} that owns a
+ * {@link WebView} and its {@link WebEngine}.
+ *
+ * <p>A background tab can be discarded to free memory. The WebView is then
+ * released and only the page URL and scroll position are kept; the tab shows
+ * a placeholder until {@link TabManager} restores it on selection, which loads
+ * the URL again and scrolls back. Loads caused by a restore are flagged with
+ * {@link #isRestoring()} so they are not recorded as new visits.
+ */
+public class BrowserTab {
+
+    private static final String DISCARDED_STYLE = "discarded-tab";
+
+    private final Tab tab = new Tab("New Tab");
+    private WebView view;
+
+    // Page shown by the tab; null while it shows the home page
+    private String url;
+    private boolean homePage;
+    private double scrollX;
+    private double scrollY;
+    private boolean restoring;
+    private long lastSelectedNanos = System.nanoTime();
+
+    BrowserTab() {
+        tab.setUserData(this);
+    }
+
+    /** @return the JavaFX tab */
+    public Tab getTab() {
+        return tab;
+    }
+
+    /**
+     * @return the tab's engine; null while the tab is discarded (the selected tab never is)
+     */
+    public WebEngine getEngine() {
+        return view != null ? view.getEngine() : null;
+    }
+
+    /** @return URL of the page in the tab, or null on the home page */
+    public String getUrl() {
+        return url;
+    }
+
+    public boolean isHomePage() {
+        return homePage;
+    }
+
+    /** Marks the tab as showing the home page (set before loading it). */
+    public void setHomePage(boolean homePage) {
+        this.homePage = homePage;
+        if (homePage) {
+            url = null;
+        }
+    }
+
+    public boolean isDiscarded() {
+        return view == null;
+    }
+
+    /** @return true while the tab reloads its page after having been discarded */
+    public boolean isRestoring() {
+        return restoring;
+    }
+
+    long getLastSelectedNanos() {
+        return lastSelectedNanos;
+    }
+
+    void touch() {
+        lastSelectedNanos = System.nanoTime();
+    }
+
+    /** Creates the WebView and shows it in the tab. */
+    void createView() {
+        view = new WebView();
+        WebEngine engine = view.getEngine();
+        engine.locationProperty().addListener((obs, oldLoc, newLoc) -> {
+            if (newLoc != null && !newLoc.isEmpty() && getEngine() == engine) {
+                url = newLoc;
+                homePage = false;
+            }
+        });
+        tab.textProperty().bind(Bindings.createStringBinding(
+                () -> title(engine), engine.titleProperty(), engine.locationProperty()));
+        tab.getStyleClass().remove(DISCARDED_STYLE);
+        tab.setContent(view);
+    }
+
+    /**
+     * Remembers the scroll position and releases the WebView. Only the URL
+     * and the scroll position stay in memory.
+     */
+    void discard() {
+        if (view == null) {
+            return;
+        }
+        WebEngine engine = view.getEngine();
+        if (!homePage && engine.getLoadWorker().getState() == Worker.State.SUCCEEDED) {
+            try {
+                Object x = engine.executeScript("window.scrollX");
+                Object y = engine.executeScript("window.scrollY");
+                scrollX = x instanceof Number ? ((Number) x).doubleValue() : 0;
+                scrollY = y instanceof Number ? ((Number) y).doubleValue() : 0;
+            } catch (RuntimeException ex) {
+                scrollX = scrollY = 0; // page without a usable window object
+            }
+        }
+        String title = tab.getText();
+        tab.textProperty().unbind();
+        tab.setText(title);
+        view = null; // before unloading, so the blank page is not taken as the tab's URL
+        engine.getLoadWorker().cancel();
+        engine.loadContent(""); // lets WebKit free the page before the view is dropped
+        Label placeholder = new Label("Tab discarded to save memory - it reloads when selected");
+        tab.setContent(placeholder);
+        tab.getStyleClass().add(DISCARDED_STYLE);
+    }
+
+    /**
+     * Reloads the page of a discarded tab into its new WebView (see
+     * {@link #createView()}), scrolling back to where the user was once it
+     * has loaded.
+     */
+    void reload() {
+        WebEngine engine = view.getEngine();
+        restoring = true;
+        double x = scrollX;
+        double y = scrollY;
+        engine.getLoadWorker().stateProperty().addListener(new ChangeListener<>() {
+            @Override
+            public void changed(ObservableValue<? extends Worker.State> obs,
+                                Worker.State oldState, Worker.State newState) {
+                if (newState == Worker.State.SUCCEEDED || newState == Worker.State.FAILED
+                        || newState == Worker.State.CANCELLED) {
+                    obs.removeListener(this);
+                    restoring = false;
+                    if (newState == Worker.State.SUCCEEDED && (x != 0 || y != 0)) {
+                        engine.executeScript("window.scrollTo(" + x + "," + y + ")");
+                    }
+                }
+            }
+        });
+        engine.load(url);
+    }
+
+    /** Releases the WebView of a closed tab. */
+    void close() {
+        if (view != null) {
+            WebEngine engine = view.getEngine();
+            view = null;
+            engine.getLoadWorker().cancel();
+            engine.loadContent("");
+        }
+        tab.textProperty().unbind();
+    }
+
+    private String title(WebEngine engine) {
+        String title = engine.getTitle();
+        if (title != null && !title.isBlank()) {
+            return title;
+        }
+        String location = engine.getLocation();
+        if (location == null || location.isEmpty()) {
+            return homePage ? "Home" : "New Tab";
+        }
+        try {
+            String host = URI.create(location).getHost();
+            return host != null ? host : location;
+        } catch (IllegalArgumentException ex) {
+            return location;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package project.ui;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+import java.util.logging.Logger;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
+import javafx.util.Duration;
+import project.dao.AsyncDAO;
+import project.dao.Change;
+import project.dao.ChangeSet;
+import project.dao.GenericDAO;
+import project.model.BaseEntity;
+
+/**
+ * ChangePoller keeps a list in the side panel in step with writes made by
+ * other processes (the web tier, another browser) by polling a table's
+ * change feed, instead of reloading the whole table.
+ *
+ * <p>Each poll reads at most {@link #BATCH_SIZE} changes on the DB threads
+ * and hands them to the FX thread; a full batch is followed by the next one
+ * right away. Changes written by this process are skipped, since the UI
+ * already applied them as it made them. When the feed no longer reaches
+ * back to the last position, the list is reloaded instead. The interval
+ * can be set with {@code -Dquantum.changes.pollMillis}.
+ *
+ * <p>All methods must be called on the FX thread.
+ *
+ * @param <T> entity type of the table
+ * @param <D> DAO type
+ */
+public class ChangePoller<T extends BaseEntity, D extends GenericDAO<T>> {
+
+    private static final Logger LOG = Logger.getLogger(ChangePoller.class.getName());
+
+    /** Changes read per query. */
+    public static final int BATCH_SIZE = 500;
+
+    private static final long POLL_MILLIS = Long.getLong("quantum.changes.pollMillis", 2_000);
+
+    /** Reads a DAO's change feed, e.g. {@code HistoryStore::changesSince}. */
+    @FunctionalInterface
+    public interface Feed<T, D> {
+        ChangeSet<T> changesSince(D dao, long seq, int limit);
+    }
+
+    private final AsyncDAO<T, D> dao;
+    private final String name;
+    private final ToLongFunction<D> head;
+    private final Feed<T, D> feed;
+    private final Consumer<List<Change<T>>> apply;
+    private final Runnable reload;
+    private final Timeline timer;
+
+    private long seq = -1;       // feed position; unknown until start() or a later poll read it
+    private boolean polling;
+    private boolean stopped;
+
+    /**
+     * @param dao    asynchronous DAO the queries run through
+     * @param name   operation name for the DAO timings
+     * @param head   reads the current end of the feed, e.g. {@code HistoryStore::currentChangeSeq}
+     * @param feed   reads the changes after a position
+     * @param apply  applies changes made by other processes, oldest first
+     * @param reload reloads the whole list
+     */
+    public ChangePoller(AsyncDAO<T, D> dao, String name, ToLongFunction<D> head, Feed<T, D> feed,
+                        Consumer<List<Change<T>>> apply, Runnable reload) {
+        this.dao = dao;
+        this.name = name;
+        this.head = head;
+        this.feed = feed;
+        this.apply = apply;
+        this.reload = reload;
+        this.timer = new Timeline(new KeyFrame(Duration.millis(POLL_MILLIS), e -> poll()));
+        this.timer.setCycleCount(Animation.INDEFINITE);
+    }
+
+    /**
+     * Reads the current end of the feed, then polls from there. Call it
+     * before loading the list, so nothing written meanwhile is missed.
+     *
+     * @return future completed once the position is read; if that fails,
+     *         the first successful poll reloads the list
+     */
+    public CompletableFuture<Long> start() {
+        CompletableFuture<Long> started = dao.call(name + "Head", head::applyAsLong);
+        started.whenComplete((position, error) -> Platform.runLater(() -> {
+            if (stopped) {
+                return;
+            }
+            if (error == null) {
+                seq = Math.max(seq, position);
+            }
+            timer.play();
+        }));
+        return started;
+    }
+
+    /** Stops polling; a query already running is ignored when it returns. */
+    public void stop() {
+        stopped = true;
+        timer.stop();
+    }
+
+    private void poll() {
+        if (polling || stopped) {
+            return;
+        }
+        polling = true;
+        if (seq < 0) {
+            dao.call(name + "Head", head::applyAsLong)
+                    .whenComplete((position, error) -> Platform.runLater(() -> {
+                        polling = false;
+                        if (error == null && !stopped) {
+                            seq = position;
+                            reload.run();
+                        }
+                    }));
+            return;
+        }
+        long from = seq;
+        dao.call(name, d -> feed.changesSince(d, from, BATCH_SIZE))
+                .whenComplete((changes, error) -> Platform.runLater(() -> {
+                    polling = false;
+                    if (stopped) {
+                        return;
+                    }
+                    if (error != null) {
+                        LOG.fine(() -> name + " poll failed, retrying: " + error);
+                        return;
+                    }
+                    seq = changes.getNextSeq();
+                    if (changes.isReset()) {
+                        reload.run();
+                        return;
+                    }
+                    List<Change<T>> remote = new ArrayList<>();
+                    for (Change<T> change : changes.getChanges()) {
+                        if (!change.isLocal()) {
+                            remote.add(change);
+                        }
+                    }
+                    if (!remote.isEmpty()) {
+                        apply.accept(remote);
+                    }
+                    if (changes.hasMore()) {
+                        poll();
+                    }
+                }));
+    }
+}
@@ -0,0 +1,111 @@
+package project.ui;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.layout.VBox;
+import project.model.HistoryEntry;
+
+/**
+ * HistoryCell renders one history entry as "time - url" and, when the entry
+ * is the first of its day in the paged window, a day header above it.
+ *
+ * <p>Cells are recycled while scrolling, so the formatted text of the current
+ * entry is kept and only rebuilt when the cell is given a different entry.
+ * Day headers come from a small cache shared by all cells of the list.
+ * Search results (relevance order) are shown without headers.
+ */
+public class HistoryCell extends ListCell<HistoryEntry> {
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("EEEE, d MMMM yyyy");
+    private static final int MAX_CACHED_DAYS = 64;
+
+    private final HistoryPager pager;
+    private final Map<LocalDate, String> dayLabels;
+
+    private final Label header = new Label();
+    private final Label line = new Label();
+    private final VBox box = new VBox(header, line);
+
+    private HistoryEntry formatted;   // entry whose text is currently in 'line'
+
+    /**
+     * @param pager     window the cells belong to; told which rows are shown so it can page
+     * @param dayLabels header text cache shared by all cells of the list
+     */
+    HistoryCell(HistoryPager pager, Map<LocalDate, String> dayLabels) {
+        this.pager = pager;
+        this.dayLabels = dayLabels;
+        header.getStyleClass().add("history-day");
+        header.setMaxWidth(Double.MAX_VALUE);
+        line.getStyleClass().add("history-line");
+    }
+
+    /**
+     * Installs paging cells on the given list.
+     */
+    public static void install(ListView<HistoryEntry> view, HistoryPager pager) {
+        Map<LocalDate, String> dayLabels = new HashMap<>();
+        view.setCellFactory(v -> new HistoryCell(pager, dayLabels));
+    }
+
+    @Override
+    protected void updateItem(HistoryEntry entry, boolean empty) {
+        super.updateItem(entry, empty);
+        if (empty || entry == null) {
+            formatted = null;
+            setText(null);
+            setGraphic(null);
+            return;
+        }
+
+        if (entry != formatted) {
+            String time = entry.getVisitedAt() != null ? entry.getVisitedAt().format(TIME_FORMAT) : "";
+            line.setText(time + " - " + entry.getUrl());
+            formatted = entry;
+        }
+
+        LocalDate day = dayOf(entry);
+        List<HistoryEntry> items = getListView().getItems();
+        int index = getIndex();
+        boolean grouped = items == pager.getItems();
+        boolean firstOfDay = grouped && day != null
+                && (index == 0 || !day.equals(dayOf(items.get(index - 1))));
+        if (firstOfDay) {
+            header.setText(dayLabel(day));
+        }
+        header.setVisible(firstOfDay);
+        header.setManaged(firstOfDay);
+
+        setText(null);
+        setGraphic(box);
+
+        if (grouped) {
+            pager.indexShown(index);
+        }
+    }
+
+    private String dayLabel(LocalDate day) {
+        LocalDate today = LocalDate.now();
+        if (day.equals(today)) {
+            return "Today";
+        }
+        if (day.equals(today.minusDays(1))) {
+            return "Yesterday";
+        }
+        if (dayLabels.size() >= MAX_CACHED_DAYS) {
+            dayLabels.clear();
+        }
+        return dayLabels.computeIfAbsent(day, DAY_FORMAT::format);
+    }
+
+    private static LocalDate dayOf(HistoryEntry entry) {
+        return entry.getVisitedAt() != null ? entry.getVisitedAt().toLocalDate() : null;
+    }
+}
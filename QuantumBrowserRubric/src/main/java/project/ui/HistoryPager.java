@@ -0,0 +1,257 @@
+package project.ui;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.scene.control.ListView;
+import javafx.scene.control.skin.VirtualFlow;
+import project.dao.AsyncDAO;
+import project.dao.Change;
+import project.dao.HistoryCursor;
+import project.dao.HistoryStore;
+import project.dao.Page;
+import project.model.HistoryEntry;
+
+/**
+ * HistoryPager keeps a bounded, scrollable window of the history table for
+ * the side panel.
+ *
+ * <p>Pages are fetched with keyset cursors as the user scrolls towards either
+ * end of the window. When the window grows beyond {@code maxWindow} entries,
+ * whole pages are dropped from the end the user is scrolling away from, and
+ * fetched again if the user comes back. Memory therefore depends on the
+ * window size, not on how long the session runs or how large the table is.
+ * The window size can be set with {@code -Dquantum.history.window}.
+ *
+ * <p>All methods must be called on the FX thread; queries run through the
+ * given {@link AsyncDAO}.
+ */
+public class HistoryPager {
+
+    /** Entries fetched per query. */
+    public static final int PAGE_SIZE = 200;
+
+    /** Start fetching when the user is this close to either end of the window. */
+    private static final int PREFETCH_DISTANCE = 50;
+
+    private static final int DEFAULT_MAX_WINDOW = Integer.getInteger("quantum.history.window", 1_000);
+
+    private final AsyncDAO<HistoryEntry, HistoryStore> history;
+    private final ListView<HistoryEntry> view;
+    private final int maxWindow;
+    private final ObservableList<HistoryEntry> window = FXCollections.observableArrayList();
+
+    private String olderCursor;      // next page towards older visits; null at the oldest entry
+    private boolean newerDropped;    // newer entries were dropped and must be fetched again
+    private boolean loading;
+    private long generation;         // bumped by reset(), so stale results are ignored
+
+    /**
+     * @param history asynchronous history DAO used for every page
+     * @param view    list the window is shown in (used to keep the scroll position)
+     */
+    public HistoryPager(AsyncDAO<HistoryEntry, HistoryStore> history, ListView<HistoryEntry> view) {
+        this(history, view, DEFAULT_MAX_WINDOW);
+    }
+
+    /**
+     * @param history   asynchronous history DAO used for every page
+     * @param view      list the window is shown in (used to keep the scroll position)
+     * @param maxWindow maximum number of entries kept in memory (at least two pages)
+     */
+    public HistoryPager(AsyncDAO<HistoryEntry, HistoryStore> history, ListView<HistoryEntry> view, int maxWindow) {
+        this.history = history;
+        this.view = view;
+        this.maxWindow = Math.max(maxWindow, 2 * PAGE_SIZE);
+    }
+
+    /** @return the live window, newest first; bind it to the list view */
+    public ObservableList<HistoryEntry> getItems() {
+        return window;
+    }
+
+    /**
+     * Drops the window and loads the newest page into it.
+     *
+     * @return future of the query; the window itself is filled later on the FX thread
+     */
+    public CompletableFuture<Page<HistoryEntry>> reset() {
+        long gen = ++generation;
+        window.clear();
+        olderCursor = null;
+        newerDropped = false;
+        loading = true;
+        CompletableFuture<Page<HistoryEntry>> first =
+                history.call("firstPage", dao -> dao.findPage(null, PAGE_SIZE));
+        first.whenComplete((page, error) -> Platform.runLater(() -> {
+            if (gen != generation) {
+                return;
+            }
+            loading = false;
+            if (error == null) {
+                window.setAll(page.getItems());
+                olderCursor = page.getNextCursor();
+            }
+        }));
+        return first;
+    }
+
+    /** Empties the window after the history table was cleared. */
+    public void clear() {
+        ++generation;
+        window.clear();
+        olderCursor = null;
+        newerDropped = false;
+        loading = false;
+    }
+
+    /**
+     * Shows a new visit at the top of the window. If the user has scrolled so
+     * far that the newest entries were dropped, the visit is only written to
+     * the database and shows up when they page back.
+     */
+    public void addVisit(HistoryEntry entry) {
+        if (newerDropped) {
+            return;
+        }
+        window.add(0, entry);
+        if (window.size() > maxWindow) {
+            window.remove(maxWindow, window.size());
+            olderCursor = HistoryCursor.of(window.get(window.size() - 1)).encode();
+        }
+    }
+
+    /**
+     * Applies visits and deletes made by other processes (see
+     * {@link ChangePoller}). A visit is placed by time if it falls inside the
+     * window, and otherwise left for the page that covers it; a delete
+     * removes the visits in its range. Visits already shown are not added twice.
+     */
+    public void applyChanges(List<Change<HistoryEntry>> changes) {
+        for (Change<HistoryEntry> change : changes) {
+            if (change.getType() == Change.Type.DELETE) {
+                window.removeIf(e -> change.deletes(e.getVisitedAt()));
+                continue;
+            }
+            HistoryEntry entry = change.getRow();
+            int index = 0;
+            boolean shown = false;
+            while (index < window.size() && !shown && !isNewer(entry, window.get(index))) {
+                shown = window.get(index).getId() == entry.getId();
+                index++;
+            }
+            boolean beforeWindow = index == 0 && newerDropped;
+            boolean afterWindow = index == window.size() && olderCursor != null;
+            if (!shown && !beforeWindow && !afterWindow) {
+                window.add(index, entry);
+            }
+        }
+        if (window.size() > maxWindow) {
+            window.remove(maxWindow, window.size());
+            olderCursor = HistoryCursor.of(window.get(window.size() - 1)).encode();
+        }
+        if (window.isEmpty() && (olderCursor != null || newerDropped) && !loading) {
+            reset(); // everything shown was deleted, but other pages remain
+        }
+    }
+
+    /**
+     * Called by the cells as they are shown; fetches the next page when the
+     * given index is close to either end of the window.
+     */
+    void indexShown(int index) {
+        if (loading || view.getItems() != window) {
+            return;
+        }
+        if (olderCursor != null && index >= window.size() - PREFETCH_DISTANCE) {
+            loadOlder();
+        } else if (newerDropped && index < PREFETCH_DISTANCE) {
+            loadNewer();
+        }
+    }
+
+    // -------------------------------------------------------------------
+    // Internals
+    // -------------------------------------------------------------------
+
+    private void loadOlder() {
+        long gen = generation;
+        HistoryCursor before = HistoryCursor.decode(olderCursor);
+        loading = true;
+        history.call("olderPage", dao -> dao.findPage(before, PAGE_SIZE))
+                .whenComplete((page, error) -> Platform.runLater(() -> {
+                    if (gen != generation) {
+                        return;
+                    }
+                    loading = false;
+                    if (error == null) {
+                        appendOlder(page);
+                    }
+                }));
+    }
+
+    private void loadNewer() {
+        long gen = generation;
+        HistoryCursor after = HistoryCursor.of(window.get(0));
+        loading = true;
+        history.call("newerPage", dao -> dao.findNewer(after, PAGE_SIZE))
+                .whenComplete((entries, error) -> Platform.runLater(() -> {
+                    if (gen != generation) {
+                        return;
+                    }
+                    loading = false;
+                    if (error == null) {
+                        prependNewer(entries);
+                    }
+                }));
+    }
+
+    private void appendOlder(Page<HistoryEntry> page) {
+        window.addAll(page.getItems());
+        olderCursor = page.getNextCursor();
+        int excess = window.size() - maxWindow;
+        if (excess > 0) {
+            int first = firstVisibleIndex();
+            window.remove(0, excess);
+            newerDropped = true;
+            view.scrollTo(Math.max(0, first - excess));
+        }
+    }
+
+    private void prependNewer(List<HistoryEntry> entries) {
+        int first = firstVisibleIndex();
+        window.addAll(0, entries);
+        newerDropped = entries.size() == PAGE_SIZE;
+        view.scrollTo(first + entries.size());
+        int excess = window.size() - maxWindow;
+        if (excess > 0) {
+            window.remove(window.size() - excess, window.size());
+            olderCursor = HistoryCursor.of(window.get(window.size() - 1)).encode();
+        }
+    }
+
+    /** Window order: newest visit first, then highest id; visits without a time last, as in the DAO. */
+    private static boolean isNewer(HistoryEntry a, HistoryEntry b) {
+        if (a.getVisitedAt() == null && b.getVisitedAt() == null) {
+            return a.getId() > b.getId();
+        }
+        if (a.getVisitedAt() == null || b.getVisitedAt() == null) {
+            return a.getVisitedAt() != null;
+        }
+        int byTime = a.getVisitedAt().compareTo(b.getVisitedAt());
+        return byTime != 0 ? byTime > 0 : a.getId() > b.getId();
+    }
+
+    /** Index of the topmost visible row, so trimming the window does not make the list jump. */
+    private int firstVisibleIndex() {
+        if (view.lookup(".virtual-flow") instanceof VirtualFlow) {
+            VirtualFlow<?> flow = (VirtualFlow<?>) view.lookup(".virtual-flow");
+            if (flow.getFirstVisibleCell() != null) {
+                return flow.getFirstVisibleCell().getIndex();
+            }
+        }
+        return 0;
+    }
+}
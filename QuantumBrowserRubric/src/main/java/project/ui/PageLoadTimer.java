@@ -0,0 +1,132 @@
+package project.ui;
+
+import java.net.URI;
+import java.util.function.Consumer;
+import javafx.concurrent.Worker;
+import javafx.scene.web.WebEngine;
+import project.metrics.LatencyHistogram;
+import project.metrics.PageLoadMetrics;
+
+/**
+ * PageLoadTimer times every navigation of a {@link WebEngine}.
+ *
+ * <p>The load worker's state transitions give the wall-clock time from the
+ * start of the load until it succeeded or failed. When a load succeeds, the
+ * page's Navigation Timing data ({@code performance.timing}) is read with
+ * {@code executeScript} for time to first byte, DOMContentLoaded and load
+ * complete. The results are recorded per host in {@link PageLoadMetrics} and
+ * a one-line summary is handed to the status callback.
+ *
+ * <p>Pages loaded with {@code loadContent} (the home page) have no URL and are
+ * not timed. Everything runs on the FX thread.
+ */
+public class PageLoadTimer {
+
+    /** Milliseconds since navigationStart, as "ttfb,dcl,load"; empty if the API is missing. */
+    private static final String NAVIGATION_TIMING_SCRIPT =
+            "(function(){var t=window.performance&&window.performance.timing;" +
+            "if(!t||!t.navigationStart){return '';}" +
+            "return [t.responseStart-t.navigationStart," +
+            "t.domContentLoadedEventEnd-t.navigationStart," +
+            "t.loadEventEnd-t.navigationStart].join(',');})()";
+
+    private final WebEngine engine;
+    private final PageLoadMetrics metrics;
+    private final Consumer<String> status;
+
+    private long startedNanos;
+
+    /**
+     * @param engine  engine whose loads are timed
+     * @param metrics aggregate the timings are recorded in
+     * @param status  receives a summary of each completed load (may be null)
+     */
+    public PageLoadTimer(WebEngine engine, PageLoadMetrics metrics, Consumer<String> status) {
+        this.engine = engine;
+        this.metrics = metrics;
+        this.status = status;
+    }
+
+    /** Starts listening to the engine's load worker. */
+    public void install() {
+        engine.getLoadWorker().stateProperty().addListener((obs, oldState, newState) -> onStateChanged(newState));
+    }
+
+    private void onStateChanged(Worker.State state) {
+        switch (state) {
+            case SCHEDULED:
+                startedNanos = System.nanoTime();
+                break;
+            case SUCCEEDED:
+                onSucceeded();
+                break;
+            case FAILED:
+            case CANCELLED:
+                String host = hostOf(engine.getLocation());
+                if (host != null && startedNanos != 0) {
+                    metrics.recordFailure(host);
+                }
+                startedNanos = 0;
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void onSucceeded() {
+        String host = hostOf(engine.getLocation());
+        if (host == null || startedNanos == 0) {
+            startedNanos = 0;
+            return;
+        }
+        long elapsedMillis = (System.nanoTime() - startedNanos) / 1_000_000;
+        startedNanos = 0;
+
+        long[] timing = navigationTiming();
+        long firstByte = timing[0];
+        long domContentLoaded = timing[1];
+        // The load event may still be running when the worker reports success
+        long loadComplete = timing[2] > 0 ? timing[2] : elapsedMillis;
+
+        PageLoadMetrics.HostStats stats = metrics.recordLoad(host, firstByte, domContentLoaded, loadComplete);
+        if (status != null) {
+            LatencyHistogram loads = stats.getLoadComplete();
+            status.accept(String.format("%s loaded in %d ms (first byte %s, DOM ready %s) - median %d ms over %d loads",
+                    host, loadComplete, millis(firstByte), millis(domContentLoaded),
+                    loads.getValueAtQuantile(0.5), loads.getCount()));
+        }
+    }
+
+    /** @return {ttfb, dcl, load} in ms; -1 where the page did not report a value */
+    private long[] navigationTiming() {
+        long[] result = {-1, -1, -1};
+        try {
+            Object raw = engine.executeScript(NAVIGATION_TIMING_SCRIPT);
+            if (raw instanceof String && !((String) raw).isEmpty()) {
+                String[] parts = ((String) raw).split(",");
+                for (int i = 0; i < Math.min(parts.length, result.length); i++) {
+                    long v = Math.round(Double.parseDouble(parts[i]));
+                    result[i] = v >= 0 ? v : -1;
+                }
+            }
+        } catch (RuntimeException ex) {
+            // Script disabled or page gone; fall back to the wall-clock time
+        }
+        return result;
+    }
+
+    private static String millis(long value) {
+        return value >= 0 ? value + " ms" : "n/a";
+    }
+
+    private static String hostOf(String location) {
+        if (location == null || location.isEmpty()) {
+            return null;
+        }
+        try {
+            return URI.create(location).getHost();
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package project.ui;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javafx.application.Platform;
+import javafx.concurrent.Worker;
+import javafx.scene.web.WebEngine;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import org.w3c.dom.Document;
+import project.model.HistoryEntry;
+import project.snapshot.PageSnapshot;
+import project.snapshot.SnapshotStore;
+
+/**
+ * SnapshotRecorder saves every successfully loaded page of the engines it is
+ * installed on to a {@link SnapshotStore} and opens stored snapshots again.
+ *
+ * <p>The DOM must be serialized on the FX thread, which is cheap compared to
+ * the load itself; hashing, compressing and writing happen on a single
+ * background thread. That thread also writes the store's index a few seconds
+ * after new snapshots, batching them, so a crash loses at most those
+ * seconds of snapshots. Opening a snapshot reads it on that thread and shows it
+ * with {@code loadContent}, adding a {@code <base>} element so relative links
+ * and images still resolve against the original URL (when online).
+ */
+public class SnapshotRecorder {
+
+    private static final Logger LOG = Logger.getLogger(SnapshotRecorder.class.getName());
+
+    private static final Pattern HEAD_TAG = Pattern.compile("<head(\\s[^>]*)?>", Pattern.CASE_INSENSITIVE);
+
+    /** Delay between the first snapshot stored after an index write and the next index write. */
+    private static final long FLUSH_DELAY_SECONDS = 5;
+
+    private final SnapshotStore store;
+    private final Consumer<String> status;
+    private final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+        Thread t = new Thread(r, "snapshots");
+        t.setDaemon(true);
+        return t;
+    });
+    private boolean flushScheduled; // executor thread only
+
+    /**
+     * @param store  open snapshot store (closed by {@link #close(long)})
+     * @param status receives user-facing messages
+     */
+    public SnapshotRecorder(SnapshotStore store, Consumer<String> status) {
+        this.store = store;
+        this.status = status;
+        // close() writes the index itself
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    /** Starts recording the pages an engine loads from http(s) URLs. */
+    public void install(WebEngine engine) {
+        engine.getLoadWorker().stateProperty().addListener((obs, oldState, newState) -> {
+            if (newState == Worker.State.SUCCEEDED) {
+                capture(engine);
+            }
+        });
+    }
+
+    private void capture(WebEngine engine) {
+        String url = engine.getLocation();
+        Document document = engine.getDocument();
+        if (url == null || !(url.startsWith("http://") || url.startsWith("https://")) || document == null) {
+            return; // home page, snapshots and local files are not recorded
+        }
+        String html;
+        try {
+            html = serialize(document);
+        } catch (TransformerException ex) {
+            LOG.fine("Could not serialize " + url + ": " + ex.getMessage());
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                store.put(url, html);
+            } catch (IOException ex) {
+                LOG.warning("Could not store snapshot of " + url + ": " + ex.getMessage());
+                return;
+            }
+            if (!flushScheduled) {
+                flushScheduled = true;
+                executor.schedule(this::flush, FLUSH_DELAY_SECONDS, TimeUnit.SECONDS);
+            }
+        });
+    }
+
+    private void flush() {
+        flushScheduled = false;
+        try {
+            store.flush();
+        } catch (IOException ex) {
+            LOG.warning("Could not write snapshot index: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Shows the stored snapshot of a URL in an engine.
+     *
+     * @param engine engine to show it in
+     * @param url    page URL (history or bookmark entry)
+     */
+    public void open(WebEngine engine, String url) {
+        executor.execute(() -> {
+            try {
+                PageSnapshot snapshot = store.get(url);
+                Platform.runLater(() -> {
+                    if (snapshot == null) {
+                        status.accept("No offline snapshot of " + url);
+                        return;
+                    }
+                    engine.loadContent(withBase(snapshot.getHtml(), url));
+                    status.accept("Offline snapshot of " + url + " from "
+                            + snapshot.getCapturedAt().format(HistoryEntry.DISPLAY_FORMAT));
+                });
+            } catch (IOException ex) {
+                LOG.warning("Could not read snapshot of " + url + ": " + ex.getMessage());
+                Platform.runLater(() -> status.accept("Could not open snapshot: " + ex.getMessage()));
+            }
+        });
+    }
+
+    /** @return true if a snapshot of the URL is stored */
+    public boolean hasSnapshot(String url) {
+        return store.contains(url);
+    }
+
+    /** Finishes pending writes (up to the timeout) and closes the store. */
+    public void close(long timeoutMillis) {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            store.close();
+        } catch (IOException ex) {
+            LOG.warning("Could not close snapshot store: " + ex.getMessage());
+        }
+    }
+
+    private static String serialize(Document document) throws TransformerException {
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        transformer.setOutputProperty(OutputKeys.METHOD, "html");
+        transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+        StringWriter out = new StringWriter();
+        transformer.transform(new DOMSource(document), new StreamResult(out));
+        return out.toString();
+    }
+
+    /** Inserts {@code <base href>} right after the opening head tag (or at the start). */
+    private static String withBase(String html, String url) {
+        String base = "<base href=\"" + url.replace("&", "&amp;").replace("\"", "&quot;") + "\">";
+        Matcher head = HEAD_TAG.matcher(html);
+        if (head.find()) {
+            return html.substring(0, head.end()) + base + html.substring(head.end());
+        }
+        return base + html;
+    }
+}
@@ -0,0 +1,199 @@
+package project.ui;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.logging.Logger;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.scene.control.Tab;
+import javafx.scene.control.TabPane;
+import javafx.util.Duration;
+
+/**
+ * TabManager keeps the browser's tabs in a {@link TabPane}, one
+ * {@link BrowserTab} (and WebEngine) per tab, all in one process.
+ *
+ * <p>Every WebView holds a WebKit page with its DOM, JavaScript heap and
+ * decoded images, so idle tabs are bounded. The least recently selected
+ * background tabs are discarded when
+ * <ul>
+ *   <li>more than {@code -Dquantum.tabs.maxLive} (default 6) tabs have a live WebView, or</li>
+ *   <li>the Java heap is fuller than {@code -Dquantum.tabs.maxHeapFraction}
+ *       (default 0.8) of its maximum; one tab is discarded per check, which
+ *       runs on every tab switch and every 30 seconds, so the garbage
+ *       collector can catch up in between.</li>
+ * </ul>
+ * The selected tab is never discarded. A discarded tab is restored when it
+ * is selected again.
+ *
+ * <p>All methods must be called on the FX thread.
+ */
+public class TabManager {
+
+    private static final Logger LOG = Logger.getLogger(TabManager.class.getName());
+
+    private static final Duration BUDGET_CHECK_INTERVAL = Duration.seconds(30);
+
+    /** Callbacks into the controller. */
+    public interface Host {
+        /** A WebEngine was created for the tab (new or restored tab): attach listeners. */
+        void engineCreated(BrowserTab tab);
+
+        /** The tab became the selected one. */
+        void tabSelected(BrowserTab tab);
+
+        /** The tab must show the home page (new tab, or restored home-page tab). */
+        void showHome(BrowserTab tab);
+    }
+
+    private final TabPane pane;
+    private final Host host;
+    private final int maxLive;
+    private final double maxHeapFraction;
+    private final Timeline budgetCheck;
+    private int discarded;
+
+    /**
+     * @param pane tab pane to manage (its tabs are replaced)
+     * @param host controller callbacks
+     */
+    public TabManager(TabPane pane, Host host) {
+        this(pane, host, Integer.getInteger("quantum.tabs.maxLive", 6),
+                Double.parseDouble(System.getProperty("quantum.tabs.maxHeapFraction", "0.8")));
+    }
+
+    /**
+     * @param pane            tab pane to manage
+     * @param host            controller callbacks
+     * @param maxLive         tabs that may keep a WebView
+     * @param maxHeapFraction heap use (of the maximum) above which background tabs are discarded
+     */
+    public TabManager(TabPane pane, Host host, int maxLive, double maxHeapFraction) {
+        this.pane = pane;
+        this.host = host;
+        this.maxLive = Math.max(1, maxLive);
+        this.maxHeapFraction = maxHeapFraction;
+
+        pane.getTabs().clear();
+        pane.setTabClosingPolicy(TabPane.TabClosingPolicy.ALL_TABS);
+        pane.getSelectionModel().selectedItemProperty().addListener((obs, oldTab, newTab) -> {
+            if (newTab != null) {
+                onSelected(tabOf(newTab));
+            }
+        });
+
+        budgetCheck = new Timeline(new KeyFrame(BUDGET_CHECK_INTERVAL, e -> enforceBudget()));
+        budgetCheck.setCycleCount(Animation.INDEFINITE);
+        budgetCheck.play();
+    }
+
+    /**
+     * Opens a new tab showing the home page and selects it.
+     *
+     * @return the new tab
+     */
+    public BrowserTab open() {
+        BrowserTab tab = new BrowserTab();
+        tab.createView();
+        tab.getTab().setOnClosed(e -> onClosed(tab));
+        host.engineCreated(tab);
+        host.showHome(tab);
+        pane.getTabs().add(tab.getTab());
+        pane.getSelectionModel().select(tab.getTab());
+        return tab;
+    }
+
+    /** @return the selected tab (always live) */
+    public BrowserTab getSelected() {
+        return tabOf(pane.getSelectionModel().getSelectedItem());
+    }
+
+    /** @return all tabs in display order */
+    public List<BrowserTab> getTabs() {
+        List<BrowserTab> tabs = new ArrayList<>();
+        for (Tab t : pane.getTabs()) {
+            tabs.add(tabOf(t));
+        }
+        return tabs;
+    }
+
+    /** @return tabs discarded since start */
+    public int getDiscardedCount() {
+        return discarded;
+    }
+
+    /**
+     * Discards least recently selected background tabs until the live-tab
+     * budget is met, plus one more if the heap is over its budget.
+     */
+    public void enforceBudget() {
+        List<BrowserTab> candidates = new ArrayList<>();
+        int live = 0;
+        BrowserTab selected = getSelected();
+        for (BrowserTab tab : getTabs()) {
+            if (!tab.isDiscarded()) {
+                live++;
+                if (tab != selected) {
+                    candidates.add(tab);
+                }
+            }
+        }
+        candidates.sort(Comparator.comparingLong(BrowserTab::getLastSelectedNanos));
+
+        int index = 0;
+        while (live > maxLive && index < candidates.size()) {
+            discard(candidates.get(index++), "more than " + maxLive + " live tabs");
+            live--;
+        }
+        if (index < candidates.size() && heapFraction() > maxHeapFraction) {
+            discard(candidates.get(index), String.format("heap %.0f%% full", heapFraction() * 100));
+        }
+    }
+
+    /** Stops the budget timer and releases every WebView. */
+    public void close() {
+        budgetCheck.stop();
+        for (BrowserTab tab : getTabs()) {
+            tab.close();
+        }
+    }
+
+    private void onSelected(BrowserTab tab) {
+        tab.touch();
+        if (tab.isDiscarded()) {
+            tab.createView();
+            host.engineCreated(tab);
+            if (tab.isHomePage() || tab.getUrl() == null) {
+                host.showHome(tab);
+            } else {
+                tab.reload();
+            }
+        }
+        host.tabSelected(tab);
+        enforceBudget();
+    }
+
+    private void onClosed(BrowserTab tab) {
+        tab.close();
+        if (pane.getTabs().isEmpty()) {
+            open();
+        }
+    }
+
+    private void discard(BrowserTab tab, String reason) {
+        tab.discard();
+        discarded++;
+        LOG.fine("Discarded tab " + tab.getUrl() + " (" + reason + ")");
+    }
+
+    private static double heapFraction() {
+        Runtime rt = Runtime.getRuntime();
+        return (double) (rt.totalMemory() - rt.freeMemory()) / rt.maxMemory();
+    }
+
+    private static BrowserTab tabOf(Tab tab) {
+        return tab == null ? null : (BrowserTab) tab.getUserData();
+    }
+}
@@ -0,0 +1,176 @@
+package project.ui;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * WallpaperCache decodes the home page wallpaper once, crops and scales it
+ * to the screen resolution and keeps the result on disk.
+ *
+ * <p>Files are named after a hash of the source image plus the target
+ * resolution, so a new wallpaper or a different screen simply produces a new
+ * file; later sessions find the file and skip decoding altogether. WebKit
+ * then paints a screen-sized JPEG instead of decoding and scaling the
+ * full-size original on every visit to the home page.
+ *
+ * <p>The cache directory defaults to {@code ~/.quantum-browser/cache} and can
+ * be changed with {@code -Dquantum.cache.dir}. Calls do blocking I/O and
+ * must not run on the FX thread.
+ */
+public class WallpaperCache {
+
+    private static final float JPEG_QUALITY = 0.85f;
+
+    private final Path directory;
+
+    /**
+     * @param directory directory the scaled images are written to (created on demand)
+     */
+    public WallpaperCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /** @return the configured cache directory */
+    public static Path defaultDirectory() {
+        String configured = System.getProperty("quantum.cache.dir");
+        return configured != null
+                ? Paths.get(configured)
+                : Paths.get(System.getProperty("user.home"), ".quantum-browser", "cache");
+    }
+
+    /**
+     * Returns a copy of the source image that exactly covers
+     * {@code width x height} pixels, creating it if it is not cached yet.
+     *
+     * @param source image resource (any format ImageIO can read)
+     * @param width  target width in physical pixels
+     * @param height target height in physical pixels
+     * @return path of the cached JPEG
+     * @throws IOException if the source cannot be read or the cache written
+     */
+    public Path scaled(URL source, int width, int height) throws IOException {
+        byte[] bytes;
+        try (InputStream in = source.openStream()) {
+            bytes = in.readAllBytes();
+        }
+        Path target = directory.resolve("wallpaper-" + hash(bytes) + "-" + width + "x" + height + ".jpg");
+        if (Files.isRegularFile(target)) {
+            return target;
+        }
+
+        BufferedImage decoded = decode(bytes, width, height);
+        BufferedImage image = decoded.getWidth() == width && decoded.getHeight() == height
+                ? null // already the right size: keep the original file
+                : cover(decoded, width, height);
+        Files.createDirectories(directory);
+        // Write to a temp file and move it, so a crash never leaves half an image behind
+        Path tmp = Files.createTempFile(directory, "wallpaper", ".tmp");
+        try {
+            if (image == null) {
+                Files.write(tmp, bytes);
+            } else {
+                writeJpeg(image, tmp);
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        return target;
+    }
+
+    // -------------------------------------------------------------------
+    // Internals
+    // -------------------------------------------------------------------
+
+    /**
+     * Decodes the image, letting the reader skip pixels when the source is
+     * at least twice as large as needed (much cheaper than decoding everything).
+     */
+    private static BufferedImage decode(byte[] bytes, int width, int height) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                throw new IOException("Unsupported wallpaper format");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int step = Math.max(1, Math.min(reader.getWidth(0) / width, reader.getHeight(0) / height));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Scales the image to cover the target and crops the overflow (CSS "cover").
+     * A source smaller than the target is only cropped to its aspect ratio, never
+     * enlarged; the browser stretches it as it did before.
+     */
+    private static BufferedImage cover(BufferedImage src, int targetWidth, int targetHeight) {
+        double fit = Math.min(1.0, Math.min((double) src.getWidth() / targetWidth,
+                (double) src.getHeight() / targetHeight));
+        int width = Math.max(1, (int) Math.round(targetWidth * fit));
+        int height = Math.max(1, (int) Math.round(targetHeight * fit));
+        double scale = Math.max((double) width / src.getWidth(), (double) height / src.getHeight());
+        int scaledW = (int) Math.ceil(src.getWidth() * scale);
+        int scaledH = (int) Math.ceil(src.getHeight() * scale);
+
+        BufferedImage out = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = out.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(src, (width - scaledW) / 2, (height - scaledH) / 2, scaledW, scaledH, null);
+        } finally {
+            g.dispose();
+        }
+        return out;
+    }
+
+    private static void writeJpeg(BufferedImage image, Path file) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(file.toFile())) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private static String hash(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+    }
+}
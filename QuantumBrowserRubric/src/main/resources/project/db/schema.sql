@@ -1,14 +1,4 @@
 CREATE DATABASE quantum_browser;
-USE quantum_browser;
 
-CREATE TABLE bookmarks (
-    id INT AUTO_INCREMENT PRIMARY KEY,
-    title VARCHAR(255),
-    url TEXT
-);
-
-CREATE TABLE history (
-    id INT AUTO_INCREMENT PRIMARY KEY,
-    url TEXT,
-    timestamp DATETIME
-);
+-- Tables and indexes are created and upgraded automatically at startup by
+-- project.dao.SchemaMigrator (versions are tracked in the schema_version table).
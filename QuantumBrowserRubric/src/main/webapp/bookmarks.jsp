@@ -1,5 +1,11 @@
 <%@ page contentType="text/html;charset=UTF-8" %>
 <%@ page import="java.util.*, project.model.Bookmark" %>
+<%!
+    private static String escape(String s) {
+        return s == null ? "" : s.replace("&", "&amp;").replace("<", "&lt;")
+                .replace(">", "&gt;").replace("\"", "&quot;");
+    }
+%>
 
 <!DOCTYPE html>
 <html>
@@ -56,6 +62,10 @@
             margin-top: 25px;
         }
 
+        form.search {
+            margin: 0 0 18px;
+        }
+
         input {
             width: 100%;
             padding: 10px;
@@ -99,20 +109,30 @@
     <h1>📌 Bookmarks</h1>
 
     <%
-        List<Bookmark> bookmarks =
-                (List<Bookmark>) request.getAttribute("bookmarks");
-        if (bookmarks != null && !bookmarks.isEmpty()) {
-            for (Bookmark b : bookmarks) {
+        String q = (String) request.getAttribute("q");
+    %>
+
+    <form class="search" method="get" action="bookmarks">
+        <input name="q" value="<%= escape(q) %>" placeholder="Search bookmarks…" />
+    </form>
+
+    <%
+        // Rows arrive one at a time; the page buffer is flushed as it fills
+        Iterator<Bookmark> bookmarks =
+                (Iterator<Bookmark>) request.getAttribute("bookmarks");
+        if (bookmarks != null && bookmarks.hasNext()) {
+            while (bookmarks.hasNext()) {
+                Bookmark b = bookmarks.next();
     %>
         <div class="bookmark">
-            <span><%= b.getTitle() %></span>
-            <a href="<%= b.getUrl() %>" target="_blank">Open</a>
+            <span><%= escape(b.getTitle()) %></span>
+            <a href="<%= escape(b.getUrl()) %>" target="_blank">Open</a>
         </div>
     <%
             }
         } else {
     %>
-        <p>No bookmarks saved.</p>
+        <p><%= q != null && !q.isEmpty() ? "No matching bookmarks." : "No bookmarks saved." %></p>
     <%
         }
     %>
@@ -1,5 +1,13 @@
 <%@ page contentType="text/html;charset=UTF-8" %>
-<%@ page import="java.util.*" %>
+<%@ page import="java.util.*, java.time.format.DateTimeFormatter, project.model.HistoryEntry" %>
+<%!
+    private static String escape(String s) {
+        return s == null ? "" : s.replace("&", "&amp;").replace("<", "&lt;")
+                .replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+%>
 
 <!DOCTYPE html>
 <html>
@@ -56,6 +64,31 @@
             background: #dc2626;
         }
 
+        .search input {
+            width: 100%;
+            box-sizing: border-box;
+            padding: 10px 14px;
+            margin-bottom: 18px;
+            border-radius: 12px;
+            border: none;
+            outline: none;
+        }
+
+        .pager {
+            display: flex;
+            justify-content: space-between;
+            margin-top: 14px;
+        }
+
+        .pager a {
+            color: #60a5fa;
+            text-decoration: none;
+        }
+
+        .pager a:hover {
+            text-decoration: underline;
+        }
+
         .back {
             text-align: center;
             margin-top: 18px;
@@ -74,21 +107,49 @@
     <h1>🕑 Browsing History</h1>
 
     <%
-        List<String> history =
-                (List<String>) request.getAttribute("history");
-        if (history != null && !history.isEmpty()) {
-            for (String h : history) {
+        String q = (String) request.getAttribute("q");
+    %>
+
+    <form class="search" method="get" action="history">
+        <input name="q" value="<%= escape(q) %>" placeholder="Search history (site, path, words)…" />
+    </form>
+
+    <%
+        // Rows arrive one at a time; the page buffer is flushed as it fills
+        Iterator<HistoryEntry> history =
+                (Iterator<HistoryEntry>) request.getAttribute("history");
+        if (history != null && history.hasNext()) {
+            while (history.hasNext()) {
+                HistoryEntry h = history.next();
+                String time = h.getVisitedAt() != null ? FORMATTER.format(h.getVisitedAt()) : "";
     %>
-        <div class="entry"><%= h %></div>
+        <div class="entry"><%= time %> — <%= escape(h.getUrl()) %></div>
     <%
             }
         } else {
     %>
-        <p>No browsing history.</p>
+        <p><%= q != null && !q.isEmpty() ? "No matching history." : "No browsing history." %></p>
     <%
         }
+
+        String nextCursor = (String) request.getAttribute("nextCursor");
+        Boolean firstPage = (Boolean) request.getAttribute("firstPage");
+        Integer limit = (Integer) request.getAttribute("limit");
     %>
 
+    <div class="pager">
+        <span>
+        <% if (firstPage != null && !firstPage) { %>
+            <a href="history?limit=<%= limit %>">⇤ Newest</a>
+        <% } %>
+        </span>
+        <span>
+        <% if (nextCursor != null) { %>
+            <a href="history?cursor=<%= nextCursor %>&amp;limit=<%= limit %>">Older ⟶</a>
+        <% } %>
+        </span>
+    </div>
+
     <form method="post" action="history">
         <button class="danger">Clear History</button>
     </form>
@@ -48,6 +48,32 @@
             box-shadow: 0 0 20px rgba(0,140,255,0.9);
         }
 
+        h2 {
+            margin: 26px 0 10px;
+            font-size: 20px;
+        }
+
+        .top-sites {
+            display: flex;
+            flex-wrap: wrap;
+            justify-content: center;
+            gap: 10px;
+            max-width: 520px;
+        }
+
+        .top-sites .tile {
+            text-decoration: none;
+            padding: 8px 14px;
+            border-radius: 12px;
+            background: rgba(255,255,255,0.18);
+            color: white;
+            font-size: 14px;
+        }
+
+        .top-sites .tile:hover {
+            background: rgba(11,107,255,0.7);
+        }
+
     </style>
 </head>
 <body>
@@ -58,6 +84,9 @@
 
     <a href="bookmarks" class="btn">📌 View & Manage Bookmarks</a>
     <a href="history" class="btn">🕑 View & Clear History</a>
+
+    <h2>⭐ Top Sites</h2>
+    <jsp:include page="/top-sites" />
 </div>
 
 </body>